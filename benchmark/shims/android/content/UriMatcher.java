@@ -0,0 +1,40 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.content;
+
+import android.net.Uri;
+
+/**
+ * Plain JVM replacement for UriMatcher, so classes building matchers in their
+ * static initializers can be loaded. Nothing is ever matched.
+ */
+public class UriMatcher {
+
+	public static final int NO_MATCH = -1;
+
+	public UriMatcher(final int code) {
+	}
+
+	public void addURI(final String authority, final String path, final int code) {
+	}
+
+	public int match(final Uri uri) {
+		return NO_MATCH;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package android.util;
+
+/**
+ * Plain JVM replacement for Log, messages are printed to stderr.
+ */
+public final class Log {
+
+	public static int d(final String tag, final String msg) {
+		return println("D", tag, msg, null);
+	}
+
+	public static int d(final String tag, final String msg, final Throwable tr) {
+		return println("D", tag, msg, tr);
+	}
+
+	public static int e(final String tag, final String msg) {
+		return println("E", tag, msg, null);
+	}
+
+	public static int e(final String tag, final String msg, final Throwable tr) {
+		return println("E", tag, msg, tr);
+	}
+
+	public static int i(final String tag, final String msg) {
+		return println("I", tag, msg, null);
+	}
+
+	public static int i(final String tag, final String msg, final Throwable tr) {
+		return println("I", tag, msg, tr);
+	}
+
+	public static int v(final String tag, final String msg) {
+		return println("V", tag, msg, null);
+	}
+
+	public static int v(final String tag, final String msg, final Throwable tr) {
+		return println("V", tag, msg, tr);
+	}
+
+	public static int w(final String tag, final String msg) {
+		return println("W", tag, msg, null);
+	}
+
+	public static int w(final String tag, final String msg, final Throwable tr) {
+		return println("W", tag, msg, tr);
+	}
+
+	public static int w(final String tag, final Throwable tr) {
+		return println("W", tag, null, tr);
+	}
+
+	private static int println(final String priority, final String tag, final String msg, final Throwable tr) {
+		final String line = priority + "/" + tag + ": " + msg;
+		System.err.println(line);
+		if (tr != null) {
+			tr.printStackTrace();
+		}
+		return line.length();
+	}
+}
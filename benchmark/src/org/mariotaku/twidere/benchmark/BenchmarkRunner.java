@@ -0,0 +1,309 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Minimal JMH style throughput benchmark runner.
+ * <p>
+ * Usage: <code>BenchmarkRunner [-wi warmup_iterations] [-i iterations]
+ * [-t iteration_millis] [-o results.json] [benchmark_class...]</code>
+ * <p>
+ * Results are written as a JSON array in the same shape as JMH's JSON output,
+ * so they can be tracked with the same tools.
+ */
+public final class BenchmarkRunner {
+
+	private static final String[] DEFAULT_BENCHMARKS = { "CacheBenchmark", "TextBenchmark", "ParsingBenchmark",
+			"SerializationBenchmark", "ProviderBenchmark", "StreamBenchmark" };
+
+	/**
+	 * A single call of a benchmark method should take at least this long, so
+	 * reflection overhead doesn't show in results.
+	 */
+	private static final long MIN_CALL_NANOS = 1000 * 1000;
+	private static final int MAX_OPERATIONS_PER_CALL = 1 << 24;
+
+	/** Two sided z value for a 99.9% confidence interval. */
+	private static final double Z_99_9 = 3.291;
+
+	private static volatile int sSink;
+
+	private final List<Result> mResults = new ArrayList<Result>();
+
+	private int mWarmupIterations = 5, mIterations = 10;
+	private long mIterationMillis = 500;
+
+	public void run(final String class_name) {
+		final String name = class_name.indexOf('.') < 0 ? getClass().getPackage().getName() + "." + class_name
+				: class_name;
+		final Object instance;
+		final List<Method> methods = new ArrayList<Method>();
+		final List<Method> setups = new ArrayList<Method>();
+		try {
+			final Class<?> cls = Class.forName(name);
+			for (final Method method : cls.getMethods()) {
+				if (method.isAnnotationPresent(Benchmark.class)) {
+					methods.add(method);
+				} else if (method.isAnnotationPresent(Setup.class)) {
+					setups.add(method);
+				}
+			}
+			instance = cls.newInstance();
+		} catch (final Throwable t) {
+			mResults.add(Result.skipped(name, t));
+			return;
+		}
+		Collections.sort(methods, new Comparator<Method>() {
+
+			@Override
+			public int compare(final Method method1, final Method method2) {
+				return method1.getName().compareTo(method2.getName());
+			}
+		});
+		try {
+			for (final Method setup : setups) {
+				setup.invoke(instance);
+			}
+		} catch (final Throwable t) {
+			for (final Method method : methods) {
+				mResults.add(Result.skipped(name + "." + method.getName(), getCause(t)));
+			}
+			return;
+		}
+		for (final Method method : methods) {
+			final String benchmark = name + "." + method.getName();
+			try {
+				mResults.add(measure(benchmark, instance, method));
+			} catch (final Throwable t) {
+				mResults.add(Result.skipped(benchmark, getCause(t)));
+			}
+		}
+	}
+
+	public void writeResults(final File file) throws IOException {
+		final File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.isDirectory()) {
+			dir.mkdirs();
+		}
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write("[\n");
+			for (int i = 0, j = mResults.size(); i < j; i++) {
+				writer.write(mResults.get(i).toJSON(mWarmupIterations, mIterations, mIterationMillis));
+				writer.write(i < j - 1 ? ",\n" : "\n");
+			}
+			writer.write("]\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	private Result measure(final String benchmark, final Object instance, final Method method) throws Exception {
+		int operations = 1;
+		while (operations < MAX_OPERATIONS_PER_CALL) {
+			final long start = System.nanoTime();
+			consume(method.invoke(instance, operations));
+			if (System.nanoTime() - start >= MIN_CALL_NANOS) {
+				break;
+			}
+			operations *= 2;
+		}
+		for (int i = 0; i < mWarmupIterations; i++) {
+			runIteration(instance, method, operations);
+		}
+		final double[] scores = new double[mIterations];
+		for (int i = 0; i < mIterations; i++) {
+			scores[i] = runIteration(instance, method, operations);
+		}
+		final Result result = new Result(benchmark, scores, null);
+		System.out.println(result);
+		return result;
+	}
+
+	private double runIteration(final Object instance, final Method method, final int operations) throws Exception {
+		final long start = System.nanoTime();
+		final long deadline = start + mIterationMillis * 1000 * 1000;
+		long count = 0;
+		long now;
+		do {
+			consume(method.invoke(instance, operations));
+			count += operations;
+		} while ((now = System.nanoTime()) < deadline);
+		return count * 1e9 / (now - start);
+	}
+
+	public static void main(final String[] args) throws IOException {
+		final BenchmarkRunner runner = new BenchmarkRunner();
+		final List<String> classes = new ArrayList<String>();
+		String output = null;
+		for (int i = 0; i < args.length; i++) {
+			final String arg = args[i];
+			if ("-wi".equals(arg) && i + 1 < args.length) {
+				runner.mWarmupIterations = Integer.parseInt(args[++i]);
+			} else if ("-i".equals(arg) && i + 1 < args.length) {
+				runner.mIterations = Math.max(1, Integer.parseInt(args[++i]));
+			} else if ("-t".equals(arg) && i + 1 < args.length) {
+				runner.mIterationMillis = Long.parseLong(args[++i]);
+			} else if ("-o".equals(arg) && i + 1 < args.length) {
+				output = args[++i];
+			} else if (arg.length() > 0) {
+				classes.add(arg);
+			}
+		}
+		if (classes.isEmpty()) {
+			classes.addAll(Arrays.asList(DEFAULT_BENCHMARKS));
+		}
+		for (final String name : classes) {
+			runner.run(name);
+		}
+		if (output != null) {
+			runner.writeResults(new File(output));
+			System.out.println("Results written to " + output);
+		}
+	}
+
+	private static void consume(final Object result) {
+		sSink ^= result != null ? result.hashCode() : 0;
+	}
+
+	private static Throwable getCause(final Throwable t) {
+		if (t instanceof InvocationTargetException && t.getCause() != null) return t.getCause();
+		return t;
+	}
+
+	private static String quote(final String string) {
+		final StringBuilder builder = new StringBuilder("\"");
+		for (int i = 0, j = string.length(); i < j; i++) {
+			final char c = string.charAt(i);
+			switch (c) {
+				case '"':
+				case '\\': {
+					builder.append('\\').append(c);
+					break;
+				}
+				case '\n': {
+					builder.append("\\n");
+					break;
+				}
+				default: {
+					if (c < 0x20) {
+						builder.append(String.format(Locale.US, "\\u%04x", (int) c));
+					} else {
+						builder.append(c);
+					}
+				}
+			}
+		}
+		return builder.append('"').toString();
+	}
+
+	private static final class Result {
+
+		final String benchmark;
+		final double[] scores;
+		final String skipped;
+
+		Result(final String benchmark, final double[] scores, final String skipped) {
+			this.benchmark = benchmark;
+			this.scores = scores;
+			this.skipped = skipped;
+		}
+
+		double getError() {
+			if (scores.length < 2) return Double.NaN;
+			final double mean = getScore();
+			double sum = 0;
+			for (final double score : scores) {
+				sum += (score - mean) * (score - mean);
+			}
+			return Z_99_9 * Math.sqrt(sum / (scores.length - 1)) / Math.sqrt(scores.length);
+		}
+
+		double getScore() {
+			double sum = 0;
+			for (final double score : scores) {
+				sum += score;
+			}
+			return sum / scores.length;
+		}
+
+		String toJSON(final int warmup_iterations, final int iterations, final long iteration_millis) {
+			final StringBuilder builder = new StringBuilder();
+			builder.append("  {\n");
+			builder.append("    \"benchmark\": ").append(quote(benchmark)).append(",\n");
+			builder.append("    \"mode\": \"thrpt\",\n");
+			builder.append("    \"jdkVersion\": ").append(quote(System.getProperty("java.version"))).append(",\n");
+			if (skipped != null) {
+				builder.append("    \"skipped\": ").append(quote(skipped)).append("\n");
+			} else {
+				final double error = getError();
+				builder.append("    \"warmupIterations\": ").append(warmup_iterations).append(",\n");
+				builder.append("    \"measurementIterations\": ").append(iterations).append(",\n");
+				builder.append("    \"measurementTime\": \"").append(iteration_millis).append(" ms\",\n");
+				builder.append("    \"primaryMetric\": {\n");
+				builder.append("      \"score\": ").append(format(getScore())).append(",\n");
+				builder.append("      \"scoreError\": ").append(Double.isNaN(error) ? "\"NaN\"" : format(error))
+						.append(",\n");
+				builder.append("      \"scoreUnit\": \"ops/s\",\n");
+				builder.append("      \"rawData\": [[");
+				for (int i = 0; i < scores.length; i++) {
+					if (i > 0) {
+						builder.append(", ");
+					}
+					builder.append(format(scores[i]));
+				}
+				builder.append("]]\n");
+				builder.append("    }\n");
+			}
+			builder.append("  }");
+			return builder.toString();
+		}
+
+		@Override
+		public String toString() {
+			if (skipped != null) return benchmark + ": skipped (" + skipped + ")";
+			return String.format(Locale.US, "%s: %.1f ± %.1f ops/s", benchmark, getScore(), getError());
+		}
+
+		static Result skipped(final String benchmark, final Throwable t) {
+			final Result result = new Result(benchmark, null, String.valueOf(t));
+			System.out.println(result);
+			return result;
+		}
+
+		private static String format(final double value) {
+			return String.format(Locale.US, "%.3f", value);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mariotaku.twidere.benchmark;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import org.mariotaku.twidere.util.LongIndexedArray;
+import org.mariotaku.twidere.util.PrefixTrie;
+import org.mariotaku.twidere.util.RedirectCache;
+import org.mariotaku.twidere.util.RedirectCache.Redirect;
+import org.mariotaku.twidere.util.metrics.Histogram;
+import org.mariotaku.twidere.util.metrics.Metrics;
+
+/**
+ * Lookups in the in-memory caches used while binding and refreshing
+ * timelines.
+ */
+public class CacheBenchmark {
+
+	private static final int IDS_COUNT = 20000;
+	private static final int USERS_COUNT = 5000;
+	private static final int URLS_COUNT = 512;
+
+	private final Random mRandom = new Random(42);
+
+	private long[] mIds;
+	private LongIndexedArray mIndexedIds;
+	private PrefixTrie<String> mTrie;
+	private String[] mPrefixes;
+	private String[] mUrls;
+	private RedirectCache mRedirectCache;
+	private Histogram mHistogram;
+
+	@Benchmark
+	public int histogramRecord(final int ops) {
+		long value = 0;
+		for (int i = 0; i < ops; i++) {
+			value = value * 31 + i & 0xFFFFF;
+			mHistogram.record(value);
+		}
+		return (int) mHistogram.getCount();
+	}
+
+	@Benchmark
+	public int longIndexedArrayIndexOf(final int ops) {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			// Every fourth lookup misses.
+			final long id = (i & 3) == 0 ? -i : mIds[i % IDS_COUNT];
+			sum += mIndexedIds.indexOf(id);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int prefixTrieQuery(final int ops) {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			sum += mTrie.query(mPrefixes[i % mPrefixes.length]).size();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int redirectCacheGetPut(final int ops) {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			final String url = mUrls[i % URLS_COUNT];
+			final Redirect redirect = mRedirectCache.get(url);
+			if (redirect != null) {
+				sum += redirect.redirects;
+			} else {
+				mRedirectCache.put(url, url + "/target", 1);
+			}
+		}
+		return sum;
+	}
+
+	@Setup
+	public void setup() {
+		mIds = new long[IDS_COUNT];
+		long id = 300000000000000000L;
+		for (int i = 0; i < IDS_COUNT; i++) {
+			id -= 1 + mRandom.nextInt(100000);
+			mIds[i] = id;
+		}
+		mIndexedIds = new LongIndexedArray(mIds);
+		mTrie = new PrefixTrie<String>(new Comparator<String>() {
+
+			@Override
+			public int compare(final String object1, final String object2) {
+				return object1.compareTo(object2);
+			}
+		}, 10);
+		mPrefixes = new String[256];
+		for (int i = 0; i < USERS_COUNT; i++) {
+			final String screen_name = randomName(4 + mRandom.nextInt(11));
+			mTrie.put(screen_name, screen_name);
+			if (i < mPrefixes.length) {
+				mPrefixes[i] = screen_name.substring(0, 1 + i % 3);
+			}
+		}
+		// Twice as many URLs as the cache holds, so it keeps evicting.
+		mUrls = new String[URLS_COUNT];
+		for (int i = 0; i < URLS_COUNT; i++) {
+			mUrls[i] = "http://t.co/" + randomName(10);
+		}
+		mRedirectCache = RedirectCache.getInstance();
+		mHistogram = Metrics.getInstance().getHistogram("benchmark.histogram");
+	}
+
+	private String randomName(final int length) {
+		final char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			final int c = mRandom.nextInt(37);
+			chars[i] = c < 26 ? (char) ('a' + c) : c < 36 ? (char) ('0' + c - 26) : '_';
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import twitter4j.DirectMessage;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.conf.ConfigurationBuilder;
+import twitter4j.internal.json.InternalJSONImplFactory;
+
+/**
+ * Reads recorded data from the fixtures directory, which is set by the
+ * <code>benchmark.fixtures</code> system property.
+ * <p>
+ * JSON fixtures hold one recorded API object per line.
+ */
+final class Fixtures {
+
+	private static final String DEFAULT_FIXTURES_DIR = "benchmark/fixtures";
+
+	private static InternalJSONImplFactory sFactory;
+
+	private Fixtures() {
+	}
+
+	static synchronized InternalJSONImplFactory getFactory() {
+		if (sFactory == null) {
+			sFactory = new InternalJSONImplFactory(new ConfigurationBuilder().build());
+		}
+		return sFactory;
+	}
+
+	static List<DirectMessage> readDirectMessages() throws IOException, JSONException, TwitterException {
+		final List<DirectMessage> messages = new ArrayList<DirectMessage>();
+		for (final String line : readLines("direct_messages.jsonl")) {
+			messages.add(getFactory().createDirectMessage(new JSONObject(line)));
+		}
+		return messages;
+	}
+
+	static List<String> readLines(final String name) throws IOException {
+		final List<String> lines = new ArrayList<String>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(getFile(name)),
+				"UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() > 0) {
+					lines.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return lines;
+	}
+
+	static String readString(final String name) throws IOException {
+		final StringBuilder builder = new StringBuilder();
+		for (final String line : readLines(name)) {
+			builder.append(line).append('\n');
+		}
+		return builder.toString();
+	}
+
+	static List<Status> readStatuses() throws IOException, JSONException, TwitterException {
+		final List<Status> statuses = new ArrayList<Status>();
+		for (final String line : readLines("statuses.jsonl")) {
+			statuses.add(getFactory().createStatus(new JSONObject(line)));
+		}
+		return statuses;
+	}
+
+	private static File getFile(final String name) {
+		return new File(System.getProperty("benchmark.fixtures", DEFAULT_FIXTURES_DIR), name);
+	}
+}
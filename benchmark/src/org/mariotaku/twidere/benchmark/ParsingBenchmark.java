@@ -0,0 +1,96 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mariotaku.twidere.benchmark;
+
+import java.util.List;
+
+import org.json.JSONObject;
+import org.mariotaku.twidere.util.HtmlBuilder;
+
+import twitter4j.Status;
+import twitter4j.URLEntity;
+import twitter4j.internal.json.InternalJSONImplFactory;
+
+/**
+ * Parsing recorded API responses into twitter4j objects, and formatting the
+ * parsed statuses the way they are stored.
+ * <p>
+ * Needs an org.json implementation on the class path.
+ */
+public class ParsingBenchmark {
+
+	private InternalJSONImplFactory mFactory;
+	private String[] mStatuses;
+	private String[] mDirectMessages;
+	private List<Status> mParsedStatuses;
+
+	@Benchmark
+	public int formatStatusText(final int ops) {
+		int sum = 0;
+		final int size = mParsedStatuses.size();
+		for (int i = 0; i < ops; i++) {
+			sum += formatStatusText(mParsedStatuses.get(i % size)).length();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int parseDirectMessages(final int ops) throws Exception {
+		long sum = 0;
+		for (int i = 0; i < ops; i++) {
+			sum += mFactory.createDirectMessage(new JSONObject(mDirectMessages[i % mDirectMessages.length])).getId();
+		}
+		return (int) sum;
+	}
+
+	@Benchmark
+	public int parseStatuses(final int ops) throws Exception {
+		long sum = 0;
+		for (int i = 0; i < ops; i++) {
+			sum += mFactory.createStatus(new JSONObject(mStatuses[i % mStatuses.length])).getId();
+		}
+		return (int) sum;
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		mFactory = Fixtures.getFactory();
+		mStatuses = Fixtures.readLines("statuses.jsonl").toArray(new String[0]);
+		mDirectMessages = Fixtures.readLines("direct_messages.jsonl").toArray(new String[0]);
+		mParsedStatuses = Fixtures.readStatuses();
+	}
+
+	/**
+	 * Same as Utils.formatStatusText(), which can't be loaded outside of
+	 * Android.
+	 */
+	static String formatStatusText(final Status status) {
+		final HtmlBuilder builder = new HtmlBuilder(status.getRawText(), false, true, true);
+		final URLEntity[] urls = status.getURLEntities();
+		if (urls != null) {
+			for (final URLEntity url : urls) {
+				if (url.getExpandedURL() != null) {
+					builder.addLink(String.valueOf(url.getExpandedURL()), url.getDisplayURL(), url.getStart(),
+							url.getEnd());
+				}
+			}
+		}
+		return builder.build().replace("\n", "<br/>");
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mariotaku.twidere.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.mariotaku.twidere.provider.TweetStore.Filters;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+import org.mariotaku.twidere.util.DatabaseHelper;
+import org.mariotaku.twidere.util.HtmlEscapeHelper;
+
+import twitter4j.Status;
+
+/**
+ * Status ingestion and filter evaluation against SQLite, using an in-memory
+ * database through the SQLite JDBC driver in place of the Android provider.
+ * The database has the schema of the app, so inserts pay for the same search
+ * index triggers and indices.
+ * <p>
+ * Needs sqlite-jdbc and an org.json implementation on the class path.
+ */
+public class ProviderBenchmark {
+
+	private static final String[] FILTERED_KEYWORDS = { "spoiler", "giveaway", "#ad", "crypto", "win a free" };
+	private static final String[] FILTERED_LINKS = { "spam.example.com", "bit.ly/free" };
+	private static final String[] FILTERED_USERS = { "spammer", "bob_smith" };
+	private static final String[] FILTERED_SOURCES = { "twitterfeed", "IFTTT" };
+
+	private static final String INSERT_STATUS = "INSERT INTO " + Statuses.CONTENT_PATH + " (" + Statuses.ACCOUNT_ID
+			+ ", " + Statuses.STATUS_ID + ", " + Statuses.USER_ID + ", " + Statuses.STATUS_TIMESTAMP + ", "
+			+ Statuses.TEXT_HTML + ", " + Statuses.TEXT_PLAIN + ", " + Statuses.NAME + ", " + Statuses.SCREEN_NAME
+			+ ", " + Statuses.PROFILE_IMAGE_URL + ", " + Statuses.SOURCE + ", " + Statuses.IN_REPLY_TO_STATUS_ID
+			+ ", " + Statuses.RETWEET_COUNT + ", " + Statuses.IS_GAP + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String COUNT_STATUSES = "SELECT COUNT(*) FROM " + Statuses.CONTENT_PATH;
+
+	private static final long ACCOUNT_ID = 1234567;
+
+	private Connection mConnection;
+	private Row[] mRows;
+	private PreparedStatement mInsertStatement, mCountStatement, mFilterStatement;
+
+	@Benchmark
+	public int evaluateFilters(final int ops) throws SQLException {
+		int filtered = 0;
+		for (int i = 0; i < ops; i++) {
+			final Row row = mRows[i % mRows.length];
+			mFilterStatement.setString(1, row.text_plain);
+			mFilterStatement.setString(2, row.text_html);
+			mFilterStatement.setString(3, row.screen_name);
+			mFilterStatement.setString(4, row.source);
+			final ResultSet result = mFilterStatement.executeQuery();
+			try {
+				if (result.next()) {
+					filtered++;
+				}
+			} finally {
+				result.close();
+			}
+		}
+		return filtered;
+	}
+
+	/**
+	 * One operation inserts all recorded statuses in a transaction, like
+	 * TwidereDataProvider.bulkInsert() does for a refresh.
+	 */
+	@Benchmark
+	public int ingestStatuses(final int ops) throws SQLException {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			final int old_count = getStatusesCount();
+			mConnection.setAutoCommit(false);
+			try {
+				for (final Row row : mRows) {
+					row.bind(mInsertStatement);
+					mInsertStatement.executeUpdate();
+				}
+				mConnection.commit();
+			} finally {
+				mConnection.setAutoCommit(true);
+			}
+			sum += getStatusesCount() - old_count;
+			execute("DELETE FROM " + Statuses.CONTENT_PATH);
+		}
+		return sum;
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		Class.forName("org.sqlite.JDBC");
+		mConnection = DriverManager.getConnection("jdbc:sqlite::memory:");
+		for (final String sql : DatabaseHelper.getCreateStatements()) {
+			execute(sql);
+		}
+		insertFilters(Filters.Keywords.CONTENT_PATH, FILTERED_KEYWORDS);
+		insertFilters(Filters.Links.CONTENT_PATH, FILTERED_LINKS);
+		insertFilters(Filters.Users.CONTENT_PATH, FILTERED_USERS);
+		insertFilters(Filters.Sources.CONTENT_PATH, FILTERED_SOURCES);
+		final List<Status> statuses = Fixtures.readStatuses();
+		mRows = new Row[statuses.size()];
+		for (int i = 0, j = statuses.size(); i < j; i++) {
+			mRows[i] = new Row(statuses.get(i));
+		}
+		mInsertStatement = mConnection.prepareStatement(INSERT_STATUS);
+		mCountStatement = mConnection.prepareStatement(COUNT_STATUSES);
+		mFilterStatement = mConnection.prepareStatement(Filters.QUERY_IS_FILTERED);
+	}
+
+	private void execute(final String sql) throws SQLException {
+		final Statement statement = mConnection.createStatement();
+		try {
+			statement.execute(sql);
+		} finally {
+			statement.close();
+		}
+	}
+
+	private int getStatusesCount() throws SQLException {
+		final ResultSet result = mCountStatement.executeQuery();
+		try {
+			return result.next() ? result.getInt(1) : 0;
+		} finally {
+			result.close();
+		}
+	}
+
+	private void insertFilters(final String table, final String[] values) throws SQLException {
+		final PreparedStatement insert = mConnection.prepareStatement("INSERT INTO " + table + " (" + Filters.TEXT
+				+ ") VALUES (?)");
+		try {
+			for (final String value : values) {
+				insert.setString(1, value);
+				insert.executeUpdate();
+			}
+		} finally {
+			insert.close();
+		}
+	}
+
+	private static final class Row {
+
+		final long status_id, user_id, timestamp, in_reply_to_status_id, retweet_count;
+		final String text_html, text_plain, name, screen_name, profile_image_url, source;
+
+		Row(final Status status) {
+			status_id = status.getId();
+			user_id = status.getUser().getId();
+			timestamp = status.getCreatedAt().getTime();
+			in_reply_to_status_id = status.getInReplyToStatusId();
+			retweet_count = status.getRetweetCount();
+			text_html = ParsingBenchmark.formatStatusText(status);
+			text_plain = HtmlEscapeHelper.toPlainText(text_html);
+			name = status.getUser().getName();
+			screen_name = status.getUser().getScreenName();
+			profile_image_url = status.getUser().getProfileImageUrlHttps().toString();
+			source = status.getSource();
+		}
+
+		void bind(final PreparedStatement statement) throws SQLException {
+			statement.setLong(1, ACCOUNT_ID);
+			statement.setLong(2, status_id);
+			statement.setLong(3, user_id);
+			statement.setLong(4, timestamp);
+			statement.setString(5, text_html);
+			statement.setString(6, text_plain);
+			statement.setString(7, name);
+			statement.setString(8, screen_name);
+			statement.setString(9, profile_image_url);
+			statement.setString(10, source);
+			statement.setLong(11, in_reply_to_status_id);
+			statement.setLong(12, retweet_count);
+			statement.setInt(13, 0);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mariotaku.twidere.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import twitter4j.Status;
+
+/**
+ * Object stream round trips of a parsed timeline, as done by SerializationUtil
+ * for cached timelines, with a byte array instead of a file.
+ * <p>
+ * Needs an org.json implementation on the class path.
+ */
+public class SerializationBenchmark {
+
+	private ArrayList<Status> mStatuses;
+	private byte[] mSerialized;
+
+	@Benchmark
+	public int read(final int ops) throws Exception {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			sum += deserialize(mSerialized).size();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int roundTrip(final int ops) throws Exception {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			sum += deserialize(serialize(mStatuses)).size();
+		}
+		return sum;
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		mStatuses = new ArrayList<Status>(Fixtures.readStatuses());
+		mSerialized = serialize(mStatuses);
+	}
+
+	@Benchmark
+	public int write(final int ops) throws Exception {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			sum += serialize(mStatuses).length;
+		}
+		return sum;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Status> deserialize(final byte[] data) throws IOException, ClassNotFoundException {
+		final ObjectInputStream is = new ObjectInputStream(new ByteArrayInputStream(data));
+		try {
+			return (List<Status>) is.readObject();
+		} finally {
+			is.close();
+		}
+	}
+
+	private static byte[] serialize(final Object object) throws IOException {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final ObjectOutputStream os = new ObjectOutputStream(bos);
+		try {
+			os.writeObject(object);
+		} finally {
+			os.close();
+		}
+		return bos.toByteArray();
+	}
+}
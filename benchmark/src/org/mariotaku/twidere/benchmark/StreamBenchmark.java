@@ -0,0 +1,159 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mariotaku.twidere.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.mariotaku.twidere.util.StreamRangeTracker;
+import org.mariotaku.twidere.util.UserStreamParser;
+
+import twitter4j.DirectMessage;
+import twitter4j.Status;
+import twitter4j.User;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+/**
+ * Replays a recorded user stream through UserStreamParser, batching statuses
+ * the way StreamBatchWriter does, and fails if the ranges recorded for the
+ * batches leave gaps while connected, or join across a reconnection.
+ * StreamBatchWriter writes through the provider, which can't be loaded
+ * outside of Android, so the replay drives its StreamRangeTracker.
+ * <p>
+ * Needs an org.json implementation on the class path.
+ */
+public class StreamBenchmark {
+
+	private static final long ACCOUNT_ID = 1234567;
+
+	/**
+	 * Smaller than StreamBatchWriter.BATCH_SIZE, so the recorded stream is
+	 * written in several batches.
+	 */
+	private static final int BATCH_SIZE = 4;
+
+	private Configuration mConfiguration;
+	private byte[] mStream;
+
+	/**
+	 * One operation replays the stream twice, with a reconnection between.
+	 */
+	@Benchmark
+	public int replayStream(final int ops) throws IOException {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			final ReplayCallback callback = new ReplayCallback();
+			final UserStreamParser parser = new UserStreamParser(mConfiguration, callback);
+			parser.parse(new ByteArrayInputStream(mStream));
+			callback.onConnected();
+			parser.parse(new ByteArrayInputStream(mStream));
+			sum += callback.flush();
+		}
+		return sum;
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		mConfiguration = new ConfigurationBuilder().build();
+		final List<String> statuses = Fixtures.readLines("statuses.jsonl");
+		final StringBuilder builder = new StringBuilder();
+		builder.append("{\"friends\":[1001,6253282]}\r\n");
+		for (int i = 0, size = statuses.size(); i < size; i++) {
+			builder.append(statuses.get(i)).append("\r\n");
+			if (i % 5 == 4) {
+				// Keep-alive.
+				builder.append("\r\n");
+			}
+		}
+		for (final String message : Fixtures.readLines("direct_messages.jsonl")) {
+			builder.append("{\"direct_message\":").append(message).append("}\r\n");
+		}
+		builder.append("{\"delete\":{\"status\":{\"id\":310000000000000000,\"user_id\":1001}}}\r\n");
+		mStream = builder.toString().getBytes("UTF-8");
+	}
+
+	private static final class ReplayCallback implements UserStreamParser.Callback {
+
+		private final StreamRangeTracker mRanges = new StreamRangeTracker();
+
+		private int mStatusesCount, mRangesCount;
+		private long mBatchMinId = -1, mLastMaxId = -1;
+
+		@Override
+		public void onDirectMessage(final DirectMessage message) {
+		}
+
+		@Override
+		public void onDirectMessageDeletion(final long message_id) {
+		}
+
+		@Override
+		public void onDisconnect(final int code, final String reason) {
+		}
+
+		@Override
+		public void onException(final Exception e) {
+			throw new IllegalStateException("Unable to replay stream", e);
+		}
+
+		@Override
+		public void onFavoriteChanged(final User source, final Status status, final boolean favorite) {
+		}
+
+		@Override
+		public void onStatus(final Status status) {
+			final long status_id = status.getId();
+			mRanges.add(ACCOUNT_ID, status_id);
+			mBatchMinId = mBatchMinId > 0 ? Math.min(mBatchMinId, status_id) : status_id;
+			if (++mStatusesCount % BATCH_SIZE == 0) {
+				flush();
+			}
+		}
+
+		@Override
+		public void onStatusDeletion(final long status_id) {
+		}
+
+		void onConnected() {
+			flush();
+			mRanges.onConnected(ACCOUNT_ID);
+			mLastMaxId = -1;
+		}
+
+		/**
+		 * Polls ranges of the current batch like the writer thread does.
+		 *
+		 * @return Number of ranges polled so far.
+		 */
+		int flush() {
+			for (final long[] range : mRanges.poll()) {
+				final long expected_min_id = mLastMaxId > 0 ? Math.min(mBatchMinId, mLastMaxId) : mBatchMinId;
+				if (range[0] != ACCOUNT_ID || range[1] != expected_min_id)
+					throw new IllegalStateException("Range " + range[1] + "-" + range[2] + " should start at "
+							+ expected_min_id);
+				mLastMaxId = range[2];
+				mRangesCount++;
+			}
+			mBatchMinId = -1;
+			return mRangesCount;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mariotaku.twidere.benchmark;
+
+import static org.mariotaku.twidere.Constants.INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_SMALL;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mariotaku.twidere.util.HtmlBuilder;
+import org.mariotaku.twidere.util.HtmlEscapeHelper;
+import org.mariotaku.twidere.util.HtmlLinkExtractor;
+import org.mariotaku.twidere.util.Utils;
+
+import com.twitter.Extractor;
+import com.twitter.Extractor.Entity;
+
+/**
+ * Entity extraction and the HTML round trip every status text goes through
+ * between the API response and the list item.
+ */
+public class TextBenchmark {
+
+	private final Extractor mExtractor = new Extractor();
+	private final HtmlLinkExtractor mLinkExtractor = new HtmlLinkExtractor();
+
+	private String[] mTexts;
+	private String[] mHtmls;
+	private final List<List<Entity>> mURLEntities = new ArrayList<List<Entity>>();
+
+	@Benchmark
+	public int buildHtml(final int ops) {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			final int idx = i % mTexts.length;
+			sum += buildHtml(mTexts[idx], mURLEntities.get(idx)).length();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int extractEntities(final int ops) {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			sum += mExtractor.extractEntitiesWithIndices(mTexts[i % mTexts.length]).size();
+		}
+		return sum;
+	}
+
+	/**
+	 * Inline image lookup CursorStatusesAdapter does for every list item.
+	 */
+	@Benchmark
+	public int getPreviewImage(final int ops) {
+		int found = 0;
+		for (int i = 0; i < ops; i++) {
+			if (Utils.getPreviewImage(mHtmls[i % mHtmls.length], INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_SMALL) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int grabLinks(final int ops) {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			sum += mLinkExtractor.grabLinks(mHtmls[i % mHtmls.length]).size();
+		}
+		return sum;
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		final List<String> lines = Fixtures.readLines("texts.txt");
+		final int count = lines.size();
+		mTexts = new String[count];
+		mHtmls = new String[count];
+		for (int i = 0; i < count; i++) {
+			mTexts[i] = lines.get(i).replace("\\n", "\n");
+			final List<Entity> entities = mExtractor.extractURLsWithIndices(mTexts[i]);
+			mURLEntities.add(entities);
+			mHtmls[i] = buildHtml(mTexts[i], entities);
+		}
+	}
+
+	@Benchmark
+	public int toPlainText(final int ops) {
+		int sum = 0;
+		for (int i = 0; i < ops; i++) {
+			sum += HtmlEscapeHelper.toPlainText(mHtmls[i % mHtmls.length]).length();
+		}
+		return sum;
+	}
+
+	/**
+	 * Same steps as Utils.formatStatusText(), with entities found by the
+	 * extractor instead of the API.
+	 */
+	private static String buildHtml(final String text, final List<Entity> entities) {
+		final HtmlBuilder builder = new HtmlBuilder(text, false, true, true);
+		for (final Entity entity : entities) {
+			final String url = entity.getValue();
+			builder.addLink(url, url, entity.getStart(), entity.getEnd());
+		}
+		return builder.build().replace("\n", "<br/>");
+	}
+}
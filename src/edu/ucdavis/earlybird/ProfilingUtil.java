@@ -1,10 +1,7 @@
 package edu.ucdavis.earlybird;
 
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
-
 import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.util.metrics.Metrics;
 
 import android.content.Context;
 import android.content.Intent;
@@ -29,6 +26,13 @@ public class ProfilingUtil {
 		return plugged == BatteryManager.BATTERY_PLUGGED_AC || plugged == BatteryManager.BATTERY_PLUGGED_USB;
 	}
 
+	public static boolean isProfilingEnabled(final Context context) {
+		if (context == null) return false;
+		final SharedPreferences prefs = context.getSharedPreferences(Constants.SHARED_PREFERENCES_NAME,
+				Context.MODE_PRIVATE);
+		return prefs.getBoolean(Constants.PREFERENCE_KEY_UCD_DATA_PROFILING, false);
+	}
+
 	public static boolean log(final String msg) {
 		if (DEBUG) {
 			final StackTraceElement ste = new Throwable().fillInStackTrace().getStackTrace()[1];
@@ -46,25 +50,7 @@ public class ProfilingUtil {
 	}
 
 	public static void profile(final Context context, final String name, final String text) {
-		if (context == null) return;
-		final SharedPreferences prefs = context.getSharedPreferences(Constants.SHARED_PREFERENCES_NAME,
-				Context.MODE_PRIVATE);
-		if (!prefs.getBoolean(Constants.PREFERENCE_KEY_UCD_DATA_PROFILING, false)) return;
-		final String filename = name + ".csv";
-		new Thread() {
-			@Override
-			public void run() {
-				try {
-					final FileOutputStream fos = context.openFileOutput(filename, Context.MODE_APPEND);
-					if (fos == null) return;
-					final BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(fos));
-					bw.write("[" + System.currentTimeMillis() + "], " + text + "\n");
-					bw.flush();
-					fos.close();
-				} catch (final Exception e) {
-					e.printStackTrace();
-				}
-			};
-		}.start();
+		if (!isProfilingEnabled(context)) return;
+		Metrics.getInstance().log(context, name + ".csv", text);
 	}
 }
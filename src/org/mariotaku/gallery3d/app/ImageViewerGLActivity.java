@@ -225,7 +225,12 @@ public final class ImageViewerGLActivity extends FragmentActivity implements Con
 	public void onLoadFinished(final Loader<GLImageLoader.Result> loader, final GLImageLoader.Result data) {
 		if (data instanceof GLImageLoader.GLImageResult) {
 			final GLImageLoader.GLImageResult data_gl = (GLImageLoader.GLImageResult) data;
-			mAdapter.setData(data_gl.decoder, data_gl.bitmap, data_gl.orientation);
+			mGLRootView.lockRenderThread();
+			try {
+				mAdapter.setData(data_gl.decoder, data_gl.bitmap, data_gl.orientation, data.file);
+			} finally {
+				mGLRootView.unlockRenderThread();
+			}
 			mImageFile = data.file;
 			mImageLoaded = true;
 			mRefreshStopSaveButton.setImageResource(R.drawable.ic_menu_save);
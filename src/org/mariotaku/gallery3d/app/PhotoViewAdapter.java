@@ -16,9 +16,14 @@
 
 package org.mariotaku.gallery3d.app;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
 import org.mariotaku.gallery3d.ui.BitmapScreenNail;
 import org.mariotaku.gallery3d.ui.PhotoView;
 import org.mariotaku.gallery3d.ui.ScreenNail;
+import org.mariotaku.gallery3d.ui.TileImageView;
 import org.mariotaku.gallery3d.util.ApiHelper;
 import org.mariotaku.gallery3d.util.BitmapPool;
 import org.mariotaku.gallery3d.util.GalleryUtils;
@@ -46,6 +51,14 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 
 	private int mImageRotation;
 
+	// BitmapRegionDecoder serializes decodeRegion() calls, so tiles are
+	// decoded in parallel with one decoder for each decoding thread. Extra
+	// decoders are opened from mImageFile when needed.
+	private final ArrayList<BitmapRegionDecoder> mIdleDecoders = new ArrayList<BitmapRegionDecoder>();
+	private int mDecoderCount;
+	private int mDecoderGeneration;
+	private File mImageFile;
+
 	public PhotoViewAdapter(final PhotoView view) {
 		mPhotoView = view;
 	}
@@ -98,24 +111,26 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 		final Rect wantRegion = new Rect(x - b, y - b, x + t + b, y + t + b);
 
 		boolean needClear;
-		BitmapRegionDecoder regionDecoder = null;
+		final int generation;
 
 		synchronized (this) {
-			regionDecoder = mRegionDecoder;
-			if (regionDecoder == null) return null;
+			if (mRegionDecoder == null) return null;
+			generation = mDecoderGeneration;
 
 			// We need to clear a reused bitmap, if wantRegion is not fully
 			// within the image.
 			needClear = !new Rect(0, 0, mImageWidth, mImageHeight).contains(wantRegion);
 		}
+		final BitmapRegionDecoder regionDecoder = obtainRegionDecoder(generation);
+		if (regionDecoder == null) return null;
 
-		Bitmap bitmap = pool == null ? null : pool.getBitmap();
+		final int s = tileSize + 2 * borderSize;
+		Bitmap bitmap = pool == null ? null : pool.getBitmap(s, s, Config.ARGB_8888);
 		if (bitmap != null) {
 			if (needClear) {
 				bitmap.eraseColor(0);
 			}
 		} else {
-			final int s = tileSize + 2 * borderSize;
 			bitmap = Bitmap.createBitmap(s, s, Config.ARGB_8888);
 		}
 
@@ -126,11 +141,9 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 		options.inBitmap = bitmap;
 
 		try {
-			// In CropImage, we may call the decodeRegion() concurrently.
-			synchronized (regionDecoder) {
-				bitmap = regionDecoder.decodeRegion(wantRegion, options);
-			}
+			bitmap = regionDecoder.decodeRegion(wantRegion, options);
 		} finally {
+			releaseRegionDecoder(regionDecoder, generation);
 			if (options.inBitmap != bitmap && options.inBitmap != null) {
 				if (pool != null) {
 					pool.recycle(options.inBitmap);
@@ -154,7 +167,8 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 	}
 
 	@Override
-	public boolean setData(final BitmapRegionDecoder decoder, final Bitmap bitmap, final int oroentation) {
+	public boolean setData(final BitmapRegionDecoder decoder, final Bitmap bitmap, final int oroentation,
+			final File file) {
 		try {
 			if (decoder != null) {
 				setScreenNail(bitmap, decoder.getWidth(), decoder.getHeight());
@@ -162,7 +176,7 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 				if (bitmap == null) return false;
 				setScreenNail(bitmap, bitmap.getWidth(), bitmap.getHeight());
 			}
-			setRegionDecoder(decoder);
+			setRegionDecoder(decoder, file);
 			mPhotoView.notifyImageChange();
 			return true;
 		} catch (final Throwable t) {
@@ -181,15 +195,17 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 		final int t = tileSize << level;
 		final Rect wantRegion = new Rect(x - b, y - b, x + t + b, y + t + b);
 
-		BitmapRegionDecoder regionDecoder;
+		final int generation;
 		Rect overlapRegion;
 
 		synchronized (this) {
-			regionDecoder = mRegionDecoder;
-			if (regionDecoder == null) return null;
+			if (mRegionDecoder == null) return null;
+			generation = mDecoderGeneration;
 			overlapRegion = new Rect(0, 0, mImageWidth, mImageHeight);
 			GalleryUtils.assertTrue(overlapRegion.intersect(wantRegion));
 		}
+		final BitmapRegionDecoder regionDecoder = obtainRegionDecoder(generation);
+		if (regionDecoder == null) return null;
 
 		final BitmapFactory.Options options = new BitmapFactory.Options();
 		options.inPreferredConfig = Config.ARGB_8888;
@@ -197,9 +213,10 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 		options.inSampleSize = 1 << level;
 		Bitmap bitmap = null;
 
-		// In CropImage, we may call the decodeRegion() concurrently.
-		synchronized (regionDecoder) {
+		try {
 			bitmap = regionDecoder.decodeRegion(overlapRegion, options);
+		} finally {
+			releaseRegionDecoder(regionDecoder, generation);
 		}
 
 		if (bitmap == null) {
@@ -216,17 +233,77 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 		return result;
 	}
 
-	private synchronized void setRegionDecoder(final BitmapRegionDecoder decoder) {
+	// Returns an idle decoder of the given generation, opening a new one if all
+	// decoders are busy, or null if the image has changed.
+	private BitmapRegionDecoder obtainRegionDecoder(final int generation) {
+		final File file;
+		synchronized (this) {
+			while (true) {
+				if (generation != mDecoderGeneration || mRegionDecoder == null) return null;
+				final int size = mIdleDecoders.size();
+				if (size > 0) return mIdleDecoders.remove(size - 1);
+				if (mImageFile != null && mDecoderCount < TileImageView.MAX_TILE_DECODERS) {
+					mDecoderCount++;
+					file = mImageFile;
+					break;
+				}
+				GalleryUtils.waitWithoutInterrupt(this);
+			}
+		}
+		try {
+			return BitmapRegionDecoder.newInstance(file.getPath(), false);
+		} catch (final IOException e) {
+			Log.w(TAG, "fail to open region decoder", e);
+			synchronized (this) {
+				// Don't try to open more decoders for this image.
+				mImageFile = null;
+				mDecoderCount--;
+			}
+			return obtainRegionDecoder(generation);
+		}
+	}
+
+	private synchronized void recycleRegionDecoders() {
+		for (final BitmapRegionDecoder decoder : mIdleDecoders) {
+			decoder.recycle();
+		}
+		mIdleDecoders.clear();
+		mDecoderCount = 0;
+		mDecoderGeneration++;
+		notifyAll();
+	}
+
+	private synchronized void releaseRegionDecoder(final BitmapRegionDecoder decoder, final int generation) {
+		if (generation != mDecoderGeneration) {
+			decoder.recycle();
+			return;
+		}
+		mIdleDecoders.add(decoder);
+		notifyAll();
+	}
+
+	private synchronized void setRegionDecoder(final BitmapRegionDecoder decoder, final File file) {
+		recycleRegionDecoders();
 		mRegionDecoder = decoder;
+		mImageFile = file;
 		if (decoder == null) return;
+		mIdleDecoders.add(decoder);
+		mDecoderCount = 1;
 		mImageWidth = decoder.getWidth();
 		mImageHeight = decoder.getHeight();
 		mLevelCount = calculateLevelCount();
 	}
 
 	private void setScreenNail(final Bitmap bitmap, final int width, final int height) {
+		final BitmapScreenNail old = mBitmapScreenNail;
 		mBitmapScreenNail = new BitmapScreenNail(bitmap);
 		setScreenNail(mBitmapScreenNail, width, height);
+		// The old screen nail is no longer drawn, reuse its bitmap for the
+		// next one.
+		if (old != null && old.getBitmap() != bitmap) {
+			old.recycle();
+			BitmapPool.getInstance().recycle(old.getBitmap());
+		}
 	}
 
 	// Caller is responsible to recycle the ScreenNail
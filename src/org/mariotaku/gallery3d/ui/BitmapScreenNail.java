@@ -36,6 +36,10 @@ public class BitmapScreenNail implements ScreenNail {
 		canvas.drawTexture(mBitmapTexture, source, dest);
 	}
 
+	public Bitmap getBitmap() {
+		return mBitmapTexture.getBitmap();
+	}
+
 	@Override
 	public int getHeight() {
 		return mBitmapTexture.getHeight();
@@ -22,22 +22,25 @@ import org.mariotaku.gallery3d.app.ImageViewerGLActivity;
 import org.mariotaku.gallery3d.util.ApiHelper;
 import org.mariotaku.gallery3d.util.BitmapPool;
 import org.mariotaku.gallery3d.util.DecodeUtils;
-import org.mariotaku.gallery3d.util.Future;
 import org.mariotaku.gallery3d.util.GalleryUtils;
 import org.mariotaku.gallery3d.util.LongSparseArray;
 import org.mariotaku.gallery3d.util.ThreadPool;
-import org.mariotaku.gallery3d.util.ThreadPool.CancelListener;
-import org.mariotaku.gallery3d.util.ThreadPool.JobContext;
 
 import android.graphics.Bitmap;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.os.Process;
+import android.support.v4.util.LruCache;
 import android.util.FloatMath;
 import android.util.Log;
 
 public class TileImageView extends GLView {
 	public static final int SIZE_UNKNOWN = -1;
 
+	// Every decoding thread needs a BitmapRegionDecoder of its own, which
+	// holds the whole encoded image, so keep the number small.
+	public static final int MAX_TILE_DECODERS = Math.min(2, ThreadPool.CPU_JOB_LIMIT);
+
 	private static final String TAG = "TileImageView";
 
 	// TILE_SIZE must be 2^N - 2. We put one pixel border in each side of the
@@ -47,6 +50,11 @@ public class TileImageView extends GLView {
 	private static int BITMAP_SIZE;
 	private static final int UPLOAD_LIMIT = 1;
 
+	// Decoded tiles are kept in memory after they are uploaded or recycled, so
+	// zooming out and in again doesn't need to decode them again.
+	private static final int TILE_CACHE_SIZE = (int) Math.min(Runtime.getRuntime().maxMemory() / 8,
+			32 * 1024 * 1024);
+
 	private static BitmapPool sTilePool;
 
 	/*
@@ -111,14 +119,13 @@ public class TileImageView extends GLView {
 	private final Rect mActiveRange[] = { new Rect(), new Rect() };
 
 	private final TileUploader mTileUploader = new TileUploader();
+	private final TileCache mTileCache = new TileCache(TILE_CACHE_SIZE);
 	private boolean mIsTextureFreed;
-	private Future<Void> mTileDecoder;
-	private final ThreadPool mThreadPool;
+	private TileDecoder[] mTileDecoders;
 	private boolean mBackgroundTileUploaded;
 
 	public TileImageView(final ImageViewerGLActivity context) {
-		mThreadPool = context.getThreadPool();
-		mTileDecoder = mThreadPool.submit(new TileDecoder());
+		startTileDecoders();
 		if (TILE_SIZE == 0) {
 			if (GalleryUtils.isHighResolution(context)) {
 				TILE_SIZE = 510;
@@ -126,18 +133,23 @@ public class TileImageView extends GLView {
 				TILE_SIZE = 254;
 			}
 			BITMAP_SIZE = TILE_SIZE + TILE_BORDER * 2;
-			sTilePool = ApiHelper.HAS_REUSING_BITMAP_IN_BITMAP_REGION_DECODER ? new BitmapPool(BITMAP_SIZE,
-					BITMAP_SIZE, 128) : null;
+			sTilePool = ApiHelper.HAS_REUSING_BITMAP_IN_BITMAP_REGION_DECODER ? BitmapPool.getInstance() : null;
 		}
 	}
 
 	public void freeTextures() {
 		mIsTextureFreed = true;
 
-		if (mTileDecoder != null) {
-			mTileDecoder.cancel();
-			mTileDecoder.get();
-			mTileDecoder = null;
+		if (mTileDecoders != null) {
+			for (final TileDecoder decoder : mTileDecoders) {
+				decoder.cancel();
+			}
+			// Wait for decodeRegion() calls in progress, so region decoders
+			// can be released once we return.
+			for (final TileDecoder decoder : mTileDecoders) {
+				decoder.joinWithoutInterrupt();
+			}
+			mTileDecoders = null;
 		}
 
 		final int n = mActiveTiles.size();
@@ -158,6 +170,7 @@ public class TileImageView extends GLView {
 			}
 		}
 		setScreenNail(null);
+		mTileCache.evictAll();
 		if (sTilePool != null) {
 			sTilePool.clear();
 		}
@@ -165,6 +178,7 @@ public class TileImageView extends GLView {
 
 	public void notifyModelInvalidated() {
 		invalidateTiles();
+		mTileCache.evictAll();
 		if (mModel == null) {
 			mScreenNail = null;
 			mImageWidth = 0;
@@ -181,8 +195,8 @@ public class TileImageView extends GLView {
 	}
 
 	public void prepareTextures() {
-		if (mTileDecoder == null) {
-			mTileDecoder = mThreadPool.submit(new TileDecoder());
+		if (mTileDecoders == null) {
+			startTileDecoders();
 		}
 		if (mIsTextureFreed) {
 			layoutTiles(mCenterX, mCenterY, mScale, mRotation);
@@ -304,9 +318,7 @@ public class TileImageView extends GLView {
 			if (tile.mTileState == STATE_RECYCLING) {
 				tile.mTileState = STATE_RECYCLED;
 				if (tile.mDecodedTile != null) {
-					if (sTilePool != null) {
-						sTilePool.recycle(tile.mDecodedTile);
-					}
+					mTileCache.put(makeTileKey(tile.mX, tile.mY, tile.mTileLevel), tile.mDecodedTile);
 					tile.mDecodedTile = null;
 				}
 				mRecycledQueue.push(tile);
@@ -525,14 +537,27 @@ public class TileImageView extends GLView {
 		}
 		tile.mTileState = STATE_RECYCLED;
 		if (tile.mDecodedTile != null) {
-			if (sTilePool != null) {
-				sTilePool.recycle(tile.mDecodedTile);
-			}
+			mTileCache.put(makeTileKey(tile.mX, tile.mY, tile.mTileLevel), tile.mDecodedTile);
 			tile.mDecodedTile = null;
 		}
 		mRecycledQueue.push(tile);
 	}
 
+	private void startTileDecoders() {
+		mTileDecoders = new TileDecoder[MAX_TILE_DECODERS];
+		for (int i = 0; i < MAX_TILE_DECODERS; i++) {
+			mTileDecoders[i] = new TileDecoder(i);
+			mTileDecoders[i].start();
+		}
+	}
+
+	// Takes the next tile to decode. Tiles of lower resolution come first, as
+	// they cover a larger area and are cheaper to decode, then tiles nearest to
+	// the center of the viewport.
+	private synchronized Tile takeTileForDecode() {
+		return mDecodeQueue.popNearest(mCenterX, mCenterY);
+	}
+
 	private void uploadBackgroundTiles(final GLCanvas canvas) {
 		mBackgroundTileUploaded = true;
 		final int n = mActiveTiles.size();
@@ -623,17 +648,17 @@ public class TileImageView extends GLView {
 		}
 
 		public void update(final int x, final int y, final int level) {
+			// Invalidate first, so any pending bitmap is cached with the key
+			// of its own tile.
+			invalidateContent();
 			mX = x;
 			mY = y;
 			mTileLevel = level;
-			invalidateContent();
 		}
 
 		@Override
 		protected void onFreeBitmap(final Bitmap bitmap) {
-			if (sTilePool != null) {
-				sTilePool.recycle(bitmap);
-			}
+			mTileCache.put(makeTileKey(mX, mY, mTileLevel), bitmap);
 		}
 
 		@Override
@@ -653,6 +678,11 @@ public class TileImageView extends GLView {
 		}
 
 		boolean decode() {
+			final Bitmap cached = mTileCache.remove(makeTileKey(mX, mY, mTileLevel));
+			if (cached != null) {
+				mDecodedTile = cached;
+				return true;
+			}
 			// Get a tile from the original image. The tile is down-scaled
 			// by (1 << mTilelevel) from a region in the original image.
 			try {
@@ -665,37 +695,71 @@ public class TileImageView extends GLView {
 		}
 	}
 
-	private class TileDecoder implements ThreadPool.Job<Void> {
+	private static class TileCache extends LruCache<Long, Bitmap> {
 
-		private final CancelListener mNotifier = new CancelListener() {
-			@Override
-			public void onCancel() {
-				synchronized (TileImageView.this) {
-					TileImageView.this.notifyAll();
+		TileCache(final int maxSize) {
+			super(maxSize);
+		}
+
+		@Override
+		protected void entryRemoved(final boolean evicted, final Long key, final Bitmap oldValue,
+				final Bitmap newValue) {
+			// Bitmaps taken out by remove() are owned by a tile now.
+			if (oldValue == newValue || !evicted && newValue == null) return;
+			if (sTilePool != null) {
+				sTilePool.recycle(oldValue);
+			}
+		}
+
+		@Override
+		protected int sizeOf(final Long key, final Bitmap value) {
+			return value.getRowBytes() * value.getHeight();
+		}
+	}
+
+	// Decoders wait for tiles most of the time, so they run on their own
+	// threads instead of holding threads of the shared cpu lane.
+	private class TileDecoder extends Thread {
+
+		private volatile boolean mCancelled;
+
+		TileDecoder(final int index) {
+			super("TileDecoder-" + index);
+		}
+
+		public void cancel() {
+			mCancelled = true;
+			synchronized (TileImageView.this) {
+				TileImageView.this.notifyAll();
+			}
+		}
+
+		public void joinWithoutInterrupt() {
+			while (true) {
+				try {
+					join();
+					return;
+				} catch (final InterruptedException e) {
+					// Keep waiting.
 				}
 			}
-		};
+		}
 
 		@Override
-		public Void run(final JobContext jc) {
-			jc.setMode(ThreadPool.MODE_NONE);
-			jc.setCancelListener(mNotifier);
-			while (!jc.isCancelled()) {
+		public void run() {
+			Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+			while (!mCancelled) {
 				Tile tile = null;
 				synchronized (TileImageView.this) {
-					tile = mDecodeQueue.pop();
-					if (tile == null && !jc.isCancelled()) {
+					tile = takeTileForDecode();
+					if (tile == null && !mCancelled) {
 						GalleryUtils.waitWithoutInterrupt(TileImageView.this);
 					}
 				}
-				if (tile == null) {
-					continue;
-				}
-				if (decodeTile(tile)) {
+				if (tile != null && decodeTile(tile) && !mCancelled) {
 					queueForUpload(tile);
 				}
 			}
-			return null;
 		}
 	}
 
@@ -714,6 +778,31 @@ public class TileImageView extends GLView {
 			return tile;
 		}
 
+		// Removes the tile with the highest level, breaking ties by the
+		// distance between the tile center and (cx, cy).
+		public Tile popNearest(final int cx, final int cy) {
+			Tile best = null, bestPrev = null;
+			long bestDistance = Long.MAX_VALUE;
+			for (Tile prev = null, tile = mHead; tile != null; prev = tile, tile = tile.mNext) {
+				final int half = TILE_SIZE << tile.mTileLevel >> 1;
+				final long dx = tile.mX + half - cx, dy = tile.mY + half - cy;
+				final long distance = dx * dx + dy * dy;
+				if (best == null || tile.mTileLevel > best.mTileLevel || tile.mTileLevel == best.mTileLevel
+						&& distance < bestDistance) {
+					best = tile;
+					bestPrev = prev;
+					bestDistance = distance;
+				}
+			}
+			if (best == null) return null;
+			if (bestPrev == null) {
+				mHead = best.mNext;
+			} else {
+				bestPrev.mNext = best.mNext;
+			}
+			return best;
+		}
+
 		public boolean push(final Tile tile) {
 			final boolean wasEmpty = mHead == null;
 			tile.mNext = mHead;
@@ -16,8 +16,6 @@
 
 package org.mariotaku.gallery3d.ui;
 
-import java.util.HashMap;
-
 import javax.microedition.khronos.opengles.GL11;
 import javax.microedition.khronos.opengles.GL11Ext;
 
@@ -26,6 +24,7 @@ import org.mariotaku.gallery3d.util.GalleryUtils;
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.opengl.GLUtils;
+import android.support.v4.util.LruCache;
 
 // UploadedTextures use a Bitmap for the content of the texture.
 //
@@ -45,8 +44,10 @@ abstract class UploadedTexture extends BasicTexture {
 
 	// To prevent keeping allocation the borders, we store those used borders
 	// here.
-	// Since the length will be power of two, it won't use too much memory.
-	private static HashMap<BorderKey, Bitmap> sBorderLines = new HashMap<BorderKey, Bitmap>();
+	// Since the length will be power of two, only a few of them are used at
+	// the same time, so we keep the most recently used ones.
+	private static final int BORDER_LINES_CACHE_SIZE = 16;
+	private static BorderLinesCache sBorderLines = new BorderLinesCache(BORDER_LINES_CACHE_SIZE);
 	private static BorderKey sBorderKey = new BorderKey();
 
 	@SuppressWarnings("unused")
@@ -282,6 +283,23 @@ abstract class UploadedTexture extends BasicTexture {
 		return bitmap;
 	}
 
+	private static class BorderLinesCache extends LruCache<BorderKey, Bitmap> {
+
+		BorderLinesCache(final int maxSize) {
+			super(maxSize);
+		}
+
+		@Override
+		protected void entryRemoved(final boolean evicted, final BorderKey key, final Bitmap oldValue,
+				final Bitmap newValue) {
+			// Border lines are only used during an upload on the GL thread,
+			// so an evicted one is not referenced anymore.
+			if (evicted) {
+				oldValue.recycle();
+			}
+		}
+	}
+
 	private static class BorderKey implements Cloneable {
 		public boolean vertical;
 		public Config config;
@@ -16,59 +16,190 @@
 
 package org.mariotaku.gallery3d.util;
 
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import org.mariotaku.twidere.util.metrics.Counter;
+import org.mariotaku.twidere.util.metrics.Metrics;
 
 import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
 
+// A pool of bitmaps of any size, keyed by (width, height, config). Bitmaps
+// are kept until the total size exceeds the byte limit, then the least
+// recently put ones are recycled. Both getBitmap() and recycle() are O(1).
+// Hits, misses and evictions of all pools are also counted in Metrics.
 public class BitmapPool {
 	@SuppressWarnings("unused")
 	private static final String TAG = "BitmapPool";
 
-	private final ArrayList<Bitmap> mPool;
-	private final int mPoolLimit;
+	private static final Counter HIT_COUNTER = Metrics.getInstance().getCounter("bitmap_pool.hit");
+	private static final Counter MISS_COUNTER = Metrics.getInstance().getCounter("bitmap_pool.miss");
+	private static final Counter EVICTION_COUNTER = Metrics.getInstance().getCounter("bitmap_pool.eviction");
+
+	private static final int DEFAULT_POOL_SIZE = (int) Math.min(Runtime.getRuntime().maxMemory() / 16,
+			16 * 1024 * 1024);
+
+	private static BitmapPool sInstance;
 
-	// mOneSize is true if the pool can only cache Bitmap with one size.
-	private final boolean mOneSize;
-	private final int mWidth, mHeight; // only used if mOneSize is true
+	// Bitmaps of each key, and all bitmaps in the order they were put.
+	private final HashMap<Key, LinkedHashSet<Bitmap>> mPools = new HashMap<Key, LinkedHashSet<Bitmap>>();
+	private final LinkedHashSet<Bitmap> mAll = new LinkedHashSet<Bitmap>();
+	private final Key mLookupKey = new Key();
+	private final int mMaxSize;
+	private int mSize;
 
-	// Construct a BitmapPool which caches bitmap with the specified size.
-	public BitmapPool(final int width, final int height, final int poolLimit) {
-		mWidth = width;
-		mHeight = height;
-		mPoolLimit = poolLimit;
-		mPool = new ArrayList<Bitmap>(poolLimit);
-		mOneSize = true;
+	private int mHitCount, mMissCount, mPutCount, mEvictionCount;
+
+	public BitmapPool(final int maxSize) {
+		if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+		mMaxSize = maxSize;
 	}
 
 	public synchronized void clear() {
-		mPool.clear();
+		for (final Bitmap bitmap : mAll) {
+			bitmap.recycle();
+		}
+		mAll.clear();
+		mPools.clear();
+		mSize = 0;
+	}
+
+	// Get a Bitmap with the given size and config from the pool, or null if
+	// there isn't one.
+	public synchronized Bitmap getBitmap(final int width, final int height, final Config config) {
+		final LinkedHashSet<Bitmap> pool = mPools.get(mLookupKey.set(width, height, config));
+		if (pool == null) {
+			mMissCount++;
+			MISS_COUNTER.increment();
+			return null;
+		}
+		final Iterator<Bitmap> it = pool.iterator();
+		final Bitmap bitmap = it.next();
+		it.remove();
+		if (pool.isEmpty()) {
+			mPools.remove(mLookupKey);
+		}
+		mAll.remove(bitmap);
+		mSize -= getSize(bitmap);
+		mHitCount++;
+		HIT_COUNTER.increment();
+		return bitmap;
 	}
 
-	// Get a Bitmap from the pool.
-	public synchronized Bitmap getBitmap() {
-		GalleryUtils.assertTrue(mOneSize);
-		final int size = mPool.size();
-		return size > 0 ? mPool.remove(size - 1) : null;
+	public synchronized int getHitCount() {
+		return mHitCount;
 	}
 
-	public boolean isOneSize() {
-		return mOneSize;
+	public int getMaxSize() {
+		return mMaxSize;
 	}
 
-	// Put a Bitmap into the pool, if the Bitmap has a proper size. Otherwise
-	// the Bitmap will be recycled. If the pool is full, an old Bitmap will be
+	public synchronized int getMissCount() {
+		return mMissCount;
+	}
+
+	// Percentage of getBitmap() calls served from the pool.
+	public synchronized int getReuseRate() {
+		final int accesses = mHitCount + mMissCount;
+		return accesses != 0 ? 100 * mHitCount / accesses : 0;
+	}
+
+	public synchronized int getSize() {
+		return mSize;
+	}
+
+	// Put a Bitmap into the pool. If the pool is full, old Bitmaps will be
 	// recycled.
 	public void recycle(final Bitmap bitmap) {
-		if (bitmap == null) return;
-		if (mOneSize && (bitmap.getWidth() != mWidth || bitmap.getHeight() != mHeight)) {
+		if (bitmap == null || bitmap.isRecycled()) return;
+		final int size = getSize(bitmap);
+		if (size > mMaxSize || bitmap.getConfig() == null || !bitmap.isMutable()) {
 			bitmap.recycle();
 			return;
 		}
 		synchronized (this) {
-			if (mPool.size() >= mPoolLimit) {
-				mPool.remove(0);
+			if (!mAll.add(bitmap)) return;
+			LinkedHashSet<Bitmap> pool = mPools.get(mLookupKey.set(bitmap.getWidth(), bitmap.getHeight(),
+					bitmap.getConfig()));
+			if (pool == null) {
+				pool = new LinkedHashSet<Bitmap>();
+				mPools.put(mLookupKey.clone(), pool);
 			}
-			mPool.add(bitmap);
+			pool.add(bitmap);
+			mSize += size;
+			mPutCount++;
+			trimToSize(mMaxSize);
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("BitmapPool[maxSize=%d,size=%d,hits=%d,misses=%d,puts=%d,evictions=%d,reuseRate=%d%%]",
+				mMaxSize, mSize, mHitCount, mMissCount, mPutCount, mEvictionCount, getReuseRate());
+	}
+
+	private void trimToSize(final int maxSize) {
+		final Iterator<Bitmap> it = mAll.iterator();
+		while (mSize > maxSize && it.hasNext()) {
+			final Bitmap bitmap = it.next();
+			it.remove();
+			final LinkedHashSet<Bitmap> pool = mPools.get(mLookupKey.set(bitmap.getWidth(), bitmap.getHeight(),
+					bitmap.getConfig()));
+			pool.remove(bitmap);
+			if (pool.isEmpty()) {
+				mPools.remove(mLookupKey);
+			}
+			mSize -= getSize(bitmap);
+			mEvictionCount++;
+			EVICTION_COUNTER.increment();
+			bitmap.recycle();
+		}
+	}
+
+	// The pool shared by the tiles and screen nails of the image viewer.
+	public static synchronized BitmapPool getInstance() {
+		if (sInstance == null) {
+			sInstance = new BitmapPool(DEFAULT_POOL_SIZE);
+		}
+		return sInstance;
+	}
+
+	private static int getSize(final Bitmap bitmap) {
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+	private static class Key implements Cloneable {
+		public int width, height;
+		public Config config;
+
+		@Override
+		public Key clone() {
+			try {
+				return (Key) super.clone();
+			} catch (final CloneNotSupportedException e) {
+				throw new AssertionError(e);
+			}
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (!(object instanceof Key)) return false;
+			final Key o = (Key) object;
+			return width == o.width && height == o.height && config == o.config;
+		}
+
+		@Override
+		public int hashCode() {
+			return (width * 31 + height) * 31 + config.hashCode();
+		}
+
+		public Key set(final int width, final int height, final Config config) {
+			this.width = width;
+			this.height = height;
+			this.config = config;
+			return this;
 		}
 	}
 }
@@ -1,48 +0,0 @@
-/*
- * Copyright (C) 2010 The Android Open Source Project
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package org.mariotaku.gallery3d.util;
-
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicInteger;
-
-import android.os.Process;
-
-/**
- * A thread factory that creates threads with a given thread priority.
- */
-public class PriorityThreadFactory implements ThreadFactory {
-
-	private final int mPriority;
-	private final AtomicInteger mNumber = new AtomicInteger();
-	private final String mName;
-
-	public PriorityThreadFactory(final String name, final int priority) {
-		mName = name;
-		mPriority = priority;
-	}
-
-	@Override
-	public Thread newThread(final Runnable r) {
-		return new Thread(r, mName + '-' + mNumber.getAndIncrement()) {
-			@Override
-			public void run() {
-				Process.setThreadPriority(mPriority);
-				super.run();
-			}
-		};
-	}
-
-}
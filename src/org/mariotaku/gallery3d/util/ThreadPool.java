@@ -17,37 +17,33 @@
 package org.mariotaku.gallery3d.util;
 
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.mariotaku.twidere.util.TaskScheduler;
 
 import android.util.Log;
 
 public class ThreadPool {
 	@SuppressWarnings("unused")
 	private static final String TAG = "ThreadPool";
-	private static final int CORE_POOL_SIZE = 4;
-	private static final int MAX_POOL_SIZE = 8;
-	private static final int KEEP_ALIVE_TIME = 10; // 10 seconds
-
 	// Resource type
 	public static final int MODE_NONE = 0;
 	public static final int MODE_CPU = 1;
 	public static final int MODE_NETWORK = 2;
 
-	ResourceCounter mCpuCounter = new ResourceCounter(2);
+	// Number of jobs allowed to run in MODE_CPU at the same time. One thread
+	// of the cpu lane is always left for the other jobs.
+	public static final int CPU_JOB_LIMIT = Math.max(1, TaskScheduler.CPU_LANE_SIZE - 1);
+
+	ResourceCounter mCpuCounter = new ResourceCounter(CPU_JOB_LIMIT);
 	ResourceCounter mNetworkCounter = new ResourceCounter(2);
 
 	private final Executor mExecutor;
 
+	// Jobs share the cpu lane of the app wide scheduler instead of owning
+	// threads.
 	public ThreadPool() {
-		this(CORE_POOL_SIZE, MAX_POOL_SIZE);
-	}
-
-	private ThreadPool(final int initPoolSize, final int maxPoolSize) {
-		mExecutor = new ThreadPoolExecutor(initPoolSize, maxPoolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<Runnable>(), new PriorityThreadFactory("thread-pool",
-						android.os.Process.THREAD_PRIORITY_BACKGROUND));
+		mExecutor = TaskScheduler.getInstance().getExecutor(TaskScheduler.LANE_CPU, TaskScheduler.PRIORITY_NORMAL);
 	}
 
 	public <T> Future<T> submit(final Job<T> job) {
@@ -58,7 +54,13 @@ public class ThreadPool {
 	// job is finished (or cancelled).
 	private <T> Future<T> submit(final Job<T> job, final FutureListener<T> listener) {
 		final Worker<T> w = new Worker<T>(job, listener);
-		mExecutor.execute(w);
+		try {
+			mExecutor.execute(w);
+		} catch (final RejectedExecutionException e) {
+			// Lane is full, finish the job as cancelled so nobody waits for
+			// it forever.
+			w.reject();
+		}
 		return w;
 	}
 
@@ -170,6 +172,17 @@ public class ThreadPool {
 			}
 		}
 
+		void reject() {
+			synchronized (this) {
+				mIsCancelled = true;
+				mIsDone = true;
+				notifyAll();
+			}
+			if (mListener != null) {
+				mListener.onFutureDone(this);
+			}
+		}
+
 		// Below are the methods for JobContext (only called from the
 		// thread running the job)
 		@Override
@@ -29,8 +29,10 @@ import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
 import org.mariotaku.twidere.provider.TweetStore.Drafts;
 import org.mariotaku.twidere.provider.TweetStore.Filters;
 import org.mariotaku.twidere.provider.TweetStore.Mentions;
+import org.mariotaku.twidere.provider.TweetStore.SearchIndex;
 import org.mariotaku.twidere.provider.TweetStore.Statuses;
 import org.mariotaku.twidere.provider.TweetStore.Tabs;
+import org.mariotaku.twidere.provider.TweetStore.TimelineRanges;
 
 import twitter4j.TwitterConstants;
 
@@ -46,12 +48,15 @@ public interface Constants extends TwitterConstants {
 
 	public static final String USER_COLOR_PREFERENCES_NAME = "user_colors";
 	public static final String HOST_MAPPING_PREFERENCES_NAME = "host_mapping";
+	public static final String DNS_CACHE_PREFERENCES_NAME = "dns_cache";
+	public static final String IMAGE_VALIDATORS_PREFERENCES_NAME = "image_validators";
+	public static final String EXTENSIONS_INDEX_PREFERENCES_NAME = "extensions_index";
 	public static final String SHARED_PREFERENCES_NAME = "preferences";
 	public static final String PERMISSION_PREFERENCES_NAME = "permissions";
 	public static final String SILENT_NOTIFICATIONS_PREFERENCE_NAME = "silent_notifications";
 
 	public static final String DATABASES_NAME = "twidere.sqlite";
-	public static final int DATABASES_VERSION = 40;
+	public static final int DATABASES_VERSION = 45;
 
 	// The following 4 constants are not included in source code, you'd better
 	// use your own.
@@ -111,6 +116,7 @@ public interface Constants extends TwitterConstants {
 	public static final String QUERY_PARAM_LAT = "lat";
 	public static final String QUERY_PARAM_LNG = "lng";
 	public static final String QUERY_PARAM_CONVERSATION_ID = "conversation_id";
+	public static final String QUERY_PARAM_LIMIT = "limit";
 
 	public static final String DEFAULT_PROTOCOL = PROTOCOL_HTTPS;
 
@@ -174,6 +180,7 @@ public interface Constants extends TwitterConstants {
 	public static final String PREFERENCE_KEY_HOME_REFRESH_MENTIONS = "home_refresh_mentions";
 	public static final String PREFERENCE_KEY_HOME_REFRESH_DIRECT_MESSAGES = "home_refresh_direct_messages";
 	public static final String PREFERENCE_KEY_IMAGE_UPLOAD_FORMAT = "image_upload_format";
+	public static final String PREFERENCE_KEY_IMAGE_UPLOAD_SIZE = "image_upload_size";
 	public static final String PREFERENCE_KEY_TWEET_SHORTENER = "tweet_shortener";
 	public static final String PREFERENCE_KEY_SHOW_ABSOLUTE_TIME = "show_absolute_time";
 	public static final String PREFERENCE_KEY_DUAL_PANE_IN_LANDSCAPE = "dual_pane_in_landscape";
@@ -205,14 +212,18 @@ public interface Constants extends TwitterConstants {
 	public static final String PREFERENCE_KEY_PRELOAD_PREVIEW_IMAGES = "preload_preview_images";
 	public static final String PREFERENCE_KEY_PRELOAD_WIFI_ONLY = "preload_wifi_only";
 	public static final String PREFERENCE_KEY_DISABLE_TAB_SWIPE = "disable_tab_swipe";
+	public static final String PREFERENCE_KEY_STREAMING = "streaming";
+	public static final String PREFERENCE_KEY_USER_STREAM_URL = "user_stream_url";
 
 	public static final String PREFERENCE_DEFAULT_QUOTE_FORMAT = "RT @" + FORMAT_PATTERN_NAME + ": "
 			+ FORMAT_PATTERN_TEXT;
 	public static final String PREFERENCE_DEFAULT_SHARE_FORMAT = FORMAT_PATTERN_TITLE + " - " + FORMAT_PATTERN_TEXT;
 	public static final String PREFERENCE_DEFAULT_IMAGE_UPLOAD_FORMAT = FORMAT_PATTERN_TEXT + " " + FORMAT_PATTERN_LINK;
 
+	public static final String PREFERENCE_DEFAULT_IMAGE_UPLOAD_SIZE = "2048";
 	public static final int PREFERENCE_DEFAULT_DATABASE_ITEM_LIMIT = 100;
 	public static final int PREFERENCE_DEFAULT_LOAD_ITEM_LIMIT = 20;
+	public static final String PREFERENCE_DEFAULT_USER_STREAM_URL = "https://userstream.twitter.com/1.1/user.json";
 	public static final int PREFERENCE_DEFAULT_TEXT_SIZE = 15;
 
 	public static final String NAME_DISPLAY_OPTION_BOTH = "both";
@@ -275,7 +286,6 @@ public interface Constants extends TwitterConstants {
 	public static final String BROADCAST_DRAFTS_DATABASE_UPDATED = INTENT_PACKAGE_PREFIX + "DRAFTS_DATABASE_UPDATED";
 	public static final String BROADCAST_HOME_TIMELINE_REFRESHED = INTENT_PACKAGE_PREFIX + "HOME_TIMELINE_REFRESHED";
 	public static final String BROADCAST_MENTIONS_REFRESHED = INTENT_PACKAGE_PREFIX + "MENTIONS_REFRESHED";
-	public static final String BROADCAST_TASK_STATE_CHANGED = INTENT_PACKAGE_PREFIX + "TASK_STATE_CHANGED";
 	public static final String BROADCAST_NOTIFICATION_CLEARED = INTENT_PACKAGE_PREFIX + "NOTIFICATION_CLEARED";
 	public static final String BROADCAST_FRIENDSHIP_CHANGED = INTENT_PACKAGE_PREFIX + "FRIENDSHIP_CHANGED";
 	public static final String BROADCAST_BLOCKSTATE_CHANGED = INTENT_PACKAGE_PREFIX + "BLOCKSTATE_CHANGED";
@@ -478,6 +488,10 @@ public interface Constants extends TwitterConstants {
 	public static final String TABLE_DIRECT_MESSAGES_CONVERSATIONS_ENTRY = DirectMessages.ConversationsEntry.CONTENT_PATH;
 	public static final String TABLE_TRENDS_LOCAL = CachedTrends.Local.CONTENT_PATH;
 	public static final String TABLE_TABS = Tabs.CONTENT_PATH;
+	public static final String TABLE_TIMELINE_RANGES = TimelineRanges.CONTENT_PATH;
+	public static final String TABLE_SEARCH_INDEX = SearchIndex.CONTENT_PATH;
+	public static final String TABLE_SEARCH_STATUSES = SearchIndex.CONTENT_PATH_STATUSES;
+	public static final String TABLE_SEARCH_DIRECT_MESSAGES = SearchIndex.CONTENT_PATH_DIRECT_MESSAGES;
 	public static final String TABLE_NOTIFICATIONS = TweetStore.CONTENT_PATH_NOTIFICATIONS;
 	public static final String TABLE_CONSUMER_KEY_SECRET = TweetStore.CONTENT_PATH_CONSUMER_KEY_SECRET;
 	public static final String TABLE_PERMISSIONS = TweetStore.CONTENT_PATH_PERMISSIONS;
@@ -501,9 +515,12 @@ public interface Constants extends TwitterConstants {
 	public static final int TABLE_ID_CACHED_USERS = 51;
 	public static final int TABLE_ID_CACHED_STATUSES = 52;
 	public static final int TABLE_ID_CACHED_HASHTAGS = 53;
+	public static final int TABLE_ID_TIMELINE_RANGES = 61;
 	public static final int VIRTUAL_TABLE_ID_NOTIFICATIONS = 101;
 	public static final int VIRTUAL_TABLE_ID_CONSUMER_KEY_SECRET = 102;
 	public static final int VIRTUAL_TABLE_ID_PERMISSIONS = 103;
+	public static final int VIRTUAL_TABLE_ID_SEARCH_STATUSES = 104;
+	public static final int VIRTUAL_TABLE_ID_SEARCH_DIRECT_MESSAGES = 105;
 
 	public static final int LINK_ID_STATUS = 1;
 	public static final int LINK_ID_USER = 2;
@@ -532,6 +549,7 @@ public interface Constants extends TwitterConstants {
 	public static final int NOTIFICATION_ID_DIRECT_MESSAGES = 3;
 	public static final int NOTIFICATION_ID_DRAFTS = 4;
 	public static final int NOTIFICATION_ID_DATA_PROFILING = 5;
+	public static final int NOTIFICATION_ID_UPDATE_STATUS = 6;
 
 	public static final String ICON_SPECIAL_TYPE_CUSTOMIZE = "_customize";
 
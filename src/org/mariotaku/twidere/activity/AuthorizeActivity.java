@@ -229,7 +229,7 @@ public class AuthorizeActivity extends BaseActivity implements LoaderCallbacks<R
 		@Override
 		public RequestToken loadInBackground() {
 			final ConfigurationBuilder cb = new ConfigurationBuilder();
-			final boolean enable_gzip_compressing = prefs.getBoolean(PREFERENCE_KEY_GZIP_COMPRESSING, false);
+			final boolean enable_gzip_compressing = prefs.getBoolean(PREFERENCE_KEY_GZIP_COMPRESSING, true);
 			final boolean ignore_ssl_error = prefs.getBoolean(PREFERENCE_KEY_IGNORE_SSL_ERROR, false);
 			final boolean enable_proxy = prefs.getBoolean(PREFERENCE_KEY_ENABLE_PROXY, false);
 			final String consumer_key = prefs.getString(PREFERENCE_KEY_CONSUMER_KEY, TWITTER_CONSUMER_KEY);
@@ -50,6 +50,8 @@ import org.mariotaku.twidere.util.ArrayUtils;
 import org.mariotaku.twidere.util.AsyncTwitterWrapper;
 import org.mariotaku.twidere.util.BitmapDecodeHelper;
 import org.mariotaku.twidere.util.EnvironmentAccessor;
+import org.mariotaku.twidere.util.ExtensionServiceConnector;
+import org.mariotaku.twidere.util.ImageAttachmentProcessor;
 import org.mariotaku.twidere.util.ImageValidator;
 import org.mariotaku.twidere.view.ColorView;
 
@@ -114,6 +116,7 @@ import org.mariotaku.actionbarcompat.ActionBar;
 import org.mariotaku.twidere.model.DraftItem;
 import android.content.ComponentName;
 import org.mariotaku.twidere.model.ParcelableUser;
+import org.mariotaku.twidere.util.TaskScheduler;
 
 public class ComposeActivity extends BaseDialogWhenLargeActivity implements TextWatcher, LocationListener,
 		OnMenuItemClickListener, OnClickListener, OnLongClickListener, PopupMenu.OnMenuItemClickListener,
@@ -295,6 +298,7 @@ public class ComposeActivity extends BaseDialogWhenLargeActivity implements Text
 			finish();
 			return;
 		}
+		prewarmExtensions();
 		setContentView(R.layout.compose);
 		mActionBar = getSupportActionBar();
 		mActionBar.setDisplayHomeAsUpEnabled(true);
@@ -756,7 +760,27 @@ public class ComposeActivity extends BaseDialogWhenLargeActivity implements Text
 		}
 	}
 
+	/**
+	 * Binds to the configured uploader and shortener now, so they're connected
+	 * by the time the tweet is sent.
+	 */
+	private void prewarmExtensions() {
+		final ExtensionServiceConnector connector = ExtensionServiceConnector.getInstance(this);
+		final String uploader_component = mPreferences.getString(PREFERENCE_KEY_IMAGE_UPLOADER, null);
+		final String shortener_component = mPreferences.getString(PREFERENCE_KEY_TWEET_SHORTENER, null);
+		if (!isEmpty(uploader_component)) {
+			connector.prewarm(INTENT_ACTION_EXTENSION_UPLOAD_IMAGE, uploader_component);
+		}
+		if (!isEmpty(shortener_component)) {
+			connector.prewarm(INTENT_ACTION_EXTENSION_SHORTEN_TWEET, shortener_component);
+		}
+	}
+
 	private void reloadAttachedImageThumbnail() {
+		if (mImageUri != null && ContentResolver.SCHEME_FILE.equals(mImageUri.getScheme())) {
+			// Get the image ready for uploading while composing.
+			ImageAttachmentProcessor.getInstance(this).prepare(new File(mImageUri.getPath()));
+		}
 		final LoaderManager lm = getSupportLoaderManager();
 		lm.destroyLoader(0);
 		final Bundle args = new Bundle();
@@ -1000,6 +1024,11 @@ public class ComposeActivity extends BaseDialogWhenLargeActivity implements Text
 			}
 			return true;
 		}
+
+		@Override
+		protected int getSchedulerLane() {
+			return TaskScheduler.LANE_DISK;
+		}
 		
 		@Override
 		protected void onPreExecute() {
@@ -1054,6 +1083,11 @@ public class ComposeActivity extends BaseDialogWhenLargeActivity implements Text
 			return true;
 		}
 
+		@Override
+		protected int getSchedulerLane() {
+			return TaskScheduler.LANE_DISK;
+		}
+
 		@Override
 		protected void onPreExecute() {
 			final DialogFragment f = new ProgressDialogFragment();
@@ -1103,6 +1137,11 @@ public class ComposeActivity extends BaseDialogWhenLargeActivity implements Text
 			return null;
 		}
 
+		@Override
+		protected int getSchedulerLane() {
+			return TaskScheduler.LANE_DISK;
+		}
+
 		@Override
 		protected void onPreExecute() {
 			final DialogFragment f = new ProgressDialogFragment();
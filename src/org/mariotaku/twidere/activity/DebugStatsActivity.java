@@ -0,0 +1,111 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.activity;
+
+import org.mariotaku.twidere.R;
+import org.mariotaku.twidere.util.BandwidthStats;
+import org.mariotaku.twidere.util.RateLimitGovernor;
+import org.mariotaku.twidere.util.TaskScheduler;
+import org.mariotaku.twidere.util.metrics.Counter;
+import org.mariotaku.twidere.util.metrics.Histogram;
+import org.mariotaku.twidere.util.metrics.Metrics;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.widget.TextView;
+
+public class DebugStatsActivity extends BaseDialogWhenLargeActivity {
+
+	private static final long REFRESH_INTERVAL = 1000;
+
+	private final Handler mHandler = new Handler();
+
+	private TextView mTextView;
+
+	private final Runnable mRefreshRunnable = new Runnable() {
+
+		@Override
+		public void run() {
+			mTextView.setText(getStatsText());
+			mHandler.postDelayed(this, REFRESH_INTERVAL);
+		}
+	};
+
+	@Override
+	public void onContentChanged() {
+		super.onContentChanged();
+		mTextView = (TextView) findViewById(android.R.id.text1);
+	}
+
+	@Override
+	public void onCreate(final Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		setContentView(R.layout.debug_stats);
+	}
+
+	protected CharSequence getStatsText() {
+		final StringBuilder builder = new StringBuilder();
+		final TaskScheduler scheduler = TaskScheduler.getInstance();
+		builder.append(getString(R.string.task_scheduler)).append("\n");
+		for (int i = 0, j = scheduler.getLaneCount(); i < j; i++) {
+			builder.append(scheduler.getLaneStats(i)).append("\n");
+		}
+		builder.append("\n").append(getString(R.string.rate_limits)).append("\n");
+		for (final RateLimitGovernor.Budget budget : RateLimitGovernor.getInstance().getBudgets()) {
+			builder.append(budget).append("\n");
+		}
+		builder.append("\n").append(getString(R.string.bandwidth)).append("\n");
+		builder.append(BandwidthStats.getInstance()).append("\n");
+		final Metrics metrics = Metrics.getInstance();
+		builder.append("\n").append(getString(R.string.metrics)).append("\n");
+		for (final Histogram histogram : metrics.getHistograms()) {
+			builder.append(histogram).append("\n");
+		}
+		for (final Counter counter : metrics.getCounters()) {
+			builder.append(counter).append("\n");
+		}
+		final long hits = metrics.getCounter("image.memory_cache.hit").get();
+		final long misses = metrics.getCounter("image.memory_cache.miss").get();
+		if (hits + misses > 0) {
+			builder.append("image.memory_cache.hit_rate: ").append(hits * 100 / (hits + misses)).append("%\n");
+		}
+		final long pool_hits = metrics.getCounter("bitmap_pool.hit").get();
+		final long pool_misses = metrics.getCounter("bitmap_pool.miss").get();
+		if (pool_hits + pool_misses > 0) {
+			builder.append("bitmap_pool.reuse_rate: ").append(pool_hits * 100 / (pool_hits + pool_misses))
+					.append("%\n");
+		}
+		builder.append("dropped events: ").append(metrics.getDroppedEventsCount()).append("\n");
+		return builder;
+	}
+
+	@Override
+	protected void onPause() {
+		mHandler.removeCallbacks(mRefreshRunnable);
+		super.onPause();
+	}
+
+	@Override
+	public void onResume() {
+		super.onResume();
+		mHandler.post(mRefreshRunnable);
+	}
+
+}
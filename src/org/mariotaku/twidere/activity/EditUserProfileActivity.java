@@ -24,6 +24,7 @@ import org.mariotaku.twidere.util.AsyncTwitterWrapper.UpdateProfileImageTask;
 import org.mariotaku.twidere.util.AsyncTwitterWrapper.UpdateProfileTask;
 import org.mariotaku.twidere.util.EnvironmentAccessor;
 import org.mariotaku.twidere.util.ImageLoaderWrapper;
+import org.mariotaku.twidere.util.TaskScheduler;
 import org.mariotaku.twidere.util.TwitterWrapper;
 import org.mariotaku.twidere.view.BannerImageView;
 import org.mariotaku.twidere.view.iface.IExtendedView.OnSizeChangedListener;
@@ -496,6 +497,11 @@ public class EditUserProfileActivity extends BaseDialogWhenLargeActivity impleme
 			return TwitterWrapper.deleteProfileBannerImage(EditUserProfileActivity.this, account_id);
 		}
 
+		@Override
+		protected int getSchedulerLane() {
+			return TaskScheduler.LANE_NETWORK;
+		}
+
 		@Override
 		protected void onPostExecute(final SingleResponse<Boolean> result) {
 			super.onPostExecute(result);
@@ -42,18 +42,18 @@ import org.mariotaku.twidere.model.TabSpec;
 import org.mariotaku.twidere.provider.TweetStore.Accounts;
 import org.mariotaku.twidere.util.ActivityAccessor;
 import org.mariotaku.twidere.util.ArrayUtils;
+import org.mariotaku.twidere.util.AsyncTaskManager.OnTaskStateChangedListener;
 import org.mariotaku.twidere.util.AsyncTwitterWrapper;
+import org.mariotaku.twidere.util.ManagedAsyncTask;
 import org.mariotaku.twidere.view.ExtendedViewPager;
 import org.mariotaku.twidere.view.TabPageIndicator;
 
 import android.app.NotificationManager;
 import android.app.PendingIntent;
-import android.content.BroadcastReceiver;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
 import android.os.Bundle;
@@ -98,14 +98,11 @@ public class HomeActivity extends MultiSelectActivity implements OnClickListener
 	public static final int TAB_POSITION_MESSAGES = 2;
 	private final ArrayList<TabSpec> mCustomTabs = new ArrayList<TabSpec>();
 
-	private final BroadcastReceiver mStateReceiver = new BroadcastReceiver() {
+	private final OnTaskStateChangedListener mTaskStateListener = new OnTaskStateChangedListener() {
 
 		@Override
-		public void onReceive(final Context context, final Intent intent) {
-			final String action = intent.getAction();
-			if (BROADCAST_TASK_STATE_CHANGED.equals(action)) {
-				setSupportProgressBarIndeterminateVisibility(mProgressBarIndeterminateVisible);
-			}
+		public void onTaskStateChanged(final ManagedAsyncTask<?, ?, ?> task) {
+			setSupportProgressBarIndeterminateVisibility(mProgressBarIndeterminateVisible);
 		}
 
 	};
@@ -500,8 +497,7 @@ public class HomeActivity extends MultiSelectActivity implements OnClickListener
 		super.onStart();
 		sendBroadcast(new Intent(BROADCAST_HOME_ACTIVITY_ONSTART));
 		setSupportProgressBarIndeterminateVisibility(mProgressBarIndeterminateVisible);
-		final IntentFilter filter = new IntentFilter(BROADCAST_TASK_STATE_CHANGED);
-		registerReceiver(mStateReceiver, filter);
+		mApplication.getAsyncTaskManager().addOnTaskStateChangedListener(mTaskStateListener);
 		final boolean show_home_tab = mPreferences.getBoolean(PREFERENCE_KEY_SHOW_HOME_TAB, true);
 		final boolean show_mentions_tab = mPreferences.getBoolean(PREFERENCE_KEY_SHOW_MENTIONS_TAB, true);
 		final boolean show_messages_tab = mPreferences.getBoolean(PREFERENCE_KEY_SHOW_MESSAGES_TAB, true);
@@ -518,7 +514,7 @@ public class HomeActivity extends MultiSelectActivity implements OnClickListener
 
 	@Override
 	protected void onStop() {
-		unregisterReceiver(mStateReceiver);
+		mApplication.getAsyncTaskManager().removeOnTaskStateChangedListener(mTaskStateListener);
 		mPreferences.edit().putInt(PREFERENCE_KEY_SAVED_TAB_POSITION, mViewPager.getCurrentItem()).commit();
 		sendBroadcast(new Intent(BROADCAST_HOME_ACTIVITY_ONSTOP));
 
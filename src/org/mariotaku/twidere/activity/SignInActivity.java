@@ -77,6 +77,7 @@ import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.Toast;
 import org.mariotaku.twidere.util.AsyncTask;
+import org.mariotaku.twidere.util.TaskScheduler;
 
 public class SignInActivity extends BaseActivity implements OnClickListener, TextWatcher {
 
@@ -409,7 +410,7 @@ public class SignInActivity extends BaseActivity implements OnClickListener, Tex
 
 	private Configuration getConfiguration() {
 		final ConfigurationBuilder cb = new ConfigurationBuilder();
-		final boolean enable_gzip_compressing = mPreferences.getBoolean(PREFERENCE_KEY_GZIP_COMPRESSING, false);
+		final boolean enable_gzip_compressing = mPreferences.getBoolean(PREFERENCE_KEY_GZIP_COMPRESSING, true);
 		final boolean ignore_ssl_error = mPreferences.getBoolean(PREFERENCE_KEY_IGNORE_SSL_ERROR, false);
 		final boolean enable_proxy = mPreferences.getBoolean(PREFERENCE_KEY_ENABLE_PROXY, false);
 		final String consumer_key = mPreferences.getString(PREFERENCE_KEY_CONSUMER_KEY, TWITTER_CONSUMER_KEY).trim();
@@ -540,6 +541,11 @@ public class SignInActivity extends BaseActivity implements OnClickListener, Tex
 				return new SigninResponse(false, false, e);
 			}
 		}
+
+		@Override
+		protected int getSchedulerLane() {
+			return TaskScheduler.LANE_NETWORK;
+		}
 	}
 
 	public static class UserCredentialsLoader extends AbstractSignInTask {
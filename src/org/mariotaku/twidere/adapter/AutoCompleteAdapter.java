@@ -19,23 +19,18 @@
 
 package org.mariotaku.twidere.adapter;
 
-import static org.mariotaku.twidere.util.Utils.getTableId;
-import static org.mariotaku.twidere.util.Utils.getTableNameById;
-
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.R;
 import org.mariotaku.twidere.app.TwidereApplication;
-import org.mariotaku.twidere.provider.TweetStore.CachedHashtags;
 import org.mariotaku.twidere.provider.TweetStore.CachedUsers;
 import org.mariotaku.twidere.provider.TweetStore.CachedValues;
+import org.mariotaku.twidere.util.AutoCompleteIndex;
 import org.mariotaku.twidere.util.ImageLoaderWrapper;
 import org.mariotaku.twidere.view.StatusComposeEditText;
 
-import android.content.ContentResolver;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.support.v4.widget.SimpleCursorAdapter;
 import android.view.View;
 import android.widget.FilterQueryProvider;
@@ -46,11 +41,8 @@ public class AutoCompleteAdapter extends SimpleCursorAdapter implements Constant
 
 	private static final String[] FROM = new String[0];
 	private static final int[] TO = new int[0];
-	private static final String[] CACHED_USERS_COLUMNS = new String[] { CachedUsers._ID, CachedUsers.NAME,
-			CachedUsers.SCREEN_NAME, CachedUsers.PROFILE_IMAGE_URL };
 
-	private final ContentResolver mResolver;
-	private final SQLiteDatabase mDatabase;
+	private final AutoCompleteIndex mIndex;
 	private final ImageLoaderWrapper mProfileImageLoader;
 	private final SharedPreferences mPreferences;
 
@@ -70,12 +62,11 @@ public class AutoCompleteAdapter extends SimpleCursorAdapter implements Constant
 		super(context, R.layout.user_autocomplete_list_item, null, FROM, TO, 0);
 		mEditText = view;
 		mPreferences = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
-		mResolver = context.getContentResolver();
 		final Context app_context = context.getApplicationContext();
 		mProfileImageLoader = app_context instanceof TwidereApplication ? ((TwidereApplication) app_context)
 				.getImageLoaderWrapper() : null;
-		mDatabase = app_context instanceof TwidereApplication ? ((TwidereApplication) app_context).getSQLiteDatabase()
-				: null;
+		mIndex = app_context instanceof TwidereApplication ? ((TwidereApplication) app_context)
+				.getAutoCompleteIndex() : null;
 		mDisplayProfileImage = mPreferences != null ? mPreferences.getBoolean(PREFERENCE_KEY_DISPLAY_PROFILE_IMAGE,
 				true) : true;
 	}
@@ -152,20 +143,12 @@ public class AutoCompleteAdapter extends SimpleCursorAdapter implements Constant
 			if (filter != null) return filter.runQuery(constraint);
 		}
 		mToken = token;
-		final CharSequence constraint_escaped = constraint != null ? constraint.toString().replaceAll("_", "^_") : null;
-		if (isAtSymbol(token)) {
-			final StringBuilder where = new StringBuilder();
-			where.append(CachedUsers.SCREEN_NAME + " LIKE '" + constraint_escaped + "%' ESCAPE '^'");
-			where.append(" OR ");
-			where.append(CachedUsers.NAME + " LIKE '" + constraint_escaped + "%' ESCAPE '^'");
-			return mResolver.query(CachedUsers.CONTENT_URI, CACHED_USERS_COLUMNS,
-					constraint_escaped != null ? where.toString() : null, null, null);
-		} else {
-			final String where = CachedHashtags.NAME + " LIKE '" + constraint_escaped + "%' ESCAPE '^'";
-			final String table = getTableNameById(getTableId(CachedHashtags.CONTENT_URI));
-			return mDatabase.query(true, table, CachedHashtags.COLUMNS, constraint_escaped != null ? where : null,
-					null, null, null, null, null);
-		}
+		if (mIndex == null) return null;
+		final String prefix = constraint != null ? constraint.toString() : null;
+		if (isAtSymbol(token))
+			return mIndex.queryUsers(prefix);
+		else
+			return mIndex.queryHashtags(prefix);
 	}
 
 	private static boolean isAtSymbol(final char character) {
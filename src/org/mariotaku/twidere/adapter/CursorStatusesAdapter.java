@@ -24,7 +24,6 @@ import static org.mariotaku.twidere.util.HtmlEscapeHelper.toPlainText;
 import static org.mariotaku.twidere.util.Utils.findStatusInDatabases;
 import static org.mariotaku.twidere.util.Utils.formatSameDayTime;
 import static org.mariotaku.twidere.util.Utils.getAccountColor;
-import static org.mariotaku.twidere.util.Utils.getAccountScreenName;
 import static org.mariotaku.twidere.util.Utils.getAllAvailableImage;
 import static org.mariotaku.twidere.util.Utils.getInlineImagePreviewDisplayOptionInt;
 import static org.mariotaku.twidere.util.Utils.getNameDisplayOptionInt;
@@ -42,10 +41,13 @@ import org.mariotaku.twidere.app.TwidereApplication;
 import org.mariotaku.twidere.model.ImageSpec;
 import org.mariotaku.twidere.model.ParcelableStatus;
 import org.mariotaku.twidere.model.StatusCursorIndices;
+import org.mariotaku.twidere.model.StatusesCursor;
 import org.mariotaku.twidere.util.ImageLoaderWrapper;
 import org.mariotaku.twidere.util.MultiSelectManager;
 import org.mariotaku.twidere.util.OnLinkClickHandler;
 import org.mariotaku.twidere.util.TwidereLinkify;
+import org.mariotaku.twidere.util.metrics.Metrics;
+import org.mariotaku.twidere.util.metrics.Timer;
 import org.mariotaku.twidere.view.holder.StatusViewHolder;
 
 import android.app.Activity;
@@ -65,6 +67,8 @@ import android.text.SpannableString;
 
 public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatusesAdapter, OnClickListener {
 
+	private static final Timer BIND_TIMER = Metrics.getInstance().getTimer("adapter.bind_status");
+
 	private final Context mContext;
 	private final Resources mResources;
 	private final ImageLoaderWrapper mLazyImageLoader;
@@ -93,6 +97,7 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 
 	@Override
 	public void bindView(final View view, final Context context, final Cursor cursor) {
+		final long start = Timer.start();
 		final int position = cursor.getPosition();
 		final StatusViewHolder holder = (StatusViewHolder) view.getTag();
 
@@ -122,7 +127,6 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 			final String screen_name = cursor.getString(mIndices.screen_name);
 			final String name = cursor.getString(mIndices.name);
 			final String in_reply_to_screen_name = cursor.getString(mIndices.in_reply_to_screen_name);
-			final String account_screen_name = getAccountScreenName(mContext, account_id);
 
 			// Tweet type (favorite/location/media)
 			final boolean is_favorite = mFastTimelineProcessingEnabled ? false
@@ -142,8 +146,8 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 					&& cursor.getShort(mIndices.is_retweet) == 1;
 			final boolean is_reply = !TextUtils.isEmpty(in_reply_to_screen_name)
 					&& cursor.getLong(mIndices.in_reply_to_status_id) > 0;
-			final boolean is_mention = mFastTimelineProcessingEnabled || TextUtils.isEmpty(text) || TextUtils.isEmpty(account_screen_name) ? false : text.toLowerCase().contains(
-					'@' + account_screen_name.toLowerCase());
+			final boolean is_mention = mFastTimelineProcessingEnabled || mIndices.mentioned_account_ids == -1 ? false
+					: !TextUtils.isEmpty(cursor.getString(mIndices.mentioned_account_ids));
 			final boolean is_my_status = account_id == user_id;
 
 			if (mMultiSelectEnabled) {
@@ -265,14 +269,19 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 		holder.my_profile_image.setOnClickListener(mMultiSelectEnabled ? null : this);
 		holder.image_preview_frame.setOnClickListener(mMultiSelectEnabled ? null : this);
 		super.bindView(view, context, cursor);
+		BIND_TIMER.stop(start);
 	}
 
 	public long findItemIdByPosition(final int position) {
+		final Cursor c = getCursor();
+		if (c instanceof StatusesCursor) return ((StatusesCursor) c).getStatusId(position);
 		if (position >= 0 && position < getCount()) return getItem(position).getLong(mIndices.status_id);
 		return -1;
 	}
 
 	public int findItemPositionByStatusId(final long status_id) {
+		final Cursor c = getCursor();
+		if (c instanceof StatusesCursor) return ((StatusesCursor) c).indexOf(status_id);
 		final int count = getCount();
 		for (int i = 0; i < count; i++) {
 			if (getItem(i).getLong(mIndices.status_id) == status_id) return i;
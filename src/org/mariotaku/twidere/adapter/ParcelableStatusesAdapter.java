@@ -45,6 +45,8 @@ import org.mariotaku.twidere.util.ImageLoaderWrapper;
 import org.mariotaku.twidere.util.MultiSelectManager;
 import org.mariotaku.twidere.util.OnLinkClickHandler;
 import org.mariotaku.twidere.util.TwidereLinkify;
+import org.mariotaku.twidere.util.metrics.Metrics;
+import org.mariotaku.twidere.util.metrics.Timer;
 import org.mariotaku.twidere.view.holder.StatusViewHolder;
 
 import android.app.Activity;
@@ -61,6 +63,8 @@ import android.view.ViewGroup.MarginLayoutParams;
 public class ParcelableStatusesAdapter extends ArrayAdapter<ParcelableStatus> implements IStatusesAdapter,
 		OnClickListener {
 
+	private static final Timer BIND_TIMER = Metrics.getInstance().getTimer("adapter.bind_status");
+
 	private final Context mContext;
 	private final Resources mResources;
 	private final ImageLoaderWrapper mLazyImageLoader;
@@ -112,6 +116,7 @@ public class ParcelableStatusesAdapter extends ArrayAdapter<ParcelableStatus> im
 
 	@Override
 	public View getView(final int position, final View convertView, final ViewGroup parent) {
+		final long start = Timer.start();
 		final View view = super.getView(position, convertView, parent);
 		final Object tag = view.getTag();
 		final StatusViewHolder holder;
@@ -159,9 +164,7 @@ public class ParcelableStatusesAdapter extends ArrayAdapter<ParcelableStatus> im
 			} else {
 				holder.setSelected(false);
 			}
-			final String account_screen_name = getAccountScreenName(mContext, status.account_id);
-			final boolean is_mention = mFastTimelineProcessingEnabled ? false : status.text_plain.toLowerCase()
-					.contains('@' + account_screen_name.toLowerCase());
+			final boolean is_mention = mFastTimelineProcessingEnabled ? false : isMention(status);
 			final boolean is_my_status = status.account_id == status.user_id;
 			holder.setUserColor(getUserColor(mContext, status.user_id));
 			holder.setHighlightColor(mFastTimelineProcessingEnabled ? 0 : getStatusBackground(
@@ -265,6 +268,7 @@ public class ParcelableStatusesAdapter extends ArrayAdapter<ParcelableStatus> im
 		holder.profile_image.setOnClickListener(mMultiSelectEnabled ? null : this);
 		holder.my_profile_image.setOnClickListener(mMultiSelectEnabled ? null : this);
 		holder.image_preview_frame.setOnClickListener(mMultiSelectEnabled ? null : this);
+		BIND_TIMER.stop(start);
 		return view;
 	}
 
@@ -400,4 +404,12 @@ public class ParcelableStatusesAdapter extends ArrayAdapter<ParcelableStatus> im
 			notifyDataSetChanged();
 		}
 	}
+
+	private boolean isMention(final ParcelableStatus status) {
+		if (status.mentioned_account_ids != null) return status.mentioned_account_ids.length > 0;
+		// Serialized by a version without mention IDs.
+		final String account_screen_name = getAccountScreenName(mContext, status.account_id);
+		if (status.text_plain == null || TextUtils.isEmpty(account_screen_name)) return false;
+		return status.text_plain.toLowerCase().contains('@' + account_screen_name.toLowerCase());
+	}
 }
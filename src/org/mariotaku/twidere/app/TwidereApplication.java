@@ -28,9 +28,12 @@ import org.mariotaku.gallery3d.util.GalleryUtils;
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.R;
 import org.mariotaku.twidere.service.RefreshService;
+import org.mariotaku.twidere.service.StreamingService;
 import org.mariotaku.twidere.util.AsyncTaskManager;
 import org.mariotaku.twidere.util.AsyncTwitterWrapper;
+import org.mariotaku.twidere.util.AutoCompleteIndex;
 import org.mariotaku.twidere.util.DatabaseHelper;
+import org.mariotaku.twidere.util.IdWatermarks;
 import org.mariotaku.twidere.util.ImageLoaderUtils;
 import org.mariotaku.twidere.util.ImageLoaderWrapper;
 import org.mariotaku.twidere.util.ImageMemoryCache;
@@ -38,6 +41,7 @@ import org.mariotaku.twidere.util.MultiSelectManager;
 import org.mariotaku.twidere.util.TwidereHostAddressResolver;
 import org.mariotaku.twidere.util.TwidereImageDownloader;
 import org.mariotaku.twidere.util.URLFileNameGenerator;
+import org.mariotaku.twidere.util.metrics.Metrics;
 
 import twitter4j.http.HostAddressResolver;
 import android.app.Application;
@@ -62,6 +66,8 @@ public class TwidereApplication extends Application implements Constants, OnShar
 	private ImageLoaderWrapper mImageLoaderWrapper;
 	private ImageLoader mImageLoader;
 	private AsyncTaskManager mAsyncTaskManager;
+	private AutoCompleteIndex mAutoCompleteIndex;
+	private IdWatermarks mIdWatermarks;
 	private SharedPreferences mPreferences;
 	private AsyncTwitterWrapper mTwitterWrapper;
 	private MultiSelectManager mMultiSelectManager;
@@ -79,6 +85,11 @@ public class TwidereApplication extends Application implements Constants, OnShar
 		return mAsyncTaskManager = AsyncTaskManager.getInstance();
 	}
 
+	public synchronized AutoCompleteIndex getAutoCompleteIndex() {
+		if (mAutoCompleteIndex != null) return mAutoCompleteIndex;
+		return mAutoCompleteIndex = new AutoCompleteIndex(getSQLiteDatabase());
+	}
+
 	public String getBrowserUserAgent() {
 		return mBrowserUserAgent;
 	}
@@ -87,7 +98,12 @@ public class TwidereApplication extends Application implements Constants, OnShar
 		return mHandler;
 	}
 
-	public HostAddressResolver getHostAddressResolver() {
+	public synchronized IdWatermarks getIdWatermarks() {
+		if (mIdWatermarks != null) return mIdWatermarks;
+		return mIdWatermarks = new IdWatermarks(getSQLiteDatabase());
+	}
+
+	public synchronized HostAddressResolver getHostAddressResolver() {
 		if (mResolver != null) return mResolver;
 		return mResolver = new TwidereHostAddressResolver(this);
 	}
@@ -99,7 +115,8 @@ public class TwidereApplication extends Application implements Constants, OnShar
 		final long disc_cache_size = Math.min(Math.min(100 * 1024 * 1024, usable_space), Integer.MAX_VALUE);
 		final ImageLoader loader = ImageLoader.getInstance();
 		final ImageLoaderConfiguration.Builder cb = new ImageLoaderConfiguration.Builder(this);
-		cb.threadPoolSize(8);
+		cb.threadPoolSize(4);
+		cb.threadPriority(Thread.MIN_PRIORITY);
 		cb.memoryCache(new ImageMemoryCache(40));
 		cb.discCache(new TotalSizeLimitedDiscCache(cache_dir, new URLFileNameGenerator(), (int) disc_cache_size));
 		cb.imageDownloader(mImageDownloader);
@@ -140,6 +157,9 @@ public class TwidereApplication extends Application implements Constants, OnShar
 		mHandler = new Handler();
 		mPreferences.registerOnSharedPreferenceChangeListener(this);
 		super.onCreate();
+		final Metrics metrics = Metrics.getInstance();
+		metrics.init(this);
+		metrics.setLoggingEnabled(DEBUG);
 		initializeAsyncTask();
 		GalleryUtils.initialize(this);
 		mTwitterWrapper = AsyncTwitterWrapper.getInstance(this);
@@ -152,6 +172,9 @@ public class TwidereApplication extends Application implements Constants, OnShar
 		if (mPreferences.getBoolean(PREFERENCE_KEY_AUTO_REFRESH, false)) {
 			startService(new Intent(this, RefreshService.class));
 		}
+		if (mPreferences.getBoolean(PREFERENCE_KEY_STREAMING, false)) {
+			startService(new Intent(this, StreamingService.class));
+		}
 	}
 
 	@Override
@@ -170,6 +193,12 @@ public class TwidereApplication extends Application implements Constants, OnShar
 			if (preferences.getBoolean(PREFERENCE_KEY_AUTO_REFRESH, false) && hasActiveConnection(this)) {
 				startService(intent);
 			}
+		} else if (PREFERENCE_KEY_STREAMING.equals(key) || PREFERENCE_KEY_USER_STREAM_URL.equals(key)) {
+			final Intent intent = new Intent(this, StreamingService.class);
+			stopService(intent);
+			if (preferences.getBoolean(PREFERENCE_KEY_STREAMING, false) && hasActiveConnection(this)) {
+				startService(intent);
+			}
 		} else if (PREFERENCE_KEY_ENABLE_PROXY.equals(key) || PREFERENCE_KEY_CONNECTION_TIMEOUT.equals(key)) {
 			reloadConnectivitySettings();
 		} else if (PREFERENCE_KEY_UCD_DATA_PROFILING.equals(key)) {
@@ -21,6 +21,7 @@ package org.mariotaku.twidere.fragment;
 
 import static android.text.format.DateUtils.getRelativeTimeSpanString;
 import static org.mariotaku.twidere.util.Utils.formatSameDayTime;
+import static org.mariotaku.twidere.util.Utils.getAccountIds;
 import static org.mariotaku.twidere.util.Utils.getBiggerTwitterProfileImage;
 import static org.mariotaku.twidere.util.Utils.openStatus;
 import static org.mariotaku.twidere.util.Utils.openUserFollowers;
@@ -106,6 +107,7 @@ public class ActivitiesAboutMeFragment extends PullToRefreshListFragment impleme
 		final int sources_length = sources != null ? sources.length : 0;
 		final Action action = item.getAction();
 		final boolean hires_profile_image = getResources().getBoolean(R.bool.hires_profile_image);
+		final long[] account_ids = getAccountIds(getActivity());
 		if (sources_length > 0) {
 			final Status[] target_objects = item.getTargetObjectStatuses();
 			switch (action.getActionId()) {
@@ -115,7 +117,7 @@ public class ActivitiesAboutMeFragment extends PullToRefreshListFragment impleme
 					} else {
 						if (target_statuses != null && target_statuses.length > 0) {
 							final Status status = target_statuses[0];
-							openStatus(getActivity(), new ParcelableStatus(status, mAccountId, false,
+							openStatus(getActivity(), new ParcelableStatus(status, mAccountId, account_ids, false,
 									hires_profile_image));
 						}
 					}
@@ -132,14 +134,16 @@ public class ActivitiesAboutMeFragment extends PullToRefreshListFragment impleme
 				case Action.ACTION_MENTION: {
 					if (target_objects != null && target_objects.length > 0) {
 						final Status status = target_objects[0];
-						openStatus(getActivity(), new ParcelableStatus(status, mAccountId, false, hires_profile_image));
+						openStatus(getActivity(), new ParcelableStatus(status, mAccountId, account_ids, false,
+								hires_profile_image));
 					}
 					break;
 				}
 				case Action.ACTION_REPLY: {
 					if (target_statuses != null && target_statuses.length > 0) {
 						final Status status = target_statuses[0];
-						openStatus(getActivity(), new ParcelableStatus(status, mAccountId, false, hires_profile_image));
+						openStatus(getActivity(), new ParcelableStatus(status, mAccountId, account_ids, false,
+								hires_profile_image));
 					}
 					break;
 				}
@@ -149,7 +153,7 @@ public class ActivitiesAboutMeFragment extends PullToRefreshListFragment impleme
 					} else {
 						if (target_objects != null && target_objects.length > 0) {
 							final Status status = target_objects[0];
-							openStatus(getActivity(), new ParcelableStatus(status, mAccountId, false,
+							openStatus(getActivity(), new ParcelableStatus(status, mAccountId, account_ids, false,
 									hires_profile_image));
 						}
 					}
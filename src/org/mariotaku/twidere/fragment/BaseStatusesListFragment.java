@@ -186,7 +186,7 @@ abstract class BaseStatusesListFragment<Data> extends PullToRefreshListFragment
 			if (status == null) return;
 			final StatusViewHolder holder = (StatusViewHolder) tag;
 			if (holder.show_as_gap) {
-				getStatuses(new long[] { status.account_id }, new long[] { status.status_id }, null);
+				getStatuses(new long[] { status.account_id }, new long[] { status.status_id }, getGapSinceIds(status));
 			} else {
 				if (mMultiSelectManager.isActive()) {
 					if (!mMultiSelectManager.isSelected(status)) {
@@ -451,6 +451,14 @@ abstract class BaseStatusesListFragment<Data> extends PullToRefreshListFragment
 		mPopupMenu.show();
 	}
 
+	/**
+	 * @return since_id for loading the gap at the status, or null to load a
+	 *         page older than it.
+	 */
+	long[] getGapSinceIds(final ParcelableStatus gap) {
+		return null;
+	}
+
 	abstract long[] getNewestStatusIds();
 
 	abstract long[] getOldestStatusIds();
@@ -19,6 +19,7 @@
 
 package org.mariotaku.twidere.fragment;
 
+import static org.mariotaku.twidere.util.TimelineRangeUtils.getGapSinceId;
 import static org.mariotaku.twidere.util.Utils.buildActivatedStatsWhereClause;
 import static org.mariotaku.twidere.util.Utils.buildStatusFilterWhereClause;
 import static org.mariotaku.twidere.util.Utils.getActivatedAccountIds;
@@ -28,8 +29,12 @@ import static org.mariotaku.twidere.util.Utils.getTableNameByUri;
 
 import org.mariotaku.twidere.activity.HomeActivity;
 import org.mariotaku.twidere.adapter.CursorStatusesAdapter;
+import org.mariotaku.twidere.loader.StatusesCursorLoader;
+import org.mariotaku.twidere.model.ParcelableStatus;
+import org.mariotaku.twidere.model.StatusesCursor;
 import org.mariotaku.twidere.provider.TweetStore.Statuses;
 import org.mariotaku.twidere.util.AsyncTask;
+import org.mariotaku.twidere.util.TaskScheduler;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -39,7 +44,6 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.support.v4.app.FragmentActivity;
-import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
 import android.view.MotionEvent;
 import android.view.View;
@@ -48,8 +52,17 @@ import android.widget.AbsListView;
 public abstract class CursorStatusesListFragment extends BaseStatusesListFragment<Cursor> implements
 		View.OnTouchListener {
 
+	// Only a window of rows around the visible position is loaded. It grows by
+	// WINDOW_SIZE rows when scrolled near its end, up to MAX_WINDOW_SIZE, then
+	// slides instead.
+	private static final int WINDOW_SIZE = 200;
+	private static final int MAX_WINDOW_SIZE = WINDOW_SIZE * 3;
+	private static final int WINDOW_MARGIN = 30;
+
 	protected CursorStatusesAdapter mAdapter;
 	private int mListScrollOffset;
+	private int mWindowOffset, mWindowSize = WINDOW_SIZE;
+	private boolean mWindowMoving, mRestoringSavedPosition;
 
 	private final BroadcastReceiver mStatusReceiver = new BroadcastReceiver() {
 
@@ -90,13 +103,17 @@ public abstract class CursorStatusesListFragment extends BaseStatusesListFragmen
 				Statuses.IN_REPLY_TO_STATUS_ID, Statuses.LOCATION, Statuses.IS_RETWEET, Statuses.RETWEET_COUNT,
 				Statuses.RETWEET_ID, Statuses.RETWEETED_BY_NAME, Statuses.RETWEETED_BY_SCREEN_NAME,
 				Statuses.IS_FAVORITE, Statuses.IS_PROTECTED, Statuses.IS_VERIFIED, Statuses.IS_GAP,
-				Statuses.IS_POSSIBLY_SENSITIVE };
+				Statuses.IS_POSSIBLY_SENSITIVE, Statuses.MENTIONED_ACCOUNT_IDS };
 		final Uri uri = getContentUri();
-		final String sort_by = getSharedPreferences().getBoolean(PREFERENCE_KEY_SORT_TIMELINE_BY_TIME, false) ? Statuses.SORT_ORDER_TIMESTAMP_DESC
+		final String sort_by = isSortedByTime() ? Statuses.SORT_ORDER_TIMESTAMP_DESC
 				: Statuses.SORT_ORDER_STATUS_ID_DESC;
-		final String where = buildActivatedStatsWhereClause(getActivity(), null);
-		final String table = getTableNameByUri(uri);
-		return new CursorLoader(getActivity(), uri, cols, buildStatusFilterWhereClause(table, where), null, sort_by);
+		final String limit = mWindowOffset > 0 ? mWindowOffset + "," + mWindowSize : String.valueOf(mWindowSize);
+		final Uri window_uri = uri.buildUpon().appendQueryParameter(QUERY_PARAM_LIMIT, limit).build();
+		final Cursor previous = mAdapter.getCursor();
+		final long[] previous_row_ids = previous instanceof StatusesCursor ? ((StatusesCursor) previous).getRowIds()
+				: null;
+		return new StatusesCursorLoader(getActivity(), window_uri, cols, getWhereClause(), null, sort_by,
+				previous_row_ids);
 	}
 
 	@Override
@@ -107,6 +124,16 @@ public abstract class CursorStatusesListFragment extends BaseStatusesListFragmen
 
 	@Override
 	public void onLoadFinished(final Loader<Cursor> loader, final Cursor data) {
+		final boolean restoring_saved_position = mRestoringSavedPosition;
+		final boolean window_moved = mWindowMoving;
+		mWindowMoving = false;
+		mRestoringSavedPosition = false;
+		if (data instanceof StatusesCursor && !((StatusesCursor) data).hasRowChanges() && mAdapter.getCount() > 0) {
+			// Same rows as before, list keeps its position by itself.
+			super.onLoadFinished(loader, data);
+			mAdapter.swapCursor(data);
+			return;
+		}
 		final int first_visible_position = mListView.getFirstVisiblePosition();
 		if (mListView.getChildCount() > 0) {
 			final View first_child = mListView.getChildAt(0);
@@ -119,15 +146,23 @@ public abstract class CursorStatusesListFragment extends BaseStatusesListFragmen
 		final int curr_first_visible_position = mListView.getFirstVisiblePosition();
 		final long curr_viewed_id = mAdapter.findItemIdByPosition(curr_first_visible_position);
 		final long status_id;
-		if (last_viewed_id <= 0) {
+		final boolean restore_saved = last_viewed_id <= 0 || restoring_saved_position;
+		if (restore_saved) {
 			if (!remember_position) return;
 			status_id = mPreferences.getLong(getSavedTimelinePreferenceKey(), -1);
-		} else if ((first_visible_position > 0 || remember_position) && curr_viewed_id > 0
+		} else if ((first_visible_position > 0 || remember_position || window_moved) && curr_viewed_id > 0
 				&& last_viewed_id != curr_viewed_id) {
 			status_id = last_viewed_id;
 		} else
 			return;
 		final int position = mAdapter.findItemPositionByStatusId(status_id);
+		if (position == -1 && restore_saved && status_id > 0 && (isWindowFull() || mWindowOffset > 0)
+				&& !restoring_saved_position) {
+			// Saved position is outside loaded rows, move the window to it, but
+			// only once in case it's gone.
+			moveWindowTo(status_id);
+			return;
+		}
 		if (position > -1 && position < mListView.getCount()) {
 			mListView.setSelectionFromTop(position, mListScrollOffset);
 			mListScrollOffset = 0;
@@ -154,6 +189,11 @@ public abstract class CursorStatusesListFragment extends BaseStatusesListFragmen
 				return result;
 			}
 
+			@Override
+			protected int getSchedulerLane() {
+				return TaskScheduler.LANE_DISK;
+			}
+
 			@Override
 			protected void onPostExecute(final long[][] result) {
 				getStatuses(result[0], result[1], result[2]);
@@ -164,6 +204,12 @@ public abstract class CursorStatusesListFragment extends BaseStatusesListFragmen
 
 	@Override
 	public void onPullUpToRefresh() {
+		if (isWindowFull()) {
+			// Load older statuses from database before fetching them.
+			moveWindowDown();
+			onRefreshComplete();
+			return;
+		}
 		saveReadPosition();
 		new AsyncTask<Void, Void, long[][]>() {
 
@@ -175,6 +221,11 @@ public abstract class CursorStatusesListFragment extends BaseStatusesListFragmen
 				return result;
 			}
 
+			@Override
+			protected int getSchedulerLane() {
+				return TaskScheduler.LANE_DISK;
+			}
+
 			@Override
 			protected void onPostExecute(final long[][] result) {
 				getStatuses(result[0], result[1], result[2]);
@@ -183,6 +234,17 @@ public abstract class CursorStatusesListFragment extends BaseStatusesListFragmen
 		}.execute();
 	}
 
+	@Override
+	public void onScroll(final AbsListView view, final int firstVisibleItem, final int visibleItemCount,
+			final int totalItemCount) {
+		super.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
+		if (firstVisibleItem + visibleItemCount >= mAdapter.getCount() - WINDOW_MARGIN && isWindowFull()) {
+			moveWindowDown();
+		} else if (firstVisibleItem < WINDOW_MARGIN && mWindowOffset > 0) {
+			moveWindowUp();
+		}
+	}
+
 	@Override
 	public void onScrollStateChanged(final AbsListView view, final int scrollState) {
 		super.onScrollStateChanged(view, scrollState);
@@ -221,6 +283,13 @@ public abstract class CursorStatusesListFragment extends BaseStatusesListFragmen
 
 	abstract Uri getContentUri();
 
+	@Override
+	long[] getGapSinceIds(final ParcelableStatus gap) {
+		final String table = getTableNameByUri(getContentUri());
+		final long since_id = getGapSinceId(getContentResolver(), table, gap.account_id, gap.status_id);
+		return since_id > 0 ? new long[] { since_id } : null;
+	}
+
 	@Override
 	long[] getNewestStatusIds() {
 		return getNewestStatusIdsFromDatabase(getActivity(), getContentUri());
@@ -235,6 +304,88 @@ public abstract class CursorStatusesListFragment extends BaseStatusesListFragmen
 
 	abstract String getSavedTimelinePreferenceKey();
 
+	private void moveWindow(final int offset, final int size) {
+		if (mWindowMoving || !isAdded() || isDetached()) return;
+		mWindowMoving = true;
+		mWindowOffset = offset;
+		mWindowSize = size;
+		getLoaderManager().restartLoader(0, null, this);
+	}
+
+	String getWhereClause() {
+		final String where = buildActivatedStatsWhereClause(getActivity(), null);
+		return buildStatusFilterWhereClause(getTableNameByUri(getContentUri()), where);
+	}
+
+	boolean isSortedByTime() {
+		return getSharedPreferences().getBoolean(PREFERENCE_KEY_SORT_TIMELINE_BY_TIME, false);
+	}
+
+	boolean isWindowFull() {
+		final Cursor c = mAdapter != null ? mAdapter.getCursor() : null;
+		return c != null && c.getCount() >= mWindowSize;
+	}
+
+	void moveWindowDown() {
+		if (mWindowSize < MAX_WINDOW_SIZE) {
+			moveWindow(mWindowOffset, mWindowSize + WINDOW_SIZE);
+		} else {
+			// Drop rows far above the visible ones.
+			moveWindow(mWindowOffset + WINDOW_SIZE, mWindowSize);
+		}
+	}
+
+	/**
+	 * Centers the window on status_id. Rows sorted before it are counted in
+	 * background, then the window is reloaded from there.
+	 */
+	void moveWindowTo(final long status_id) {
+		if (mWindowMoving || !isAdded() || isDetached()) return;
+		mWindowMoving = true;
+		mRestoringSavedPosition = true;
+		final Uri uri = getContentUri();
+		final String table = getTableNameByUri(uri);
+		final String newer_where;
+		if (isSortedByTime()) {
+			newer_where = Statuses.STATUS_TIMESTAMP + " > (SELECT " + Statuses.STATUS_TIMESTAMP + " FROM " + table
+					+ " WHERE " + Statuses.STATUS_ID + " = " + status_id + " LIMIT 1)";
+		} else {
+			newer_where = Statuses.STATUS_ID + " > " + status_id;
+		}
+		final String where = getWhereClause() + " AND " + newer_where;
+		new AsyncTask<Void, Void, Integer>() {
+
+			@Override
+			protected Integer doInBackground(final Void... params) {
+				final Cursor c = getContentResolver().query(uri, new String[] { Statuses._ID }, where, null, null);
+				if (c == null) return 0;
+				try {
+					return c.getCount();
+				} finally {
+					c.close();
+				}
+			}
+
+			@Override
+			protected int getSchedulerLane() {
+				return TaskScheduler.LANE_DISK;
+			}
+
+			@Override
+			protected void onPostExecute(final Integer result) {
+				mWindowMoving = false;
+				mRestoringSavedPosition = true;
+				moveWindow(Math.max(0, result - WINDOW_SIZE / 2), WINDOW_SIZE);
+			}
+
+		}.execute();
+	}
+
+	void moveWindowUp() {
+		// Drop rows far below the visible ones.
+		moveWindow(Math.max(0, mWindowOffset - WINDOW_SIZE), mWindowSize);
+	}
+
 	void saveReadPosition() {
 		final int first_visible_position = mListView.getFirstVisiblePosition();
 		if (mListView.getChildCount() > 0) {
@@ -33,8 +33,10 @@ import org.mariotaku.twidere.model.Account;
 import org.mariotaku.twidere.model.Panes;
 import org.mariotaku.twidere.model.ParcelableDirectMessage;
 import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
+import org.mariotaku.twidere.util.AsyncTaskManager.OnTaskStateChangedListener;
 import org.mariotaku.twidere.util.AsyncTwitterWrapper;
 import org.mariotaku.twidere.util.ClipboardUtils;
+import org.mariotaku.twidere.util.ManagedAsyncTask;
 import org.mariotaku.twidere.view.holder.DirectMessageConversationViewHolder;
 
 import android.content.BroadcastReceiver;
@@ -115,13 +117,19 @@ public class DirectMessagesConversationFragment extends BaseListFragment impleme
 			} else if (BROADCAST_RECEIVED_DIRECT_MESSAGES_REFRESHED.equals(action)
 					|| BROADCAST_SENT_DIRECT_MESSAGES_REFRESHED.equals(action)) {
 				getLoaderManager().restartLoader(0, mArguments, DirectMessagesConversationFragment.this);
-			} else if (BROADCAST_TASK_STATE_CHANGED.equals(action)) {
-				setProgressBarIndeterminateVisibility(mTwitterWrapper.isReceivedDirectMessagesRefreshing()
-						|| mTwitterWrapper.isSentDirectMessagesRefreshing());
 			}
 		}
 	};
 
+	private final OnTaskStateChangedListener mTaskStateListener = new OnTaskStateChangedListener() {
+
+		@Override
+		public void onTaskStateChanged(final ManagedAsyncTask<?, ?, ?> task) {
+			setProgressBarIndeterminateVisibility(mTwitterWrapper.isReceivedDirectMessagesRefreshing()
+					|| mTwitterWrapper.isSentDirectMessagesRefreshing());
+		}
+	};
+
 	private final TextWatcher mScreenNameTextWatcher = new TextWatcher() {
 
 		@Override
@@ -365,12 +373,12 @@ public class DirectMessagesConversationFragment extends BaseListFragment impleme
 	@Override
 	public void onStart() {
 		super.onStart();
-		final IntentFilter filter = new IntentFilter(BROADCAST_TASK_STATE_CHANGED);
-		filter.addAction(BROADCAST_RECEIVED_DIRECT_MESSAGES_DATABASE_UPDATED);
+		final IntentFilter filter = new IntentFilter(BROADCAST_RECEIVED_DIRECT_MESSAGES_DATABASE_UPDATED);
 		filter.addAction(BROADCAST_SENT_DIRECT_MESSAGES_DATABASE_UPDATED);
 		filter.addAction(BROADCAST_RECEIVED_DIRECT_MESSAGES_REFRESHED);
 		filter.addAction(BROADCAST_SENT_DIRECT_MESSAGES_REFRESHED);
 		registerReceiver(mStatusReceiver, filter);
+		getApplication().getAsyncTaskManager().addOnTaskStateChangedListener(mTaskStateListener);
 
 		final float text_size = mPreferences.getInt(PREFERENCE_KEY_TEXT_SIZE, PREFERENCE_DEFAULT_TEXT_SIZE);
 		final boolean display_profile_image = mPreferences.getBoolean(PREFERENCE_KEY_DISPLAY_PROFILE_IMAGE, true);
@@ -383,6 +391,7 @@ public class DirectMessagesConversationFragment extends BaseListFragment impleme
 
 	@Override
 	public void onStop() {
+		getApplication().getAsyncTaskManager().removeOnTaskStateChangedListener(mTaskStateListener);
 		unregisterReceiver(mStatusReceiver);
 		if (mPopupMenu != null) {
 			mPopupMenu.dismiss();
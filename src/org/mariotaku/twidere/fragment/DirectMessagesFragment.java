@@ -29,7 +29,10 @@ import org.mariotaku.twidere.app.TwidereApplication;
 import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
 import org.mariotaku.twidere.util.ArrayUtils;
 import org.mariotaku.twidere.util.AsyncTask;
+import org.mariotaku.twidere.util.AsyncTaskManager.OnTaskStateChangedListener;
 import org.mariotaku.twidere.util.AsyncTwitterWrapper;
+import org.mariotaku.twidere.util.ManagedAsyncTask;
+import org.mariotaku.twidere.util.TaskScheduler;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -88,13 +91,18 @@ public class DirectMessagesFragment extends PullToRefreshListFragment implements
 					|| BROADCAST_SENT_DIRECT_MESSAGES_REFRESHED.equals(action)) {
 				getLoaderManager().restartLoader(0, null, DirectMessagesFragment.this);
 				onRefreshComplete();
-			} else if (BROADCAST_TASK_STATE_CHANGED.equals(action)) {
-				if (mTwitterWrapper.isReceivedDirectMessagesRefreshing()
-						|| mTwitterWrapper.isSentDirectMessagesRefreshing()) {
-					setRefreshing(false);
-				} else {
-					onRefreshComplete();
-				}
+			}
+		}
+	};
+
+	private final OnTaskStateChangedListener mTaskStateListener = new OnTaskStateChangedListener() {
+
+		@Override
+		public void onTaskStateChanged(final ManagedAsyncTask<?, ?, ?> task) {
+			if (mTwitterWrapper.isReceivedDirectMessagesRefreshing() || mTwitterWrapper.isSentDirectMessagesRefreshing()) {
+				setRefreshing(false);
+			} else {
+				onRefreshComplete();
 			}
 		}
 	};
@@ -182,6 +190,11 @@ public class DirectMessagesFragment extends PullToRefreshListFragment implements
 				return result;
 			}
 
+			@Override
+			protected int getSchedulerLane() {
+				return TaskScheduler.LANE_DISK;
+			}
+
 			@Override
 			protected void onPostExecute(final long[][] result) {
 				mTwitterWrapper.getReceivedDirectMessages(result[0], null, result[1]);
@@ -205,6 +218,11 @@ public class DirectMessagesFragment extends PullToRefreshListFragment implements
 				return result;
 			}
 
+			@Override
+			protected int getSchedulerLane() {
+				return TaskScheduler.LANE_DISK;
+			}
+
 			@Override
 			protected void onPostExecute(final long[][] result) {
 				mTwitterWrapper.getReceivedDirectMessages(result[0], result[1], null);
@@ -284,8 +302,8 @@ public class DirectMessagesFragment extends PullToRefreshListFragment implements
 		filter.addAction(BROADCAST_SENT_DIRECT_MESSAGES_DATABASE_UPDATED);
 		filter.addAction(BROADCAST_RECEIVED_DIRECT_MESSAGES_REFRESHED);
 		filter.addAction(BROADCAST_SENT_DIRECT_MESSAGES_REFRESHED);
-		filter.addAction(BROADCAST_TASK_STATE_CHANGED);
 		registerReceiver(mStatusReceiver, filter);
+		getApplication().getAsyncTaskManager().addOnTaskStateChangedListener(mTaskStateListener);
 		if (mTwitterWrapper.isReceivedDirectMessagesRefreshing() || mTwitterWrapper.isSentDirectMessagesRefreshing()) {
 			setRefreshing(false);
 		} else {
@@ -295,6 +313,7 @@ public class DirectMessagesFragment extends PullToRefreshListFragment implements
 
 	@Override
 	public void onStop() {
+		getApplication().getAsyncTaskManager().removeOnTaskStateChangedListener(mTaskStateListener);
 		unregisterReceiver(mStatusReceiver);
 		mTickerStopped = true;
 		super.onStop();
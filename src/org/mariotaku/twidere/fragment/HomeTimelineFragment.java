@@ -20,6 +20,8 @@
 package org.mariotaku.twidere.fragment;
 
 import org.mariotaku.twidere.provider.TweetStore.Statuses;
+import org.mariotaku.twidere.util.AsyncTaskManager.OnTaskStateChangedListener;
+import org.mariotaku.twidere.util.ManagedAsyncTask;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -44,10 +46,16 @@ public class HomeTimelineFragment extends CursorStatusesListFragment {
 				if (isAdded() && !isDetached()) {
 					getLoaderManager().restartLoader(0, null, HomeTimelineFragment.this);
 				}
-			} else if (BROADCAST_TASK_STATE_CHANGED.equals(action)) {
-				if (mTwitterWrapper.isHomeTimelineRefreshing()) {
-					setRefreshing(false);
-				}
+			}
+		}
+	};
+
+	private final OnTaskStateChangedListener mTaskStateListener = new OnTaskStateChangedListener() {
+
+		@Override
+		public void onTaskStateChanged(final ManagedAsyncTask<?, ?, ?> task) {
+			if (mTwitterWrapper != null && mTwitterWrapper.isHomeTimelineRefreshing()) {
+				setRefreshing(false);
 			}
 		}
 	};
@@ -70,8 +78,8 @@ public class HomeTimelineFragment extends CursorStatusesListFragment {
 		final IntentFilter filter = new IntentFilter(BROADCAST_HOME_TIMELINE_REFRESHED);
 		filter.addAction(BROADCAST_ACCOUNT_LIST_DATABASE_UPDATED);
 		filter.addAction(BROADCAST_HOME_TIMELINE_DATABASE_UPDATED);
-		filter.addAction(BROADCAST_TASK_STATE_CHANGED);
 		registerReceiver(mStatusReceiver, filter);
+		getAsyncTaskManager().addOnTaskStateChangedListener(mTaskStateListener);
 		if (mTwitterWrapper.isHomeTimelineRefreshing()) {
 			setRefreshing(false);
 		} else {
@@ -81,6 +89,7 @@ public class HomeTimelineFragment extends CursorStatusesListFragment {
 
 	@Override
 	public void onStop() {
+		getAsyncTaskManager().removeOnTaskStateChangedListener(mTaskStateListener);
 		unregisterReceiver(mStatusReceiver);
 		super.onStop();
 	}
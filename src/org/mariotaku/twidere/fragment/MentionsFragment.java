@@ -20,6 +20,8 @@
 package org.mariotaku.twidere.fragment;
 
 import org.mariotaku.twidere.provider.TweetStore.Mentions;
+import org.mariotaku.twidere.util.AsyncTaskManager.OnTaskStateChangedListener;
+import org.mariotaku.twidere.util.ManagedAsyncTask;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -44,10 +46,16 @@ public class MentionsFragment extends CursorStatusesListFragment {
 				if (isAdded() && !isDetached()) {
 					getLoaderManager().restartLoader(0, null, MentionsFragment.this);
 				}
-			} else if (BROADCAST_TASK_STATE_CHANGED.equals(action)) {
-				if (mTwitterWrapper != null && mTwitterWrapper.isMentionsRefreshing()) {
-					setRefreshing(false);
-				}
+			}
+		}
+	};
+
+	private final OnTaskStateChangedListener mTaskStateListener = new OnTaskStateChangedListener() {
+
+		@Override
+		public void onTaskStateChanged(final ManagedAsyncTask<?, ?, ?> task) {
+			if (mTwitterWrapper != null && mTwitterWrapper.isMentionsRefreshing()) {
+				setRefreshing(false);
 			}
 		}
 	};
@@ -69,8 +77,8 @@ public class MentionsFragment extends CursorStatusesListFragment {
 		final IntentFilter filter = new IntentFilter(BROADCAST_MENTIONS_REFRESHED);
 		filter.addAction(BROADCAST_ACCOUNT_LIST_DATABASE_UPDATED);
 		filter.addAction(BROADCAST_MENTIONS_DATABASE_UPDATED);
-		filter.addAction(BROADCAST_TASK_STATE_CHANGED);
 		registerReceiver(mStatusReceiver, filter);
+		getAsyncTaskManager().addOnTaskStateChangedListener(mTaskStateListener);
 		if (getTwitterWrapper().isMentionsRefreshing()) {
 			setRefreshing(false);
 		} else {
@@ -80,6 +88,7 @@ public class MentionsFragment extends CursorStatusesListFragment {
 
 	@Override
 	public void onStop() {
+		getAsyncTaskManager().removeOnTaskStateChangedListener(mTaskStateListener);
 		unregisterReceiver(mStatusReceiver);
 		super.onStop();
 	}
@@ -63,6 +63,7 @@ import org.mariotaku.twidere.util.HtmlEscapeHelper;
 import org.mariotaku.twidere.util.ImageLoaderWrapper;
 import org.mariotaku.twidere.util.OnLinkClickHandler;
 import org.mariotaku.twidere.util.SynchronizedStateSavedList;
+import org.mariotaku.twidere.util.TaskScheduler;
 import org.mariotaku.twidere.util.TwidereLinkify;
 import org.mariotaku.twidere.view.ColorLabelRelativeLayout;
 import org.mariotaku.twidere.view.ExtendedFrameLayout;
@@ -789,6 +790,11 @@ public class StatusFragment extends ParcelableStatusesListFragment implements On
 			return new Response<Boolean>(true, null);
 		}
 
+		@Override
+		protected int getSchedulerLane() {
+			return TaskScheduler.LANE_NETWORK;
+		}
+
 		@Override
 		protected void onCancelled() {
 			fragment.setProgressBarIndeterminateVisibility(false);
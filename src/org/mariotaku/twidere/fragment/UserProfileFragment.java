@@ -60,13 +60,13 @@ import org.mariotaku.twidere.model.Panes;
 import org.mariotaku.twidere.model.ParcelableUser;
 import org.mariotaku.twidere.model.SingleResponse;
 import org.mariotaku.twidere.provider.TweetStore.Accounts;
-import org.mariotaku.twidere.provider.TweetStore.CachedUsers;
 import org.mariotaku.twidere.provider.TweetStore.Filters;
 import org.mariotaku.twidere.util.AsyncTwitterWrapper;
 import org.mariotaku.twidere.util.EnvironmentAccessor;
 import org.mariotaku.twidere.util.ImageLoaderWrapper;
 import org.mariotaku.twidere.util.TwidereLinkify;
 import org.mariotaku.twidere.util.TwidereLinkify.OnLinkClickListener;
+import org.mariotaku.twidere.util.UserProfileCache;
 import org.mariotaku.twidere.view.ColorLabelRelativeLayout;
 import org.mariotaku.twidere.view.iface.IExtendedView.OnSizeChangedListener;
 
@@ -152,6 +152,7 @@ public class UserProfileFragment extends BaseListFragment implements OnClickList
 	private int mBannerWidth;
 
 	private AsyncTwitterWrapper mTwitterWrapper;
+	private UserProfileCache mProfileCache;
 
 	private PopupMenu mPopupMenu;
 
@@ -164,12 +165,14 @@ public class UserProfileFragment extends BaseListFragment implements OnClickList
 			if (BROADCAST_FRIENDSHIP_CHANGED.equals(action)) {
 				if (intent.getLongExtra(INTENT_KEY_USER_ID, -1) == mUser.user_id
 						&& intent.getBooleanExtra(INTENT_KEY_SUCCEED, false)) {
+					mProfileCache.invalidateRelationship(mAccountId, mUser.user_id);
 					getFriendship();
 				}
 			}
 			if (BROADCAST_BLOCKSTATE_CHANGED.equals(action)) {
 				if (intent.getLongExtra(INTENT_KEY_USER_ID, -1) == mUser.user_id
 						&& intent.getBooleanExtra(INTENT_KEY_SUCCEED, false)) {
+					mProfileCache.invalidateRelationship(mAccountId, mUser.user_id);
 					getFriendship();
 				}
 			}
@@ -212,7 +215,12 @@ public class UserProfileFragment extends BaseListFragment implements OnClickList
 				displayUser(data.data);
 				mErrorRetryContainer.setVisibility(View.GONE);
 				if (data.data.is_cache) {
-					getLoaderManager().restartLoader(LOADER_ID_USER, null, this);
+					// Revalidate only when the cached profile is too old.
+					if (data.extras.getBoolean(ParcelableUserLoader.EXTRA_STALE, true)) {
+						getLoaderManager().restartLoader(LOADER_ID_USER, null, this);
+					} else {
+						getFriendship();
+					}
 				}
 			} else if (mUser != null && mUser.is_cache
 					&& (mUserId == mUser.user_id || mScreenName != null && mScreenName.equals(mUser.screen_name))) {
@@ -255,45 +263,46 @@ public class UserProfileFragment extends BaseListFragment implements OnClickList
 		@Override
 		public void onLoadFinished(final Loader<SingleResponse<Relationship>> loader,
 				final SingleResponse<Relationship> data) {
-			mFriendship = null;
-			if (mUser == null) return;
-			final boolean user_is_me = mAccountId == mUserId;
-			if (data.data != null) {
-				mFriendship = data.data;
-				final boolean followed_by_user = data.data.isTargetFollowingSource();
-				mEditFollowButton.setVisibility(View.VISIBLE);
-				if (data.data.isSourceFollowingTarget()) {
-					mEditFollowButton.setText(R.string.unfollow);
-				} else {
-					if (mUser.is_protected) {
-						mEditFollowButton.setText(mUser.is_follow_request_sent ? R.string.follow_request_sent
-								: R.string.send_follow_request);
-					} else {
-						mEditFollowButton.setText(R.string.follow);
-					}
-				}
-				mFollowingYouIndicator.setVisibility(followed_by_user && !user_is_me ? View.VISIBLE : View.GONE);
-				final ContentResolver resolver = getContentResolver();
-				final String where = CachedUsers.USER_ID + " = " + mUserId;
-				resolver.delete(CachedUsers.CONTENT_URI, where, null);
-				// I bet you don't want to see blocked user in your auto
-				// complete list.
-				if (!data.data.isSourceBlockingTarget()) {
-					final ContentValues cached_values = ParcelableUser.makeCachedUserContentValues(mUser);
-					if (cached_values != null) {
-						resolver.insert(CachedUsers.CONTENT_URI, cached_values);
-					}
-				}
+			displayRelationship(data.data);
+			if (mUser == null || data.data == null) return;
+			// I bet you don't want to see blocked user in your auto
+			// complete list.
+			if (data.data.isSourceBlockingTarget()) {
+				mProfileCache.removeUser(mUserId);
+			} else {
+				mProfileCache.storeUser(ParcelableUser.makeCachedUserContentValues(mUser));
 			}
-			mEditFollowContainer.setVisibility(data.data == null && !user_is_me ? View.GONE : View.VISIBLE);
-			mMoreOptionsContainer.setVisibility(data.data == null && !user_is_me ? View.GONE : View.VISIBLE);
-			mMoreOptionsButton.setVisibility(data.data != null || user_is_me ? View.VISIBLE : View.GONE);
-			mFollowProgress.setVisibility(View.GONE);
-			mMoreOptionsProgress.setVisibility(View.GONE);
 		}
 
 	};
 
+	private void displayRelationship(final Relationship relationship) {
+		mFriendship = null;
+		if (mUser == null) return;
+		final boolean user_is_me = mAccountId == mUserId;
+		if (relationship != null) {
+			mFriendship = relationship;
+			final boolean followed_by_user = relationship.isTargetFollowingSource();
+			mEditFollowButton.setVisibility(View.VISIBLE);
+			if (relationship.isSourceFollowingTarget()) {
+				mEditFollowButton.setText(R.string.unfollow);
+			} else {
+				if (mUser.is_protected) {
+					mEditFollowButton.setText(mUser.is_follow_request_sent ? R.string.follow_request_sent
+							: R.string.send_follow_request);
+				} else {
+					mEditFollowButton.setText(R.string.follow);
+				}
+			}
+			mFollowingYouIndicator.setVisibility(followed_by_user && !user_is_me ? View.VISIBLE : View.GONE);
+		}
+		mEditFollowContainer.setVisibility(relationship == null && !user_is_me ? View.GONE : View.VISIBLE);
+		mMoreOptionsContainer.setVisibility(relationship == null && !user_is_me ? View.GONE : View.VISIBLE);
+		mMoreOptionsButton.setVisibility(relationship != null || user_is_me ? View.VISIBLE : View.GONE);
+		mFollowProgress.setVisibility(View.GONE);
+		mMoreOptionsProgress.setVisibility(View.GONE);
+	}
+
 	public void displayUser(final ParcelableUser user) {
 		mFriendship = null;
 		mUser = null;
@@ -363,6 +372,12 @@ public class UserProfileFragment extends BaseListFragment implements OnClickList
 		mAdapter.notifyDataSetChanged();
 		if (!user.is_cache) {
 			getFriendship();
+		} else {
+			final UserProfileCache.Entry<Relationship> relationship = mProfileCache.getRelationship(mAccountId,
+					mUserId);
+			if (relationship != null) {
+				displayRelationship(relationship.value);
+			}
 		}
 	}
 
@@ -397,6 +412,7 @@ public class UserProfileFragment extends BaseListFragment implements OnClickList
 	@Override
 	public void onActivityCreated(final Bundle savedInstanceState) {
 		mTwitterWrapper = getApplication().getTwitterWrapper();
+		mProfileCache = UserProfileCache.getInstance(getActivity());
 		mPreferences = getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
 		super.onActivityCreated(savedInstanceState);
 		final Bundle args = getArguments();
@@ -829,10 +845,14 @@ public class UserProfileFragment extends BaseListFragment implements OnClickList
 
 		private SingleResponse<Relationship> getFriendship() {
 			if (account_id == user_id) return new SingleResponse<Relationship>(null, null);
+			final UserProfileCache cache = UserProfileCache.getInstance(context);
+			final UserProfileCache.Entry<Relationship> entry = cache.getRelationship(account_id, user_id);
+			if (entry != null && !entry.isStale()) return new SingleResponse<Relationship>(entry.value, null);
 			final Twitter twitter = getTwitterInstance(context, account_id, false);
 			if (twitter == null) return new SingleResponse<Relationship>(null, null);
 			try {
 				final Relationship result = twitter.showFriendship(account_id, user_id);
+				cache.putRelationship(account_id, user_id, result);
 				return new SingleResponse<Relationship>(result, null);
 			} catch (final TwitterException e) {
 				return new SingleResponse<Relationship>(null, e);
@@ -1,48 +1,73 @@
 package org.mariotaku.twidere.loader;
 
+import static android.text.TextUtils.isEmpty;
 import static org.mariotaku.twidere.util.Utils.getBestCacheDir;
-import static org.mariotaku.twidere.util.Utils.getImageLoaderHttpClient;
+import static org.mariotaku.twidere.util.Utils.getBrowserUserAgent;
+import static org.mariotaku.twidere.util.Utils.getImageDownloadHttpClient;
 import static org.mariotaku.twidere.util.Utils.getRedirectedHttpResponse;
 import static org.mariotaku.twidere.util.Utils.parseString;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileDescriptor;
 import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.HashMap;
 
 import org.mariotaku.gallery3d.util.GalleryUtils;
 import org.mariotaku.twidere.util.ImageValidator;
 
-import twitter4j.http.HttpClientWrapper;
+import twitter4j.TwitterException;
+import twitter4j.http.HttpClient;
 import twitter4j.http.HttpResponse;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.support.v4.content.AsyncTaskLoader;
 
 public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageLoader.Result> {
 
 	private static final String CACHE_DIR_NAME = "cached_images";
+	private static final String PARTIAL_FILE_SUFFIX = ".part";
+	private static final String VALIDATOR_FILE_SUFFIX = ".part.validator";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int SC_PARTIAL_CONTENT = 206;
+
+	/**
+	 * Minimum interval between two progress callbacks, about one frame at
+	 * 60fps, so large downloads won't flood the UI thread.
+	 */
+	private static final long PROGRESS_UPDATE_INTERVAL = 16;
 
 	private final Uri mUri;
 	private final Context mContext;
-	private final HttpClientWrapper mClient;
+	private final HttpClient mClient;
+	private final String mUserAgent;
 	private final Handler mHandler;
 	private final DownloadListener mListener;
 	private final ContentResolver mResolver;
 
 	protected File mCacheDir, mImageFile;
 
+	private volatile boolean mCancelled;
+
 	public AbstractImageLoader(final Context context, final DownloadListener listener, final Uri uri) {
 		super(context);
 		mContext = context;
 		mHandler = new Handler();
 		mUri = uri;
-		mClient = getImageLoaderHttpClient(context);
+		mClient = getImageDownloadHttpClient(context);
+		mUserAgent = getBrowserUserAgent(context);
 		mListener = listener;
 		mResolver = context.getContentResolver();
 		init();
@@ -50,6 +75,7 @@ public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageL
 
 	@Override
 	public AbstractImageLoader.Result loadInBackground() {
+		mCancelled = false;
 		if (mUri == null) return new Result(null, null, null);
 		final String scheme = mUri.getScheme();
 		if ("http".equals(scheme) || "https".equals(scheme)) {
@@ -62,20 +88,8 @@ public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageL
 			try {
 				// from SD cache
 				if (ImageValidator.checkImageValidity(cache_file)) return decodeImage(cache_file);
-				final HttpResponse resp = getRedirectedHttpResponse(mClient, url);
 				// from web
-				if (resp == null) return null;
-				final long length = resp.getContentLength();
-				mHandler.post(new DownloadStartRunnable(mListener, length));
-				final InputStream is = resp.asStream();
-				final OutputStream os = new FileOutputStream(cache_file);
-				try {
-					dump(is, os);
-					mHandler.post(new DownloadFinishRunnable(mListener));
-				} finally {
-					GalleryUtils.closeSilently(is);
-					GalleryUtils.closeSilently(os);
-				}
+				if (!download(url, cache_file)) return null;
 				if (!ImageValidator.checkImageValidity(cache_file)) {
 					// The file is corrupted, so we remove it from
 					// cache.
@@ -86,7 +100,9 @@ public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageL
 				}
 				return decodeImage(cache_file);
 			} catch (final Exception e) {
-				mHandler.post(new DownloadErrorRunnable(mListener, e));
+				if (!mCancelled) {
+					mHandler.post(new DownloadErrorRunnable(mListener, e));
+				}
 				return new Result(null, null, e);
 			}
 		} else if (ContentResolver.SCHEME_FILE.equals(scheme)) {
@@ -116,16 +132,107 @@ public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageL
 		forceLoad();
 	}
 
-	private void dump(final InputStream is, final OutputStream os) throws IOException {
-		final byte buffer[] = new byte[1024];
-		int rc = is.read(buffer, 0, buffer.length);
-		long downloaded = 0;
-		while (rc > 0) {
-			downloaded += rc;
-			mHandler.post(new ProgressUpdateRunnable(mListener, downloaded));
+	@Override
+	protected void onAbandon() {
+		super.onAbandon();
+		mCancelled = true;
+	}
+
+	@Override
+	protected void onReset() {
+		super.onReset();
+		mCancelled = true;
+	}
+
+	/**
+	 * Downloads url to cache_file. Data is written to a partial file first,
+	 * which is kept if the download is cancelled, so the next attempt can
+	 * resume from where it stopped with a <code>Range</code> request. A
+	 * partial file is only resumed if we know its ETag or Last-Modified, which
+	 * is sent as <code>If-Range</code>.
+	 * 
+	 * @return false if server returned nothing
+	 */
+	private boolean download(final String url, final File cache_file) throws IOException, TwitterException {
+		final File part_file = new File(cache_file.getPath() + PARTIAL_FILE_SUFFIX);
+		final File validator_file = new File(cache_file.getPath() + VALIDATOR_FILE_SUFFIX);
+		final long part_length = part_file.isFile() ? part_file.length() : 0;
+		final String validator = part_length > 0 ? readValidator(validator_file) : null;
+		if (validator != null) {
+			try {
+				return download(url, cache_file, part_file, validator_file, part_length, validator);
+			} catch (final IOException e) {
+				if (mCancelled) throw e;
+			} catch (final TwitterException e) {
+				if (mCancelled) throw e;
+			}
+			// Resuming failed, so the partial file can't be trusted any more.
+		}
+		part_file.delete();
+		validator_file.delete();
+		return download(url, cache_file, part_file, validator_file, 0, null);
+	}
+
+	private boolean download(final String url, final File cache_file, final File part_file,
+			final File validator_file, final long part_length, final String validator) throws IOException,
+			TwitterException {
+		final HashMap<String, String> headers = new HashMap<String, String>();
+		if (mUserAgent != null) {
+			headers.put("User-Agent", mUserAgent);
+		}
+		// Byte ranges of a gzipped response don't map to the decoded file.
+		headers.put("Accept-Encoding", "identity");
+		if (part_length > 0) {
+			headers.put("Range", "bytes=" + part_length + "-");
+			headers.put("If-Range", validator);
+		}
+		final HttpResponse resp = getRedirectedHttpResponse(mClient, url, headers);
+		if (resp == null) return false;
+		// Server sends the whole file if it ignored our Range header, or the
+		// file has changed since.
+		final boolean resumed = part_length > 0 && resp.getStatusCode() == SC_PARTIAL_CONTENT;
+		if (resumed) {
+			final String content_range = resp.getResponseHeader("Content-Range");
+			if (content_range == null || !content_range.startsWith("bytes " + part_length + "-"))
+				throw new IOException("Unexpected Content-Range " + content_range);
+		} else {
+			writeValidator(validator_file, getValidator(resp));
+		}
+		final long offset = resumed ? part_length : 0;
+		final long length = resp.getContentLength();
+		mHandler.post(new DownloadStartRunnable(mListener, length > 0 ? offset + length : length));
+		final InputStream is = resp.asStream();
+		final OutputStream os = new FileOutputStream(part_file, resumed);
+		try {
+			dump(is, os, offset);
+		} finally {
+			GalleryUtils.closeSilently(is);
+			GalleryUtils.closeSilently(os);
+		}
+		if (cache_file.exists()) {
+			cache_file.delete();
+		}
+		if (!part_file.renameTo(cache_file)) throw new IOException("Unable to save downloaded file");
+		validator_file.delete();
+		mHandler.post(new DownloadFinishRunnable(mListener));
+		return true;
+	}
+
+	private void dump(final InputStream is, final OutputStream os, final long offset) throws IOException {
+		final byte buffer[] = new byte[BUFFER_SIZE];
+		long downloaded = offset, last_update = 0;
+		int rc;
+		while ((rc = is.read(buffer, 0, buffer.length)) > 0) {
+			if (mCancelled) throw new InterruptedIOException("Download cancelled");
 			os.write(buffer, 0, rc);
-			rc = is.read(buffer, 0, buffer.length);
+			downloaded += rc;
+			final long now = SystemClock.uptimeMillis();
+			if (now - last_update >= PROGRESS_UPDATE_INTERVAL) {
+				mHandler.post(new ProgressUpdateRunnable(mListener, downloaded));
+				last_update = now;
+			}
 		}
+		mHandler.post(new ProgressUpdateRunnable(mListener, downloaded));
 	}
 
 	private String getURLFilename(final String url) {
@@ -133,6 +240,13 @@ public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageL
 		return url.replaceFirst("https?:\\/\\/", "").replaceAll("[^\\w\\d_]", "_");
 	}
 
+	private String getValidator(final HttpResponse resp) {
+		final String etag = resp.getResponseHeader("ETag");
+		// If-Range only accepts strong entity tags.
+		if (etag != null && !etag.startsWith("W/")) return etag;
+		return resp.getResponseHeader("Last-Modified");
+	}
+
 	private void init() {
 		/* Find the dir to save cached images. */
 		mCacheDir = getBestCacheDir(mContext, CACHE_DIR_NAME);
@@ -141,6 +255,33 @@ public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageL
 		}
 	}
 
+	private static String readValidator(final File file) {
+		if (!file.isFile()) return null;
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(file));
+			final String line = reader.readLine();
+			return isEmpty(line) ? null : line;
+		} catch (final IOException e) {
+			return null;
+		} finally {
+			GalleryUtils.closeSilently(reader);
+		}
+	}
+
+	private static void writeValidator(final File file, final String validator) throws IOException {
+		if (validator == null) {
+			file.delete();
+			return;
+		}
+		final FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(validator);
+		} finally {
+			GalleryUtils.closeSilently(writer);
+		}
+	}
+
 	public static interface DownloadListener {
 		void onDownloadError(Throwable t);
 
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.util.ExtensionsIndex;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -33,6 +34,7 @@ import android.content.IntentFilter;
 import android.content.pm.ActivityInfo;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
@@ -54,12 +56,20 @@ public class ExtensionsListLoader extends AsyncTaskLoader<List<ExtensionsListLoa
 
 	@Override
 	public List<ExtensionInfo> loadInBackground() {
-		final List<ApplicationInfo> apps = mPackageManager.getInstalledApplications(PackageManager.GET_META_DATA);
+		final ExtensionsIndex index = ExtensionsIndex.getInstance(getContext());
 		final List<ExtensionInfo> extensions = new ArrayList<ExtensionInfo>();
-		for (final ApplicationInfo info : apps) {
-			final Bundle meta = info.metaData;
-			if (meta != null && meta.getBoolean(METADATA_KEY_EXTENSION, false)) {
+		for (final String pname : index.getExtensions()) {
+			final ApplicationInfo info;
+			try {
+				info = mPackageManager.getApplicationInfo(pname, PackageManager.GET_META_DATA);
+			} catch (final NameNotFoundException e) {
+				index.updatePackage(pname);
+				continue;
+			}
+			if (ExtensionsIndex.isExtension(info)) {
 				extensions.add(new ExtensionInfo(info, mPackageManager));
+			} else {
+				index.updatePackage(pname);
 			}
 		}
 		return extensions;
@@ -188,7 +198,8 @@ public class ExtensionsListLoader extends AsyncTaskLoader<List<ExtensionsListLoa
 
 		@Override
 		public void onReceive(final Context context, final Intent intent) {
-			// Tell the loader about the change.
+			// Tell the loader about the change, the index checks installed
+			// packages again when it's reloaded.
 			mLoader.onContentChanged();
 		}
 	}
@@ -4,6 +4,8 @@ import java.io.File;
 import java.io.FileDescriptor;
 import java.io.IOException;
 
+import org.mariotaku.gallery3d.util.ApiHelper;
+import org.mariotaku.gallery3d.util.BitmapPool;
 import org.mariotaku.gallery3d.util.BitmapUtils;
 import org.mariotaku.twidere.util.Exif;
 
@@ -18,6 +20,11 @@ import android.util.DisplayMetrics;
 
 public class GLImageLoader extends AbstractImageLoader {
 
+	// When tiles can be decoded, the screen nail only needs to cover the
+	// screen roughly until tiles are ready, so a smaller one is decoded to
+	// show the image as early as possible.
+	private static final float SCREEN_NAIL_SCALE = 0.5f;
+
 	private final float mBackupSize;
 
 	public GLImageLoader(final Context context, final DownloadListener listener, final Uri uri) {
@@ -34,8 +41,22 @@ public class GLImageLoader extends AbstractImageLoader {
 			final int width = decoder.getWidth();
 			final int height = decoder.getHeight();
 			final BitmapFactory.Options options = new BitmapFactory.Options();
-			options.inSampleSize = BitmapUtils.computeSampleSize(mBackupSize / Math.max(width, height));
-			final Bitmap bitmap = decoder.decodeRegion(new Rect(0, 0, width, height), options);
+			final int sample = BitmapUtils.computeSampleSize(mBackupSize * SCREEN_NAIL_SCALE / Math.max(width, height));
+			options.inSampleSize = sample;
+			// Reuse a previous screen nail only when the decoded size is exact.
+			if (ApiHelper.HAS_REUSING_BITMAP_IN_BITMAP_REGION_DECODER && width % sample == 0 && height % sample == 0) {
+				options.inMutable = true;
+				options.inBitmap = BitmapPool.getInstance().getBitmap(width / sample, height / sample,
+						Bitmap.Config.ARGB_8888);
+			}
+			Bitmap bitmap;
+			try {
+				bitmap = decoder.decodeRegion(new Rect(0, 0, width, height), options);
+			} catch (final IllegalArgumentException iae) {
+				BitmapPool.getInstance().recycle(options.inBitmap);
+				options.inBitmap = null;
+				bitmap = decoder.decodeRegion(new Rect(0, 0, width, height), options);
+			}
 			return new GLImageResult(decoder, bitmap, Exif.getOrientation(fd), mImageFile);
 		} catch (final IOException e) {
 			final BitmapFactory.Options o1 = new BitmapFactory.Options();
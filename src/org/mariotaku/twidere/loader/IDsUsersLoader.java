@@ -21,30 +21,60 @@ package org.mariotaku.twidere.loader;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.mariotaku.twidere.model.ParcelableUser;
+import org.mariotaku.twidere.provider.TweetStore.CachedUsers;
 import org.mariotaku.twidere.util.ArrayUtils;
+import org.mariotaku.twidere.util.LongIndexedArray;
+import org.mariotaku.twidere.util.UsersLookupPrefetcher;
 
 import twitter4j.IDs;
 import twitter4j.ResponseList;
 import twitter4j.Twitter;
 import twitter4j.TwitterException;
 import twitter4j.User;
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.support.v4.util.LruCache;
 
+/**
+ * Pages through a list of user IDs. Only the ID array is held in full, each
+ * page of users is read from cached_users or looked up when it's requested.
+ * Pages already loaded stay in the list of the fragment, they aren't dropped
+ * when scrolled away from.
+ */
 public abstract class IDsUsersLoader extends ParcelableUsersLoader {
 
+	/**
+	 * Max number of IDs kept in {@link #sIDsCache}, of all lists.
+	 */
+	private static final int IDS_CACHE_SIZE = 20000;
+
+	private static final LruCache<String, LongIndexedArray> sIDsCache = new LruCache<String, LongIndexedArray>(
+			IDS_CACHE_SIZE) {
+
+		@Override
+		protected int sizeOf(final String key, final LongIndexedArray value) {
+			return Math.max(1, value.size());
+		}
+	};
+
 	private final long mMaxId;
-	private IDs mIDs;
+	private LongIndexedArray mIDs;
 	private final SharedPreferences mPreferences;
+	private final UsersLookupPrefetcher mPrefetcher;
 	private final int mLoadItemLimit;
 
 	public IDsUsersLoader(final Context context, final long account_id, final long max_id,
 			final List<ParcelableUser> users_list) {
 		super(context, account_id, users_list);
 		mMaxId = max_id;
+		mPrefetcher = UsersLookupPrefetcher.getInstance(context);
 		mPreferences = getContext().getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
 		final int prefs_load_item_limit = mPreferences.getInt(PREFERENCE_KEY_LOAD_ITEM_LIMIT,
 				PREFERENCE_DEFAULT_LOAD_ITEM_LIMIT);
@@ -54,7 +84,7 @@ public abstract class IDsUsersLoader extends ParcelableUsersLoader {
 	public abstract IDs getIDs() throws TwitterException;
 
 	public long[] getIDsArray() {
-		return mIDs != null ? mIDs.getIDs() : null;
+		return mIDs != null ? mIDs.subArray(0, mIDs.size()) : null;
 	}
 
 	public int getLoadItemLimit() {
@@ -66,27 +96,91 @@ public abstract class IDsUsersLoader extends ParcelableUsersLoader {
 		final Twitter twitter = getTwitter();
 		if (twitter == null) return null;
 		if (mIDs == null) {
-			mIDs = getIDs();
+			mIDs = loadIDs();
 			if (mIDs == null) return null;
 		}
-		final long[] ids = mIDs.getIDs();
-		final int max_id_idx = mMaxId > 0 ? ArrayUtils.indexOf(ids, mMaxId) : 0;
-		if (max_id_idx < 0) return null;
-		if (max_id_idx == ids.length - 1) return Collections.emptyList();
-		final int count = max_id_idx + mLoadItemLimit < ids.length ? mLoadItemLimit : ids.length - max_id_idx;
-		final long[] ids_to_load = new long[count];
-		int temp_idx = max_id_idx;
-		for (int i = 0; i < count; i++) {
-			ids_to_load[i] = ids[temp_idx];
-			temp_idx++;
+		final int max_id_index = mMaxId > 0 ? mIDs.indexOf(mMaxId) : -1;
+		// Max ID isn't in the list any more, don't start over from the top.
+		if (mMaxId > 0 && max_id_index < 0) return null;
+		final int start = max_id_index + 1;
+		if (start >= mIDs.size()) return Collections.emptyList();
+		final int end = Math.min(start + mLoadItemLimit, mIDs.size());
+		final ParcelableUser[] window = new ParcelableUser[end - start];
+		final List<Long> ids_to_lookup = new ArrayList<Long>();
+		final Map<Long, ParcelableUser> cached = getCachedUsers(mIDs.subArray(start, end));
+		for (int i = start; i < end; i++) {
+			final long id = mIDs.get(i);
+			final ParcelableUser user = cached.get(id);
+			if (user != null) {
+				window[i - start] = user;
+			} else {
+				ids_to_lookup.add(id);
+			}
+		}
+		if (!ids_to_lookup.isEmpty()) {
+			final ResponseList<User> users = mPrefetcher.lookupUsers(twitter, ArrayUtils.fromList(ids_to_lookup),
+					mHiResProfileImage);
+			for (final User user : users) {
+				final int position = mIDs.indexOf(user.getId());
+				if (position < start || position >= end) {
+					continue;
+				}
+				window[position - start] = new ParcelableUser(user, mAccountId, position, mHiResProfileImage);
+			}
 		}
-		final ResponseList<User> users = twitter.lookupUsers(ids_to_load);
-		final List<ParcelableUser> result = new ArrayList<ParcelableUser>();
-		for (final User user : users) {
-			final int position = ArrayUtils.indexOf(mIDs.getIDs(), user.getId());
-			result.add(new ParcelableUser(user, mAccountId, position, mHiResProfileImage));
+		mPrefetcher.prefetch(twitter, mAccountId, mIDs, end, end + UsersLookupPrefetcher.BATCH_SIZE
+				* UsersLookupPrefetcher.MAX_PARALLEL_BATCHES, mHiResProfileImage);
+		final List<ParcelableUser> result = new ArrayList<ParcelableUser>(window.length);
+		for (final ParcelableUser user : window) {
+			if (user != null) {
+				result.add(user);
+			}
 		}
 		return result;
 	}
 
+	/**
+	 * Key to share the loaded IDs between loader instances while paging
+	 * through the same list, the default value is unique per loader class
+	 * and account.
+	 */
+	protected String getIDsCacheKey() {
+		return getClass().getName() + ":" + mAccountId;
+	}
+
+	/**
+	 * Reads fresh users of current page from cache through a cursor
+	 * restricted to the page, so only this page is materialized.
+	 */
+	private Map<Long, ParcelableUser> getCachedUsers(final long[] ids) {
+		final Map<Long, ParcelableUser> result = new HashMap<Long, ParcelableUser>();
+		final ContentResolver resolver = getContext().getContentResolver();
+		final String where = CachedUsers.USER_ID + " IN (" + ArrayUtils.toString(ids, ',', false) + ") AND "
+				+ CachedUsers.LAST_UPDATED + " >= " + (System.currentTimeMillis() - UsersLookupPrefetcher.CACHE_TTL);
+		final Cursor cur = resolver.query(CachedUsers.CONTENT_URI, CachedUsers.COLUMNS, where, null, null);
+		if (cur == null) return result;
+		final int user_id_idx = cur.getColumnIndex(CachedUsers.USER_ID);
+		cur.moveToFirst();
+		while (!cur.isAfterLast()) {
+			final long user_id = cur.getLong(user_id_idx);
+			result.put(user_id, new ParcelableUser(cur, mAccountId, mIDs.indexOf(user_id)));
+			cur.moveToNext();
+		}
+		cur.close();
+		return result;
+	}
+
+	private LongIndexedArray loadIDs() throws TwitterException {
+		final String key = getIDsCacheKey();
+		if (mMaxId > 0) {
+			final LongIndexedArray cached = sIDsCache.get(key);
+			if (cached != null && cached.contains(mMaxId)) return cached;
+		}
+		final IDs ids = getIDs();
+		if (ids == null) return null;
+		final LongIndexedArray array = new LongIndexedArray(ids.getIDs());
+		sIDsCache.put(key, array);
+		return array;
+	}
+
 }
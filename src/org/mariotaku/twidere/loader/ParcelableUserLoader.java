@@ -1,28 +1,30 @@
 package org.mariotaku.twidere.loader;
 
 import static org.mariotaku.twidere.util.Utils.getTwitterInstance;
-import static org.mariotaku.twidere.util.Utils.makeCachedUserContentValues;
 
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.R;
 import org.mariotaku.twidere.model.ParcelableUser;
 import org.mariotaku.twidere.model.SingleResponse;
-import org.mariotaku.twidere.provider.TweetStore.CachedUsers;
+import org.mariotaku.twidere.util.UserProfileCache;
 
 import twitter4j.Twitter;
 import twitter4j.TwitterException;
 import twitter4j.User;
-import android.content.ContentResolver;
-import android.content.ContentValues;
 import android.content.Context;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.support.v4.content.AsyncTaskLoader;
 
+/**
+ * Loads a user profile. When loading from cache, the cached user is returned
+ * with {@link #EXTRA_STALE} set in extras if it should be looked up again.
+ */
 public final class ParcelableUserLoader extends AsyncTaskLoader<SingleResponse<ParcelableUser>> implements Constants {
 
+	public static final String EXTRA_STALE = "stale";
+
 	private final Twitter twitter;
-	private final ContentResolver resolver;
+	private final UserProfileCache cache;
 	private final boolean omit_intent_extra, hires_profile_image, load_from_cache;
 	private final Bundle extras;
 	private final long account_id, user_id;
@@ -32,7 +34,7 @@ public final class ParcelableUserLoader extends AsyncTaskLoader<SingleResponse<P
 			final String screen_name, final Bundle extras, final boolean omit_intent_extra,
 			final boolean load_from_cache) {
 		super(context);
-		resolver = context.getContentResolver();
+		cache = UserProfileCache.getInstance(context);
 		twitter = getTwitterInstance(context, account_id, true);
 		hires_profile_image = context.getResources().getBoolean(R.bool.hires_profile_image);
 		this.omit_intent_extra = omit_intent_extra;
@@ -48,39 +50,22 @@ public final class ParcelableUserLoader extends AsyncTaskLoader<SingleResponse<P
 		if (!omit_intent_extra && extras != null) {
 			final ParcelableUser user = extras.getParcelable(INTENT_KEY_USER);
 			if (user != null) {
-				final ContentValues values = ParcelableUser.makeCachedUserContentValues(user);
-				resolver.delete(CachedUsers.CONTENT_URI, CachedUsers.USER_ID + " = " + user.user_id, null);
-				resolver.insert(CachedUsers.CONTENT_URI, values);
+				cache.storeUser(ParcelableUser.makeCachedUserContentValues(user));
 				return new SingleResponse<ParcelableUser>(user, null);
 			}
 		}
 		if (twitter == null) return new SingleResponse<ParcelableUser>(null, null);
 		if (load_from_cache) {
-			final String where = CachedUsers.USER_ID + " = " + user_id + " OR " + CachedUsers.SCREEN_NAME + " = '"
-					+ screen_name + "'";
-			final Cursor cur = resolver.query(CachedUsers.CONTENT_URI, CachedUsers.COLUMNS, where, null, null);
-			final int count = cur.getCount();
-			try {
-				if (count > 0) {
-					cur.moveToFirst();
-					return new SingleResponse<ParcelableUser>(new ParcelableUser(cur, account_id), null);
-				}
-			} finally {
-				cur.close();
+			final UserProfileCache.Entry<ParcelableUser> entry = cache.getUser(account_id, user_id, screen_name);
+			if (entry != null) {
+				final Bundle result_extras = new Bundle();
+				result_extras.putBoolean(EXTRA_STALE, entry.isStale());
+				return new SingleResponse<ParcelableUser>(entry.value, null, result_extras);
 			}
 		}
 		try {
-			final User user;
-			if (user_id != -1) {
-				user = twitter.showUser(user_id);
-			} else if (screen_name != null) {
-				user = twitter.showUser(screen_name);
-			} else
-				return new SingleResponse<ParcelableUser>(null, null);
-			final ContentValues values = makeCachedUserContentValues(user, hires_profile_image);
-			final String where = CachedUsers.USER_ID + " = " + user.getId() + " OR " + CachedUsers.SCREEN_NAME + " = ?";
-			resolver.delete(CachedUsers.CONTENT_URI, where, new String[] { user.getScreenName() });
-			resolver.insert(CachedUsers.CONTENT_URI, values);
+			final User user = cache.showUser(twitter, user_id, screen_name, hires_profile_image);
+			if (user == null) return new SingleResponse<ParcelableUser>(null, null);
 			return new SingleResponse<ParcelableUser>(new ParcelableUser(user, account_id, hires_profile_image), null);
 		} catch (final TwitterException e) {
 			return new SingleResponse<ParcelableUser>(null, e);
@@ -22,7 +22,9 @@ package org.mariotaku.twidere.loader;
 import static org.mariotaku.twidere.util.Utils.getTwitterInstance;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.R;
@@ -66,14 +68,24 @@ public abstract class ParcelableUsersLoader extends AsyncTaskLoader<List<Parcela
 		} catch (final TwitterException e) {
 			e.printStackTrace();
 		}
-		if (list_loaded != null) {
-			for (final ParcelableUser user : list_loaded) {
-				if (!hasId(user.user_id)) {
-					mUsersList.add(user);
-				}
+		if (list_loaded == null || list_loaded.isEmpty()) return mUsersList;
+		final Set<Long> ids = new HashSet<Long>();
+		for (final ParcelableUser user : mUsersList) {
+			ids.add(user.user_id);
+		}
+		Collections.sort(list_loaded);
+		final int old_size = mUsersList.size();
+		for (final ParcelableUser user : list_loaded) {
+			if (ids.add(user.user_id)) {
+				mUsersList.add(user);
 			}
 		}
-		Collections.sort(mUsersList);
+		// Pages usually come in order, re-sort only if the new page overlaps.
+		final int new_size = mUsersList.size();
+		if (old_size > 0 && new_size > old_size
+				&& mUsersList.get(old_size - 1).compareTo(mUsersList.get(old_size)) > 0) {
+			Collections.sort(mUsersList);
+		}
 		return mUsersList;
 	}
 
@@ -82,11 +94,4 @@ public abstract class ParcelableUsersLoader extends AsyncTaskLoader<List<Parcela
 		forceLoad();
 	}
 
-	private boolean hasId(final long id) {
-		for (final ParcelableUser user : mUsersList) {
-			if (user.user_id == id) return true;
-		}
-		return false;
-	}
-
 }
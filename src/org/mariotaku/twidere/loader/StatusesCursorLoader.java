@@ -0,0 +1,51 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.loader;
+
+import org.mariotaku.twidere.model.StatusesCursor;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.content.CursorLoader;
+
+/**
+ * Loads statuses as a {@link StatusesCursor}, compared with the cursor loaded
+ * before.
+ */
+public class StatusesCursorLoader extends CursorLoader {
+
+	private volatile long[] mPreviousRowIds;
+
+	public StatusesCursorLoader(final Context context, final Uri uri, final String[] projection,
+			final String selection, final String[] selectionArgs, final String sortOrder, final long[] previous_row_ids) {
+		super(context, uri, projection, selection, selectionArgs, sortOrder);
+		mPreviousRowIds = previous_row_ids;
+	}
+
+	@Override
+	public Cursor loadInBackground() {
+		final Cursor cursor = super.loadInBackground();
+		if (cursor == null) return null;
+		final StatusesCursor statuses = new StatusesCursor(cursor, mPreviousRowIds);
+		mPreviousRowIds = statuses.getRowIds();
+		return statuses;
+	}
+}
@@ -19,13 +19,19 @@
 
 package org.mariotaku.twidere.loader;
 
+import static org.mariotaku.twidere.util.Utils.isFiltered;
+
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 
+import org.mariotaku.twidere.app.TwidereApplication;
 import org.mariotaku.twidere.model.ParcelableStatus;
+import org.mariotaku.twidere.model.StatusCursorIndices;
+import org.mariotaku.twidere.provider.TweetStore.SearchIndex;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
 import org.mariotaku.twidere.util.SerializationUtil;
 import org.mariotaku.twidere.util.SynchronizedStateSavedList;
 
@@ -34,16 +40,24 @@ import twitter4j.Query;
 import twitter4j.Status;
 import twitter4j.TwitterException;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 
 public class TweetSearchLoader extends Twitter4JStatusLoader {
 
 	private final String mQuery;
+	private final boolean mSearchLocal;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
 
 	public TweetSearchLoader(final Context context, final long account_id, final String query, final long max_id,
 			final long since_id, final List<ParcelableStatus> data, final String class_name, final boolean is_home_tab) {
 		super(context, account_id, max_id, since_id, data, class_name, is_home_tab);
 		mQuery = query;
+		mSearchLocal = max_id <= 0 && since_id <= 0;
 	}
 
 	@Override
@@ -75,9 +89,59 @@ public class TweetSearchLoader extends Twitter4JStatusLoader {
 			} catch (final ConcurrentModificationException e) {
 			}
 		}
+		if (mSearchLocal) {
+			loadLocalStatuses();
+		}
 		return super.loadInBackground();
 	}
 
+	/**
+	 * Adds matching statuses stored locally, and delivers them before
+	 * searching on Twitter. Network results replace local ones with same
+	 * status ID.
+	 */
+	private void loadLocalStatuses() {
+		final Context context = getContext();
+		final Uri uri = SearchIndex.CONTENT_URI_STATUSES.buildUpon().appendQueryParameter(QUERY_PARAM_QUERY, mQuery)
+				.build();
+		final String where = Statuses.ACCOUNT_ID + " = " + mAccountId;
+		final Cursor cur = context.getContentResolver().query(uri, Statuses.COLUMNS, where, null, null);
+		if (cur == null) return;
+		final SQLiteDatabase database = TwidereApplication.getInstance(context).getSQLiteDatabase();
+		final int load_item_limit = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE)
+				.getInt(PREFERENCE_KEY_LOAD_ITEM_LIMIT, PREFERENCE_DEFAULT_LOAD_ITEM_LIMIT);
+		final SynchronizedStateSavedList<ParcelableStatus, Long> data = getData();
+		final StatusCursorIndices indices = new StatusCursorIndices(cur);
+		int count = 0;
+		cur.moveToFirst();
+		while (!cur.isAfterLast() && count < load_item_limit) {
+			final ParcelableStatus status = new ParcelableStatus(cur, indices);
+			if (!containsStatus(status.status_id) && !isFiltered(database, status)) {
+				data.add(status);
+				count++;
+			}
+			cur.moveToNext();
+		}
+		cur.close();
+		if (count == 0) return;
+		try {
+			Collections.sort(data);
+		} catch (final ConcurrentModificationException e) {
+			return;
+		}
+		final SynchronizedStateSavedList<ParcelableStatus, Long> local = new SynchronizedStateSavedList<ParcelableStatus, Long>(
+				data);
+		mHandler.post(new Runnable() {
+
+			@Override
+			public void run() {
+				if (isStarted() && !isAbandoned()) {
+					deliverResult(local);
+				}
+			}
+		});
+	}
+
 	public static void writeSerializableStatuses(final Object instance, final Context context,
 			final List<ParcelableStatus> data, final long last_viewed_id, final Bundle args) {
 		if (instance == null || context == null || data == null || args == null) return;
@@ -19,6 +19,7 @@
 
 package org.mariotaku.twidere.loader;
 
+import static org.mariotaku.twidere.util.Utils.getAccountIds;
 import static org.mariotaku.twidere.util.Utils.getInlineImagePreviewDisplayOptionInt;
 import static org.mariotaku.twidere.util.Utils.isFiltered;
 
@@ -91,10 +92,12 @@ public abstract class Twitter4JStatusLoader extends ParcelableStatusesLoader {
 				((Activity) context).runOnUiThread(CacheUsersStatusesTask.getRunnable(context, new StatusListResponse(
 						mAccountId, statuses)));
 			}
+			final long[] account_ids = getAccountIds(context);
 			for (final Status status : statuses) {
 				final long id = status.getId();
 				deleteStatus(id);
-				data.add(new ParcelableStatus(status, mAccountId, min_status_id == id && insert_gap, mHiResProfileImage, mLargeInlineImagePreview));
+				data.add(new ParcelableStatus(status, mAccountId, account_ids, min_status_id == id && insert_gap,
+						mHiResProfileImage, mLargeInlineImagePreview));
 			}
 		}
 		try {
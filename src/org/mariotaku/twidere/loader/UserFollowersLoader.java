@@ -50,4 +50,9 @@ public class UserFollowersLoader extends IDsUsersLoader {
 		return null;
 	}
 
+	@Override
+	protected String getIDsCacheKey() {
+		return super.getIDsCacheKey() + ":" + (mUserId > 0 ? mUserId : mScreenName);
+	}
+
 }
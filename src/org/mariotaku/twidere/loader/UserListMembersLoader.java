@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.mariotaku.twidere.model.ParcelableUser;
+import org.mariotaku.twidere.util.UsersLookupPrefetcher;
 
 import twitter4j.PagableResponseList;
 import twitter4j.Twitter;
@@ -101,6 +102,7 @@ public class UserListMembersLoader extends ParcelableUsersLoader {
 			} else
 				return null;
 		}
+		UsersLookupPrefetcher.getInstance(getContext()).storeUsers(users, mHiResProfileImage);
 		mNextCursor = users.getNextCursor();
 		mPrevCursor = users.getPreviousCursor();
 		final List<ParcelableUser> result = new ArrayList<ParcelableUser>();
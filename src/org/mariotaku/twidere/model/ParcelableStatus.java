@@ -25,15 +25,18 @@ import static org.mariotaku.twidere.util.Utils.getAsBoolean;
 import static org.mariotaku.twidere.util.Utils.getAsInteger;
 import static org.mariotaku.twidere.util.Utils.getAsLong;
 import static org.mariotaku.twidere.util.Utils.getBiggerTwitterProfileImage;
+import static org.mariotaku.twidere.util.Utils.getMentionedAccountIds;
 import static org.mariotaku.twidere.util.Utils.getPreviewImage;
 import static org.mariotaku.twidere.util.Utils.parseString;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
 
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.provider.TweetStore.Statuses;
+import org.mariotaku.twidere.util.ArrayUtils;
 
 import twitter4j.Status;
 import twitter4j.User;
@@ -67,6 +70,11 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 			in_reply_to_screen_name, source, profile_image_url, image_preview_url, image_orig_url, text_unescaped;
 	public final ParcelableLocation location;
 
+	/**
+	 * May be null in statuses serialized by older versions.
+	 */
+	public final long[] mentioned_account_ids;
+
 	// public final Spanned text;
 
 	public static final Comparator<ParcelableStatus> TIMESTAMP_COMPARATOR = new Comparator<ParcelableStatus>() {
@@ -122,6 +130,7 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 		image_preview_url = preview != null ? preview.preview_image_link : null;
 		image_orig_url = preview != null ? preview.orig_link : null;
 		is_possibly_sensitive = getAsBoolean(values, Statuses.IS_POSSIBLY_SENSITIVE, false);
+		mentioned_account_ids = ArrayUtils.fromString(values.getAsString(Statuses.MENTIONED_ACCOUNT_IDS), ',');
 	}
 
 	public ParcelableStatus(final Cursor cursor, final StatusCursorIndices indices) {
@@ -159,6 +168,8 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 		my_retweet_id = indices.my_retweet_id != -1 ? cursor.getLong(indices.my_retweet_id) : -1;
 		is_possibly_sensitive = indices.is_possibly_sensitive != -1 ? cursor.getInt(indices.is_possibly_sensitive) == 1
 				: false;
+		mentioned_account_ids = ArrayUtils.fromString(indices.mentioned_account_ids != -1 ? cursor
+				.getString(indices.mentioned_account_ids) : null, ',');
 	}
 
 	public ParcelableStatus(final Parcel in) {
@@ -190,15 +201,20 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 		location = ParcelableLocation.fromString(in.readString());
 		my_retweet_id = in.readLong();
 		is_possibly_sensitive = in.readInt() == 1;
+		mentioned_account_ids = in.createLongArray();
 		text_unescaped = toPlainText(text_html);
 	}
 
-	public ParcelableStatus(final Status status, final long account_id, final boolean is_gap,
-			final boolean large_profile_image) {
-		this(status, account_id, is_gap, large_profile_image, true);
+	public ParcelableStatus(final Status status, final long account_id, final long[] account_ids,
+			final boolean is_gap, final boolean large_profile_image) {
+		this(status, account_id, account_ids, is_gap, large_profile_image, true);
 	}
 
-	public ParcelableStatus(Status status, final long account_id, final boolean is_gap,
+	/**
+	 * @param account_ids IDs of user's accounts, to find ones mentioned in
+	 *            the status
+	 */
+	public ParcelableStatus(Status status, final long account_id, final long[] account_ids, final boolean is_gap,
 			final boolean large_profile_image, final boolean large_inline_image_preview) {
 
 		this.is_gap = is_gap;
@@ -241,6 +257,7 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 		text_unescaped = toPlainText(text_html);
 		my_retweet_id = retweeted_by_id == account_id ? status_id : -1;
 		is_possibly_sensitive = status.isPossiblySensitive();
+		mentioned_account_ids = getMentionedAccountIds(status, account_ids);
 	}
 
 	@Override
@@ -290,7 +307,7 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 				+ screen_name + ", in_reply_to_screen_name=" + in_reply_to_screen_name + ", source=" + source
 				+ ", profile_image_url=" + profile_image_url + ", image_preview_url=" + image_preview_url
 				+ ", image_orig_url=" + image_orig_url + ", text_unescaped=" + text_unescaped + ", location="
-				+ location + "}";
+				+ location + ", mentioned_account_ids=" + Arrays.toString(mentioned_account_ids) + "}";
 	}
 
 	@Override
@@ -323,6 +340,7 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 		out.writeString(ParcelableLocation.toString(location));
 		out.writeLong(my_retweet_id);
 		out.writeInt(is_possibly_sensitive ? 1 : 0);
+		out.writeLongArray(mentioned_account_ids);
 	}
 
 	private static long getTime(final Date date) {
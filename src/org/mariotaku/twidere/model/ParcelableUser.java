@@ -65,8 +65,12 @@ public class ParcelableUser implements Parcelable, Serializable, Comparable<Parc
 	public final boolean is_cache;
 
 	public ParcelableUser(final Cursor cursor, final long account_id) {
+		this(cursor, account_id, -1);
+	}
+
+	public ParcelableUser(final Cursor cursor, final long account_id, final long position) {
 		this.account_id = account_id;
-		position = -1;
+		this.position = position;
 		is_follow_request_sent = false;
 		user_id = cursor.getLong(cursor.getColumnIndex(CachedUsers.USER_ID));
 		name = cursor.getString(cursor.getColumnIndex(CachedUsers.NAME));
@@ -246,6 +250,9 @@ public class ParcelableUser implements Parcelable, Serializable, Comparable<Parc
 		values.put(CachedUsers.URL, user.url);
 		values.put(CachedUsers.URL_EXPANDED, user.url_expanded);
 		values.put(CachedUsers.PROFILE_BANNER_URL, user.profile_banner_url);
+		if (!user.is_cache) {
+			values.put(CachedUsers.LAST_UPDATED, System.currentTimeMillis());
+		}
 		return values;
 	}
 }
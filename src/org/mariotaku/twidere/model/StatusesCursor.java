@@ -0,0 +1,110 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.model;
+
+import java.util.HashSet;
+
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+/**
+ * Statuses cursor with the status ids of all rows read in advance, so rows can
+ * be looked up by status id without moving the cursor. Rows are compared with
+ * the previously loaded cursor by row id, as the same status may be stored
+ * once for each account.
+ */
+public class StatusesCursor extends CursorWrapper {
+
+	private final long[] mRowIds, mStatusIds;
+	private final int mInsertedCount, mRemovedCount;
+
+	public StatusesCursor(final Cursor cursor, final long[] previous_row_ids) {
+		super(cursor);
+		final int count = cursor.getCount();
+		final int row_id_idx = cursor.getColumnIndex(Statuses._ID);
+		final int status_id_idx = cursor.getColumnIndex(Statuses.STATUS_ID);
+		mRowIds = new long[count];
+		mStatusIds = new long[count];
+		cursor.moveToFirst();
+		for (int i = 0; i < count; i++, cursor.moveToNext()) {
+			if (row_id_idx != -1) {
+				mRowIds[i] = cursor.getLong(row_id_idx);
+			}
+			if (status_id_idx != -1) {
+				mStatusIds[i] = cursor.getLong(status_id_idx);
+			}
+		}
+		cursor.moveToPosition(-1);
+		if (previous_row_ids == null) {
+			mInsertedCount = count;
+			mRemovedCount = 0;
+			return;
+		}
+		final HashSet<Long> previous = new HashSet<Long>(previous_row_ids.length);
+		for (final long id : previous_row_ids) {
+			previous.add(id);
+		}
+		int inserted = 0;
+		for (final long id : mRowIds) {
+			if (!previous.remove(id)) {
+				inserted++;
+			}
+		}
+		mInsertedCount = inserted;
+		mRemovedCount = previous.size();
+	}
+
+	/**
+	 * @return Number of rows not in the previous cursor.
+	 */
+	public int getInsertedCount() {
+		return mInsertedCount;
+	}
+
+	/**
+	 * @return Number of rows of the previous cursor not in this one.
+	 */
+	public int getRemovedCount() {
+		return mRemovedCount;
+	}
+
+	public long[] getRowIds() {
+		return mRowIds;
+	}
+
+	public long getStatusId(final int position) {
+		if (position < 0 || position >= mStatusIds.length) return -1;
+		return mStatusIds[position];
+	}
+
+	public boolean hasRowChanges() {
+		return mInsertedCount > 0 || mRemovedCount > 0;
+	}
+
+	public int indexOf(final long status_id) {
+		final int length = mStatusIds.length;
+		for (int i = 0; i < length; i++) {
+			if (mStatusIds[i] == status_id) return i;
+		}
+		return -1;
+	}
+}
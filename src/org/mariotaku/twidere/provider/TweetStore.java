@@ -22,6 +22,7 @@ package org.mariotaku.twidere.provider;
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.util.ArrayUtils;
 
+import android.database.DatabaseUtils;
 import android.net.Uri;
 import android.provider.BaseColumns;
 
@@ -241,13 +242,20 @@ public final class TweetStore implements Constants {
 		 */
 		public static final String PROFILE_IMAGE_URL = "profile_image_url";
 
+		/**
+		 * Time this row was written.<br>
+		 * Type: INTEGER (long)
+		 */
+		public static final String LAST_UPDATED = "last_updated";
+
 		public static final String[] COLUMNS = new String[] { _ID, USER_ID, CREATED_AT, NAME, SCREEN_NAME, DESCRIPTION_PLAIN,
 				LOCATION, URL, PROFILE_IMAGE_URL, PROFILE_BANNER_URL, IS_PROTECTED, IS_VERIFIED, FOLLOWERS_COUNT,
-				FRIENDS_COUNT, STATUSES_COUNT, FAVORITES_COUNT, DESCRIPTION_HTML, DESCRIPTION_EXPANDED, URL_EXPANDED };
+				FRIENDS_COUNT, STATUSES_COUNT, FAVORITES_COUNT, DESCRIPTION_HTML, DESCRIPTION_EXPANDED, URL_EXPANDED,
+				LAST_UPDATED };
 
 		public static final String[] TYPES = new String[] { TYPE_PRIMARY_KEY, TYPE_INT_UNIQUE, TYPE_INT, TYPE_TEXT,
 				TYPE_TEXT, TYPE_TEXT, TYPE_TEXT, TYPE_TEXT, TYPE_TEXT, TYPE_TEXT, TYPE_BOOLEAN, TYPE_BOOLEAN, TYPE_INT,
-				TYPE_INT, TYPE_INT, TYPE_INT, TYPE_TEXT, TYPE_TEXT, TYPE_TEXT };
+				TYPE_INT, TYPE_INT, TYPE_INT, TYPE_TEXT, TYPE_TEXT, TYPE_TEXT, TYPE_INT };
 
 	}
 
@@ -511,6 +519,17 @@ public final class TweetStore implements Constants {
 
 		public static final String[] TYPES = new String[] { TYPE_PRIMARY_KEY, TYPE_TEXT_NOT_NULL };
 
+		/**
+		 * Returns a row if a status is filtered. Selection arguments are plain
+		 * text, HTML text, screen name and source of the status.
+		 */
+		public static final String QUERY_IS_FILTERED = "SELECT NULL WHERE" + "(SELECT 1 IN (SELECT ? LIKE '%'||"
+				+ Keywords.CONTENT_PATH + "." + TEXT + "||'%' FROM " + Keywords.CONTENT_PATH + "))" + " OR "
+				+ "(SELECT 1 IN (SELECT ? LIKE '%<a href=\"%'||" + Links.CONTENT_PATH + "." + TEXT + "||'%\">%' FROM "
+				+ Links.CONTENT_PATH + "))" + " OR " + "(SELECT ? IN (SELECT " + TEXT + " FROM " + Users.CONTENT_PATH
+				+ "))" + " OR " + "(SELECT 1 IN (SELECT ? LIKE '%>'||" + Sources.CONTENT_PATH + "." + TEXT
+				+ "||'</a>%' FROM " + Sources.CONTENT_PATH + "))";
+
 		public static interface Keywords extends Filters {
 
 			public static final String CONTENT_PATH = "filtered_keywords";
@@ -549,6 +568,108 @@ public final class TweetStore implements Constants {
 
 	}
 
+	/**
+	 * Full-text index of statuses and direct messages stored locally, kept
+	 * in sync by triggers. Rows are keyed by <code>docid</code>, which is
+	 * <code>_id * SOURCE_MULTIPLIER + table id</code> of the indexed row.
+	 */
+	public static interface SearchIndex {
+
+		public static final String CONTENT_PATH = "search_index";
+
+		public static final String CONTENT_PATH_STATUSES = "search_statuses";
+
+		public static final String CONTENT_PATH_DIRECT_MESSAGES = "search_messages";
+
+		/**
+		 * Statuses in home timeline, mentions and cache matching the
+		 * <code>query</code> parameter. Projection and selection apply to
+		 * statuses columns.
+		 */
+		public static final Uri CONTENT_URI_STATUSES = Uri.withAppendedPath(Uri.parse(PROTOCOL_CONTENT + AUTHORITY),
+				CONTENT_PATH_STATUSES);
+
+		/**
+		 * Direct messages matching the <code>query</code> parameter.
+		 * Projection and selection apply to direct messages columns.
+		 */
+		public static final Uri CONTENT_URI_DIRECT_MESSAGES = Uri.withAppendedPath(
+				Uri.parse(PROTOCOL_CONTENT + AUTHORITY), CONTENT_PATH_DIRECT_MESSAGES);
+
+		public static final int SOURCE_MULTIPLIER = 64;
+
+		public static final String DOCID = "docid";
+
+		public static final String TEXT_PLAIN = "text_plain";
+
+		public static final String SCREEN_NAME = "screen_name";
+
+		public static final String NAME = "name";
+
+		public static final String[] COLUMNS = new String[] { TEXT_PLAIN, SCREEN_NAME, NAME };
+
+		public static final class QueryBuilder {
+
+			public static String buildDirectMessages(final String[] projection, final String match,
+					final String selection, final String sortOrder) {
+				final StringBuilder builder = new StringBuilder();
+				appendSelect(builder, TABLE_DIRECT_MESSAGES_INBOX, TABLE_ID_DIRECT_MESSAGES_INBOX, projection, match,
+						selection);
+				builder.append(" UNION ALL ");
+				appendSelect(builder, TABLE_DIRECT_MESSAGES_OUTBOX, TABLE_ID_DIRECT_MESSAGES_OUTBOX, projection,
+						match, selection);
+				builder.append(" ORDER BY " + (sortOrder != null ? sortOrder : DirectMessages.DEFAULT_SORT_ORDER));
+				return builder.toString();
+			}
+
+			/**
+			 * Converts text typed by user to a FTS query, every word is
+			 * matched as a prefix.
+			 * 
+			 * @return null if there's nothing to search
+			 */
+			public static String buildMatch(final String query) {
+				if (query == null) return null;
+				final StringBuilder builder = new StringBuilder();
+				for (final String word : query.split("[^\\p{L}\\p{N}_]+")) {
+					if (word.length() == 0) {
+						continue;
+					}
+					if (builder.length() > 0) {
+						builder.append(' ');
+					}
+					builder.append(word).append('*');
+				}
+				return builder.length() > 0 ? builder.toString() : null;
+			}
+
+			public static String buildStatuses(final String[] projection, final String match, final String selection,
+					final String sortOrder) {
+				final StringBuilder builder = new StringBuilder();
+				appendSelect(builder, TABLE_STATUSES, TABLE_ID_STATUSES, projection, match, selection);
+				builder.append(" UNION ALL ");
+				appendSelect(builder, TABLE_MENTIONS, TABLE_ID_MENTIONS, projection, match, selection);
+				builder.append(" UNION ALL ");
+				appendSelect(builder, TABLE_CACHED_STATUSES, TABLE_ID_CACHED_STATUSES, projection, match, selection);
+				builder.append(" ORDER BY " + (sortOrder != null ? sortOrder : Statuses.DEFAULT_SORT_ORDER));
+				return builder.toString();
+			}
+
+			private static void appendSelect(final StringBuilder builder, final String table, final int table_id,
+					final String[] projection, final String match, final String selection) {
+				final String projection_string = projection != null ? ArrayUtils.toString(projection, ',', false) : "*";
+				builder.append("SELECT " + projection_string + " FROM " + table);
+				builder.append(" WHERE " + BaseColumns._ID + " IN (SELECT " + DOCID + " / " + SOURCE_MULTIPLIER
+						+ " FROM " + CONTENT_PATH + " WHERE " + CONTENT_PATH + " MATCH "
+						+ DatabaseUtils.sqlEscapeString(match) + " AND " + DOCID + " % " + SOURCE_MULTIPLIER + " = "
+						+ table_id + ")");
+				if (selection != null) {
+					builder.append(" AND (" + selection + ")");
+				}
+			}
+		}
+	}
+
 	public static interface Statuses extends BaseColumns {
 
 		public static final String CONTENT_PATH = "statuses";
@@ -626,6 +747,12 @@ public final class TweetStore implements Constants {
 
 		public static final String LOCATION = "location";
 
+		/**
+		 * Comma separated IDs of user's accounts mentioned in the status.<br>
+		 * Type: TEXT
+		 */
+		public static final String MENTIONED_ACCOUNT_IDS = "mentioned_account_ids";
+
 		/**
 		 * User's ID of the status.<br>
 		 * Type: INTEGER (long)
@@ -668,12 +795,12 @@ public final class TweetStore implements Constants {
 				TEXT_HTML, TEXT_PLAIN, NAME, SCREEN_NAME, PROFILE_IMAGE_URL, IN_REPLY_TO_STATUS_ID,
 				IN_REPLY_TO_SCREEN_NAME, SOURCE, LOCATION, RETWEET_COUNT, RETWEET_ID, RETWEETED_BY_ID,
 				RETWEETED_BY_NAME, RETWEETED_BY_SCREEN_NAME, MY_RETWEET_ID, IS_RETWEET, IS_FAVORITE, IS_PROTECTED,
-				IS_VERIFIED, IS_GAP, IS_POSSIBLY_SENSITIVE };
+				IS_VERIFIED, IS_GAP, IS_POSSIBLY_SENSITIVE, MENTIONED_ACCOUNT_IDS };
 
 		public static final String[] TYPES = new String[] { TYPE_PRIMARY_KEY, TYPE_INT, TYPE_INT, TYPE_INT, TYPE_INT,
 				TYPE_TEXT, TYPE_TEXT, TYPE_TEXT, TYPE_TEXT, TYPE_TEXT, TYPE_INT, TYPE_TEXT, TYPE_TEXT, TYPE_TEXT,
 				TYPE_INT, TYPE_INT, TYPE_INT, TYPE_TEXT, TYPE_TEXT, TYPE_INT, TYPE_BOOLEAN, TYPE_BOOLEAN, TYPE_BOOLEAN,
-				TYPE_BOOLEAN, TYPE_BOOLEAN, TYPE_BOOLEAN };
+				TYPE_BOOLEAN, TYPE_BOOLEAN, TYPE_BOOLEAN, TYPE_TEXT };
 
 	}
 
@@ -700,4 +827,31 @@ public final class TweetStore implements Constants {
 
 		public static final String DEFAULT_SORT_ORDER = POSITION + " ASC";
 	}
+
+	/**
+	 * Contiguous spans of status ids loaded into a timeline table. Statuses
+	 * between two spans haven't been loaded, that's a gap.
+	 */
+	public static interface TimelineRanges extends BaseColumns {
+		public static final String CONTENT_PATH = "timeline_ranges";
+
+		public static final Uri CONTENT_URI = Uri.withAppendedPath(Uri.parse(PROTOCOL_CONTENT + AUTHORITY),
+				CONTENT_PATH);
+
+		public static final String ACCOUNT_ID = "account_id";
+
+		/**
+		 * Name of the timeline table, e.g. {@link Statuses#CONTENT_PATH}.
+		 */
+		public static final String TIMELINE = "timeline";
+
+		public static final String MIN_ID = "min_id";
+
+		public static final String MAX_ID = "max_id";
+
+		public static final String[] COLUMNS = new String[] { _ID, ACCOUNT_ID, TIMELINE, MIN_ID, MAX_ID };
+
+		public static final String[] TYPES = new String[] { TYPE_PRIMARY_KEY, TYPE_INT, TYPE_TEXT_NOT_NULL, TYPE_INT,
+				TYPE_INT };
+	}
 }
@@ -21,6 +21,7 @@ package org.mariotaku.twidere.receiver;
 
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.service.RefreshService;
+import org.mariotaku.twidere.service.StreamingService;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -38,11 +39,15 @@ public class ConnectivityStateReceiver extends BroadcastReceiver implements Cons
 		if (!ConnectivityManager.CONNECTIVITY_ACTION.equals(intent.getAction())) return;
 		if (intent.getBooleanExtra(ConnectivityManager.EXTRA_NO_CONNECTIVITY, true)) {
 			context.stopService(new Intent(context, RefreshService.class));
+			context.stopService(new Intent(context, StreamingService.class));
 			return;
 		}
 		if (preferences.getBoolean(PREFERENCE_KEY_AUTO_REFRESH, false)) {
 			context.startService(new Intent(context, RefreshService.class));
 		}
+		if (preferences.getBoolean(PREFERENCE_KEY_STREAMING, false)) {
+			context.startService(new Intent(context, StreamingService.class));
+		}
 		if (preferences.getBoolean(PREFERENCE_KEY_UCD_DATA_PROFILING, false)) {
 			context.startService(new Intent(context, UCDService.class));
 		}
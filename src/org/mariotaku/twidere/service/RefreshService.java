@@ -26,12 +26,16 @@ import static org.mariotaku.twidere.util.Utils.hasActiveConnection;
 import static org.mariotaku.twidere.util.Utils.isBatteryOkay;
 import static org.mariotaku.twidere.util.Utils.parseInt;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.app.TwidereApplication;
 import org.mariotaku.twidere.provider.TweetStore;
 import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
 import org.mariotaku.twidere.provider.TweetStore.Mentions;
 import org.mariotaku.twidere.provider.TweetStore.Statuses;
+import org.mariotaku.twidere.util.ArrayUtils;
 import org.mariotaku.twidere.util.AsyncTwitterWrapper;
 
 import android.app.AlarmManager;
@@ -152,15 +156,38 @@ public class RefreshService extends Service implements Constants {
 	}
 
 	private int getHomeTimeline(final long[] account_ids, final long[] max_ids, final long[] since_ids) {
-		return mTwitterWrapper.getHomeTimeline(account_ids, max_ids, since_ids);
+		final long[] polling_ids = getPollingItems(account_ids, account_ids);
+		if (polling_ids.length == 0) return -1;
+		return mTwitterWrapper.getHomeTimeline(polling_ids, getPollingItems(account_ids, max_ids),
+				getPollingItems(account_ids, since_ids), true);
 	}
 
 	private int getMentions(final long[] account_ids, final long[] max_ids, final long[] since_ids) {
-		return mTwitterWrapper.getMentions(account_ids, max_ids, since_ids);
+		final long[] polling_ids = getPollingItems(account_ids, account_ids);
+		if (polling_ids.length == 0) return -1;
+		return mTwitterWrapper.getMentions(polling_ids, getPollingItems(account_ids, max_ids),
+				getPollingItems(account_ids, since_ids), true);
 	}
 
 	private int getReceivedDirectMessages(final long[] account_ids, final long[] max_ids, final long[] since_ids) {
-		return mTwitterWrapper.getReceivedDirectMessages(account_ids, max_ids, since_ids);
+		final long[] polling_ids = getPollingItems(account_ids, account_ids);
+		if (polling_ids.length == 0) return -1;
+		return mTwitterWrapper.getReceivedDirectMessages(polling_ids, getPollingItems(account_ids, max_ids),
+				getPollingItems(account_ids, since_ids), true);
+	}
+
+	/**
+	 * Removes items of accounts which have a connected user stream.
+	 */
+	private long[] getPollingItems(final long[] account_ids, final long[] items) {
+		if (items == null) return null;
+		final List<Long> result = new ArrayList<Long>();
+		for (int i = 0, j = Math.min(account_ids.length, items.length); i < j; i++) {
+			if (!StreamingService.isStreaming(account_ids[i])) {
+				result.add(items[i]);
+			}
+		}
+		return ArrayUtils.fromList(result);
 	}
 
 	private boolean isHomeTimelineRefreshing() {
@@ -0,0 +1,365 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.mariotaku.twidere.service;
+
+import static org.mariotaku.twidere.util.Utils.getAccountIds;
+import static org.mariotaku.twidere.util.Utils.getActivatedAccountIds;
+import static org.mariotaku.twidere.util.Utils.getNewestMessageIdsFromDatabase;
+import static org.mariotaku.twidere.util.Utils.getNewestStatusIdsFromDatabase;
+import static org.mariotaku.twidere.util.Utils.getProxy;
+import static org.mariotaku.twidere.util.Utils.getTwitterInstance;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.R;
+import org.mariotaku.twidere.app.TwidereApplication;
+import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
+import org.mariotaku.twidere.provider.TweetStore.Mentions;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+import org.mariotaku.twidere.util.ArrayUtils;
+import org.mariotaku.twidere.util.AsyncTwitterWrapper;
+import org.mariotaku.twidere.util.StreamBatchWriter;
+import org.mariotaku.twidere.util.UserStreamParser;
+
+import twitter4j.DirectMessage;
+import twitter4j.Status;
+import twitter4j.Twitter;
+import twitter4j.User;
+import twitter4j.auth.Authorization;
+import twitter4j.http.HttpParameter;
+import twitter4j.http.HttpRequest;
+import twitter4j.http.RequestMethod;
+import android.app.Service;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.IBinder;
+import android.util.Log;
+
+/**
+ * Keeps a user stream connection for every activated account, and writes
+ * what they push into the database. Accounts without a working stream are
+ * refreshed by {@link RefreshService} as usual.
+ */
+public class StreamingService extends Service implements Constants {
+
+	private static final long MIN_NETWORK_ERROR_DELAY = 250;
+	private static final long MAX_NETWORK_ERROR_DELAY = 16 * 1000;
+	private static final long MIN_HTTP_ERROR_DELAY = 5 * 1000;
+	private static final long MIN_RATE_LIMITED_DELAY = 60 * 1000;
+	private static final long MAX_HTTP_ERROR_DELAY = 320 * 1000;
+
+	private static final int HTTP_ENHANCE_YOUR_CALM = 420;
+	private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+	private static final long REFRESH_MISSED_ITEMS_DELAY = 3 * 1000;
+
+	private static final int CONNECT_TIMEOUT = 20 * 1000;
+	// Twitter sends a blank line every 30 seconds.
+	private static final int READ_TIMEOUT = 90 * 1000;
+
+	private static final Set<Long> sStreamingAccounts = Collections.synchronizedSet(new HashSet<Long>());
+
+	private final Map<Long, StreamConnection> mConnections = new HashMap<Long, StreamConnection>();
+	private final Set<Long> mConnectedAccounts = new HashSet<Long>();
+
+	private final Runnable mRefreshMissedItemsRunnable = new Runnable() {
+
+		@Override
+		public void run() {
+			final long[] account_ids;
+			synchronized (mConnectedAccounts) {
+				account_ids = ArrayUtils.fromList(new ArrayList<Long>(mConnectedAccounts));
+				mConnectedAccounts.clear();
+			}
+			if (account_ids.length > 0) {
+				refreshMissedItems(account_ids);
+			}
+		}
+	};
+
+	private final BroadcastReceiver mStateReceiver = new BroadcastReceiver() {
+
+		@Override
+		public void onReceive(final Context context, final Intent intent) {
+			if (BROADCAST_ACCOUNT_LIST_DATABASE_UPDATED.equals(intent.getAction())) {
+				updateConnections();
+			}
+		}
+
+	};
+
+	private SharedPreferences mPreferences;
+	private AsyncTwitterWrapper mTwitterWrapper;
+	private StreamBatchWriter mWriter;
+	private Handler mHandler;
+
+	@Override
+	public IBinder onBind(final Intent intent) {
+		return null;
+	}
+
+	@Override
+	public void onCreate() {
+		super.onCreate();
+		mHandler = new Handler();
+		mPreferences = getSharedPreferences(SHARED_PREFERENCES_NAME, MODE_PRIVATE);
+		mTwitterWrapper = TwidereApplication.getInstance(this).getTwitterWrapper();
+		mWriter = new StreamBatchWriter(getContentResolver(), getResources().getBoolean(R.bool.hires_profile_image));
+		mWriter.start();
+		registerReceiver(mStateReceiver, new IntentFilter(BROADCAST_ACCOUNT_LIST_DATABASE_UPDATED));
+	}
+
+	@Override
+	public void onDestroy() {
+		unregisterReceiver(mStateReceiver);
+		mHandler.removeCallbacks(mRefreshMissedItemsRunnable);
+		for (final StreamConnection connection : mConnections.values()) {
+			connection.close();
+		}
+		mConnections.clear();
+		mWriter.stop();
+		super.onDestroy();
+	}
+
+	@Override
+	public int onStartCommand(final Intent intent, final int flags, final int startId) {
+		updateConnections();
+		return START_STICKY;
+	}
+
+	/**
+	 * Connections made around the same time share one refresh.
+	 */
+	private void onConnected(final long account_id) {
+		mWriter.onStreamConnected(account_id);
+		synchronized (mConnectedAccounts) {
+			mConnectedAccounts.add(account_id);
+		}
+		mHandler.removeCallbacks(mRefreshMissedItemsRunnable);
+		mHandler.postDelayed(mRefreshMissedItemsRunnable, REFRESH_MISSED_ITEMS_DELAY);
+	}
+
+	/**
+	 * Fetches items the stream may have missed while disconnected.
+	 */
+	private void refreshMissedItems(final long[] account_ids) {
+		mTwitterWrapper.getHomeTimeline(account_ids, null,
+				getNewestStatusIdsFromDatabase(this, Statuses.CONTENT_URI, account_ids), true);
+		mTwitterWrapper.getMentions(account_ids, null,
+				getNewestStatusIdsFromDatabase(this, Mentions.CONTENT_URI, account_ids), true);
+		mTwitterWrapper.getReceivedDirectMessages(account_ids, null,
+				getNewestMessageIdsFromDatabase(this, DirectMessages.Inbox.CONTENT_URI, account_ids), true);
+	}
+
+	private void updateConnections() {
+		mWriter.setAccountIds(getAccountIds(this));
+		final long[] account_ids = getActivatedAccountIds(this);
+		final Iterator<Map.Entry<Long, StreamConnection>> it = mConnections.entrySet().iterator();
+		while (it.hasNext()) {
+			final Map.Entry<Long, StreamConnection> entry = it.next();
+			if (!ArrayUtils.contains(account_ids, entry.getKey())) {
+				entry.getValue().close();
+				it.remove();
+			}
+		}
+		final String url = mPreferences.getString(PREFERENCE_KEY_USER_STREAM_URL, PREFERENCE_DEFAULT_USER_STREAM_URL);
+		for (final long account_id : account_ids) {
+			if (mConnections.containsKey(account_id)) {
+				continue;
+			}
+			final Twitter twitter = getTwitterInstance(this, account_id, true);
+			if (twitter == null) {
+				continue;
+			}
+			final StreamConnection connection = new StreamConnection(account_id, twitter, url);
+			mConnections.put(account_id, connection);
+			connection.start();
+		}
+	}
+
+	/**
+	 * Returns true if the account has a connected user stream, so it
+	 * doesn't need to be polled.
+	 */
+	public static boolean isStreaming(final long account_id) {
+		return sStreamingAccounts.contains(account_id);
+	}
+
+	private final class StreamConnection extends Thread implements UserStreamParser.Callback {
+
+		private final long mAccountId;
+		private final Twitter mTwitter;
+		private final String mUrl;
+		private final UserStreamParser mParser;
+
+		private volatile HttpURLConnection mConnection;
+		private long mNetworkErrorDelay, mHttpErrorDelay;
+
+		StreamConnection(final long account_id, final Twitter twitter, final String url) {
+			super("StreamConnection-" + account_id);
+			mAccountId = account_id;
+			mTwitter = twitter;
+			mUrl = url;
+			mParser = new UserStreamParser(twitter.getConfiguration(), this);
+		}
+
+		public void close() {
+			interrupt();
+			final HttpURLConnection conn = mConnection;
+			if (conn != null) {
+				conn.disconnect();
+			}
+		}
+
+		@Override
+		public void onDirectMessage(final DirectMessage message) {
+			mWriter.addDirectMessage(mAccountId, message);
+		}
+
+		@Override
+		public void onDirectMessageDeletion(final long message_id) {
+			mWriter.deleteDirectMessage(message_id);
+		}
+
+		@Override
+		public void onDisconnect(final int code, final String reason) {
+			Log.w(LOGTAG, "User stream of " + mAccountId + " disconnected: " + code + " " + reason);
+		}
+
+		@Override
+		public void onException(final Exception e) {
+			Log.w(LOGTAG, e);
+		}
+
+		@Override
+		public void onFavoriteChanged(final User source, final Status status, final boolean favorite) {
+			if (source.getId() != mAccountId) return;
+			mWriter.setFavorite(mAccountId, status.getId(), favorite);
+		}
+
+		@Override
+		public void onStatus(final Status status) {
+			mWriter.addStatus(mAccountId, status);
+		}
+
+		@Override
+		public void onStatusDeletion(final long status_id) {
+			mWriter.deleteStatus(status_id);
+		}
+
+		@Override
+		public void run() {
+			while (!isInterrupted()) {
+				long delay;
+				try {
+					final int code = stream();
+					if (code == HttpURLConnection.HTTP_OK) {
+						mNetworkErrorDelay = 0;
+						mHttpErrorDelay = 0;
+						delay = MIN_NETWORK_ERROR_DELAY;
+					} else if (code == HttpURLConnection.HTTP_UNAUTHORIZED) {
+						Log.w(LOGTAG, "User stream of " + mAccountId + " unauthorized, falling back to polling");
+						onUnauthorized();
+						return;
+					} else {
+						final boolean rate_limited = code == HTTP_ENHANCE_YOUR_CALM || code == HTTP_TOO_MANY_REQUESTS;
+						final long min = rate_limited ? MIN_RATE_LIMITED_DELAY : MIN_HTTP_ERROR_DELAY;
+						mHttpErrorDelay = Math.min(Math.max(min, mHttpErrorDelay * 2), MAX_HTTP_ERROR_DELAY);
+						delay = mHttpErrorDelay;
+					}
+				} catch (final IOException e) {
+					mNetworkErrorDelay = Math.min(mNetworkErrorDelay + MIN_NETWORK_ERROR_DELAY, MAX_NETWORK_ERROR_DELAY);
+					delay = mNetworkErrorDelay;
+				}
+				try {
+					sleep(delay);
+				} catch (final InterruptedException e) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Forgets this connection, so the account connects again when
+		 * accounts change, e.g. after it's signed in again.
+		 */
+		private void onUnauthorized() {
+			mHandler.post(new Runnable() {
+
+				@Override
+				public void run() {
+					if (mConnections.get(mAccountId) == StreamConnection.this) {
+						mConnections.remove(mAccountId);
+					}
+				}
+			});
+		}
+
+		/**
+		 * Connects and reads the stream until it's closed.
+		 * 
+		 * @return HTTP status code
+		 */
+		private int stream() throws IOException {
+			final Authorization auth = mTwitter.getAuthorization();
+			final HttpRequest req = new HttpRequest(RequestMethod.GET, mUrl, mUrl, new HttpParameter[0], auth, null);
+			final HttpURLConnection conn = (HttpURLConnection) new URL(mUrl).openConnection(getProxy(StreamingService.this));
+			conn.setConnectTimeout(CONNECT_TIMEOUT);
+			conn.setReadTimeout(READ_TIMEOUT);
+			conn.setRequestProperty("User-Agent", mTwitter.getConfiguration().getUserAgent());
+			final String auth_header = auth != null ? auth.getAuthorizationHeader(req) : null;
+			if (auth_header != null) {
+				conn.setRequestProperty("Authorization", auth_header);
+			}
+			mConnection = conn;
+			try {
+				final int code = conn.getResponseCode();
+				if (code != HttpURLConnection.HTTP_OK) return code;
+				sStreamingAccounts.add(mAccountId);
+				onConnected(mAccountId);
+				try {
+					mParser.parse(conn.getInputStream());
+				} catch (final IOException e) {
+					// Dropped after connected, reconnect soon.
+				}
+				return HttpURLConnection.HTTP_OK;
+			} finally {
+				sStreamingAccounts.remove(mAccountId);
+				mConnection = null;
+				conn.disconnect();
+			}
+		}
+	}
+}
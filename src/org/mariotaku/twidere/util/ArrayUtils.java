@@ -128,6 +128,28 @@ public final class ArrayUtils {
 		return builder.toString();
 	}
 
+	/**
+	 * @return array concatenated with itself for given times, or null if
+	 *         array is null.
+	 */
+	public static String[] repeat(final String[] array, final int times) {
+		if (array == null) return null;
+		final int length = array.length;
+		final String[] result = new String[length * times];
+		for (int i = 0; i < times; i++) {
+			System.arraycopy(array, 0, result, i * length, length);
+		}
+		return result;
+	}
+
+	public static long[] subArray(final long[] array, final int start, final int end) {
+		final int length = end - start;
+		if (length < 0) throw new IllegalArgumentException();
+		final long[] result = new long[length];
+		System.arraycopy(array, start, result, 0, length);
+		return result;
+	}
+
 	public static String[] subArray(final String[] array, final int start, final int end) {
 		final int length = end - start;
 		if (length < 0) throw new IllegalArgumentException();
@@ -1,12 +1,16 @@
 package org.mariotaku.twidere.util;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import android.os.Handler;
 
 public abstract class AsyncTask<Param, Progress, Result> {
 
+	private final Object mThreadLock = new Object();
 	private Thread mThread;
+	private TaskScheduler.Task mTask;
+	private int mSchedulerPriority = TaskScheduler.PRIORITY_NORMAL;
 	private final Handler mHandler;
 	private final ExecutorService mExecutor;
 	private final Runnable mRunnable;
@@ -36,8 +40,17 @@ public abstract class AsyncTask<Param, Progress, Result> {
 
 	public void cancel(final boolean mayInterruptIfRunning) {
 		mCancelled = true;
-		if (mExecutor == null && mThread != null) {
-			mThread.interrupt();
+		if (mTask != null) {
+			mTask.cancel();
+		}
+		if (mayInterruptIfRunning) {
+			// The thread is pooled, only interrupt it while it's still running
+			// this task, the flag is cleared before it takes the next one.
+			synchronized (mThreadLock) {
+				if (mThread != null) {
+					mThread.interrupt();
+				}
+			}
 		}
 		onCancelled();
 		mStatus = Status.FINISHED;
@@ -59,13 +72,22 @@ public abstract class AsyncTask<Param, Progress, Result> {
 			
 			@Override
 			public void run() {
+				if (mCancelled) return;
 				onPreExecute();
 				mParams = params;
-				if (mExecutor != null) {
-					mExecutor.execute(mRunnable);
-				} else {
-					mThread = new Thread(mRunnable);
-					mThread.start();
+				try {
+					if (mExecutor != null) {
+						mExecutor.execute(mRunnable);
+					} else {
+						mTask = TaskScheduler.getInstance().execute(getSchedulerLane(), getSchedulerPriority(),
+								mRunnable);
+					}
+				} catch (final RejectedExecutionException e) {
+					// Won't run at all, finish as cancelled so callers
+					// waiting for it can clean up.
+					mCancelled = true;
+					onCancelled();
+					mStatus = Status.FINISHED;
 				}
 			}
 		});
@@ -81,8 +103,25 @@ public abstract class AsyncTask<Param, Progress, Result> {
 		return mCancelled;
 	}
 
+	public void setSchedulerPriority(final int priority) {
+		mSchedulerPriority = priority;
+	}
+
 	protected abstract Result doInBackground(Param... params);
 
+	/**
+	 * Lane of {@link TaskScheduler} this task runs in, if no executor was
+	 * given. Tasks doing network or database work should override this, so
+	 * they don't hold up each other in {@link TaskScheduler#LANE_UI}.
+	 */
+	protected int getSchedulerLane() {
+		return TaskScheduler.LANE_UI;
+	}
+
+	protected int getSchedulerPriority() {
+		return mSchedulerPriority;
+	}
+
 	protected void onCancelled() {
 
 	}
@@ -107,7 +146,18 @@ public abstract class AsyncTask<Param, Progress, Result> {
 
 		@Override
 		public void run() {
-			final Result result = doInBackground(mParams);
+			final Result result;
+			synchronized (mThreadLock) {
+				mThread = Thread.currentThread();
+			}
+			try {
+				result = doInBackground(mParams);
+			} finally {
+				synchronized (mThreadLock) {
+					mThread = null;
+					Thread.interrupted();
+				}
+			}
 			mHandler.post(new OnPostExecuteRunnable(result));
 		}
 	}
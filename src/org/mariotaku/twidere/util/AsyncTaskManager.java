@@ -20,32 +20,45 @@
 package org.mariotaku.twidere.util;
 
 import java.util.ArrayList;
-import java.util.ConcurrentModificationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Handler;
+import android.os.Looper;
 
 public class AsyncTaskManager {
 
-	private final ArrayList<ManagedAsyncTask<?, ?, ?>> mTasks = new ArrayList<ManagedAsyncTask<?, ?, ?>>();
+	private final ConcurrentHashMap<Integer, ManagedAsyncTask<?, ?, ?>> mTasks = new ConcurrentHashMap<Integer, ManagedAsyncTask<?, ?, ?>>();
+	private final ConcurrentHashMap<String, AtomicInteger> mRunningTagCounts = new ConcurrentHashMap<String, AtomicInteger>();
+	private final AtomicInteger mRunningCount = new AtomicInteger();
+	private final CopyOnWriteArrayList<OnTaskStateChangedListener> mListeners = new CopyOnWriteArrayList<OnTaskStateChangedListener>();
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
 
 	private static AsyncTaskManager sInstance;
 
 	public <T> int add(final ManagedAsyncTask<T, ?, ?> task, final boolean exec, final T... params) {
 		final int hashCode = task.hashCode();
-		mTasks.add(task);
+		mTasks.put(hashCode, task);
 		if (exec) {
 			execute(hashCode);
 		}
 		return hashCode;
 	}
 
+	public void addOnTaskStateChangedListener(final OnTaskStateChangedListener listener) {
+		if (listener == null) return;
+		mListeners.addIfAbsent(listener);
+	}
+
 	public boolean cancel(final int hashCode) {
 		return cancel(hashCode, true);
 	}
 
 	public boolean cancel(final int hashCode, final boolean mayInterruptIfRunning) {
-		final ManagedAsyncTask<?, ?, ?> task = findTask(hashCode);
+		final ManagedAsyncTask<?, ?, ?> task = mTasks.remove(hashCode);
 		if (task != null) {
 			task.cancel(mayInterruptIfRunning);
-			mTasks.remove(task);
 			return true;
 		}
 		return false;
@@ -56,14 +69,13 @@ public class AsyncTaskManager {
 	 */
 	public void cancelAll() {
 		for (final ManagedAsyncTask<?, ?, ?> task : getTaskSpecList()) {
-			task.cancel(true);
+			cancel(task.hashCode());
 		}
-		mTasks.clear();
 	}
 
 	@SuppressWarnings("unchecked")
 	public <T> boolean execute(final int hashCode, final T... params) {
-		final ManagedAsyncTask<T, ?, ?> task = (ManagedAsyncTask<T, ?, ?>) findTask(hashCode);
+		final ManagedAsyncTask<T, ?, ?> task = (ManagedAsyncTask<T, ?, ?>) mTasks.get(hashCode);
 		if (task != null) {
 			task.execute(params == null || params.length == 0 ? null : params);
 			return true;
@@ -72,50 +84,86 @@ public class AsyncTaskManager {
 	}
 
 	public ArrayList<ManagedAsyncTask<?, ?, ?>> getTaskSpecList() {
-		return new ArrayList<ManagedAsyncTask<?, ?, ?>>(mTasks);
+		return new ArrayList<ManagedAsyncTask<?, ?, ?>>(mTasks.values());
 	}
 
 	public boolean hasRunningTask() {
-		for (final ManagedAsyncTask<?, ?, ?> task : getTaskSpecList()) {
-			if (task.getStatus() == ManagedAsyncTask.Status.RUNNING) return true;
-		}
-		return false;
+		return mRunningCount.get() > 0;
 	}
 
 	public boolean hasRunningTasksForTag(final String tag) {
 		if (tag == null) return false;
-		for (final ManagedAsyncTask<?, ?, ?> task : getTaskSpecList()) {
-			if (task.getStatus() == ManagedAsyncTask.Status.RUNNING && tag.equals(task.getTag())) return true;
-		}
-		return false;
+		final AtomicInteger count = mRunningTagCounts.get(tag);
+		return count != null && count.get() > 0;
 	}
 
 	public boolean isExcuting(final int hashCode) {
-		final ManagedAsyncTask<?, ?, ?> task = findTask(hashCode);
-		if (task != null && task.getStatus() == AsyncTask.Status.RUNNING) return true;
-		return false;
+		final ManagedAsyncTask<?, ?, ?> task = mTasks.get(hashCode);
+		return task != null && task.getStatus() == AsyncTask.Status.RUNNING;
 	}
 
 	public void remove(final int hashCode) {
-		try {
-			mTasks.remove(findTask(hashCode));
-		} catch (final ConcurrentModificationException e) {
-			// Ignore.
+		mTasks.remove(hashCode);
+	}
+
+	public void removeOnTaskStateChangedListener(final OnTaskStateChangedListener listener) {
+		mListeners.remove(listener);
+	}
+
+	void notifyTaskStateChanged(final ManagedAsyncTask<?, ?, ?> task) {
+		if (mListeners.isEmpty()) return;
+		mHandler.post(new Runnable() {
+
+			@Override
+			public void run() {
+				for (final OnTaskStateChangedListener listener : mListeners) {
+					listener.onTaskStateChanged(task);
+				}
+			}
+		});
+	}
+
+	void onTaskFinished(final ManagedAsyncTask<?, ?, ?> task) {
+		mTasks.remove(task.hashCode());
+		mRunningCount.decrementAndGet();
+		final String tag = task.getTag();
+		if (tag != null) {
+			final AtomicInteger count = mRunningTagCounts.get(tag);
+			if (count != null) {
+				count.decrementAndGet();
+			}
 		}
+		notifyTaskStateChanged(task);
 	}
 
-	private <T> ManagedAsyncTask<?, ?, ?> findTask(final int hashCode) {
-		for (final ManagedAsyncTask<?, ?, ?> task : getTaskSpecList()) {
-			if (hashCode == task.hashCode()) return task;
+	void onTaskStarted(final ManagedAsyncTask<?, ?, ?> task) {
+		mRunningCount.incrementAndGet();
+		final String tag = task.getTag();
+		if (tag != null) {
+			AtomicInteger count = mRunningTagCounts.get(tag);
+			if (count == null) {
+				final AtomicInteger new_count = new AtomicInteger();
+				count = mRunningTagCounts.putIfAbsent(tag, new_count);
+				if (count == null) {
+					count = new_count;
+				}
+			}
+			count.incrementAndGet();
 		}
-		return null;
+		notifyTaskStateChanged(task);
 	}
 
 	public static AsyncTaskManager getInstance() {
-		if (sInstance == null) {
-			sInstance = new AsyncTaskManager();
+		synchronized (AsyncTaskManager.class) {
+			if (sInstance == null) {
+				sInstance = new AsyncTaskManager();
+			}
+			return sInstance;
 		}
-		return sInstance;
+	}
+
+	public interface OnTaskStateChangedListener {
+		void onTaskStateChanged(ManagedAsyncTask<?, ?, ?> task);
 	}
 
 }
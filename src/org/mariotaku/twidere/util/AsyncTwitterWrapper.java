@@ -22,6 +22,7 @@ package org.mariotaku.twidere.util;
 import static android.text.TextUtils.isEmpty;
 import static org.mariotaku.twidere.provider.TweetStore.STATUSES_URIS;
 import static org.mariotaku.twidere.util.Utils.appendQueryParameters;
+import static org.mariotaku.twidere.util.Utils.getAccountIds;
 import static org.mariotaku.twidere.util.Utils.getAccountScreenName;
 import static org.mariotaku.twidere.util.Utils.getActivatedAccountIds;
 import static org.mariotaku.twidere.util.Utils.getAllStatusesIds;
@@ -30,6 +31,7 @@ import static org.mariotaku.twidere.util.Utils.getImageUploadStatus;
 import static org.mariotaku.twidere.util.Utils.getNewestMessageIdsFromDatabase;
 import static org.mariotaku.twidere.util.Utils.getNewestStatusIdsFromDatabase;
 import static org.mariotaku.twidere.util.Utils.getStatusIdsInDatabase;
+import static org.mariotaku.twidere.util.Utils.getTableNameByUri;
 import static org.mariotaku.twidere.util.Utils.getTwitterInstance;
 import static org.mariotaku.twidere.util.Utils.makeDirectMessageContentValues;
 import static org.mariotaku.twidere.util.Utils.makeStatusContentValues;
@@ -40,6 +42,11 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.mariotaku.twidere.R;
 import org.mariotaku.twidere.app.TwidereApplication;
@@ -54,6 +61,8 @@ import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
 import org.mariotaku.twidere.provider.TweetStore.Drafts;
 import org.mariotaku.twidere.provider.TweetStore.Mentions;
 import org.mariotaku.twidere.provider.TweetStore.Statuses;
+import org.mariotaku.twidere.util.metrics.Metrics;
+import org.mariotaku.twidere.util.metrics.Timer;
 
 import twitter4j.DirectMessage;
 import twitter4j.Paging;
@@ -193,8 +202,20 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 	}
 
 	public int getHomeTimeline(final long[] account_ids, final long[] max_ids, final long[] since_ids) {
+		return getHomeTimeline(account_ids, max_ids, since_ids, false);
+	}
+
+	/**
+	 * @param background true if the request is not made by user, it will
+	 *            have lower priority on rate limit.
+	 */
+	public int getHomeTimeline(final long[] account_ids, final long[] max_ids, final long[] since_ids,
+			final boolean background) {
 		mAsyncTaskManager.cancel(mGetHomeTimelineTaskId);
 		final GetHomeTimelineTask task = new GetHomeTimelineTask(account_ids, max_ids, since_ids);
+		if (background) {
+			task.setSchedulerPriority(TaskScheduler.PRIORITY_LOW);
+		}
 		return mGetHomeTimelineTaskId = mAsyncTaskManager.add(task, true);
 	}
 
@@ -205,14 +226,30 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 	}
 
 	public int getMentions(final long[] account_ids, final long[] max_ids, final long[] since_ids) {
+		return getMentions(account_ids, max_ids, since_ids, false);
+	}
+
+	public int getMentions(final long[] account_ids, final long[] max_ids, final long[] since_ids,
+			final boolean background) {
 		mAsyncTaskManager.cancel(mGetMentionsTaskId);
 		final GetMentionsTask task = new GetMentionsTask(account_ids, max_ids, since_ids);
+		if (background) {
+			task.setSchedulerPriority(TaskScheduler.PRIORITY_LOW);
+		}
 		return mGetMentionsTaskId = mAsyncTaskManager.add(task, true);
 	}
 
 	public int getReceivedDirectMessages(final long[] account_ids, final long[] max_ids, final long[] since_ids) {
+		return getReceivedDirectMessages(account_ids, max_ids, since_ids, false);
+	}
+
+	public int getReceivedDirectMessages(final long[] account_ids, final long[] max_ids, final long[] since_ids,
+			final boolean background) {
 		mAsyncTaskManager.cancel(mGetReceivedDirectMessagesTaskId);
 		final GetReceivedDirectMessagesTask task = new GetReceivedDirectMessagesTask(account_ids, max_ids, since_ids);
+		if (background) {
+			task.setSchedulerPriority(TaskScheduler.PRIORITY_LOW);
+		}
 		return mGetReceivedDirectMessagesTaskId = mAsyncTaskManager.add(task, true);
 	}
 
@@ -1458,6 +1495,7 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			int idx = 0;
 			final int load_item_limit = mPreferences.getInt(PREFERENCE_KEY_LOAD_ITEM_LIMIT,
 					PREFERENCE_DEFAULT_LOAD_ITEM_LIMIT);
+			final Metrics metrics = Metrics.getInstance();
 			for (final long account_id : account_ids) {
 				final Twitter twitter = getTwitter(account_id);
 				if (twitter != null) {
@@ -1473,7 +1511,9 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 							since_id = since_ids[idx];
 							paging.setSinceId(since_id);
 						}
+						final long start = Timer.start();
 						final ResponseList<twitter4j.Status> statuses = getStatuses(twitter, paging);
+						metrics.getTimer("refresh.latency." + account_id).stop(start);
 						if (statuses != null) {
 							result.add(new StatusListResponse(account_id, max_id, since_id, load_item_limit, statuses,
 									null));
@@ -1932,10 +1972,18 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			boolean succeed = false;
 
 			final ArrayList<Long> newly_inserted_ids = new ArrayList<Long>();
+			final String table = getTableNameByUri(uri);
+			final long[] all_account_ids = getAccountIds(mContext);
 			for (final StatusListResponse response : responses) {
 				final long account_id = response.account_id;
 				final List<twitter4j.Status> statuses = response.list;
 				if (statuses == null || statuses.size() <= 0) {
+					if (statuses != null && response.max_id > 0 && response.since_id > 0
+							&& TimelineRangeUtils.hasRanges(table)) {
+						// Nothing between them, so the gap is closed.
+						TimelineRangeUtils.addRange(mResolver, table, account_id, response.since_id,
+								response.max_id);
+					}
 					continue;
 				}
 				final ArrayList<Long> ids_in_db = getStatusIdsInDatabase(mContext, uri, account_id);
@@ -1956,7 +2004,8 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 						if (retweet_id > 0) {
 							retweet_ids.add(retweet_id);
 						}
-						values_list.add(makeStatusContentValues(status, account_id, large_profile_image));
+						values_list.add(makeStatusContentValues(status, account_id, all_account_ids,
+								large_profile_image));
 					}
 
 				}
@@ -1979,27 +2028,27 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 				final Uri delete_uri = appendQueryParameters(uri, new NameValuePairImpl(QUERY_PARAM_NOTIFY, false));
 				final int rows_deleted = mResolver.delete(delete_uri, delete_where.toString(), null);
 				// UCD
-				final String UCD_new_status_ids = ListUtils.toString(account_newly_inserted, ',', true);
-				ProfilingUtil.profile(mContext, account_id, "Download tweets, " + UCD_new_status_ids);
+				if (ProfilingUtil.isProfilingEnabled(mContext)) {
+					final String UCD_new_status_ids = ListUtils.toString(account_newly_inserted, ',', true);
+					ProfilingUtil.profile(mContext, account_id, "Download tweets, " + UCD_new_status_ids);
+				}
 				all_statuses.addAll(values_list);
 				// Insert previously fetched items.
 				final Uri insert_query = appendQueryParameters(uri, new NameValuePairImpl(QUERY_PARAM_NEW_ITEMS_COUNT,
 						newly_inserted_ids.size() - rows_deleted), new NameValuePairImpl(QUERY_PARAM_NOTIFY, false));
 				mResolver.bulkInsert(insert_query, values_list.toArray(new ContentValues[values_list.size()]));
 
-				// Insert a gap.
-				// TODO make sure it will not have bugs.
+				// A full page may not reach since_id, leaving a gap below it.
 				final long min_id = status_ids.size() > 0 ? Collections.min(status_ids) : -1;
-				final boolean insert_gap = min_id > 0 && response.load_item_limit <= response.list.size()
-						&& !no_items_before;
-				if (insert_gap) {
-					final ContentValues values = new ContentValues();
-					values.put(Statuses.IS_GAP, 1);
-					final StringBuilder where = new StringBuilder();
-					where.append(Statuses.ACCOUNT_ID + " = " + account_id);
-					where.append(" AND " + Statuses.STATUS_ID + " = " + min_id);
-					final Uri update_uri = appendQueryParameters(uri, new NameValuePairImpl(QUERY_PARAM_NOTIFY, false));
-					mResolver.update(update_uri, values, where.toString(), null);
+				final long max_id = status_ids.size() > 0 ? Collections.max(status_ids) : -1;
+				final boolean is_full_page = response.load_item_limit <= response.list.size();
+				final boolean reached_since_id = response.since_id > 0 && !is_full_page;
+				final long range_min = reached_since_id ? Math.min(response.since_id, min_id) : min_id;
+				final long range_max = response.max_id > 0 ? Math.max(response.max_id, max_id) : max_id;
+				if (TimelineRangeUtils.hasRanges(table)) {
+					TimelineRangeUtils.addRange(mResolver, table, account_id, range_min, range_max);
+				}
+				if (min_id > 0 && is_full_page && !no_items_before) {
 					// Ignore gaps
 					newly_inserted_ids.remove(min_id);
 				}
@@ -2117,19 +2166,19 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 		@Override
 		protected List<TwitterSingleResponse<twitter4j.Status>> doInBackground(final Void... params) {
 
-			final Extractor extractor = new Extractor();
-			final ArrayList<ContentValues> hashtag_values = new ArrayList<ContentValues>();
-			final List<String> hashtags = extractor.extractHashtags(content);
-			for (final String hashtag : hashtags) {
-				final ContentValues values = new ContentValues();
-				values.put(CachedHashtags.NAME, hashtag);
-				hashtag_values.add(values);
+			// Not needed for sending, so it doesn't hold it up.
+			try {
+				TaskScheduler.getInstance().execute(TaskScheduler.LANE_DISK, TaskScheduler.PRIORITY_LOW,
+						new Runnable() {
+
+							@Override
+							public void run() {
+								cacheHashtags();
+							}
+						});
+			} catch (final RejectedExecutionException e) {
+				cacheHashtags();
 			}
-			mResolver.delete(CachedHashtags.CONTENT_URI,
-					CachedHashtags.NAME + " IN (" + ListUtils.toStringForSQL(hashtags.size()) + ")",
-					hashtags.toArray(new String[hashtags.size()]));
-			mResolver.bulkInsert(CachedHashtags.CONTENT_URI,
-					hashtag_values.toArray(new ContentValues[hashtag_values.size()]));
 
 			final List<TwitterSingleResponse<twitter4j.Status>> result = new ArrayList<TwitterSingleResponse<twitter4j.Status>>();
 
@@ -2140,7 +2189,9 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 				if (use_shortener && shortener == null) throw new TweetShortenerNotFoundException();
 
 				final String image_path = getImagePathFromUri(mContext, image_uri);
-				final File image_file = image_path != null ? new File(image_path) : null;
+				final File orig_image_file = image_path != null ? new File(image_path) : null;
+				// Processed once and sent as is from every account.
+				final File image_file = ImageAttachmentProcessor.getInstance(mContext).process(orig_image_file);
 
 				final Uri upload_result_uri;
 				try {
@@ -2162,7 +2213,7 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 				final String screen_name = getAccountScreenName(mContext, account_ids[0]);
 				final String shortened_content;
 				try {
-					if (shortener != null) {
+					if (should_shorten && shortener != null) {
 						shortener.waitForService();
 					}
 					shortened_content = should_shorten && use_shortener ? shortener.shorten(unshortened_content,
@@ -2188,17 +2239,7 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 				}
 				status.setPossiblySensitive(is_possibly_sensitive);
 
-				for (final long account_id : account_ids) {
-					final Twitter twitter = getTwitterInstance(mContext, account_id, false, true);
-					if (twitter != null) {
-						try {
-							result.add(new TwitterSingleResponse<twitter4j.Status>(account_id, twitter
-									.updateStatus(status), null));
-						} catch (final TwitterException e) {
-							result.add(new TwitterSingleResponse<twitter4j.Status>(account_id, null, e));
-						}
-					}
-				}
+				result.addAll(updateStatus(status));
 			} catch (final UpdateStatusException e) {
 				for (final long account_id : account_ids) {
 					result.add(new TwitterSingleResponse<twitter4j.Status>(account_id, null, e));
@@ -2209,12 +2250,14 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 
 		@Override
 		protected void onCancelled() {
+			mNotificationManager.cancel(NOTIFICATION_ID_UPDATE_STATUS);
 			saveDrafts(ListUtils.fromArray(account_ids));
 			super.onCancelled();
 		}
 
 		@Override
 		protected void onPostExecute(final List<TwitterSingleResponse<twitter4j.Status>> result) {
+			mNotificationManager.cancel(NOTIFICATION_ID_UPDATE_STATUS);
 
 			boolean succeed = true;
 			Exception exception = null;
@@ -2253,6 +2296,23 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			}
 		}
 
+		private void cacheHashtags() {
+			final Extractor extractor = new Extractor();
+			final ArrayList<ContentValues> hashtag_values = new ArrayList<ContentValues>();
+			final List<String> hashtags = extractor.extractHashtags(content);
+			if (hashtags.isEmpty()) return;
+			for (final String hashtag : hashtags) {
+				final ContentValues values = new ContentValues();
+				values.put(CachedHashtags.NAME, hashtag);
+				hashtag_values.add(values);
+			}
+			mResolver.delete(CachedHashtags.CONTENT_URI,
+					CachedHashtags.NAME + " IN (" + ListUtils.toStringForSQL(hashtags.size()) + ")",
+					hashtags.toArray(new String[hashtags.size()]));
+			mResolver.bulkInsert(CachedHashtags.CONTENT_URI,
+					hashtag_values.toArray(new ContentValues[hashtag_values.size()]));
+		}
+
 		private void saveDrafts(final List<Long> account_ids) {
 			final ContentValues values = new ContentValues();
 			values.put(Drafts.ACCOUNT_IDS, ListUtils.toString(account_ids, ';', false));
@@ -2271,6 +2331,75 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			mNotificationManager.notify(NOTIFICATION_ID_DRAFTS, notification);
 		}
 
+		private void showProgress(final int sent, final int total) {
+			if (total < 2) return;
+			final NotificationCompat.Builder builder = new NotificationCompat.Builder(mContext);
+			builder.setContentTitle(mContext.getString(R.string.sending_status_progress, sent, total));
+			builder.setSmallIcon(R.drawable.ic_stat_tweet);
+			builder.setOngoing(true);
+			builder.setOnlyAlertOnce(true);
+			builder.setProgress(total, sent, false);
+			builder.setContentIntent(PendingIntent.getActivity(mContext, 0, new Intent(), 0));
+			mNotificationManager.notify(NOTIFICATION_ID_UPDATE_STATUS, builder.build());
+		}
+
+		/**
+		 * Sends the status from all accounts in parallel, progress is shown as
+		 * each of them completes.
+		 */
+		private List<TwitterSingleResponse<twitter4j.Status>> updateStatus(final StatusUpdate status) {
+			final int total = account_ids.length;
+			final AtomicInteger sent = new AtomicInteger();
+			final List<FutureTask<TwitterSingleResponse<twitter4j.Status>>> tasks = new ArrayList<FutureTask<TwitterSingleResponse<twitter4j.Status>>>();
+			for (final long account_id : account_ids) {
+				tasks.add(new FutureTask<TwitterSingleResponse<twitter4j.Status>>(
+						new Callable<TwitterSingleResponse<twitter4j.Status>>() {
+
+							@Override
+							public TwitterSingleResponse<twitter4j.Status> call() {
+								final Twitter twitter = getTwitterInstance(mContext, account_id, false, true);
+								if (twitter == null) return null;
+								try {
+									return new TwitterSingleResponse<twitter4j.Status>(account_id, twitter
+											.updateStatus(status), null);
+								} catch (final TwitterException e) {
+									return new TwitterSingleResponse<twitter4j.Status>(account_id, null, e);
+								} finally {
+									showProgress(sent.incrementAndGet(), total);
+								}
+							}
+						}));
+			}
+			showProgress(0, total);
+			final TaskScheduler scheduler = TaskScheduler.getInstance();
+			// The first one is sent from this thread.
+			for (int i = 1; i < total; i++) {
+				try {
+					scheduler.execute(TaskScheduler.LANE_NETWORK, TaskScheduler.PRIORITY_HIGH, tasks.get(i));
+				} catch (final RejectedExecutionException e) {
+					// Run below from this thread.
+				}
+			}
+			final List<TwitterSingleResponse<twitter4j.Status>> result = new ArrayList<TwitterSingleResponse<twitter4j.Status>>();
+			for (int i = 0; i < total; i++) {
+				final FutureTask<TwitterSingleResponse<twitter4j.Status>> task = tasks.get(i);
+				// Runs tasks still queued, or rejected by the scheduler, here.
+				task.run();
+				try {
+					final TwitterSingleResponse<twitter4j.Status> response = task.get();
+					if (response != null) {
+						result.add(response);
+					}
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					result.add(new TwitterSingleResponse<twitter4j.Status>(account_ids[i], null, e));
+				} catch (final ExecutionException e) {
+					result.add(new TwitterSingleResponse<twitter4j.Status>(account_ids[i], null, e));
+				}
+			}
+			return result;
+		}
+
 		class ImageUploaderNotFoundException extends UpdateStatusException {
 			private static final long serialVersionUID = 1041685850011544106L;
 
@@ -0,0 +1,385 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import static org.mariotaku.twidere.util.Utils.getTableId;
+import static org.mariotaku.twidere.util.Utils.getTableNameById;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+import org.mariotaku.twidere.provider.TweetStore.CachedHashtags;
+import org.mariotaku.twidere.provider.TweetStore.CachedUsers;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * In-memory index of cached users and hashtags for autocompletion. It's
+ * loaded from database on first query, then kept up to date by
+ * {@link org.mariotaku.twidere.provider.TwidereDataProvider} as entries get
+ * cached, updated or deleted.
+ * 
+ * @author mariotaku
+ */
+public class AutoCompleteIndex {
+
+	public static final int MAX_RESULTS = 50;
+
+	// Keeps below the limit of bound arguments of SQLite.
+	private static final int MAX_QUERY_ARGS = 500;
+
+	private static final String[] USERS_PROJECTION = new String[] { CachedUsers.USER_ID, CachedUsers.NAME,
+			CachedUsers.SCREEN_NAME, CachedUsers.PROFILE_IMAGE_URL };
+
+	public static final String[] USERS_COLUMNS = new String[] { CachedUsers._ID, CachedUsers.NAME,
+			CachedUsers.SCREEN_NAME, CachedUsers.PROFILE_IMAGE_URL };
+	public static final String[] HASHTAGS_COLUMNS = new String[] { CachedHashtags._ID, CachedHashtags.NAME };
+
+	private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+
+		@Override
+		public int compare(final Entry object1, final Entry object2) {
+			if (object1.frequency != object2.frequency) return object2.frequency - object1.frequency;
+			if (object1.last_seen != object2.last_seen) return object2.last_seen > object1.last_seen ? 1 : -1;
+			return 0;
+		}
+	};
+
+	private final SQLiteDatabase mDatabase;
+	private final PrefixTrie<UserEntry> mUsersTrie = new PrefixTrie<UserEntry>(ENTRY_COMPARATOR, MAX_RESULTS);
+	private final PrefixTrie<HashtagEntry> mHashtagsTrie = new PrefixTrie<HashtagEntry>(ENTRY_COMPARATOR,
+			MAX_RESULTS);
+	private final HashMap<Long, UserEntry> mUsers = new HashMap<Long, UserEntry>();
+	private final HashMap<String, HashtagEntry> mHashtags = new HashMap<String, HashtagEntry>();
+
+	private boolean mLoaded;
+	private long mSequence;
+
+	public AutoCompleteIndex(final SQLiteDatabase database) {
+		mDatabase = database;
+	}
+
+	public synchronized void addHashtags(final ContentValues... values) {
+		if (!mLoaded || values == null) return;
+		for (final ContentValues value : values) {
+			if (value == null) {
+				continue;
+			}
+			putHashtag(value.getAsString(CachedHashtags.NAME));
+		}
+	}
+
+	public synchronized void addUsers(final ContentValues... values) {
+		if (!mLoaded || values == null) return;
+		for (final ContentValues value : values) {
+			if (value == null) {
+				continue;
+			}
+			final Long user_id = value.getAsLong(CachedUsers.USER_ID);
+			if (user_id == null) {
+				continue;
+			}
+			putUser(user_id, value.getAsString(CachedUsers.NAME), value.getAsString(CachedUsers.SCREEN_NAME),
+					value.getAsString(CachedUsers.PROFILE_IMAGE_URL));
+		}
+	}
+
+	public synchronized void clearHashtags() {
+		mHashtags.clear();
+		mHashtagsTrie.clear();
+	}
+
+	public synchronized void clearUsers() {
+		mUsers.clear();
+		mUsersTrie.clear();
+	}
+
+	/**
+	 * @return Names of the cached hashtags the selection matches, to pass to
+	 *         {@link #reloadHashtags(String[])} after they are changed, or null
+	 *         if the index isn't loaded yet.
+	 */
+	public synchronized String[] findHashtags(final String selection, final String[] selectionArgs) {
+		if (!mLoaded) return null;
+		final Cursor cur = mDatabase.query(getTableNameById(getTableId(CachedHashtags.CONTENT_URI)),
+				new String[] { CachedHashtags.NAME }, selection, selectionArgs, null, null, null);
+		if (cur == null) return null;
+		final HashSet<String> keys = new HashSet<String>();
+		cur.moveToFirst();
+		while (!cur.isAfterLast()) {
+			final String key = normalize(cur.getString(0));
+			if (key != null) {
+				keys.add(key);
+			}
+			cur.moveToNext();
+		}
+		cur.close();
+		return keys.toArray(new String[keys.size()]);
+	}
+
+	/**
+	 * @return Ids of the cached users the selection matches, to pass to
+	 *         {@link #reloadUsers(long[])} after they are changed, or null if
+	 *         the index isn't loaded yet.
+	 */
+	public synchronized long[] findUsers(final String selection, final String[] selectionArgs) {
+		if (!mLoaded) return null;
+		final Cursor cur = mDatabase.query(getTableNameById(getTableId(CachedUsers.CONTENT_URI)),
+				new String[] { CachedUsers.USER_ID }, selection, selectionArgs, null, null, null);
+		if (cur == null) return null;
+		final long[] user_ids = new long[cur.getCount()];
+		cur.moveToFirst();
+		for (int i = 0; i < user_ids.length; i++, cur.moveToNext()) {
+			user_ids[i] = cur.getLong(0);
+		}
+		cur.close();
+		return user_ids;
+	}
+
+	public synchronized Cursor queryHashtags(final String prefix) {
+		ensureLoaded();
+		final List<HashtagEntry> entries = mHashtagsTrie.query(normalize(prefix));
+		final MatrixCursor cursor = new MatrixCursor(HASHTAGS_COLUMNS, entries.size());
+		for (final HashtagEntry entry : entries) {
+			cursor.addRow(new Object[] { entry.id, entry.name });
+		}
+		return cursor;
+	}
+
+	public synchronized Cursor queryUsers(final String prefix) {
+		ensureLoaded();
+		final List<UserEntry> entries = mUsersTrie.query(normalize(prefix));
+		final MatrixCursor cursor = new MatrixCursor(USERS_COLUMNS, entries.size());
+		for (final UserEntry entry : entries) {
+			cursor.addRow(new Object[] { entry.user_id, entry.name, entry.screen_name, entry.profile_image_url });
+		}
+		return cursor;
+	}
+
+	/**
+	 * Reads all cached hashtags again, after they are updated without a
+	 * selection.
+	 */
+	public synchronized void rebuildHashtags() {
+		if (!mLoaded) return;
+		clearHashtags();
+		loadHashtags();
+	}
+
+	/**
+	 * Reads all cached users again, after they are updated without a
+	 * selection.
+	 */
+	public synchronized void rebuildUsers() {
+		if (!mLoaded) return;
+		clearUsers();
+		loadUsers();
+	}
+
+	/**
+	 * Reads the hashtags again after they are updated or deleted in database.
+	 * Hashtags no longer cached stop showing up, but keep their frequency in
+	 * case they are cached again.
+	 */
+	public synchronized void reloadHashtags(final String[] keys) {
+		if (!mLoaded || keys == null || keys.length == 0) return;
+		for (final String key : keys) {
+			final HashtagEntry entry = mHashtags.get(key);
+			if (entry != null && entry.indexed) {
+				mHashtagsTrie.remove(key, entry);
+				entry.indexed = false;
+			}
+		}
+		final String table = getTableNameById(getTableId(CachedHashtags.CONTENT_URI));
+		for (int start = 0; start < keys.length; start += MAX_QUERY_ARGS) {
+			final String[] args = ArrayUtils.subArray(keys, start, Math.min(keys.length, start + MAX_QUERY_ARGS));
+			final String where = CachedHashtags.NAME + " COLLATE NOCASE IN (" + ListUtils.toStringForSQL(args.length)
+					+ ")";
+			final Cursor cur = mDatabase.query(table, new String[] { CachedHashtags.NAME }, where, args, null, null,
+					null);
+			if (cur == null) {
+				continue;
+			}
+			cur.moveToFirst();
+			while (!cur.isAfterLast()) {
+				final String key = normalize(cur.getString(0));
+				final HashtagEntry entry = mHashtags.get(key);
+				if (entry == null) {
+					putHashtag(cur.getString(0));
+				} else if (!entry.indexed) {
+					mHashtagsTrie.put(key, entry);
+					entry.indexed = true;
+				}
+				cur.moveToNext();
+			}
+			cur.close();
+		}
+	}
+
+	/**
+	 * Reads the users again after they are updated or deleted in database.
+	 * Users no longer cached stop showing up, but keep their frequency in case
+	 * they are cached again.
+	 */
+	public synchronized void reloadUsers(final long[] user_ids) {
+		if (!mLoaded || user_ids == null || user_ids.length == 0) return;
+		for (final long user_id : user_ids) {
+			final UserEntry entry = mUsers.get(user_id);
+			if (entry != null) {
+				unindexUser(entry);
+			}
+		}
+		final String table = getTableNameById(getTableId(CachedUsers.CONTENT_URI));
+		for (int start = 0; start < user_ids.length; start += MAX_QUERY_ARGS) {
+			final long[] ids = ArrayUtils.subArray(user_ids, start, Math.min(user_ids.length, start + MAX_QUERY_ARGS));
+			final String where = CachedUsers.USER_ID + " IN (" + ArrayUtils.toString(ids, ',', false) + ")";
+			final Cursor cur = mDatabase.query(table, USERS_PROJECTION, where, null, null, null, null);
+			if (cur == null) {
+				continue;
+			}
+			cur.moveToFirst();
+			while (!cur.isAfterLast()) {
+				final UserEntry entry = mUsers.get(cur.getLong(0));
+				if (entry == null) {
+					putUser(cur.getLong(0), cur.getString(1), cur.getString(2), cur.getString(3));
+				} else {
+					indexUser(entry, cur.getString(1), cur.getString(2), cur.getString(3));
+				}
+				cur.moveToNext();
+			}
+			cur.close();
+		}
+	}
+
+	private void ensureLoaded() {
+		if (mLoaded || mDatabase == null) return;
+		loadUsers();
+		loadHashtags();
+		mLoaded = true;
+	}
+
+	private void loadHashtags() {
+		final String table = getTableNameById(getTableId(CachedHashtags.CONTENT_URI));
+		final Cursor cur = mDatabase.query(table, new String[] { CachedHashtags.NAME }, null, null, null, null,
+				CachedHashtags._ID);
+		if (cur == null) return;
+		cur.moveToFirst();
+		while (!cur.isAfterLast()) {
+			putHashtag(cur.getString(0));
+			cur.moveToNext();
+		}
+		cur.close();
+	}
+
+	private void loadUsers() {
+		final String table = getTableNameById(getTableId(CachedUsers.CONTENT_URI));
+		final Cursor cur = mDatabase.query(table, USERS_PROJECTION, null, null, null, null, CachedUsers._ID);
+		if (cur == null) return;
+		cur.moveToFirst();
+		while (!cur.isAfterLast()) {
+			putUser(cur.getLong(0), cur.getString(1), cur.getString(2), cur.getString(3));
+			cur.moveToNext();
+		}
+		cur.close();
+	}
+
+	private void putHashtag(final String name) {
+		final String key = normalize(name);
+		if (key == null || key.length() == 0) return;
+		HashtagEntry entry = mHashtags.get(key);
+		if (entry == null) {
+			entry = new HashtagEntry(mHashtags.size(), name);
+			mHashtags.put(key, entry);
+		} else {
+			entry.frequency++;
+		}
+		entry.last_seen = ++mSequence;
+		mHashtagsTrie.put(key, entry);
+		entry.indexed = true;
+	}
+
+	private void putUser(final long user_id, final String name, final String screen_name,
+			final String profile_image_url) {
+		UserEntry entry = mUsers.get(user_id);
+		if (entry == null) {
+			entry = new UserEntry(user_id);
+			mUsers.put(user_id, entry);
+		} else {
+			entry.frequency++;
+		}
+		entry.last_seen = ++mSequence;
+		indexUser(entry, name, screen_name, profile_image_url);
+	}
+
+	private void indexUser(final UserEntry entry, final String name, final String screen_name,
+			final String profile_image_url) {
+		unindexUser(entry);
+		entry.name = name;
+		entry.screen_name = screen_name;
+		if (profile_image_url != null) {
+			entry.profile_image_url = profile_image_url;
+		}
+		mUsersTrie.put(normalize(screen_name), entry);
+		mUsersTrie.put(normalize(name), entry);
+		entry.indexed = true;
+	}
+
+	private void unindexUser(final UserEntry entry) {
+		if (!entry.indexed) return;
+		mUsersTrie.remove(normalize(entry.screen_name), entry);
+		mUsersTrie.remove(normalize(entry.name), entry);
+		entry.indexed = false;
+	}
+
+	private static String normalize(final String string) {
+		return string != null ? string.toLowerCase(Locale.US) : null;
+	}
+
+	static class Entry {
+		int frequency = 1;
+		long last_seen;
+		boolean indexed;
+	}
+
+	static final class HashtagEntry extends Entry {
+		final long id;
+		final String name;
+
+		HashtagEntry(final long id, final String name) {
+			this.id = id;
+			this.name = name;
+		}
+	}
+
+	static final class UserEntry extends Entry {
+		final long user_id;
+		String name, screen_name, profile_image_url;
+
+		UserEntry(final long user_id) {
+			this.user_id = user_id;
+		}
+	}
+}
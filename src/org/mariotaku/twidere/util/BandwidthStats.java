@@ -0,0 +1,128 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.mariotaku.twidere.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Counts network traffic avoided by compressed responses, conditional requests
+ * and cached redirects.
+ */
+public final class BandwidthStats {
+
+	private static BandwidthStats sInstance;
+
+	private final AtomicLong mCompressedBytes = new AtomicLong();
+	private final AtomicLong mDecompressedBytes = new AtomicLong();
+	private final AtomicLong mNotModifiedResponses = new AtomicLong();
+	private final AtomicLong mNotModifiedBytes = new AtomicLong();
+	private final AtomicLong mRedirectCacheHits = new AtomicLong();
+	private final AtomicLong mRedirectsSkipped = new AtomicLong();
+
+	private BandwidthStats() {
+	}
+
+	public long getBytesSaved() {
+		return Math.max(0, mDecompressedBytes.get() - mCompressedBytes.get()) + mNotModifiedBytes.get();
+	}
+
+	public void onNotModified(final long cached_length) {
+		mNotModifiedResponses.incrementAndGet();
+		mNotModifiedBytes.addAndGet(Math.max(0, cached_length));
+	}
+
+	public void onRedirectCacheHit(final int redirects_skipped) {
+		mRedirectCacheHits.incrementAndGet();
+		mRedirectsSkipped.addAndGet(redirects_skipped);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("gzip: ").append(mCompressedBytes.get()).append(" -> ").append(mDecompressedBytes.get())
+				.append(" bytes\n");
+		builder.append("304: ").append(mNotModifiedResponses.get()).append(" responses, ")
+				.append(mNotModifiedBytes.get()).append(" bytes\n");
+		builder.append("redirect cache: ").append(mRedirectCacheHits.get()).append(" hits, ")
+				.append(mRedirectsSkipped.get()).append(" requests skipped\n");
+		builder.append("saved: ").append(getBytesSaved()).append(" bytes");
+		return builder.toString();
+	}
+
+	/**
+	 * Wraps a gzip encoded response body, counting bytes on both sides of the
+	 * decompression.
+	 */
+	public InputStream wrapGZIPStream(final InputStream is) throws IOException {
+		return new CountingInputStream(new GZIPInputStream(new CountingInputStream(is, mCompressedBytes)),
+				mDecompressedBytes);
+	}
+
+	public static BandwidthStats getInstance() {
+		synchronized (BandwidthStats.class) {
+			if (sInstance == null) {
+				sInstance = new BandwidthStats();
+			}
+			return sInstance;
+		}
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+
+		private final AtomicLong mCounter;
+
+		CountingInputStream(final InputStream in, final AtomicLong counter) {
+			super(in);
+			mCounter = counter;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b >= 0) {
+				mCounter.incrementAndGet();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] buffer, final int offset, final int count) throws IOException {
+			final int read = super.read(buffer, offset, count);
+			if (read > 0) {
+				mCounter.addAndGet(read);
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(final long count) throws IOException {
+			final long skipped = super.skip(count);
+			if (skipped > 0) {
+				mCounter.addAndGet(skipped);
+			}
+			return skipped;
+		}
+	}
+}
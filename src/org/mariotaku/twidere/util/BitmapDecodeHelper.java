@@ -31,36 +31,34 @@ public class BitmapDecodeHelper {
 		if (is == null) return null;
 		final int orientation = Exif.getOrientation(is);
 		final Bitmap bm = BitmapFactory.decodeStream(is, null, opts);
-		final Matrix m = new Matrix();
-		switch (orientation) {
-			case 270:
-			case 90:
-				m.postRotate(orientation);
-				return Bitmap.createBitmap(bm, 0, 0, bm.getWidth(), bm.getHeight(), m, true);
-			case 180:
-				m.postRotate(orientation);
-				m.postScale(bm.getWidth(), bm.getHeight());
-				return Bitmap.createBitmap(bm, 0, 0, bm.getWidth(), bm.getHeight(), m, true);
-		}
-		return bm;
+		if (bm == null) return null;
+		return rotate(bm, orientation);
 	}
 
 	public static Bitmap decode(final String path, final BitmapFactory.Options opts) {
 		if (path == null || opts == null) return null;
 		final Bitmap bm = BitmapFactory.decodeFile(path, opts);
-		final Matrix m = new Matrix();
-		final int orientation = Exif.getOrientation(path);
+		if (bm == null) return null;
+		return rotate(bm, Exif.getOrientation(path));
+	}
+
+	private static Bitmap rotate(final Bitmap bm, final int orientation) {
 		switch (orientation) {
-			case 270:
 			case 90:
-				m.postRotate(orientation);
-				return Bitmap.createBitmap(bm, 0, 0, bm.getWidth(), bm.getHeight(), m, true);
 			case 180:
-				m.postRotate(orientation);
-				m.postScale(bm.getWidth(), bm.getHeight());
-				return Bitmap.createBitmap(bm, 0, 0, bm.getWidth(), bm.getHeight(), m, true);
+			case 270:
+				break;
+			default:
+				return bm;
+		}
+		final Matrix m = new Matrix();
+		m.postRotate(orientation);
+		final Bitmap rotated = Bitmap.createBitmap(bm, 0, 0, bm.getWidth(), bm.getHeight(), m, true);
+		// The unrotated copy is a full size bitmap we no longer need.
+		if (rotated != bm) {
+			bm.recycle();
 		}
-		return bm;
+		return rotated;
 	}
 
 }
@@ -19,10 +19,12 @@
 
 package org.mariotaku.twidere.util;
 
+import static org.mariotaku.twidere.util.Utils.getAccountIds;
 import static org.mariotaku.twidere.util.Utils.makeCachedUserContentValues;
 import static org.mariotaku.twidere.util.Utils.makeStatusContentValues;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import org.mariotaku.twidere.R;
@@ -41,10 +43,12 @@ import com.twitter.Extractor;
 public class CacheUsersStatusesTask extends AsyncTask<Void, Void, Void> {
 
 	private final TwitterListResponse<twitter4j.Status>[] all_statuses;
+	private final Context context;
 	private final ContentResolver resolver;
 	private final boolean large_profile_image;
 
 	public CacheUsersStatusesTask(final Context context, final TwitterListResponse<twitter4j.Status>... all_statuses) {
+		this.context = context;
 		resolver = context.getContentResolver();
 		this.all_statuses = all_statuses;
 		large_profile_image = context.getResources().getBoolean(R.bool.hires_profile_image);
@@ -58,6 +62,7 @@ public class CacheUsersStatusesTask extends AsyncTask<Void, Void, Void> {
 		final ArrayList<ContentValues> hashtag_values = new ArrayList<ContentValues>();
 		final ArrayList<Long> user_ids = new ArrayList<Long>(), status_ids = new ArrayList<Long>();
 		final Extractor extractor = new Extractor();
+		final long[] account_ids = getAccountIds(context);
 
 		final ArrayList<String> hashtags = new ArrayList<String>();
 
@@ -74,7 +79,8 @@ public class CacheUsersStatusesTask extends AsyncTask<Void, Void, Void> {
 				final long user_id = user.getId(), status_id = status.getId();
 				if (!status_ids.contains(status_id)) {
 					status_ids.add(status.getId());
-					cached_statuses_values.add(makeStatusContentValues(status, values.account_id, large_profile_image));
+					cached_statuses_values.add(makeStatusContentValues(status, values.account_id, account_ids,
+							large_profile_image));
 				}
 				if (!user_ids.contains(user_id)) {
 					user_ids.add(user_id);
@@ -83,8 +89,9 @@ public class CacheUsersStatusesTask extends AsyncTask<Void, Void, Void> {
 				hashtags.addAll(extractor.extractHashtags(status.getText()));
 			}
 		}
+		final HashSet<String> hashtags_set = new HashSet<String>();
 		for (final String hashtag : hashtags) {
-			if (hashtags.contains(hashtag)) {
+			if (!hashtags_set.add(hashtag)) {
 				continue;
 			}
 			final ContentValues hashtag_value = new ContentValues();
@@ -107,6 +114,11 @@ public class CacheUsersStatusesTask extends AsyncTask<Void, Void, Void> {
 		return null;
 	}
 
+	@Override
+	protected int getSchedulerLane() {
+		return TaskScheduler.LANE_DISK;
+	}
+
 	public static Runnable getRunnable(final Context context,
 			final TwitterListResponse<twitter4j.Status>... all_statuses) {
 		return new ExecuteCacheUserStatusesTaskRunnable(context, all_statuses);
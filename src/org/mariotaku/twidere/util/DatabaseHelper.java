@@ -21,7 +21,9 @@ package org.mariotaku.twidere.util;
 
 import static org.mariotaku.twidere.util.DatabaseUpgradeHelper.safeUpgrade;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.provider.TweetStore.Accounts;
@@ -33,10 +35,14 @@ import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
 import org.mariotaku.twidere.provider.TweetStore.Drafts;
 import org.mariotaku.twidere.provider.TweetStore.Filters;
 import org.mariotaku.twidere.provider.TweetStore.Mentions;
+import org.mariotaku.twidere.provider.TweetStore.SearchIndex;
 import org.mariotaku.twidere.provider.TweetStore.Statuses;
 import org.mariotaku.twidere.provider.TweetStore.Tabs;
+import org.mariotaku.twidere.provider.TweetStore.TimelineRanges;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
@@ -46,26 +52,40 @@ public final class DatabaseHelper extends SQLiteOpenHelper implements Constants
 		super(context, name, null, version);
 	}
 
+	/**
+	 * Statements creating the tables, the search index and the indices of a
+	 * new database. The benchmarks run them too, so they measure the same
+	 * schema.
+	 */
+	public static List<String> getCreateStatements() {
+		final List<String> sql = new ArrayList<String>();
+		sql.add(createTable(TABLE_ACCOUNTS, Accounts.COLUMNS, Accounts.TYPES, true));
+		sql.add(createTable(TABLE_STATUSES, Statuses.COLUMNS, Statuses.TYPES, true));
+		sql.add(createTable(TABLE_MENTIONS, Mentions.COLUMNS, Mentions.TYPES, true));
+		sql.add(createTable(TABLE_DRAFTS, Drafts.COLUMNS, Drafts.TYPES, true));
+		sql.add(createTable(TABLE_CACHED_USERS, CachedUsers.COLUMNS, CachedUsers.TYPES, true));
+		sql.add(createTable(TABLE_CACHED_STATUSES, CachedStatuses.COLUMNS, CachedStatuses.TYPES, true));
+		sql.add(createTable(TABLE_CACHED_HASHTAGS, CachedHashtags.COLUMNS, CachedHashtags.TYPES, true));
+		sql.add(createTable(TABLE_FILTERED_USERS, Filters.Users.COLUMNS, Filters.Users.TYPES, true));
+		sql.add(createTable(TABLE_FILTERED_KEYWORDS, Filters.Keywords.COLUMNS, Filters.Keywords.TYPES, true));
+		sql.add(createTable(TABLE_FILTERED_SOURCES, Filters.Sources.COLUMNS, Filters.Sources.TYPES, true));
+		sql.add(createTable(TABLE_FILTERED_LINKS, Filters.Links.COLUMNS, Filters.Links.TYPES, true));
+		sql.add(createTable(TABLE_DIRECT_MESSAGES_INBOX, DirectMessages.Inbox.COLUMNS, DirectMessages.Inbox.TYPES,
+				true));
+		sql.add(createTable(TABLE_DIRECT_MESSAGES_OUTBOX, DirectMessages.Outbox.COLUMNS, DirectMessages.Outbox.TYPES,
+				true));
+		sql.add(createTable(TABLE_TRENDS_LOCAL, CachedTrends.Local.COLUMNS, CachedTrends.Local.TYPES, true));
+		sql.add(createTable(TABLE_TABS, Tabs.COLUMNS, Tabs.TYPES, true));
+		sql.add(createTable(TABLE_TIMELINE_RANGES, TimelineRanges.COLUMNS, TimelineRanges.TYPES, true));
+		addSearchIndex(sql);
+		addIndices(sql);
+		return sql;
+	}
+
 	@Override
 	public void onCreate(final SQLiteDatabase db) {
 		db.beginTransaction();
-		db.execSQL(createTable(TABLE_ACCOUNTS, Accounts.COLUMNS, Accounts.TYPES, true));
-		db.execSQL(createTable(TABLE_STATUSES, Statuses.COLUMNS, Statuses.TYPES, true));
-		db.execSQL(createTable(TABLE_MENTIONS, Mentions.COLUMNS, Mentions.TYPES, true));
-		db.execSQL(createTable(TABLE_DRAFTS, Drafts.COLUMNS, Drafts.TYPES, true));
-		db.execSQL(createTable(TABLE_CACHED_USERS, CachedUsers.COLUMNS, CachedUsers.TYPES, true));
-		db.execSQL(createTable(TABLE_CACHED_STATUSES, CachedStatuses.COLUMNS, CachedStatuses.TYPES, true));
-		db.execSQL(createTable(TABLE_CACHED_HASHTAGS, CachedHashtags.COLUMNS, CachedHashtags.TYPES, true));
-		db.execSQL(createTable(TABLE_FILTERED_USERS, Filters.Users.COLUMNS, Filters.Users.TYPES, true));
-		db.execSQL(createTable(TABLE_FILTERED_KEYWORDS, Filters.Keywords.COLUMNS, Filters.Keywords.TYPES, true));
-		db.execSQL(createTable(TABLE_FILTERED_SOURCES, Filters.Sources.COLUMNS, Filters.Sources.TYPES, true));
-		db.execSQL(createTable(TABLE_FILTERED_LINKS, Filters.Links.COLUMNS, Filters.Links.TYPES, true));
-		db.execSQL(createTable(TABLE_DIRECT_MESSAGES_INBOX, DirectMessages.Inbox.COLUMNS, DirectMessages.Inbox.TYPES,
-				true));
-		db.execSQL(createTable(TABLE_DIRECT_MESSAGES_OUTBOX, DirectMessages.Outbox.COLUMNS,
-				DirectMessages.Outbox.TYPES, true));
-		db.execSQL(createTable(TABLE_TRENDS_LOCAL, CachedTrends.Local.COLUMNS, CachedTrends.Local.TYPES, true));
-		db.execSQL(createTable(TABLE_TABS, Tabs.COLUMNS, Tabs.TYPES, true));
+		execSQL(db, getCreateStatements());
 		db.setTransactionSuccessful();
 		db.endTransaction();
 	}
@@ -78,9 +98,14 @@ public final class DatabaseHelper extends SQLiteOpenHelper implements Constants
 	@Override
 	public void onUpgrade(final SQLiteDatabase db, final int oldVersion, final int newVersion) {
 		handleVersionChange(db);
+		// Mentioned account IDs are stored since version 45.
+		if (oldVersion < 45) {
+			fillMentionedAccountIds(db, TABLE_STATUSES);
+			fillMentionedAccountIds(db, TABLE_MENTIONS);
+		}
 	}
 
-	private String createTable(final String tableName, final String[] columns, final String[] types,
+	private static String createTable(final String tableName, final String[] columns, final String[] types,
 			final boolean create_if_not_exists) {
 		if (tableName == null || columns == null || types == null || types.length != columns.length
 				|| types.length == 0)
@@ -123,6 +148,106 @@ public final class DatabaseHelper extends SQLiteOpenHelper implements Constants
 				true, null);
 		safeUpgrade(db, TABLE_TRENDS_LOCAL, CachedTrends.Local.COLUMNS, CachedTrends.Local.TYPES, true, true, null);
 		safeUpgrade(db, TABLE_TABS, Tabs.COLUMNS, Tabs.TYPES, true, false, null);
+		safeUpgrade(db, TABLE_TIMELINE_RANGES, TimelineRanges.COLUMNS, TimelineRanges.TYPES, true, true, null);
+		TimelineRangeUtils.seedRanges(db, TABLE_STATUSES);
+		TimelineRangeUtils.seedRanges(db, TABLE_MENTIONS);
+		// Tables may have been recreated, so the index is rebuilt from
+		// scratch.
+		final List<String> sql = new ArrayList<String>();
+		sql.add("DROP TABLE IF EXISTS " + TABLE_SEARCH_INDEX);
+		addSearchIndex(sql);
+		addIndices(sql);
+		execSQL(db, sql);
+	}
+
+	/**
+	 * Marks statuses stored before {@link Statuses#MENTIONED_ACCOUNT_IDS}
+	 * existed, with the same check timelines used before, whether the text
+	 * contains the screen name of the account.
+	 */
+	private static void fillMentionedAccountIds(final SQLiteDatabase db, final String table) {
+		final Cursor cur = db.query(TABLE_ACCOUNTS, new String[] { Accounts.ACCOUNT_ID, Accounts.SCREEN_NAME }, null,
+				null, null, null, null);
+		if (cur == null) return;
+		final String where = Statuses.ACCOUNT_ID + " = ? AND " + Statuses.MENTIONED_ACCOUNT_IDS + " IS NULL AND "
+				+ Statuses.TEXT_PLAIN + " LIKE ? ESCAPE '\\'";
+		for (cur.moveToFirst(); !cur.isAfterLast(); cur.moveToNext()) {
+			final String account_id = String.valueOf(cur.getLong(0)), screen_name = cur.getString(1);
+			if (screen_name == null || screen_name.length() == 0) {
+				continue;
+			}
+			// LIKE ignores case of ASCII letters, and screen names have no
+			// wildcards but underscore.
+			final String pattern = "%@" + screen_name.replace("_", "\\_") + "%";
+			final ContentValues values = new ContentValues();
+			values.put(Statuses.MENTIONED_ACCOUNT_IDS, account_id);
+			db.update(table, values, where, new String[] { account_id, pattern });
+		}
+		cur.close();
+	}
+
+	private static void addIndices(final List<String> sql) {
+		sql.add("CREATE INDEX IF NOT EXISTS " + TABLE_CACHED_USERS + "_user_id ON " + TABLE_CACHED_USERS + " ("
+				+ CachedUsers.USER_ID + ");");
+		sql.add("CREATE INDEX IF NOT EXISTS " + TABLE_CACHED_USERS + "_screen_name ON " + TABLE_CACHED_USERS
+				+ " (" + CachedUsers.SCREEN_NAME + " COLLATE NOCASE);");
+		// Looking up the oldest status of a timeline range.
+		sql.add("CREATE INDEX IF NOT EXISTS " + TABLE_STATUSES + "_account_status_id ON " + TABLE_STATUSES + " ("
+				+ Statuses.ACCOUNT_ID + ", " + Statuses.STATUS_ID + ");");
+		sql.add("CREATE INDEX IF NOT EXISTS " + TABLE_MENTIONS + "_account_status_id ON " + TABLE_MENTIONS + " ("
+				+ Statuses.ACCOUNT_ID + ", " + Statuses.STATUS_ID + ");");
+		sql.add("CREATE INDEX IF NOT EXISTS " + TABLE_TIMELINE_RANGES + "_timeline_account_id ON "
+				+ TABLE_TIMELINE_RANGES + " (" + TimelineRanges.TIMELINE + ", " + TimelineRanges.ACCOUNT_ID + ");");
+	}
+
+	private static void addSearchIndex(final List<String> sql) {
+		sql.add("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_SEARCH_INDEX + " USING fts3("
+				+ ArrayUtils.toString(SearchIndex.COLUMNS, ',', false) + ");");
+		final String[] statuses_values = new String[] { Statuses.TEXT_PLAIN, Statuses.SCREEN_NAME, Statuses.NAME };
+		addSearchIndexTriggers(sql, TABLE_STATUSES, TABLE_ID_STATUSES, statuses_values);
+		addSearchIndexTriggers(sql, TABLE_MENTIONS, TABLE_ID_MENTIONS, statuses_values);
+		addSearchIndexTriggers(sql, TABLE_CACHED_STATUSES, TABLE_ID_CACHED_STATUSES, statuses_values);
+		final String[] messages_values = new String[] { DirectMessages.TEXT_PLAIN,
+				DirectMessages.SENDER_SCREEN_NAME + " || ' ' || {row}." + DirectMessages.RECIPIENT_SCREEN_NAME,
+				DirectMessages.SENDER_NAME + " || ' ' || {row}." + DirectMessages.RECIPIENT_NAME };
+		addSearchIndexTriggers(sql, TABLE_DIRECT_MESSAGES_INBOX, TABLE_ID_DIRECT_MESSAGES_INBOX, messages_values);
+		addSearchIndexTriggers(sql, TABLE_DIRECT_MESSAGES_OUTBOX, TABLE_ID_DIRECT_MESSAGES_OUTBOX, messages_values);
+	}
+
+	/**
+	 * Indexes existing rows of the table, and creates triggers keeping the
+	 * index in sync with it.
+	 * 
+	 * @param values expressions of the indexed row for
+	 *            {@link SearchIndex#COLUMNS}, "{row}" is replaced with the row
+	 *            name.
+	 */
+	private static void addSearchIndexTriggers(final List<String> sql, final String table, final int table_id,
+			final String[] values) {
+		final String docid = " * " + SearchIndex.SOURCE_MULTIPLIER + " + " + table_id;
+		final String columns = SearchIndex.DOCID + ", " + ArrayUtils.toString(SearchIndex.COLUMNS, ',', false);
+		final StringBuilder new_values = new StringBuilder("new." + Statuses._ID + docid);
+		final StringBuilder old_values = new StringBuilder(Statuses._ID + docid);
+		for (final String value : values) {
+			new_values.append(", new." + value.replace("{row}", "new"));
+			old_values.append(", " + value.replace("{row}.", ""));
+		}
+		sql.add("INSERT INTO " + TABLE_SEARCH_INDEX + " (" + columns + ") SELECT " + old_values + " FROM " + table
+				+ ";");
+		final String where_old = " WHERE " + SearchIndex.DOCID + " = old." + Statuses._ID + docid + ";";
+		sql.add("CREATE TRIGGER IF NOT EXISTS " + table + "_search_index_insert AFTER INSERT ON " + table
+				+ " BEGIN INSERT INTO " + TABLE_SEARCH_INDEX + " (" + columns + ") VALUES (" + new_values + "); END;");
+		sql.add("CREATE TRIGGER IF NOT EXISTS " + table + "_search_index_delete AFTER DELETE ON " + table
+				+ " BEGIN DELETE FROM " + TABLE_SEARCH_INDEX + where_old + " END;");
+		sql.add("CREATE TRIGGER IF NOT EXISTS " + table + "_search_index_update AFTER UPDATE ON " + table
+				+ " BEGIN DELETE FROM " + TABLE_SEARCH_INDEX + where_old + " INSERT INTO " + TABLE_SEARCH_INDEX
+				+ " (" + columns + ") VALUES (" + new_values + "); END;");
+	}
+
+	private static void execSQL(final SQLiteDatabase db, final List<String> sql) {
+		for (final String statement : sql) {
+			db.execSQL(statement);
+		}
 	}
 
 }
@@ -0,0 +1,215 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mariotaku.twidere.util;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.mariotaku.twidere.Constants;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.IBinder;
+import android.util.Log;
+
+/**
+ * Keeps one connection per extension service, so image uploaders and tweet
+ * shorteners are bound once and their binders are reused until the service
+ * disconnects.
+ * <p>
+ * Binder callbacks arrive on the main thread, so never wait for a connection
+ * there.
+ */
+public final class ExtensionServiceConnector implements Constants {
+
+	public static final long DEFAULT_TIMEOUT = 10 * 1000;
+
+	private static ExtensionServiceConnector sInstance;
+
+	private final Context mContext;
+	private final HashMap<String, Connection> mConnections = new HashMap<String, Connection>();
+
+	private ExtensionServiceConnector(final Context context) {
+		mContext = context;
+	}
+
+	/**
+	 * @return Future of the service binder, or null if the component doesn't
+	 *         handle the action.
+	 */
+	public synchronized Future<IBinder> connect(final String action, final String component_name) {
+		if (action == null || component_name == null) return null;
+		final ComponentName component = ComponentName.unflattenFromString(component_name);
+		if (component == null) return null;
+		final String key = action + "/" + component.flattenToString();
+		Connection connection = mConnections.get(key);
+		if (connection != null && connection.isUsable()) return connection;
+		final Intent intent = new Intent(action);
+		intent.setComponent(component);
+		if (connection == null && mContext.getPackageManager().queryIntentServices(intent, 0).size() != 1)
+			return null;
+		if (connection == null) {
+			connection = new Connection(key);
+			mConnections.put(key, connection);
+		} else {
+			// Service went away, binding the same connection again replaces
+			// the dead one.
+			try {
+				mContext.unbindService(connection);
+			} catch (final IllegalArgumentException e) {
+				// Not bound any more.
+			}
+		}
+		connection.onBind();
+		if (mContext.startService(intent) == null || !mContext.bindService(intent, connection, 0)) {
+			Log.w(LOGTAG, "Failed to bind to " + key);
+			mConnections.remove(key);
+			return null;
+		}
+		return connection;
+	}
+
+	/**
+	 * Binds to the service in advance, so it's ready when it's used.
+	 */
+	public void prewarm(final String action, final String component_name) {
+		connect(action, component_name);
+	}
+
+	public static synchronized ExtensionServiceConnector getInstance(final Context context) {
+		if (sInstance == null) {
+			sInstance = new ExtensionServiceConnector(context.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	/**
+	 * Waits for the binder, for at most {@link #DEFAULT_TIMEOUT}.
+	 */
+	public static IBinder getBinder(final Future<IBinder> future) throws TimeoutException {
+		if (future == null) return null;
+		try {
+			return future.get(DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (final ExecutionException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Unbinds a connection whose service never connected, so the next
+	 * {@link #connect(String, String)} binds again.
+	 */
+	private synchronized void disconnect(final Connection connection) {
+		if (mConnections.get(connection.mKey) == connection) {
+			mConnections.remove(connection.mKey);
+		}
+		try {
+			mContext.unbindService(connection);
+		} catch (final IllegalArgumentException e) {
+			// Not bound any more.
+		}
+	}
+
+	private final class Connection implements ServiceConnection, Future<IBinder> {
+
+		private final String mKey;
+		private IBinder mBinder;
+		private boolean mBinding;
+
+		Connection(final String key) {
+			mKey = key;
+		}
+
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			return false;
+		}
+
+		@Override
+		public synchronized IBinder get() throws InterruptedException {
+			while (mBinder == null) {
+				wait();
+			}
+			return mBinder;
+		}
+
+		@Override
+		public IBinder get(final long timeout, final TimeUnit unit) throws InterruptedException, TimeoutException {
+			final IBinder binder = awaitBinder(unit.toMillis(timeout));
+			if (binder != null) return binder;
+			disconnect(this);
+			throw new TimeoutException("Extension service not connected");
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+
+		@Override
+		public synchronized boolean isDone() {
+			return mBinder != null;
+		}
+
+		@Override
+		public synchronized void onServiceConnected(final ComponentName name, final IBinder service) {
+			mBinder = service;
+			mBinding = false;
+			notifyAll();
+		}
+
+		@Override
+		public synchronized void onServiceDisconnected(final ComponentName name) {
+			mBinder = null;
+			mBinding = false;
+		}
+
+		// Returns null if the service didn't connect in time.
+		private synchronized IBinder awaitBinder(final long timeout) throws InterruptedException {
+			final long deadline = System.currentTimeMillis() + timeout;
+			while (mBinder == null) {
+				final long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					mBinding = false;
+					return null;
+				}
+				wait(remaining);
+			}
+			return mBinder;
+		}
+
+		synchronized boolean isUsable() {
+			if (mBinder != null) return mBinder.isBinderAlive();
+			return mBinding;
+		}
+
+		synchronized void onBind() {
+			mBinder = null;
+			mBinding = true;
+		}
+	}
+}
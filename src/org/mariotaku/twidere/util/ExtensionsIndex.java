@@ -0,0 +1,194 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.mariotaku.twidere.Constants;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+
+/**
+ * Persisted list of installed extension packages. It's built by scanning all
+ * installed apps, and kept up to date from package broadcasts after that. A
+ * fingerprint of installed packages is stored with it, so changes missed while
+ * we weren't running cause a rebuild.
+ */
+public final class ExtensionsIndex implements Constants {
+
+	// Package names always contain a dot, so this can't clash with them.
+	private static final String KEY_FINGERPRINT = "fingerprint";
+
+	private static ExtensionsIndex sInstance;
+
+	private final PackageManager mPackageManager;
+	private final SharedPreferences mPreferences;
+
+	private ExtensionsIndex(final Context context) {
+		mPackageManager = context.getPackageManager();
+		mPreferences = context.getSharedPreferences(EXTENSIONS_INDEX_PREFERENCES_NAME, Context.MODE_PRIVATE);
+	}
+
+	/**
+	 * Returns package names of installed extensions, scanning installed apps
+	 * if installed packages have changed since the index was built. Don't
+	 * call this on the UI thread.
+	 */
+	public List<String> getExtensions() {
+		final String fingerprint = getFingerprint();
+		if (!fingerprint.equals(mPreferences.getString(KEY_FINGERPRINT, null))) {
+			build(fingerprint);
+		}
+		final List<String> extensions = new ArrayList<String>();
+		for (final Map.Entry<String, ?> entry : mPreferences.getAll().entrySet()) {
+			if (Boolean.TRUE.equals(entry.getValue())) {
+				extensions.add(entry.getKey());
+			}
+		}
+		return extensions;
+	}
+
+	/**
+	 * Updates the index in background from a package added/removed/changed or
+	 * external applications available/unavailable broadcast.
+	 */
+	public void handlePackageIntent(final Intent intent) {
+		if (intent == null || !mPreferences.contains(KEY_FINGERPRINT)) return;
+		final String[] packages = intent.getStringArrayExtra(Intent.EXTRA_CHANGED_PACKAGE_LIST);
+		final Uri data = intent.getData();
+		if (packages == null && data == null) return;
+		final Runnable runnable = new Runnable() {
+
+			@Override
+			public void run() {
+				if (packages != null) {
+					for (final String pname : packages) {
+						updatePackage(pname);
+					}
+				} else {
+					updatePackage(data.getSchemeSpecificPart());
+				}
+			}
+		};
+		try {
+			TaskScheduler.getInstance().execute(TaskScheduler.LANE_BACKGROUND, runnable);
+		} catch (final RejectedExecutionException e) {
+			// Fingerprint won't match next time, the index will be rebuilt.
+		}
+	}
+
+	/**
+	 * Checks the package again, adding or removing it from the index.
+	 */
+	public synchronized void updatePackage(final String pname) {
+		if (pname == null) return;
+		final SharedPreferences.Editor editor = mPreferences.edit();
+		if (isExtension(getApplicationInfo(pname))) {
+			editor.putBoolean(pname, true);
+		} else {
+			editor.remove(pname);
+		}
+		editor.putString(KEY_FINGERPRINT, getFingerprint());
+		apply(editor);
+	}
+
+	private void build(final String fingerprint) {
+		final List<ApplicationInfo> apps = mPackageManager.getInstalledApplications(PackageManager.GET_META_DATA);
+		synchronized (this) {
+			final SharedPreferences.Editor editor = mPreferences.edit();
+			editor.clear();
+			for (final ApplicationInfo info : apps) {
+				if (isExtension(info)) {
+					editor.putBoolean(info.packageName, true);
+				}
+			}
+			editor.putString(KEY_FINGERPRINT, fingerprint);
+			apply(editor);
+		}
+	}
+
+	private ApplicationInfo getApplicationInfo(final String pname) {
+		try {
+			return mPackageManager.getApplicationInfo(pname, PackageManager.GET_META_DATA);
+		} catch (final NameNotFoundException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Count of installed packages with a sum of their name and last update
+	 * time hashes, order of installed packages isn't defined.
+	 */
+	private String getFingerprint() {
+		final List<PackageInfo> packages = mPackageManager.getInstalledPackages(0);
+		long hash = 0;
+		for (final PackageInfo info : packages) {
+			final long time = Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD ? GingerbreadAccessor
+					.getLastUpdateTime(info) : info.versionCode;
+			hash += info.packageName.hashCode() * 1000003L ^ time;
+		}
+		return packages.size() + ":" + Long.toHexString(hash);
+	}
+
+	public static synchronized ExtensionsIndex getInstance(final Context context) {
+		if (sInstance == null) {
+			sInstance = new ExtensionsIndex(context.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	public static boolean isExtension(final ApplicationInfo info) {
+		if (info == null) return false;
+		final Bundle meta = info.metaData;
+		return meta != null && meta.getBoolean(METADATA_KEY_EXTENSION, false);
+	}
+
+	private static void apply(final SharedPreferences.Editor editor) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+			GingerbreadAccessor.apply(editor);
+		} else {
+			editor.commit();
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.GINGERBREAD)
+	static class GingerbreadAccessor {
+		static void apply(final SharedPreferences.Editor editor) {
+			editor.apply();
+		}
+
+		static long getLastUpdateTime(final PackageInfo info) {
+			return info.lastUpdateTime;
+		}
+	}
+}
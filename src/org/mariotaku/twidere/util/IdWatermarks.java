@@ -0,0 +1,168 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.HashMap;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+import org.mariotaku.twidere.provider.TweetStore.TimelineRanges;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * In-memory newest and oldest ids of each account in statuses, mentions and
+ * direct messages tables, used as since_id and max_id. They're loaded with a
+ * single query per table on first use, then kept up to date by
+ * {@link org.mariotaku.twidere.provider.TwidereDataProvider} as rows get
+ * inserted, and loaded again after rows are deleted.
+ * <p>
+ * Loaded {@link TimelineRanges} count as loaded ids of their timeline too.
+ */
+public class IdWatermarks implements Constants {
+
+	private static final int NEWEST = 0, OLDEST = 1;
+
+	private final SQLiteDatabase mDatabase;
+	private final HashMap<String, HashMap<Long, long[]>> mWatermarks = new HashMap<String, HashMap<Long, long[]>>();
+
+	public IdWatermarks(final SQLiteDatabase database) {
+		mDatabase = database;
+	}
+
+	/**
+	 * Called after rows were inserted into the table.
+	 */
+	public synchronized void add(final String table, final ContentValues... values) {
+		if (table == null || values == null) return;
+		if (TABLE_TIMELINE_RANGES.equals(table)) {
+			for (final ContentValues value : values) {
+				final HashMap<Long, long[]> watermarks = mWatermarks.get(value.getAsString(TimelineRanges.TIMELINE));
+				if (watermarks == null) {
+					continue;
+				}
+				final Long account_id = value.getAsLong(TimelineRanges.ACCOUNT_ID);
+				final Long min_id = value.getAsLong(TimelineRanges.MIN_ID), max_id = value
+						.getAsLong(TimelineRanges.MAX_ID);
+				if (account_id == null || min_id == null || max_id == null) {
+					continue;
+				}
+				put(watermarks, account_id, max_id, min_id);
+			}
+			return;
+		}
+		final HashMap<Long, long[]> watermarks = mWatermarks.get(table);
+		final String id_column = getIdColumn(table);
+		if (watermarks == null || id_column == null) return;
+		for (final ContentValues value : values) {
+			final Long account_id = value.getAsLong(Statuses.ACCOUNT_ID), id = value.getAsLong(id_column);
+			if (account_id == null || id == null) {
+				continue;
+			}
+			put(watermarks, account_id, id, id);
+		}
+	}
+
+	/**
+	 * @return Newest ids of the accounts, 0 for accounts without any.
+	 */
+	public synchronized long[] getNewestIds(final String table, final long[] account_ids) {
+		return getIds(table, account_ids, NEWEST);
+	}
+
+	/**
+	 * @return Oldest ids of the accounts, 0 for accounts without any.
+	 */
+	public synchronized long[] getOldestIds(final String table, final long[] account_ids) {
+		return getIds(table, account_ids, OLDEST);
+	}
+
+	/**
+	 * Called after rows of the table were deleted or updated.
+	 */
+	public synchronized void invalidate(final String table) {
+		if (TABLE_TIMELINE_RANGES.equals(table)) {
+			mWatermarks.remove(TABLE_STATUSES);
+			mWatermarks.remove(TABLE_MENTIONS);
+		} else if (table != null) {
+			mWatermarks.remove(table);
+		}
+	}
+
+	private long[] getIds(final String table, final long[] account_ids, final int which) {
+		if (account_ids == null) return null;
+		final long[] ids = new long[account_ids.length];
+		final String id_column = getIdColumn(table);
+		if (id_column == null) return ids;
+		HashMap<Long, long[]> watermarks = mWatermarks.get(table);
+		if (watermarks == null) {
+			watermarks = load(table, id_column);
+			mWatermarks.put(table, watermarks);
+		}
+		final int length = account_ids.length;
+		for (int i = 0; i < length; i++) {
+			final long[] watermark = watermarks.get(account_ids[i]);
+			ids[i] = watermark != null ? watermark[which] : 0;
+		}
+		return ids;
+	}
+
+	private HashMap<Long, long[]> load(final String table, final String id_column) {
+		final HashMap<Long, long[]> watermarks = new HashMap<Long, long[]>();
+		final Cursor cur = mDatabase.query(table, new String[] { Statuses.ACCOUNT_ID, "MAX(" + id_column + ")",
+				"MIN(" + id_column + ")" }, null, null, Statuses.ACCOUNT_ID, null, null);
+		for (cur.moveToFirst(); !cur.isAfterLast(); cur.moveToNext()) {
+			put(watermarks, cur.getLong(0), cur.getLong(1), cur.getLong(2));
+		}
+		cur.close();
+		if (TimelineRangeUtils.hasRanges(table)) {
+			final Cursor ranges = mDatabase.query(TABLE_TIMELINE_RANGES, new String[] { TimelineRanges.ACCOUNT_ID,
+					"MAX(" + TimelineRanges.MAX_ID + ")", "MIN(" + TimelineRanges.MIN_ID + ")" },
+					TimelineRanges.TIMELINE + " = ?", new String[] { table }, TimelineRanges.ACCOUNT_ID, null, null);
+			for (ranges.moveToFirst(); !ranges.isAfterLast(); ranges.moveToNext()) {
+				put(watermarks, ranges.getLong(0), ranges.getLong(1), ranges.getLong(2));
+			}
+			ranges.close();
+		}
+		return watermarks;
+	}
+
+	private static String getIdColumn(final String table) {
+		if (TABLE_STATUSES.equals(table) || TABLE_MENTIONS.equals(table)) return Statuses.STATUS_ID;
+		if (TABLE_DIRECT_MESSAGES_INBOX.equals(table) || TABLE_DIRECT_MESSAGES_OUTBOX.equals(table))
+			return DirectMessages.MESSAGE_ID;
+		return null;
+	}
+
+	private static void put(final HashMap<Long, long[]> watermarks, final long account_id, final long newest,
+			final long oldest) {
+		if (newest <= 0 || oldest <= 0) return;
+		final long[] watermark = watermarks.get(account_id);
+		if (watermark == null) {
+			watermarks.put(account_id, new long[] { newest, oldest });
+			return;
+		}
+		watermark[NEWEST] = Math.max(watermark[NEWEST], newest);
+		watermark[OLDEST] = Math.min(watermark[OLDEST], oldest);
+	}
+}
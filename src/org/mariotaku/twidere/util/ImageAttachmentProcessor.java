@@ -0,0 +1,282 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mariotaku.twidere.util;
+
+import static org.mariotaku.twidere.util.Utils.getBestCacheDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.util.metrics.Counter;
+import org.mariotaku.twidere.util.metrics.Metrics;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+/**
+ * Prepares attached images for uploading. Images are decoded with sampling,
+ * rotated by their EXIF orientation, scaled down to the size set in
+ * {@link #PREFERENCE_KEY_IMAGE_UPLOAD_SIZE} and recompressed until they fit
+ * in the byte budget for that size.
+ * <p>
+ * Results are cached by source file, so processing started while composing
+ * is reused when sending, and for every account the status is sent from.
+ */
+public final class ImageAttachmentProcessor implements Constants {
+
+	private static final String CACHE_DIR_NAME = "attachments";
+	private static final int MAX_CACHED_FILES = 4;
+	private static final int MAX_QUALITY = 90, MIN_QUALITY = 50, QUALITY_STEP = 10;
+
+	private static ImageAttachmentProcessor sInstance;
+
+	private final Context mContext;
+	private final SharedPreferences mPreferences;
+	private final ConcurrentHashMap<String, FutureTask<File>> mPendingTasks = new ConcurrentHashMap<String, FutureTask<File>>();
+	private final Counter mBytesSaved = Metrics.getInstance().getCounter("attachment.bytes_saved");
+
+	private ImageAttachmentProcessor(final Context context) {
+		mContext = context;
+		mPreferences = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+	}
+
+	/**
+	 * Starts processing the image in background.
+	 */
+	public void prepare(final File file) {
+		if (file == null || !file.exists()) return;
+		final String key = getKey(file);
+		final FutureTask<File> task = getTask(file, key);
+		if (task == null) return;
+		try {
+			TaskScheduler.getInstance().execute(TaskScheduler.LANE_CPU, task);
+		} catch (final RejectedExecutionException e) {
+			// process() will do it.
+			mPendingTasks.remove(key, task);
+			task.cancel(false);
+		}
+	}
+
+	/**
+	 * @return Processed image, or the original file if it needs no
+	 *         processing or can't be processed.
+	 */
+	public File process(final File file) {
+		if (file == null || !file.exists()) return file;
+		final String key = getKey(file);
+		FutureTask<File> task = mPendingTasks.get(key);
+		if (task == null) {
+			task = getTask(file, key);
+			if (task == null) {
+				task = mPendingTasks.get(key);
+			}
+		}
+		if (task == null) return processInternal(file, key);
+		// Does nothing if the task was started already, otherwise there's no
+		// need to wait for the scheduler.
+		task.run();
+		try {
+			return task.get();
+		} catch (final CancellationException e) {
+			return processInternal(file, key);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return file;
+		} catch (final ExecutionException e) {
+			return file;
+		}
+	}
+
+	private File getCacheFile(final String key, final String extension) {
+		final File cache_dir = getBestCacheDir(mContext, CACHE_DIR_NAME);
+		// Only the external cache dir is created by getBestCacheDir().
+		if (!cache_dir.isDirectory()) {
+			cache_dir.mkdirs();
+		}
+		return new File(cache_dir, sha1Hex(key) + extension);
+	}
+
+	private String getKey(final File file) {
+		return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified() + ":" + getMaxSize();
+	}
+
+	private int getMaxSize() {
+		try {
+			return Integer.parseInt(mPreferences.getString(PREFERENCE_KEY_IMAGE_UPLOAD_SIZE,
+					PREFERENCE_DEFAULT_IMAGE_UPLOAD_SIZE));
+		} catch (final NumberFormatException e) {
+			return Integer.parseInt(PREFERENCE_DEFAULT_IMAGE_UPLOAD_SIZE);
+		}
+	}
+
+	/**
+	 * @return New task for the file, or null if it's being processed already.
+	 */
+	private FutureTask<File> getTask(final File file, final String key) {
+		if (mPendingTasks.containsKey(key)) return null;
+		final FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+
+			@Override
+			public File call() {
+				try {
+					return processInternal(file, key);
+				} finally {
+					mPendingTasks.remove(key);
+				}
+			}
+		});
+		return mPendingTasks.putIfAbsent(key, task) == null ? task : null;
+	}
+
+	private File processInternal(final File file, final String key) {
+		final File jpeg_file = getCacheFile(key, ".jpg"), png_file = getCacheFile(key, ".png");
+		if (jpeg_file.exists()) return jpeg_file;
+		if (png_file.exists()) return png_file;
+		final int max_size = getMaxSize();
+		if (max_size <= 0) return file;
+		final String path = file.getPath();
+		final BitmapFactory.Options o = new BitmapFactory.Options();
+		o.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(path, o);
+		// Not an image, or may be animated.
+		if (o.outWidth <= 0 || o.outHeight <= 0 || "image/gif".equals(o.outMimeType)) return file;
+		// Roughly what a photo of this size takes at quality 85.
+		final long max_bytes = (long) max_size * max_size / 3;
+		final int orientation = Exif.getOrientation(path);
+		final int size = Math.max(o.outWidth, o.outHeight);
+		if (size <= max_size && orientation == 0 && file.length() <= max_bytes) return file;
+		o.inJustDecodeBounds = false;
+		o.inSampleSize = 1;
+		while (size / (o.inSampleSize * 2) >= max_size) {
+			o.inSampleSize *= 2;
+		}
+		try {
+			final Bitmap decoded = BitmapDecodeHelper.decode(path, o);
+			if (decoded == null) return file;
+			final Bitmap bitmap = scale(decoded, max_size);
+			if (bitmap != decoded) {
+				decoded.recycle();
+			}
+			final boolean has_alpha = bitmap.hasAlpha();
+			final byte[] data = compress(bitmap, max_bytes);
+			bitmap.recycle();
+			final File cache_file = has_alpha ? png_file : jpeg_file;
+			if (size <= max_size && orientation == 0 && data.length >= file.length()) return file;
+			final File tmp_file = new File(cache_file.getPath() + ".tmp");
+			final FileOutputStream os = new FileOutputStream(tmp_file);
+			try {
+				os.write(data);
+			} finally {
+				os.close();
+			}
+			if (!tmp_file.renameTo(cache_file)) return file;
+			mBytesSaved.increment(file.length() - data.length);
+			trimCache(cache_file.getParentFile());
+			return cache_file;
+		} catch (final IOException e) {
+			Log.w(LOGTAG, e);
+			return file;
+		} catch (final OutOfMemoryError e) {
+			Log.w(LOGTAG, e);
+			return file;
+		}
+	}
+
+	public static synchronized ImageAttachmentProcessor getInstance(final Context context) {
+		if (sInstance == null) {
+			sInstance = new ImageAttachmentProcessor(context.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	/**
+	 * Compresses with decreasing quality until the result fits in max_bytes.
+	 * Images with alpha are kept as PNG.
+	 */
+	private static byte[] compress(final Bitmap bitmap, final long max_bytes) {
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		if (bitmap.hasAlpha()) {
+			bitmap.compress(Bitmap.CompressFormat.PNG, 100, os);
+			return os.toByteArray();
+		}
+		for (int quality = MAX_QUALITY; quality >= MIN_QUALITY; quality -= QUALITY_STEP) {
+			os.reset();
+			bitmap.compress(Bitmap.CompressFormat.JPEG, quality, os);
+			if (os.size() <= max_bytes) break;
+		}
+		return os.toByteArray();
+	}
+
+	private static Bitmap scale(final Bitmap bitmap, final int max_size) {
+		final int width = bitmap.getWidth(), height = bitmap.getHeight();
+		final int size = Math.max(width, height);
+		if (size <= max_size) return bitmap;
+		final float ratio = (float) max_size / size;
+		return Bitmap.createScaledBitmap(bitmap, Math.round(width * ratio), Math.round(height * ratio), true);
+	}
+
+	private static String sha1Hex(final String key) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+			final StringBuilder builder = new StringBuilder(digest.length * 2);
+			for (final byte b : digest) {
+				builder.append(Character.forDigit(b >> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return builder.toString();
+		} catch (final NoSuchAlgorithmException e) {
+			// Every Java platform has SHA-1 and UTF-8.
+			throw new AssertionError(e);
+		} catch (final UnsupportedEncodingException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static void trimCache(final File dir) {
+		final File[] files = dir != null ? dir.listFiles() : null;
+		if (files == null || files.length <= MAX_CACHED_FILES) return;
+		Arrays.sort(files, new Comparator<File>() {
+
+			@Override
+			public int compare(final File file1, final File file2) {
+				final long diff = file2.lastModified() - file1.lastModified();
+				return diff > 0 ? 1 : diff < 0 ? -1 : 0;
+			}
+		});
+		for (int i = MAX_CACHED_FILES, j = files.length; i < j; i++) {
+			files[i].delete();
+		}
+	}
+}
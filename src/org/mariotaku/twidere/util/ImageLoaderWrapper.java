@@ -47,10 +47,12 @@ import com.nostra13.universalimageloader.core.ImageLoader;
 public class ImageLoaderWrapper implements Constants {
 
 	private final ImageLoader mImageLoader;
+	private final ImageRevalidator mRevalidator;
 	private final DisplayImageOptions mProfileImageDisplayOptions, mImageDisplayOptions;
 
 	public ImageLoaderWrapper(final Context context, final ImageLoader loader) {
 		mImageLoader = loader;
+		mRevalidator = ImageRevalidator.getInstance(context);
 		final DisplayImageOptions.Builder profile_opts_builder = new DisplayImageOptions.Builder();
 		profile_opts_builder.cacheInMemory();
 		profile_opts_builder.cacheOnDisc();
@@ -78,14 +80,18 @@ public class ImageLoaderWrapper implements Constants {
 
 	public void displayProfileBanner(final ImageView view, final String base_url, final int width) {
 		final String type = getBestBannerType(width);
-		mImageLoader.displayImage(base_url + "/" + type, view, mImageDisplayOptions);
+		final String url = base_url + "/" + type;
+		mImageLoader.displayImage(url, view, mImageDisplayOptions);
+		mRevalidator.revalidate(url);
 	}
 	
 	public void displayProfileImage(final ImageView view, final String url) {
 		mImageLoader.displayImage(url, view, mProfileImageDisplayOptions);
+		mRevalidator.revalidate(url);
 	}
 
 	public void reloadConnectivitySettings() {
+		mRevalidator.reloadConnectivitySettings();
 	}
 
 }
@@ -7,6 +7,9 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.mariotaku.twidere.util.metrics.Counter;
+import org.mariotaku.twidere.util.metrics.Metrics;
+
 import android.graphics.Bitmap;
 import android.os.Handler;
 import android.util.Log;
@@ -18,6 +21,9 @@ public class ImageMemoryCache implements MemoryCacheAware<String, Bitmap> {
 	private static final String LOGTAG = ImageMemoryCache.class.getSimpleName();
 	private static final int MEMORY_PURGE_DELAY = 30 * 1000;
 
+	private static final Counter HIT_COUNTER = Metrics.getInstance().getCounter("image.memory_cache.hit");
+	private static final Counter MISS_COUNTER = Metrics.getInstance().getCounter("image.memory_cache.miss");
+
 	private final Map<String, SoftReference<Bitmap>> mSoftCache;
 	private final LinkedHashMap<String, Bitmap> mHardCache;
 	private final Handler mHandler;
@@ -52,15 +58,17 @@ public class ImageMemoryCache implements MemoryCacheAware<String, Bitmap> {
 					// Put bitmap on top of cache so it's purged last.
 					mHardCache.remove(key);
 					mHardCache.put(key, bitmap);
+					HIT_COUNTER.increment();
 					return bitmap;
 				}
 			}
 			final Reference<Bitmap> bitmapRef = mSoftCache.get(key);
 			if (bitmapRef != null) {
 				final Bitmap bitmap = bitmapRef.get();
-				if (bitmap != null)
+				if (bitmap != null) {
+					HIT_COUNTER.increment();
 					return bitmap;
-				else {
+				} else {
 					// Must have been collected by the Garbage Collector
 					// so we remove the bucket from the cache.
 					mSoftCache.remove(key);
@@ -71,6 +79,7 @@ public class ImageMemoryCache implements MemoryCacheAware<String, Bitmap> {
 		}
 		// Could not locate the bitmap in any of the caches, so we return
 		// null.
+		MISS_COUNTER.increment();
 		return null;
 
 	}
@@ -28,9 +28,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.mariotaku.twidere.Constants;
 
@@ -57,27 +55,21 @@ public class ImagePreloader implements Constants {
 	private static final String LOGTAG = ImagePreloader.class.getSimpleName();
 
 	private final Context mContext;
-	private final ExecutorService mExecutor;
+	private final TaskScheduler mScheduler;
 	private HttpClientWrapper mClient;
+	private volatile boolean mCancelled;
 
 	public ImagePreloader(final Context context) {
 		mContext = context;
-		mExecutor = Executors.newFixedThreadPool(32, new LowestPriorityThreadFactory());
+		mScheduler = TaskScheduler.getInstance();
 		reloadConnectivitySettings();
 	}
 
 	/**
-	 * Cancels any downloads, shuts down the executor pool, and then purges the
-	 * caches.
+	 * Cancels any pending downloads and stops accepting new ones.
 	 */
 	public void cancel() {
-
-		// We could also terminate it immediately,
-		// but that may lead to synchronization issues.
-		if (!mExecutor.isShutdown()) {
-			mExecutor.shutdown();
-		}
-
+		mCancelled = true;
 	}
 
 	public File getCachedImageFile(final String cache_dir_name, final String url) {
@@ -94,8 +86,13 @@ public class ImagePreloader implements Constants {
 	}
 
 	public void preloadImage(final String cache_dir_name, final String url) {
+		if (mCancelled) return;
 		final ImageToLoad p = new ImageToLoad(cache_dir_name, url);
-		mExecutor.submit(new ImageLoader(p));
+		try {
+			mScheduler.execute(TaskScheduler.LANE_PRELOAD, TaskScheduler.PRIORITY_LOW, new ImageLoader(p));
+		} catch (final RejectedExecutionException e) {
+			// Enough is being preloaded already, it will be loaded when shown.
+		}
 	}
 
 	public void reloadConnectivitySettings() {
@@ -116,6 +113,7 @@ public class ImagePreloader implements Constants {
 
 		@Override
 		public void run() {
+			if (mCancelled) return;
 			if (imagetoload == null || imagetoload.cache_dir_name == null || imagetoload.url == null) return;
 			final File cache_dir = getBestCacheDir(mContext, imagetoload.cache_dir_name);
 			if (cache_dir == null) return;
@@ -162,15 +160,4 @@ public class ImagePreloader implements Constants {
 		}
 	}
 
-	static class LowestPriorityThreadFactory implements ThreadFactory {
-
-		@Override
-		public Thread newThread(final Runnable r) {
-			final Thread t = new Thread(r);
-			t.setPriority(Thread.MIN_PRIORITY);
-			return t;
-		}
-
-	}
-
 }
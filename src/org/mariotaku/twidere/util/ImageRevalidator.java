@@ -0,0 +1,312 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.mariotaku.twidere.util;
+
+import static org.mariotaku.twidere.util.Utils.copyStream;
+import static org.mariotaku.twidere.util.Utils.getImageDownloadHttpClient;
+import static org.mariotaku.twidere.util.Utils.getRedirectedHttpResponse;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import org.mariotaku.gallery3d.util.GalleryUtils;
+import org.mariotaku.twidere.Constants;
+
+import twitter4j.TwitterException;
+import twitter4j.http.HttpClient;
+import twitter4j.http.HttpResponse;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.nostra13.universalimageloader.cache.disc.DiscCacheAware;
+import com.nostra13.universalimageloader.core.ImageLoader;
+
+/**
+ * Revalidates cached profile images and banners with conditional requests
+ * (<code>If-None-Match</code>/<code>If-Modified-Since</code>), so unchanged
+ * images are not downloaded again.
+ */
+public final class ImageRevalidator implements Constants {
+
+	private static final String LOGTAG = ImageRevalidator.class.getSimpleName();
+
+	private static final long REVALIDATE_INTERVAL = 24 * 60 * 60 * 1000;
+	private static final int MAX_ENTRIES = 1024;
+
+	private static final int SC_OK = 200;
+	private static final int SC_NOT_MODIFIED = 304;
+
+	private static final Pattern PATTERN_REVALIDATABLE = Pattern
+			.compile("^https?://[\\w\\d\\-\\.]*twimg\\.com/(profile_images|profile_banners)/.+$");
+
+	private static ImageRevalidator sInstance;
+
+	private final Context mContext;
+	private final SharedPreferences mPreferences;
+	private final AtomicBoolean mLoaded = new AtomicBoolean(false);
+	private final AtomicBoolean mSavePending = new AtomicBoolean(false);
+	private final Set<String> mPending = Collections.synchronizedSet(new HashSet<String>());
+	private final LinkedHashMap<String, Validator> mValidators = new LinkedHashMap<String, Validator>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = -3841395425640129862L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Validator> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private volatile HttpClient mClient;
+
+	private ImageRevalidator(final Context context) {
+		mContext = context.getApplicationContext();
+		mPreferences = context.getSharedPreferences(IMAGE_VALIDATORS_PREFERENCES_NAME, Context.MODE_PRIVATE);
+	}
+
+	/**
+	 * Remembers validators of a downloaded image.
+	 */
+	public void onDownloaded(final String url, final HttpResponse resp) {
+		if (!isRevalidatable(url) || resp == null) return;
+		final Validator validator = Validator.fromResponse(resp, System.currentTimeMillis());
+		loadValidators();
+		synchronized (mValidators) {
+			if (validator != null) {
+				mValidators.put(url, validator);
+			} else {
+				mValidators.remove(url);
+			}
+		}
+		saveValidatorsAsync();
+	}
+
+	public void reloadConnectivitySettings() {
+		mClient = null;
+	}
+
+	/**
+	 * Checks if the cached copy of url is still up to date, in background,
+	 * unless it has been checked recently.
+	 */
+	public void revalidate(final String url) {
+		if (!isRevalidatable(url)) return;
+		loadValidators();
+		final Validator validator;
+		synchronized (mValidators) {
+			validator = mValidators.get(url);
+		}
+		if (validator == null || System.currentTimeMillis() - validator.checked_at < REVALIDATE_INTERVAL) return;
+		if (!mPending.add(url)) return;
+		try {
+			TaskScheduler.getInstance().execute(TaskScheduler.LANE_PRELOAD, TaskScheduler.PRIORITY_LOW, new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						revalidate(url, validator);
+					} catch (final Exception e) {
+						if (DEBUG) {
+							Log.w(LOGTAG, e);
+						}
+					} finally {
+						mPending.remove(url);
+					}
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			mPending.remove(url);
+		}
+	}
+
+	private HttpClient getHttpClient() {
+		if (mClient != null) return mClient;
+		return mClient = getImageDownloadHttpClient(mContext);
+	}
+
+	private void loadValidators() {
+		if (!mLoaded.compareAndSet(false, true)) return;
+		final Map<String, ?> all = mPreferences.getAll();
+		synchronized (mValidators) {
+			for (final Map.Entry<String, ?> item : all.entrySet()) {
+				final Validator validator = Validator.parse(item.getValue());
+				if (validator != null) {
+					mValidators.put(item.getKey(), validator);
+				}
+			}
+		}
+	}
+
+	private void onNotModified(final String url, final Validator validator, final File file) {
+		synchronized (mValidators) {
+			mValidators.put(url, validator.touch(System.currentTimeMillis()));
+		}
+		saveValidatorsAsync();
+		BandwidthStats.getInstance().onNotModified(file.length());
+	}
+
+	private void revalidate(final String url, final Validator validator) throws IOException, TwitterException {
+		final DiscCacheAware disc_cache = ImageLoader.getInstance().getDiscCache();
+		final File file = disc_cache != null ? disc_cache.get(url) : null;
+		if (file == null || !file.isFile()) {
+			// Nothing to revalidate, it will be downloaded again anyway.
+			synchronized (mValidators) {
+				mValidators.remove(url);
+			}
+			saveValidatorsAsync();
+			return;
+		}
+		final HashMap<String, String> headers = new HashMap<String, String>();
+		if (validator.etag != null) {
+			headers.put("If-None-Match", validator.etag);
+		}
+		if (validator.last_modified != null) {
+			headers.put("If-Modified-Since", validator.last_modified);
+		}
+		final HttpResponse resp;
+		try {
+			resp = getRedirectedHttpResponse(getHttpClient(), url, headers);
+		} catch (final TwitterException e) {
+			if (e.getStatusCode() != SC_NOT_MODIFIED) throw e;
+			onNotModified(url, validator, file);
+			return;
+		}
+		if (resp == null) return;
+		final int status = resp.getStatusCode();
+		if (status == SC_NOT_MODIFIED) {
+			onNotModified(url, validator, file);
+			return;
+		}
+		if (status != SC_OK) return;
+		final File tmp_file = new File(file.getPath() + ".tmp");
+		final InputStream is = resp.asStream();
+		final OutputStream os = new FileOutputStream(tmp_file);
+		try {
+			copyStream(is, os);
+		} finally {
+			GalleryUtils.closeSilently(is);
+			GalleryUtils.closeSilently(os);
+		}
+		if (!ImageValidator.checkImageValidity(tmp_file) || !tmp_file.renameTo(file)) {
+			tmp_file.delete();
+			return;
+		}
+		// Bitmaps in memory cache may still be displayed, so they are not
+		// recycled here, the new image is used once they are evicted.
+		onDownloaded(url, resp);
+		if (DEBUG) {
+			Log.d(LOGTAG, "Image " + url + " changed, replaced cached copy");
+		}
+	}
+
+	private void saveValidatorsAsync() {
+		if (!mSavePending.compareAndSet(false, true)) return;
+		try {
+			TaskScheduler.getInstance().execute(TaskScheduler.LANE_DISK, TaskScheduler.PRIORITY_LOW, new Runnable() {
+
+				@Override
+				public void run() {
+					mSavePending.set(false);
+					final Map<String, Validator> snapshot;
+					synchronized (mValidators) {
+						snapshot = new LinkedHashMap<String, Validator>(mValidators);
+					}
+					final SharedPreferences.Editor editor = mPreferences.edit();
+					editor.clear();
+					for (final Map.Entry<String, Validator> entry : snapshot.entrySet()) {
+						editor.putString(entry.getKey(), entry.getValue().toString());
+					}
+					editor.commit();
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			// Saved with the next change.
+			mSavePending.set(false);
+		}
+	}
+
+	public static ImageRevalidator getInstance(final Context context) {
+		synchronized (ImageRevalidator.class) {
+			if (sInstance == null) {
+				sInstance = new ImageRevalidator(context);
+			}
+			return sInstance;
+		}
+	}
+
+	public static boolean isRevalidatable(final String url) {
+		return url != null && PATTERN_REVALIDATABLE.matcher(url).matches();
+	}
+
+	private static final class Validator {
+
+		final String etag, last_modified;
+		final long checked_at;
+
+		Validator(final String etag, final String last_modified, final long checked_at) {
+			this.etag = etag;
+			this.last_modified = last_modified;
+			this.checked_at = checked_at;
+		}
+
+		@Override
+		public String toString() {
+			return checked_at + "\n" + (etag != null ? etag : "") + "\n" + (last_modified != null ? last_modified : "");
+		}
+
+		Validator touch(final long now) {
+			return new Validator(etag, last_modified, now);
+		}
+
+		static Validator fromResponse(final HttpResponse resp, final long now) {
+			final String etag = resp.getResponseHeader("ETag");
+			final String last_modified = resp.getResponseHeader("Last-Modified");
+			if (etag == null && last_modified == null) return null;
+			return new Validator(etag, last_modified, now);
+		}
+
+		static Validator parse(final Object value) {
+			if (!(value instanceof String)) return null;
+			final String[] segments = ((String) value).split("\n", -1);
+			if (segments.length != 3) return null;
+			try {
+				final String etag = segments[1].length() > 0 ? segments[1] : null;
+				final String last_modified = segments[2].length() > 0 ? segments[2] : null;
+				if (etag == null && last_modified == null) return null;
+				return new Validator(etag, last_modified, Long.parseLong(segments[0]));
+			} catch (final NumberFormatException e) {
+				return null;
+			}
+		}
+	}
+}
@@ -19,43 +19,25 @@
 
 package org.mariotaku.twidere.util;
 
-import static org.mariotaku.twidere.util.ServiceUtils.bindToService;
+import java.util.concurrent.TimeoutException;
 
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.IImageUploader;
 
 import android.app.Application;
-import android.content.ComponentName;
-import android.content.Context;
-import android.content.ContextWrapper;
-import android.content.Intent;
-import android.content.ServiceConnection;
 import android.net.Uri;
 import android.os.IBinder;
 import android.os.RemoteException;
 
 public final class ImageUploaderInterface implements Constants, IImageUploader {
 
+	private final ExtensionServiceConnector mConnector;
+	private final String mComponentName;
 	private IImageUploader mUploader;
 
-	private final ServiceConnection mConntecion = new ServiceConnection() {
-
-		@Override
-		public void onServiceConnected(final ComponentName service, final IBinder obj) {
-			mUploader = IImageUploader.Stub.asInterface(obj);
-		}
-
-		@Override
-		public void onServiceDisconnected(final ComponentName service) {
-			mUploader = null;
-		}
-	};
-
-	private ImageUploaderInterface(final Context context, final String uploader_name) {
-		final Intent intent = new Intent(INTENT_ACTION_EXTENSION_UPLOAD_IMAGE);
-		final ComponentName component = ComponentName.unflattenFromString(uploader_name);
-		intent.setComponent(component);
-		bindToService(context, intent, mConntecion);
+	private ImageUploaderInterface(final ExtensionServiceConnector connector, final String uploader_name) {
+		mConnector = connector;
+		mComponentName = uploader_name;
 	}
 
 	@Override
@@ -75,32 +57,16 @@ public final class ImageUploaderInterface implements Constants, IImageUploader {
 		return null;
 	}
 
-	public void waitForService() {
-		while (mUploader == null) {
-			try {
-				Thread.sleep(100L);
-			} catch (final InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
+	public void waitForService() throws TimeoutException {
+		if (mUploader != null && mUploader.asBinder().isBinderAlive()) return;
+		mUploader = IImageUploader.Stub.asInterface(ExtensionServiceConnector.getBinder(mConnector.connect(
+				INTENT_ACTION_EXTENSION_UPLOAD_IMAGE, mComponentName)));
 	}
 
 	public static ImageUploaderInterface getInstance(final Application application, final String uploader_name) {
 		if (uploader_name == null) return null;
-		final Intent intent = new Intent(INTENT_ACTION_EXTENSION_UPLOAD_IMAGE);
-		final ComponentName component = ComponentName.unflattenFromString(uploader_name);
-		intent.setComponent(component);
-		if (application.getPackageManager().queryIntentServices(intent, 0).size() != 1) return null;
-		return new ImageUploaderInterface(application, uploader_name);
-	}
-
-	public static class ServiceToken {
-
-		ContextWrapper wrapped_context;
-
-		ServiceToken(final ContextWrapper context) {
-
-			wrapped_context = context;
-		}
+		final ExtensionServiceConnector connector = ExtensionServiceConnector.getInstance(application);
+		if (connector.connect(INTENT_ACTION_EXTENSION_UPLOAD_IMAGE, uploader_name) == null) return null;
+		return new ImageUploaderInterface(connector, uploader_name);
 	}
 }
@@ -0,0 +1,90 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.mariotaku.twidere.util;
+
+/**
+ * Immutable array of IDs with an ID to position hash index, so looking up a
+ * position is O(1) even for tens of thousands of IDs.
+ */
+public final class LongIndexedArray {
+
+	private final long[] mArray;
+	private final long[] mKeys;
+	private final int[] mPositions;
+	private final int mMask;
+
+	public LongIndexedArray(final long[] array) {
+		if (array == null) throw new NullPointerException();
+		mArray = array;
+		int capacity = 4;
+		while (capacity < array.length * 2) {
+			capacity <<= 1;
+		}
+		mMask = capacity - 1;
+		mKeys = new long[capacity];
+		// Positions are stored plus one, so zero marks an empty slot.
+		mPositions = new int[capacity];
+		for (int i = 0, j = array.length; i < j; i++) {
+			final long key = array[i];
+			int slot = hash(key) & mMask;
+			while (mPositions[slot] != 0 && mKeys[slot] != key) {
+				slot = slot + 1 & mMask;
+			}
+			if (mPositions[slot] == 0) {
+				mKeys[slot] = key;
+				mPositions[slot] = i + 1;
+			}
+		}
+	}
+
+	public boolean contains(final long id) {
+		return indexOf(id) >= 0;
+	}
+
+	public long get(final int position) {
+		return mArray[position];
+	}
+
+	public int indexOf(final long id) {
+		int slot = hash(id) & mMask;
+		while (mPositions[slot] != 0) {
+			if (mKeys[slot] == id) return mPositions[slot] - 1;
+			slot = slot + 1 & mMask;
+		}
+		return -1;
+	}
+
+	public int size() {
+		return mArray.length;
+	}
+
+	public long[] subArray(final int start, final int end) {
+		final long[] result = new long[end - start];
+		System.arraycopy(mArray, start, result, 0, end - start);
+		return result;
+	}
+
+	private static int hash(final long key) {
+		final long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ h >>> 32);
+	}
+
+}
@@ -19,17 +19,23 @@
 
 package org.mariotaku.twidere.util;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.mariotaku.twidere.Constants;
 
 import android.content.Context;
-import android.content.Intent;
 
 public abstract class ManagedAsyncTask<Params, Progress, Result> extends AsyncTask<Params, Progress, Result> implements
 		Constants {
 
+	private static final int STATE_IDLE = 0;
+	private static final int STATE_STARTED = 1;
+	private static final int STATE_FINISHED = 2;
+
 	private final AsyncTaskManager manager;
 	private final Context context;
 	private final String tag;
+	private final AtomicInteger state = new AtomicInteger(STATE_IDLE);
 
 	public ManagedAsyncTask(final Context context, final AsyncTaskManager manager) {
 		this(context, manager, null);
@@ -41,6 +47,14 @@ public abstract class ManagedAsyncTask<Params, Progress, Result> extends AsyncTa
 		this.tag = tag;
 	}
 
+	@Override
+	public AsyncTask<Params, Progress, Result> execute(final Params... params) {
+		if (getStatus() == Status.PENDING && state.compareAndSet(STATE_IDLE, STATE_STARTED)) {
+			manager.onTaskStarted(this);
+		}
+		return super.execute(params);
+	}
+
 	public Context getContext() {
 		return context;
 	}
@@ -50,27 +64,28 @@ public abstract class ManagedAsyncTask<Params, Progress, Result> extends AsyncTa
 	}
 
 	@Override
-	protected void finalize() throws Throwable {
-		manager.remove(hashCode());
-		super.finalize();
+	protected int getSchedulerLane() {
+		return TaskScheduler.LANE_NETWORK;
 	}
 
 	@Override
 	protected void onCancelled() {
 		super.onCancelled();
-		context.sendBroadcast(new Intent(BROADCAST_TASK_STATE_CHANGED));
+		onFinished();
 	}
 
 	@Override
 	protected void onPostExecute(final Result result) {
 		super.onPostExecute(result);
-		context.sendBroadcast(new Intent(BROADCAST_TASK_STATE_CHANGED));
+		onFinished();
 	}
 
-	@Override
-	protected void onPreExecute() {
-		super.onPreExecute();
-		context.sendBroadcast(new Intent(BROADCAST_TASK_STATE_CHANGED));
+	private void onFinished() {
+		if (state.compareAndSet(STATE_STARTED, STATE_FINISHED)) {
+			manager.onTaskFinished(this);
+		} else if (state.compareAndSet(STATE_IDLE, STATE_FINISHED)) {
+			manager.remove(hashCode());
+		}
 	}
 
 }
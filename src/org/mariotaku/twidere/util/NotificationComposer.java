@@ -0,0 +1,612 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import static android.text.TextUtils.isEmpty;
+import static org.mariotaku.twidere.util.HtmlEscapeHelper.toPlainText;
+import static org.mariotaku.twidere.util.Utils.findStatusInDatabases;
+import static org.mariotaku.twidere.util.Utils.getAccountName;
+import static org.mariotaku.twidere.util.Utils.getAccountScreenName;
+import static org.mariotaku.twidere.util.Utils.getAsLong;
+import static org.mariotaku.twidere.util.Utils.getBiggerTwitterProfileImage;
+import static org.mariotaku.twidere.util.Utils.isFiltered;
+import static org.mariotaku.twidere.util.Utils.isNotificationsSilent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.R;
+import org.mariotaku.twidere.activity.HomeActivity;
+import org.mariotaku.twidere.model.ParcelableStatus;
+import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.database.sqlite.SQLiteDatabase;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.v4.app.NotificationCompat;
+import android.text.Html;
+
+/**
+ * Builds notifications for items inserted to the provider, on its own thread.
+ * Callers only queue small records of the items; items queued within
+ * {@link #COMPOSE_DELAY} of each other are shown with one notification update,
+ * and only newest {@link #MAX_RETAINED_ITEMS} items of a notification are kept
+ * for its content.
+ */
+public final class NotificationComposer implements Constants {
+
+	public static final long COMPOSE_DELAY = 500L;
+	public static final long MAX_COMPOSE_DELAY = 2000L;
+	public static final int MAX_RETAINED_ITEMS = 5;
+
+	private static final int MAX_INBOX_LINES = 4;
+
+	private final Context mContext;
+	private final SQLiteDatabase mDatabase;
+	private final ImagePreloader mImagePreloader;
+	private final NotificationManager mNotificationManager;
+	private final SharedPreferences mPreferences;
+	private final Handler mHandler;
+
+	private final Object mLock = new Object();
+	private final List<Item> mPendingMentions = new ArrayList<Item>();
+	private final List<Item> mPendingMessages = new ArrayList<Item>();
+	private int mPendingStatusesCount;
+	private long mFirstPendingTime;
+
+	// Below are only touched from the handler thread.
+	private final ItemHistory mMentions = new ItemHistory();
+	private final ItemHistory mMessages = new ItemHistory();
+	private int mStatusesCount;
+	private Bitmap mDefaultLargeIcon;
+
+	private volatile boolean mNotificationIsAudible;
+
+	private final Runnable mComposeRunnable = new Runnable() {
+
+		@Override
+		public void run() {
+			compose();
+		}
+	};
+
+	private final BroadcastReceiver mHomeActivityStateReceiver = new BroadcastReceiver() {
+		@Override
+		public void onReceive(final Context context, final Intent intent) {
+			final String action = intent.getAction();
+			if (BROADCAST_HOME_ACTIVITY_ONSTART.equals(action)) {
+				mNotificationIsAudible = false;
+			} else if (BROADCAST_HOME_ACTIVITY_ONSTOP.equals(action)) {
+				mNotificationIsAudible = true;
+			}
+		}
+
+	};
+
+	public NotificationComposer(final Context context, final SQLiteDatabase database,
+			final ImagePreloader image_preloader) {
+		mContext = context;
+		mDatabase = database;
+		mImagePreloader = image_preloader;
+		mNotificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+		mPreferences = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+		final HandlerThread thread = new HandlerThread(NotificationComposer.class.getSimpleName(),
+				Process.THREAD_PRIORITY_BACKGROUND);
+		thread.start();
+		mHandler = new Handler(thread.getLooper());
+		final IntentFilter filter = new IntentFilter();
+		filter.addAction(BROADCAST_HOME_ACTIVITY_ONSTART);
+		filter.addAction(BROADCAST_HOME_ACTIVITY_ONSTOP);
+		context.registerReceiver(mHomeActivityStateReceiver, filter);
+	}
+
+	public void addHomeTimelineStatuses(final int count) {
+		if (count <= 0) return;
+		synchronized (mLock) {
+			mPendingStatusesCount += count;
+			scheduleCompose();
+		}
+	}
+
+	public void addMentions(final ContentValues... values) {
+		if (values == null || values.length == 0) return;
+		synchronized (mLock) {
+			for (final ContentValues value : values) {
+				mPendingMentions.add(Item.fromStatus(value));
+			}
+			scheduleCompose();
+		}
+	}
+
+	public void addMessages(final ContentValues... values) {
+		if (values == null || values.length == 0) return;
+		synchronized (mLock) {
+			for (final ContentValues value : values) {
+				mPendingMessages.add(Item.fromMessage(value));
+			}
+			scheduleCompose();
+		}
+	}
+
+	public void clearNotification(final int id) {
+		synchronized (mLock) {
+			switch (id) {
+				case NOTIFICATION_ID_HOME_TIMELINE: {
+					mPendingStatusesCount = 0;
+					break;
+				}
+				case NOTIFICATION_ID_MENTIONS: {
+					mPendingMentions.clear();
+					break;
+				}
+				case NOTIFICATION_ID_DIRECT_MESSAGES: {
+					mPendingMessages.clear();
+					break;
+				}
+			}
+		}
+		mHandler.post(new Runnable() {
+
+			@Override
+			public void run() {
+				switch (id) {
+					case NOTIFICATION_ID_HOME_TIMELINE: {
+						mStatusesCount = 0;
+						break;
+					}
+					case NOTIFICATION_ID_MENTIONS: {
+						mMentions.clear();
+						break;
+					}
+					case NOTIFICATION_ID_DIRECT_MESSAGES: {
+						mMessages.clear();
+						break;
+					}
+				}
+				mNotificationManager.cancel(id);
+			}
+		});
+	}
+
+	private void buildNotification(final NotificationCompat.Builder builder, final String ticker, final String title,
+			final String message, final int icon, final Bitmap large_icon, final Intent content_intent,
+			final Intent delete_intent) {
+		builder.setTicker(ticker);
+		builder.setContentTitle(title);
+		builder.setContentText(message);
+		builder.setAutoCancel(true);
+		builder.setWhen(System.currentTimeMillis());
+		builder.setSmallIcon(icon);
+		if (large_icon != null) {
+			builder.setLargeIcon(large_icon);
+		}
+		if (delete_intent != null) {
+			builder.setDeleteIntent(PendingIntent.getBroadcast(mContext, 0, delete_intent,
+					PendingIntent.FLAG_UPDATE_CURRENT));
+		}
+		if (content_intent != null) {
+			builder.setContentIntent(PendingIntent.getActivity(mContext, 0, content_intent,
+					PendingIntent.FLAG_UPDATE_CURRENT));
+		}
+		int defaults = 0;
+		if (mNotificationIsAudible && !isNotificationsSilent(mContext)) {
+			if (mPreferences.getBoolean(PREFERENCE_KEY_NOTIFICATION_HAVE_SOUND, false)) {
+				final Uri def_ringtone = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
+				final String path = mPreferences.getString(PREFERENCE_KEY_NOTIFICATION_RINGTONE, "");
+				builder.setSound(isEmpty(path) ? def_ringtone : Uri.parse(path), Notification.STREAM_DEFAULT);
+			}
+			if (mPreferences.getBoolean(PREFERENCE_KEY_NOTIFICATION_HAVE_VIBRATION, false)) {
+				defaults |= Notification.DEFAULT_VIBRATE;
+			}
+		}
+		if (mPreferences.getBoolean(PREFERENCE_KEY_NOTIFICATION_HAVE_LIGHTS, false)) {
+			final int color_def = mContext.getResources().getColor(R.color.holo_blue_dark);
+			final int color = mPreferences.getInt(PREFERENCE_KEY_NOTIFICATION_LIGHT_COLOR, color_def);
+			builder.setLights(color, 1000, 2000);
+		}
+		builder.setDefaults(defaults);
+	}
+
+	private void compose() {
+		final Item[] mentions, messages;
+		final int statuses_count;
+		synchronized (mLock) {
+			mentions = mPendingMentions.toArray(new Item[mPendingMentions.size()]);
+			messages = mPendingMessages.toArray(new Item[mPendingMessages.size()]);
+			statuses_count = mPendingStatusesCount;
+			mPendingMentions.clear();
+			mPendingMessages.clear();
+			mPendingStatusesCount = 0;
+			mFirstPendingTime = 0;
+		}
+		if (statuses_count > 0) {
+			mStatusesCount += statuses_count;
+			if (mPreferences.getBoolean(PREFERENCE_KEY_NOTIFICATION_ENABLE_HOME_TIMELINE, false)) {
+				displayHomeTimelineNotification();
+			}
+		}
+		if (mentions.length > 0 && mPreferences.getBoolean(PREFERENCE_KEY_NOTIFICATION_ENABLE_MENTIONS, false)) {
+			int notified_count = 0;
+			for (final Item item : mentions) {
+				if (!isFiltered(mDatabase, item.text_plain, item.text_html, item.screen_name, item.source)) {
+					mMentions.add(item);
+					notified_count++;
+				}
+			}
+			if (notified_count > 0) {
+				displayMentionsNotification();
+			}
+		}
+		if (messages.length > 0
+				&& mPreferences.getBoolean(PREFERENCE_KEY_NOTIFICATION_ENABLE_DIRECT_MESSAGES, false)) {
+			for (final Item item : messages) {
+				mMessages.add(item);
+			}
+			displayMessagesNotification();
+		}
+	}
+
+	/**
+	 * Decodes cached profile image at size of notification large icon,
+	 * falls back to default profile image.
+	 */
+	private Bitmap decodeLargeIcon(final String profile_image_url) {
+		final Resources res = mContext.getResources();
+		final int w = res.getDimensionPixelSize(R.dimen.notification_large_icon_width);
+		final int h = res.getDimensionPixelSize(R.dimen.notification_large_icon_height);
+		final boolean hires_profile_image = res.getBoolean(R.bool.hires_profile_image);
+		final File file = profile_image_url != null ? mImagePreloader.getCachedImageFile(DIR_NAME_IMAGE_CACHE,
+				hires_profile_image ? getBiggerTwitterProfileImage(profile_image_url) : profile_image_url) : null;
+		if (file != null && file.isFile()) {
+			final String path = file.getPath();
+			final BitmapFactory.Options o = new BitmapFactory.Options();
+			o.inJustDecodeBounds = true;
+			BitmapFactory.decodeFile(path, o);
+			if (o.outWidth > 0 && o.outHeight > 0) {
+				o.inJustDecodeBounds = false;
+				o.inSampleSize = 1;
+				while (o.outWidth / (o.inSampleSize * 2) >= w && o.outHeight / (o.inSampleSize * 2) >= h) {
+					o.inSampleSize *= 2;
+				}
+				final Bitmap decoded = BitmapFactory.decodeFile(path, o);
+				if (decoded != null) {
+					if (decoded.getWidth() == w && decoded.getHeight() == h) return decoded;
+					final Bitmap scaled = Bitmap.createScaledBitmap(decoded, w, h, true);
+					if (scaled != decoded) {
+						decoded.recycle();
+					}
+					return scaled;
+				}
+			}
+		}
+		if (mDefaultLargeIcon == null) {
+			final Bitmap fallback = BitmapFactory.decodeResource(res, R.drawable.ic_profile_image_default);
+			mDefaultLargeIcon = fallback != null ? Bitmap.createScaledBitmap(fallback, w, h, true) : null;
+		}
+		return mDefaultLargeIcon;
+	}
+
+	private void displayHomeTimelineNotification() {
+		final Resources res = mContext.getResources();
+		final NotificationCompat.Builder builder = new NotificationCompat.Builder(mContext);
+		final String message = res.getQuantityString(R.plurals.Ntweets, mStatusesCount, mStatusesCount);
+		final Intent delete_intent = getDeleteIntent(NOTIFICATION_ID_HOME_TIMELINE);
+		final Intent content_intent = getHomeIntent(HomeActivity.TAB_POSITION_HOME);
+		builder.setOnlyAlertOnce(true);
+		buildNotification(builder, res.getString(R.string.new_notifications), message, message,
+				R.drawable.ic_stat_tweet, null, content_intent, delete_intent);
+		mNotificationManager.notify(NOTIFICATION_ID_HOME_TIMELINE, builder.build());
+	}
+
+	private void displayMentionsNotification() {
+		final int mentions_size = mMentions.count;
+		if (mentions_size == 0 || mMentions.items.isEmpty()) return;
+		final Resources res = mContext.getResources();
+		final NotificationCompat.Builder builder = new NotificationCompat.Builder(mContext);
+		final boolean display_screen_name = isDisplayScreenName();
+		final Intent delete_intent = getDeleteIntent(NOTIFICATION_ID_MENTIONS);
+		final Intent content_intent;
+		final String title;
+		if (mentions_size > 1) {
+			builder.setNumber(mentions_size);
+		}
+		final int senders_count = mMentions.senders_count;
+		final Item status = mMentions.items.get(0);
+		if (mentions_size == 1) {
+			final Uri.Builder uri_builder = new Uri.Builder();
+			uri_builder.scheme(SCHEME_TWIDERE);
+			uri_builder.authority(AUTHORITY_STATUS);
+			uri_builder.appendQueryParameter(QUERY_PARAM_ACCOUNT_ID, String.valueOf(status.account_id));
+			uri_builder.appendQueryParameter(QUERY_PARAM_STATUS_ID, String.valueOf(status.id));
+			content_intent = new Intent(Intent.ACTION_VIEW, uri_builder.build());
+		} else {
+			content_intent = getHomeIntent(HomeActivity.TAB_POSITION_MENTIONS);
+		}
+		if (senders_count > 1) {
+			title = res.getString(R.string.notification_mention_multiple, display_screen_name ? "@"
+					+ status.screen_name : status.name, senders_count - 1);
+		} else {
+			title = res.getString(R.string.notification_mention, display_screen_name ? "@" + status.screen_name
+					: status.name);
+		}
+		buildNotification(builder, title, title, status.text_plain, R.drawable.ic_stat_mention,
+				decodeLargeIcon(status.profile_image_url), content_intent, delete_intent);
+		if (mentions_size > 1) {
+			final NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle(builder);
+			final int max = Math.min(MAX_INBOX_LINES, mMentions.items.size());
+			for (int i = 0; i < max; i++) {
+				final Item s = mMentions.items.get(i);
+				final String name = display_screen_name ? "@" + s.screen_name : s.name;
+				style.addLine(Html.fromHtml("<b>" + name + "</b>: "
+						+ stripMentionText(toPlainText(s.text_html), getAccountScreenName(mContext, s.account_id))));
+			}
+			if (mentions_size - max > 0) {
+				style.addLine(mContext.getString(R.string.and_more, mentions_size - max));
+			}
+			final String summary = getAccountsSummary(mMentions.account_ids, display_screen_name);
+			if (summary != null) {
+				style.setSummaryText(summary);
+			}
+			mNotificationManager.notify(NOTIFICATION_ID_MENTIONS, style.build());
+		} else {
+			final ParcelableStatus parcelable_status = findStatusInDatabases(mContext, status.account_id, status.id);
+			if (parcelable_status != null) {
+				final Intent reply_intent = new Intent(INTENT_ACTION_REPLY);
+				final Bundle bundle = new Bundle();
+				bundle.putInt(INTENT_KEY_NOTIFICATION_ID, NOTIFICATION_ID_MENTIONS);
+				bundle.putParcelable(INTENT_KEY_STATUS, parcelable_status);
+				reply_intent.putExtras(bundle);
+				reply_intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+				builder.addAction(R.drawable.ic_menu_reply, mContext.getString(R.string.reply),
+						PendingIntent.getActivity(mContext, 0, reply_intent, PendingIntent.FLAG_UPDATE_CURRENT));
+			}
+			final NotificationCompat.BigTextStyle style = new NotificationCompat.BigTextStyle(builder);
+			style.bigText(stripMentionText(toPlainText(status.text_html),
+					getAccountScreenName(mContext, status.account_id)));
+			mNotificationManager.notify(NOTIFICATION_ID_MENTIONS, style.build());
+		}
+	}
+
+	private void displayMessagesNotification() {
+		final int messages_size = mMessages.count;
+		if (messages_size == 0 || mMessages.items.isEmpty()) return;
+		final Resources res = mContext.getResources();
+		final NotificationCompat.Builder builder = new NotificationCompat.Builder(mContext);
+		final boolean display_screen_name = isDisplayScreenName();
+		final Intent delete_intent = getDeleteIntent(NOTIFICATION_ID_DIRECT_MESSAGES);
+		final Intent content_intent;
+		final String title;
+		if (messages_size > 1) {
+			builder.setNumber(messages_size);
+		}
+		final int senders_count = mMessages.senders_count;
+		final Item message = mMessages.items.get(0);
+		if (messages_size == 1) {
+			final Uri.Builder uri_builder = new Uri.Builder();
+			uri_builder.scheme(SCHEME_TWIDERE);
+			uri_builder.authority(AUTHORITY_DIRECT_MESSAGES_CONVERSATION);
+			uri_builder.appendQueryParameter(QUERY_PARAM_ACCOUNT_ID, String.valueOf(message.account_id));
+			uri_builder.appendQueryParameter(QUERY_PARAM_CONVERSATION_ID, String.valueOf(message.user_id));
+			content_intent = new Intent(Intent.ACTION_VIEW, uri_builder.build());
+		} else {
+			content_intent = getHomeIntent(HomeActivity.TAB_POSITION_MESSAGES);
+		}
+		if (senders_count > 1) {
+			title = res.getString(R.string.notification_direct_message_multiple, display_screen_name ? "@"
+					+ message.screen_name : message.name, senders_count - 1);
+		} else {
+			title = res.getString(R.string.notification_direct_message, display_screen_name ? "@"
+					+ message.screen_name : message.name);
+		}
+		buildNotification(builder, title, title, message.text_plain, R.drawable.ic_stat_direct_message,
+				decodeLargeIcon(message.profile_image_url), content_intent, delete_intent);
+		final String summary = getAccountsSummary(mMessages.account_ids, display_screen_name);
+		if (messages_size > 1) {
+			final NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle(builder);
+			final int max = Math.min(MAX_INBOX_LINES, mMessages.items.size());
+			for (int i = 0; i < max; i++) {
+				final Item s = mMessages.items.get(i);
+				final String name = display_screen_name ? "@" + s.screen_name : s.name;
+				style.addLine(Html.fromHtml("<b>" + name + "</b>: " + s.text_plain));
+			}
+			if (messages_size - max > 0) {
+				style.addLine(mContext.getString(R.string.and_more, messages_size - max));
+			}
+			style.setSummaryText(summary);
+			mNotificationManager.notify(NOTIFICATION_ID_DIRECT_MESSAGES, style.build());
+		} else {
+			final NotificationCompat.BigTextStyle style = new NotificationCompat.BigTextStyle(builder);
+			style.bigText(message.text_plain);
+			style.setSummaryText(summary);
+			mNotificationManager.notify(NOTIFICATION_ID_DIRECT_MESSAGES, style.build());
+		}
+	}
+
+	private String getAccountsSummary(final Set<Long> account_ids, final boolean display_screen_name) {
+		if (account_ids.isEmpty()) return null;
+		final StringBuilder summary = new StringBuilder();
+		for (final long account_id : account_ids) {
+			if (summary.length() > 0) {
+				summary.append(", ");
+			}
+			summary.append(display_screen_name ? "@" + getAccountScreenName(mContext, account_id) : getAccountName(
+					mContext, account_id));
+		}
+		return summary.toString();
+	}
+
+	private Intent getHomeIntent(final int initial_tab) {
+		final Intent intent = new Intent(mContext, HomeActivity.class);
+		intent.setAction(Intent.ACTION_MAIN);
+		intent.addCategory(Intent.CATEGORY_LAUNCHER);
+		final Bundle extras = new Bundle();
+		extras.putInt(INTENT_KEY_INITIAL_TAB, initial_tab);
+		intent.putExtras(extras);
+		return intent;
+	}
+
+	private boolean isDisplayScreenName() {
+		return NAME_DISPLAY_OPTION_SCREEN_NAME.equals(mPreferences.getString(PREFERENCE_KEY_NAME_DISPLAY_OPTION,
+				NAME_DISPLAY_OPTION_BOTH));
+	}
+
+	/**
+	 * Must be called with {@link #mLock} held.
+	 */
+	private void scheduleCompose() {
+		final long now = SystemClock.uptimeMillis();
+		if (mFirstPendingTime == 0) {
+			mFirstPendingTime = now;
+		}
+		// Keep waiting while items come in, but not longer than
+		// MAX_COMPOSE_DELAY since the first of them.
+		final long delay = Math.max(0, Math.min(COMPOSE_DELAY, mFirstPendingTime + MAX_COMPOSE_DELAY - now));
+		mHandler.removeCallbacks(mComposeRunnable);
+		mHandler.postDelayed(mComposeRunnable, delay);
+	}
+
+	private static Intent getDeleteIntent(final int notification_id) {
+		final Intent intent = new Intent(BROADCAST_NOTIFICATION_CLEARED);
+		final Bundle extras = new Bundle();
+		extras.putInt(INTENT_KEY_NOTIFICATION_ID, notification_id);
+		intent.putExtras(extras);
+		return intent;
+	}
+
+	private static String stripMentionText(final String text, final String my_screen_name) {
+		if (text == null || my_screen_name == null) return text;
+		final String temp = "@" + my_screen_name + " ";
+		if (text.startsWith(temp)) return text.substring(temp.length());
+		return text;
+	}
+
+	/**
+	 * What a notification needs of a status or message, converting text and
+	 * decoding profile image are left to the composing thread.
+	 */
+	private static final class Item implements Comparable<Item> {
+
+		final long account_id, id, user_id;
+		final String name, screen_name, profile_image_url, text_plain, text_html, source;
+
+		Item(final long account_id, final long id, final long user_id, final String name, final String screen_name,
+				final String profile_image_url, final String text_plain, final String text_html, final String source) {
+			this.account_id = account_id;
+			this.id = id;
+			this.user_id = user_id;
+			this.name = name;
+			this.screen_name = screen_name;
+			this.profile_image_url = profile_image_url;
+			this.text_plain = text_plain;
+			this.text_html = text_html;
+			this.source = source;
+		}
+
+		@Override
+		public int compareTo(final Item another) {
+			final long diff = another.id - id;
+			if (diff > Integer.MAX_VALUE) return Integer.MAX_VALUE;
+			if (diff < Integer.MIN_VALUE) return Integer.MIN_VALUE;
+			return (int) diff;
+		}
+
+		static Item fromMessage(final ContentValues values) {
+			return new Item(getAsLong(values, DirectMessages.ACCOUNT_ID, -1), getAsLong(values,
+					DirectMessages.MESSAGE_ID, -1), getAsLong(values, DirectMessages.SENDER_ID, -1),
+					values.getAsString(DirectMessages.SENDER_NAME), values.getAsString(DirectMessages.SENDER_SCREEN_NAME),
+					values.getAsString(DirectMessages.SENDER_PROFILE_IMAGE_URL),
+					values.getAsString(DirectMessages.TEXT_PLAIN), values.getAsString(DirectMessages.TEXT_HTML), null);
+		}
+
+		static Item fromStatus(final ContentValues values) {
+			return new Item(getAsLong(values, Statuses.ACCOUNT_ID, -1), getAsLong(values, Statuses.STATUS_ID, -1),
+					getAsLong(values, Statuses.USER_ID, -1), values.getAsString(Statuses.NAME),
+					values.getAsString(Statuses.SCREEN_NAME), values.getAsString(Statuses.PROFILE_IMAGE_URL),
+					values.getAsString(Statuses.TEXT_PLAIN), values.getAsString(Statuses.TEXT_HTML),
+					values.getAsString(Statuses.SOURCE));
+		}
+	}
+
+	/**
+	 * Items shown in a notification, newest first, at most
+	 * {@link #MAX_RETAINED_ITEMS} of them are kept. Senders are only compared
+	 * with the kept items, so a sender whose items were all dropped is
+	 * counted again.
+	 */
+	private static final class ItemHistory {
+
+		final List<Item> items = new ArrayList<Item>();
+		final Set<Long> account_ids = new LinkedHashSet<Long>();
+		int count, senders_count;
+
+		void add(final Item item) {
+			if (!hasSender(item.user_id)) {
+				senders_count++;
+			}
+			final int index = Collections.binarySearch(items, item);
+			final int position = index < 0 ? -index - 1 : index;
+			if (position < MAX_RETAINED_ITEMS) {
+				items.add(position, item);
+				if (items.size() > MAX_RETAINED_ITEMS) {
+					items.remove(items.size() - 1);
+				}
+			}
+			account_ids.add(item.account_id);
+			count++;
+		}
+
+		void clear() {
+			items.clear();
+			account_ids.clear();
+			count = 0;
+			senders_count = 0;
+		}
+
+		private boolean hasSender(final long user_id) {
+			for (final Item item : items) {
+				if (item.user_id == user_id) return true;
+			}
+			return false;
+		}
+	}
+}
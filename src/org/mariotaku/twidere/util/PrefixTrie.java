@@ -0,0 +1,209 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Compressed prefix tree mapping string keys to values. Every node caches
+ * the best values of its subtree, so top-k prefix queries don't have to
+ * walk the subtree again until something below the node changes. Not
+ * thread safe.
+ * 
+ * @author mariotaku
+ */
+public class PrefixTrie<T> {
+
+	private final Comparator<? super T> mComparator;
+	private final int mMaxResults;
+
+	private Node<T> mRoot = new Node<T>("");
+
+	public PrefixTrie(final Comparator<? super T> comparator, final int max_results) {
+		if (comparator == null) throw new NullPointerException();
+		mComparator = comparator;
+		mMaxResults = max_results;
+	}
+
+	public void clear() {
+		mRoot = new Node<T>("");
+	}
+
+	/**
+	 * Marks cached results containing the key as stale, call this after
+	 * the ranking of a value changed.
+	 */
+	public void invalidate(final String key) {
+		final Node<T> node = findNode(key, true);
+		if (node != null) {
+			node.top = null;
+		}
+	}
+
+	public void put(final String key, final T value) {
+		if (key == null || value == null) return;
+		Node<T> node = mRoot;
+		node.top = null;
+		int i = 0;
+		final int length = key.length();
+		while (i < length) {
+			final int idx = node.indexOfChild(key.charAt(i));
+			if (idx < 0) {
+				final Node<T> leaf = new Node<T>(key.substring(i));
+				leaf.values.add(value);
+				node.children.add(-idx - 1, leaf);
+				return;
+			}
+			Node<T> child = node.children.get(idx);
+			final String label = child.label;
+			final int common = commonPrefixLength(label, key, i);
+			if (common < label.length()) {
+				// Split the edge, the new node takes the common part.
+				final Node<T> middle = new Node<T>(label.substring(0, common));
+				child.label = label.substring(common);
+				middle.children.add(child);
+				node.children.set(idx, middle);
+				child = middle;
+			}
+			child.top = null;
+			node = child;
+			i += common;
+		}
+		if (!node.values.contains(value)) {
+			node.values.add(value);
+		}
+	}
+
+	/**
+	 * @return At most max_results values with keys starting with prefix,
+	 *         best first.
+	 */
+	public List<T> query(final String prefix) {
+		final Node<T> node = findNode(prefix != null ? prefix : "", false);
+		if (node == null) return Collections.emptyList();
+		return getTopValues(node);
+	}
+
+	public void remove(final String key, final T value) {
+		if (key == null) return;
+		final Node<T> node = findNode(key, true);
+		if (node != null) {
+			node.values.remove(value);
+		}
+	}
+
+	/**
+	 * Finds the node holding the prefix. If exact is true, the node must end
+	 * exactly at the end of the prefix, and results cached on the path are
+	 * dropped.
+	 */
+	private Node<T> findNode(final String prefix, final boolean exact) {
+		Node<T> node = mRoot;
+		if (exact) {
+			node.top = null;
+		}
+		int i = 0;
+		final int length = prefix.length();
+		while (i < length) {
+			final int idx = node.indexOfChild(prefix.charAt(i));
+			if (idx < 0) return null;
+			final Node<T> child = node.children.get(idx);
+			final String label = child.label;
+			final int remaining = length - i;
+			if (label.length() > remaining) {
+				if (exact || !label.startsWith(prefix.substring(i))) return null;
+				return child;
+			}
+			if (!prefix.regionMatches(i, label, 0, label.length())) return null;
+			if (exact) {
+				child.top = null;
+			}
+			node = child;
+			i += label.length();
+		}
+		return node;
+	}
+
+	private List<T> getTopValues(final Node<T> node) {
+		if (node.top != null) return node.top;
+		final IdentityHashMap<T, Boolean> seen = new IdentityHashMap<T, Boolean>();
+		final ArrayList<T> result = new ArrayList<T>();
+		for (final T value : node.values) {
+			if (seen.put(value, Boolean.TRUE) == null) {
+				result.add(value);
+			}
+		}
+		for (final Node<T> child : node.children) {
+			for (final T value : getTopValues(child)) {
+				if (seen.put(value, Boolean.TRUE) == null) {
+					result.add(value);
+				}
+			}
+		}
+		Collections.sort(result, mComparator);
+		final List<T> top = result.size() > mMaxResults ? new ArrayList<T>(result.subList(0, mMaxResults)) : result;
+		return node.top = Collections.unmodifiableList(top);
+	}
+
+	private static int commonPrefixLength(final String label, final String key, final int offset) {
+		final int max = Math.min(label.length(), key.length() - offset);
+		int i = 0;
+		while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+			i++;
+		}
+		return i;
+	}
+
+	private static final class Node<T> {
+
+		final ArrayList<Node<T>> children = new ArrayList<Node<T>>(2);
+		final ArrayList<T> values = new ArrayList<T>(1);
+		String label;
+		List<T> top;
+
+		Node(final String label) {
+			this.label = label;
+		}
+
+		/**
+		 * Binary search on the first character of child labels.
+		 * 
+		 * @return index of the child, or (-(insertion point) - 1)
+		 */
+		int indexOfChild(final char c) {
+			int low = 0, high = children.size() - 1;
+			while (low <= high) {
+				final int mid = low + high >>> 1;
+				final char mid_char = children.get(mid).label.charAt(0);
+				if (mid_char < c) {
+					low = mid + 1;
+				} else if (mid_char > c) {
+					high = mid - 1;
+				} else
+					return mid;
+			}
+			return -(low + 1);
+		}
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.mariotaku.twidere.util;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import twitter4j.TwitterException;
+import twitter4j.auth.AccessToken;
+import twitter4j.auth.Authorization;
+import twitter4j.auth.BasicAuthorization;
+import twitter4j.auth.OAuthAuthorization;
+import twitter4j.http.HttpRequest;
+import twitter4j.http.HttpResponse;
+
+/**
+ * Tracks remaining quota of every account and API endpoint from rate limit
+ * headers, and refuses requests which would be wasted.
+ * <p>
+ * Requests made from tasks with {@link TaskScheduler#PRIORITY_LOW}, such as
+ * background refreshing and prefetching, leave a reserved part of the quota
+ * to interactive requests.
+ */
+public final class RateLimitGovernor {
+
+	public static final String ACCOUNT_ANONYMOUS = "anonymous";
+
+	private static final String HEADER_LIMIT = "X-Rate-Limit-Limit";
+	private static final String HEADER_REMAINING = "X-Rate-Limit-Remaining";
+	private static final String HEADER_RESET = "X-Rate-Limit-Reset";
+
+	private static final int STATUS_TOO_MANY_REQUESTS = 429;
+
+	private static final Pattern PATTERN_API_VERSION = Pattern.compile("^/\\d+(\\.\\d+)?/");
+	private static final Pattern PATTERN_NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+	private static RateLimitGovernor sInstance;
+
+	private final ConcurrentHashMap<String, Budget> mBudgets = new ConcurrentHashMap<String, Budget>();
+
+	private RateLimitGovernor() {
+	}
+
+	/**
+	 * Throws {@link TwitterException} if the request should not be made now.
+	 */
+	public void checkRequest(final HttpRequest req) throws TwitterException {
+		final String endpoint = getEndpoint(req.getURL());
+		if (endpoint == null) return;
+		final Budget budget = mBudgets.get(getKey(getAccount(req.getAuthorization()), endpoint));
+		if (budget == null || budget.isReset()) return;
+		final boolean background = TaskScheduler.getCurrentPriority() < TaskScheduler.PRIORITY_NORMAL;
+		final int available = background ? budget.remaining - budget.getReserved() : budget.remaining;
+		if (available > 0) return;
+		throw new TwitterException("Rate limit of " + endpoint + " exceeded, it will be reset in "
+				+ budget.getSecondsUntilReset() + " seconds");
+	}
+
+	/**
+	 * Returns calls available to requests with given priority, or -1 if the
+	 * budget is not known yet.
+	 */
+	public int getAvailableCalls(final long account_id, final String endpoint, final int priority) {
+		final Budget budget = mBudgets.get(getKey(String.valueOf(account_id), endpoint));
+		if (budget == null || budget.isReset()) return -1;
+		if (priority < TaskScheduler.PRIORITY_NORMAL) return Math.max(0, budget.remaining - budget.getReserved());
+		return budget.remaining;
+	}
+
+	/**
+	 * Returns current budgets, with lowest remaining ratio first.
+	 */
+	public List<Budget> getBudgets() {
+		final List<Budget> budgets = new ArrayList<Budget>();
+		for (final Budget budget : mBudgets.values()) {
+			if (!budget.isReset()) {
+				budgets.add(budget);
+			}
+		}
+		Collections.sort(budgets);
+		return budgets;
+	}
+
+	public void onResponse(final HttpRequest req, final HttpResponse res) {
+		final String endpoint = getEndpoint(req.getURL());
+		if (endpoint == null || res == null) return;
+		final int limit = parseInt(res.getResponseHeader(HEADER_LIMIT));
+		final int remaining = parseInt(res.getResponseHeader(HEADER_REMAINING));
+		final long reset = parseInt(res.getResponseHeader(HEADER_RESET));
+		if (reset <= 0) return;
+		final String account = getAccount(req.getAuthorization());
+		final boolean exceeded = res.getStatusCode() == STATUS_TOO_MANY_REQUESTS;
+		final Budget budget = new Budget(account, endpoint, limit, exceeded ? 0 : Math.max(0, remaining),
+				reset * 1000);
+		mBudgets.put(getKey(account, endpoint), budget);
+	}
+
+	public static RateLimitGovernor getInstance() {
+		synchronized (RateLimitGovernor.class) {
+			if (sInstance == null) {
+				sInstance = new RateLimitGovernor();
+			}
+			return sInstance;
+		}
+	}
+
+	private static String getAccount(final Authorization auth) {
+		try {
+			if (auth instanceof OAuthAuthorization) {
+				final AccessToken token = ((OAuthAuthorization) auth).getOAuthAccessToken();
+				if (token != null) return String.valueOf(token.getUserId());
+			} else if (auth instanceof BasicAuthorization)
+				return ((BasicAuthorization) auth).getUserId();
+		} catch (final TwitterException e) {
+		} catch (final IllegalStateException e) {
+		}
+		return ACCOUNT_ANONYMOUS;
+	}
+
+	/**
+	 * Returns path of the URL without API version, format suffix and
+	 * numeric IDs, e.g. {@code statuses/show/:id}.
+	 */
+	private static String getEndpoint(final String url_string) {
+		if (url_string == null) return null;
+		try {
+			String path = new URL(url_string).getPath();
+			path = PATTERN_API_VERSION.matcher(path).replaceFirst("/");
+			if (path.endsWith(".json")) {
+				path = path.substring(0, path.length() - 5);
+			}
+			path = PATTERN_NUMERIC_SEGMENT.matcher(path).replaceAll("/:id");
+			if (path.startsWith("/")) {
+				path = path.substring(1);
+			}
+			// Requests of OAuth flow have no rate limit, and the account is
+			// unknown yet.
+			return path.startsWith("oauth/") ? null : path;
+		} catch (final MalformedURLException e) {
+			return null;
+		}
+	}
+
+	private static String getKey(final String account, final String endpoint) {
+		return account + " " + endpoint;
+	}
+
+	private static int parseInt(final String string) {
+		if (string == null) return -1;
+		try {
+			return Integer.parseInt(string.trim());
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	public static final class Budget implements Comparable<Budget> {
+
+		/**
+		 * Part of the limit reserved for interactive requests.
+		 */
+		private static final float RESERVED_RATIO = 0.2f;
+
+		public final String account, endpoint;
+		public final int limit, remaining;
+		public final long reset_time;
+
+		Budget(final String account, final String endpoint, final int limit, final int remaining,
+				final long reset_time) {
+			this.account = account;
+			this.endpoint = endpoint;
+			this.limit = limit;
+			this.remaining = remaining;
+			this.reset_time = reset_time;
+		}
+
+		@Override
+		public int compareTo(final Budget another) {
+			final float ratio = getRatio(), another_ratio = another.getRatio();
+			if (ratio != another_ratio) return ratio < another_ratio ? -1 : 1;
+			return endpoint.compareTo(another.endpoint);
+		}
+
+		public int getReserved() {
+			return limit > 0 ? Math.max(1, (int) (limit * RESERVED_RATIO)) : 1;
+		}
+
+		public long getSecondsUntilReset() {
+			return Math.max(0, (reset_time - System.currentTimeMillis()) / 1000);
+		}
+
+		public boolean isReset() {
+			return reset_time <= System.currentTimeMillis();
+		}
+
+		@Override
+		public String toString() {
+			return account + " " + endpoint + ": " + remaining + "/" + limit + ", reset in " + getSecondsUntilReset()
+					+ "s";
+		}
+
+		private float getRatio() {
+			return limit > 0 ? (float) remaining / limit : 1;
+		}
+	}
+}
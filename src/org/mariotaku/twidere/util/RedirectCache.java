@@ -0,0 +1,82 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.mariotaku.twidere.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers where permanently redirected URLs (e.g. t.co links to picture
+ * hosts) end up, so repeat requests can skip the redirect chain.
+ */
+public final class RedirectCache {
+
+	private static final int MAX_ENTRIES = 256;
+
+	private static RedirectCache sInstance;
+
+	private final LinkedHashMap<String, Redirect> mMap = new LinkedHashMap<String, Redirect>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 2926512930839738016L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Redirect> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private RedirectCache() {
+	}
+
+	public synchronized Redirect get(final String url) {
+		if (url == null) return null;
+		return mMap.get(url);
+	}
+
+	public synchronized void put(final String url, final String target, final int redirects) {
+		if (url == null || target == null || url.equals(target)) return;
+		mMap.put(url, new Redirect(target, redirects));
+	}
+
+	public synchronized void remove(final String url) {
+		mMap.remove(url);
+	}
+
+	public static RedirectCache getInstance() {
+		synchronized (RedirectCache.class) {
+			if (sInstance == null) {
+				sInstance = new RedirectCache();
+			}
+			return sInstance;
+		}
+	}
+
+	public static final class Redirect {
+
+		public final String target;
+		public final int redirects;
+
+		Redirect(final String target, final int redirects) {
+			this.target = target;
+			this.redirects = redirects;
+		}
+	}
+}
@@ -0,0 +1,311 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.mariotaku.twidere.util;
+
+import static org.mariotaku.twidere.util.Utils.appendQueryParameters;
+import static org.mariotaku.twidere.util.Utils.makeDirectMessageContentValues;
+import static org.mariotaku.twidere.util.Utils.makeStatusContentValues;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
+import org.mariotaku.twidere.provider.TweetStore.Mentions;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+
+import twitter4j.DirectMessage;
+import twitter4j.Status;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.net.Uri;
+import android.util.Log;
+
+/**
+ * Collects items pushed by streams and writes them to the provider in
+ * batches, from its own thread. Producers block when {@link #MAX_PENDING}
+ * items are waiting, so a slow database slows down reading the streams
+ * instead of growing memory.
+ */
+public class StreamBatchWriter implements Constants, Runnable {
+
+	public static final int BATCH_SIZE = 50;
+	public static final int MAX_PENDING = 500;
+	public static final long FLUSH_INTERVAL = 1000L;
+
+	private final ContentResolver mResolver;
+	private final boolean mLargeProfileImage;
+	private final Object mLock = new Object();
+	private final StreamRangeTracker mRanges = new StreamRangeTracker();
+
+	private Batch mBatch = new Batch();
+	private Thread mThread;
+	private volatile boolean mStopped;
+	private volatile long[] mAccountIds = new long[0];
+
+	public StreamBatchWriter(final ContentResolver resolver, final boolean large_profile_image) {
+		mResolver = resolver;
+		mLargeProfileImage = large_profile_image;
+	}
+
+	public void addDirectMessage(final long account_id, final DirectMessage message) {
+		final boolean is_outgoing = message.getSenderId() == account_id;
+		final ContentValues values = makeDirectMessageContentValues(message, account_id, is_outgoing,
+				mLargeProfileImage);
+		if (values == null) return;
+		synchronized (mLock) {
+			waitForCapacity();
+			mBatch.addInsert(is_outgoing ? DirectMessages.Outbox.CONTENT_URI : DirectMessages.Inbox.CONTENT_URI,
+					values);
+			mLock.notifyAll();
+		}
+	}
+
+	public void addStatus(final long account_id, final Status status) {
+		final ContentValues values = makeStatusContentValues(status, account_id, mAccountIds, mLargeProfileImage);
+		if (values == null) return;
+		synchronized (mLock) {
+			waitForCapacity();
+			mBatch.addInsert(Statuses.CONTENT_URI, values);
+			mRanges.add(account_id, status.getId());
+			if (!status.isRetweet() && isMentioned(values, account_id)) {
+				mBatch.addInsert(Mentions.CONTENT_URI, new ContentValues(values));
+			}
+			mLock.notifyAll();
+		}
+	}
+
+	public void deleteDirectMessage(final long message_id) {
+		synchronized (mLock) {
+			waitForCapacity();
+			mBatch.deleted_message_ids.add(message_id);
+			mBatch.onItemAdded();
+			mLock.notifyAll();
+		}
+	}
+
+	public void deleteStatus(final long status_id) {
+		synchronized (mLock) {
+			waitForCapacity();
+			mBatch.deleted_status_ids.add(status_id);
+			mBatch.onItemAdded();
+			mLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Called when the stream of the account connected, statuses added before
+	 * aren't continuous with the ones added after.
+	 */
+	public void onStreamConnected(final long account_id) {
+		synchronized (mLock) {
+			mRanges.onConnected(account_id);
+		}
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			final Batch batch;
+			final List<long[]> ranges;
+			synchronized (mLock) {
+				try {
+					while (!mStopped && !mBatch.isReady()) {
+						final long wait = mBatch.size > 0 ? mBatch.first_add_time + FLUSH_INTERVAL
+								- System.currentTimeMillis() : 0;
+						if (wait <= 0 && mBatch.size > 0) {
+							break;
+						}
+						mLock.wait(wait);
+					}
+				} catch (final InterruptedException e) {
+					mStopped = true;
+				}
+				batch = mBatch;
+				mBatch = new Batch();
+				ranges = mRanges.poll();
+				mLock.notifyAll();
+			}
+			if (batch.size > 0) {
+				try {
+					write(batch);
+					addRanges(ranges);
+				} catch (final RuntimeException e) {
+					Log.w(LOGTAG, e);
+				}
+			}
+			if (mStopped) return;
+		}
+	}
+
+	/**
+	 * Sets IDs of user's accounts, statuses mentioning them are marked when
+	 * added.
+	 */
+	public void setAccountIds(final long[] account_ids) {
+		mAccountIds = account_ids != null ? account_ids : new long[0];
+	}
+
+	public void setFavorite(final long account_id, final long status_id, final boolean favorite) {
+		final ContentValues values = new ContentValues();
+		values.put(Statuses.IS_FAVORITE, favorite);
+		final String where = Statuses.ACCOUNT_ID + " = " + account_id + " AND " + Statuses.STATUS_ID + " = "
+				+ status_id;
+		synchronized (mLock) {
+			waitForCapacity();
+			mBatch.updates.put(where, values);
+			mBatch.onItemAdded();
+			mLock.notifyAll();
+		}
+	}
+
+	public synchronized void start() {
+		if (mThread != null) return;
+		mStopped = false;
+		mThread = new Thread(this, "StreamBatchWriter");
+		mThread.setPriority(Thread.MIN_PRIORITY);
+		mThread.start();
+	}
+
+	/**
+	 * Writes pending items and stops the writer thread.
+	 */
+	public synchronized void stop() {
+		if (mThread == null) return;
+		synchronized (mLock) {
+			mStopped = true;
+			mLock.notifyAll();
+		}
+		mThread = null;
+	}
+
+	/**
+	 * Mentions are pushed by the stream too, so the same ranges are loaded for
+	 * both timelines.
+	 */
+	private void addRanges(final List<long[]> ranges) {
+		for (final long[] range : ranges) {
+			TimelineRangeUtils.addRange(mResolver, TABLE_STATUSES, range[0], range[1], range[2]);
+			TimelineRangeUtils.addRange(mResolver, TABLE_MENTIONS, range[0], range[1], range[2]);
+		}
+	}
+
+	private void insert(final Uri uri, final List<ContentValues> values_list) {
+		final boolean is_message = DirectMessages.Inbox.CONTENT_URI.equals(uri)
+				|| DirectMessages.Outbox.CONTENT_URI.equals(uri);
+		final String account_col = is_message ? DirectMessages.ACCOUNT_ID : Statuses.ACCOUNT_ID;
+		final String id_col = is_message ? DirectMessages.MESSAGE_ID : Statuses.STATUS_ID;
+		final Map<Long, List<Long>> ids_by_account = new HashMap<Long, List<Long>>();
+		for (final ContentValues values : values_list) {
+			final long account_id = values.getAsLong(account_col);
+			List<Long> ids = ids_by_account.get(account_id);
+			if (ids == null) {
+				ids = new ArrayList<Long>();
+				ids_by_account.put(account_id, ids);
+			}
+			ids.add(values.getAsLong(id_col));
+		}
+		final StringBuilder where = new StringBuilder();
+		for (final Map.Entry<Long, List<Long>> entry : ids_by_account.entrySet()) {
+			if (where.length() > 0) {
+				where.append(" OR ");
+			}
+			where.append("(" + account_col + " = " + entry.getKey() + " AND " + id_col + " IN ("
+					+ ListUtils.toString(entry.getValue(), ',', false) + "))");
+		}
+		final Uri delete_uri = appendQueryParameters(uri, new NameValuePairImpl(QUERY_PARAM_NOTIFY, false));
+		mResolver.delete(delete_uri, where.toString(), null);
+		mResolver.bulkInsert(uri, values_list.toArray(new ContentValues[values_list.size()]));
+	}
+
+	private void waitForCapacity() {
+		while (!mStopped && mBatch.size >= MAX_PENDING) {
+			try {
+				mLock.wait();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private void write(final Batch batch) {
+		for (final Map.Entry<Uri, List<ContentValues>> entry : batch.inserts.entrySet()) {
+			insert(entry.getKey(), entry.getValue());
+		}
+		if (!batch.deleted_status_ids.isEmpty()) {
+			final String ids = ListUtils.toString(batch.deleted_status_ids, ',', false);
+			final String where = Statuses.STATUS_ID + " IN (" + ids + ") OR " + Statuses.RETWEET_ID + " IN (" + ids
+					+ ")";
+			mResolver.delete(Statuses.CONTENT_URI, where, null);
+			mResolver.delete(Mentions.CONTENT_URI, where, null);
+		}
+		if (!batch.deleted_message_ids.isEmpty()) {
+			final String where = DirectMessages.MESSAGE_ID + " IN ("
+					+ ListUtils.toString(batch.deleted_message_ids, ',', false) + ")";
+			mResolver.delete(DirectMessages.Inbox.CONTENT_URI, where, null);
+			mResolver.delete(DirectMessages.Outbox.CONTENT_URI, where, null);
+		}
+		for (final Map.Entry<String, ContentValues> entry : batch.updates.entrySet()) {
+			mResolver.update(Statuses.CONTENT_URI, entry.getValue(), entry.getKey(), null);
+			mResolver.update(Mentions.CONTENT_URI, entry.getValue(), entry.getKey(), null);
+		}
+	}
+
+	private static boolean isMentioned(final ContentValues values, final long account_id) {
+		final String mentioned_account_ids = values.getAsString(Statuses.MENTIONED_ACCOUNT_IDS);
+		if (mentioned_account_ids == null) return false;
+		return ArrayUtils.contains(ArrayUtils.fromString(mentioned_account_ids, ','), account_id);
+	}
+
+	private static final class Batch {
+
+		final Map<Uri, List<ContentValues>> inserts = new LinkedHashMap<Uri, List<ContentValues>>();
+		final List<Long> deleted_status_ids = new ArrayList<Long>();
+		final List<Long> deleted_message_ids = new ArrayList<Long>();
+		final Map<String, ContentValues> updates = new LinkedHashMap<String, ContentValues>();
+		int size;
+		long first_add_time;
+
+		void addInsert(final Uri uri, final ContentValues values) {
+			List<ContentValues> list = inserts.get(uri);
+			if (list == null) {
+				list = new ArrayList<ContentValues>();
+				inserts.put(uri, list);
+			}
+			list.add(values);
+			onItemAdded();
+		}
+
+		boolean isReady() {
+			return size >= BATCH_SIZE || size > 0 && System.currentTimeMillis() >= first_add_time + FLUSH_INTERVAL;
+		}
+
+		void onItemAdded() {
+			if (size++ == 0) {
+				first_add_time = System.currentTimeMillis();
+			}
+		}
+	}
+}
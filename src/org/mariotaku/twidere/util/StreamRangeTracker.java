@@ -0,0 +1,91 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks spans of statuses received from user streams, for
+ * {@link TimelineRangeUtils}. Nothing is missed between two statuses of the
+ * same connection, so a span continues from the newest status polled before
+ * on that connection, and batches of one connection join into one range.
+ * <p>
+ * Not thread safe, {@link StreamBatchWriter} calls it with its lock held.
+ */
+public class StreamRangeTracker {
+
+	private final Map<Long, Long> mConnections = new HashMap<Long, Long>();
+	private final Map<Long, long[]> mPolled = new HashMap<Long, long[]>();
+	private final List<long[]> mPending = new ArrayList<long[]>();
+
+	public void add(final long account_id, final long status_id) {
+		final long connection = getConnection(account_id);
+		for (int i = mPending.size() - 1; i >= 0; i--) {
+			final long[] span = mPending.get(i);
+			if (span[0] != account_id) {
+				continue;
+			}
+			if (span[1] == connection) {
+				span[2] = Math.min(span[2], status_id);
+				span[3] = Math.max(span[3], status_id);
+				return;
+			}
+			break;
+		}
+		mPending.add(new long[] { account_id, connection, status_id, status_id });
+	}
+
+	/**
+	 * Statuses added after this aren't continuous with earlier ones, the
+	 * stream may have missed some while reconnecting.
+	 */
+	public void onConnected(final long account_id) {
+		mConnections.put(account_id, getConnection(account_id) + 1);
+	}
+
+	/**
+	 * @return Spans added since the last call, as
+	 *         <code>{account_id, min_id, max_id}</code>.
+	 */
+	public List<long[]> poll() {
+		final List<long[]> result = new ArrayList<long[]>(mPending.size());
+		for (final long[] span : mPending) {
+			final long account_id = span[0], connection = span[1];
+			long min_id = span[2], max_id = span[3];
+			final long[] last = mPolled.get(account_id);
+			if (last != null && last[0] == connection) {
+				min_id = Math.min(min_id, last[1]);
+				max_id = Math.max(max_id, last[1]);
+			}
+			mPolled.put(account_id, new long[] { connection, max_id });
+			result.add(new long[] { account_id, min_id, max_id });
+		}
+		mPending.clear();
+		return result;
+	}
+
+	private long getConnection(final long account_id) {
+		final Long connection = mConnections.get(account_id);
+		return connection != null ? connection : 0;
+	}
+}
@@ -0,0 +1,359 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mariotaku.twidere.Constants;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Central scheduler for background work. Work is submitted to one of a few
+ * named lanes, each with a fixed number of threads and a bounded priority
+ * queue, so the total thread count of the app stays bounded under load.
+ * 
+ * @author mariotaku
+ */
+public final class TaskScheduler implements Constants {
+
+	private static final String LOGTAG = TaskScheduler.class.getSimpleName();
+
+	/** User initiated work the UI is waiting for. */
+	public static final int LANE_UI = 0;
+	/** Network requests, e.g. refreshing and image downloading. */
+	public static final int LANE_NETWORK = 1;
+	/** Database and file operations. */
+	public static final int LANE_DISK = 2;
+	/** CPU bound work, e.g. image decoding. */
+	public static final int LANE_CPU = 3;
+	/** Maintenance work nobody is waiting for. */
+	public static final int LANE_BACKGROUND = 4;
+	/**
+	 * Speculative downloads, e.g. preloading images, kept apart from
+	 * {@link #LANE_NETWORK} so they can't fill its queue.
+	 */
+	public static final int LANE_PRELOAD = 5;
+
+	public static final int PRIORITY_LOW = -1;
+	public static final int PRIORITY_NORMAL = 0;
+	public static final int PRIORITY_HIGH = 1;
+
+	public static final int CPU_LANE_SIZE = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+
+	private static TaskScheduler sInstance;
+
+	private static final ThreadLocal<Integer> sCurrentPriority = new ThreadLocal<Integer>();
+
+	private final Lane[] mLanes;
+
+	private TaskScheduler() {
+		mLanes = new Lane[] { new Lane("ui", 2, 128, Process.THREAD_PRIORITY_DEFAULT),
+				new Lane("network", 4, 128, Process.THREAD_PRIORITY_BACKGROUND),
+				new Lane("disk", 2, 128, Process.THREAD_PRIORITY_BACKGROUND),
+				new Lane("cpu", CPU_LANE_SIZE, 64, Process.THREAD_PRIORITY_BACKGROUND),
+				new Lane("background", 1, 64, Process.THREAD_PRIORITY_LOWEST),
+				new Lane("preload", 2, 64, Process.THREAD_PRIORITY_LOWEST) };
+	}
+
+	/**
+	 * Runs the runnable in the lane with normal priority.
+	 * 
+	 * @throws RejectedExecutionException if the queue of the lane is full
+	 */
+	public Task execute(final int lane, final Runnable runnable) {
+		return execute(lane, PRIORITY_NORMAL, runnable);
+	}
+
+	/**
+	 * Runs the runnable in the lane. Queued tasks with higher priority run
+	 * first.
+	 * 
+	 * @throws RejectedExecutionException if the queue of the lane is full, the
+	 *             runnable won't run and caller should clean up for it
+	 */
+	public Task execute(final int lane, final int priority, final Runnable runnable) {
+		if (runnable == null) throw new NullPointerException();
+		final Lane l = mLanes[lane];
+		final Task task = new Task(l, runnable, priority);
+		l.execute(task);
+		return task;
+	}
+
+	/**
+	 * Returns an {@link Executor} which submits runnables to the lane, its
+	 * {@link Executor#execute(Runnable)} throws
+	 * {@link RejectedExecutionException} if the queue of the lane is full.
+	 */
+	public Executor getExecutor(final int lane, final int priority) {
+		return new LaneExecutor(lane, priority);
+	}
+
+	public int getLaneCount() {
+		return mLanes.length;
+	}
+
+	public LaneStats getLaneStats(final int lane) {
+		return mLanes[lane].getStats();
+	}
+
+	/**
+	 * Returns priority of the task running in current thread, or
+	 * {@link #PRIORITY_NORMAL} if current thread isn't running a task.
+	 */
+	public static int getCurrentPriority() {
+		final Integer priority = sCurrentPriority.get();
+		return priority != null ? priority : PRIORITY_NORMAL;
+	}
+
+	public static TaskScheduler getInstance() {
+		synchronized (TaskScheduler.class) {
+			if (sInstance == null) {
+				sInstance = new TaskScheduler();
+			}
+			return sInstance;
+		}
+	}
+
+	public static final class LaneStats {
+
+		public final String name;
+		public final int threads, queued, active, capacity;
+		public final long completed, cancelled, rejected;
+		public final long total_wait_millis, max_wait_millis, total_run_millis, max_run_millis;
+
+		LaneStats(final Lane lane) {
+			name = lane.mName;
+			threads = lane.mThreads;
+			capacity = lane.mCapacity;
+			queued = lane.mQueue.size();
+			active = lane.mActiveCount.get();
+			completed = lane.mCompletedCount.get();
+			cancelled = lane.mCancelledCount.get();
+			rejected = lane.mRejectedCount.get();
+			total_wait_millis = lane.mTotalWaitTime.get();
+			max_wait_millis = lane.mMaxWaitTime.get();
+			total_run_millis = lane.mTotalRunTime.get();
+			max_run_millis = lane.mMaxRunTime.get();
+		}
+
+		public long getAverageRunMillis() {
+			return completed > 0 ? total_run_millis / completed : 0;
+		}
+
+		public long getAverageWaitMillis() {
+			final long started = completed + active;
+			return started > 0 ? total_wait_millis / started : 0;
+		}
+
+		@Override
+		public String toString() {
+			return name + ": threads " + active + "/" + threads + ", queue " + queued + "/" + capacity
+					+ ", completed " + completed + ", cancelled " + cancelled + ", rejected " + rejected
+					+ ", wait avg " + getAverageWaitMillis() + "ms max " + max_wait_millis + "ms, run avg "
+					+ getAverageRunMillis() + "ms max " + max_run_millis + "ms";
+		}
+	}
+
+	/**
+	 * Handle of a runnable submitted to {@link TaskScheduler}.
+	 */
+	public static final class Task implements Runnable, Comparable<Task> {
+
+		private static final AtomicLong sSequence = new AtomicLong();
+
+		private final Lane mLane;
+		private final Runnable mRunnable;
+		private final int mPriority;
+		private final long mSequence;
+		private final long mEnqueueTime;
+		private final AtomicInteger mState = new AtomicInteger(STATE_QUEUED);
+
+		private static final int STATE_QUEUED = 0;
+		private static final int STATE_RUNNING = 1;
+		private static final int STATE_FINISHED = 2;
+		private static final int STATE_CANCELLED = 3;
+
+		Task(final Lane lane, final Runnable runnable, final int priority) {
+			mLane = lane;
+			mRunnable = runnable;
+			mPriority = priority;
+			mSequence = sSequence.getAndIncrement();
+			mEnqueueTime = SystemClock.uptimeMillis();
+		}
+
+		/**
+		 * Removes the task from the queue if it hasn't started yet.
+		 * 
+		 * @return true if the task won't run
+		 */
+		public boolean cancel() {
+			if (!mState.compareAndSet(STATE_QUEUED, STATE_CANCELLED)) return isCancelled();
+			mLane.remove(this);
+			return true;
+		}
+
+		@Override
+		public int compareTo(final Task another) {
+			if (mPriority != another.mPriority) return mPriority > another.mPriority ? -1 : 1;
+			return mSequence < another.mSequence ? -1 : mSequence == another.mSequence ? 0 : 1;
+		}
+
+		public boolean isCancelled() {
+			return mState.get() == STATE_CANCELLED;
+		}
+
+		public boolean isFinished() {
+			return mState.get() == STATE_FINISHED;
+		}
+
+		@Override
+		public void run() {
+			if (!mState.compareAndSet(STATE_QUEUED, STATE_RUNNING)) return;
+			final long start = SystemClock.uptimeMillis();
+			mLane.onTaskStarted(start - mEnqueueTime);
+			sCurrentPriority.set(mPriority);
+			try {
+				mRunnable.run();
+			} finally {
+				sCurrentPriority.remove();
+				mState.set(STATE_FINISHED);
+				mLane.onTaskFinished(SystemClock.uptimeMillis() - start);
+			}
+		}
+	}
+
+	private static final class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+
+		private static final long serialVersionUID = -4356413485328722386L;
+
+		private final int mCapacity;
+
+		BoundedPriorityQueue(final int capacity) {
+			mCapacity = capacity;
+		}
+
+		@Override
+		public boolean offer(final Runnable e) {
+			if (size() >= mCapacity) return false;
+			return super.offer(e);
+		}
+	}
+
+	private static final class Lane implements ThreadFactory {
+
+		private final String mName;
+		private final int mThreads, mCapacity, mThreadPriority;
+		private final BoundedPriorityQueue mQueue;
+		private final ThreadPoolExecutor mExecutor;
+		private final AtomicInteger mThreadNumber = new AtomicInteger(1);
+
+		private final AtomicInteger mActiveCount = new AtomicInteger();
+		private final AtomicLong mCompletedCount = new AtomicLong(), mCancelledCount = new AtomicLong(),
+				mRejectedCount = new AtomicLong();
+		private final AtomicLong mTotalWaitTime = new AtomicLong(), mMaxWaitTime = new AtomicLong(),
+				mTotalRunTime = new AtomicLong(), mMaxRunTime = new AtomicLong();
+
+		Lane(final String name, final int threads, final int capacity, final int thread_priority) {
+			mName = name;
+			mThreads = threads;
+			mCapacity = capacity;
+			mThreadPriority = thread_priority;
+			mQueue = new BoundedPriorityQueue(capacity);
+			mExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, mQueue, this);
+		}
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			return new Thread(r, "scheduler-" + mName + "-" + mThreadNumber.getAndIncrement()) {
+				@Override
+				public void run() {
+					Process.setThreadPriority(mThreadPriority);
+					super.run();
+				}
+			};
+		}
+
+		void execute(final Task task) {
+			try {
+				mExecutor.execute(task);
+			} catch (final RejectedExecutionException e) {
+				if (task.mState.compareAndSet(Task.STATE_QUEUED, Task.STATE_CANCELLED)) {
+					mRejectedCount.incrementAndGet();
+				}
+				Log.w(LOGTAG, "Queue of lane " + mName + " is full, task rejected");
+				throw e;
+			}
+		}
+
+		LaneStats getStats() {
+			return new LaneStats(this);
+		}
+
+		void onTaskFinished(final long run_time) {
+			mActiveCount.decrementAndGet();
+			mCompletedCount.incrementAndGet();
+			mTotalRunTime.addAndGet(run_time);
+			setMax(mMaxRunTime, run_time);
+		}
+
+		void onTaskStarted(final long wait_time) {
+			mActiveCount.incrementAndGet();
+			mTotalWaitTime.addAndGet(wait_time);
+			setMax(mMaxWaitTime, wait_time);
+		}
+
+		void remove(final Task task) {
+			if (mExecutor.remove(task)) {
+				mCancelledCount.incrementAndGet();
+			}
+		}
+
+		private static void setMax(final AtomicLong max, final long value) {
+			long current;
+			while ((current = max.get()) < value && !max.compareAndSet(current, value)) {
+			}
+		}
+	}
+
+	private final class LaneExecutor implements Executor {
+
+		private final int mLane, mPriority;
+
+		LaneExecutor(final int lane, final int priority) {
+			mLane = lane;
+			mPriority = priority;
+		}
+
+		@Override
+		public void execute(final Runnable command) {
+			TaskScheduler.this.execute(mLane, mPriority, command);
+		}
+	}
+}
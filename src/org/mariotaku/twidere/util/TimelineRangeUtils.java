@@ -0,0 +1,229 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.provider.TweetStore.Accounts;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+import org.mariotaku.twidere.provider.TweetStore.TimelineRanges;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+
+/**
+ * Keeps {@link TimelineRanges} of statuses and mentions tables. A status is
+ * shown as a gap when it's the oldest one of a range with older ranges below
+ * it.
+ */
+public final class TimelineRangeUtils implements Constants {
+
+	private TimelineRangeUtils() {
+		throw new AssertionError("You are trying to create an instance for this utility class!");
+	}
+
+	/**
+	 * Adds a loaded span, merging it with the ranges it overlaps.
+	 */
+	public static synchronized void addRange(final ContentResolver resolver, final String timeline,
+			final long account_id, final long min_id, final long max_id) {
+		if (resolver == null || timeline == null || min_id <= 0 || max_id < min_id) return;
+		final String where = buildWhere(timeline, account_id) + " AND " + TimelineRanges.MIN_ID + " <= " + max_id
+				+ " AND " + TimelineRanges.MAX_ID + " >= " + min_id;
+		long merged_min = min_id, merged_max = max_id;
+		final Cursor cur = resolver.query(TimelineRanges.CONTENT_URI, new String[] { "MIN(" + TimelineRanges.MIN_ID
+				+ ")", "MAX(" + TimelineRanges.MAX_ID + ")" }, where, null, null);
+		if (cur != null) {
+			if (cur.moveToFirst() && !cur.isNull(0)) {
+				merged_min = Math.min(merged_min, cur.getLong(0));
+				merged_max = Math.max(merged_max, cur.getLong(1));
+			}
+			cur.close();
+		}
+		resolver.delete(TimelineRanges.CONTENT_URI, where, null);
+		final ContentValues values = new ContentValues();
+		values.put(TimelineRanges.ACCOUNT_ID, account_id);
+		values.put(TimelineRanges.TIMELINE, timeline);
+		values.put(TimelineRanges.MIN_ID, merged_min);
+		values.put(TimelineRanges.MAX_ID, merged_max);
+		resolver.insert(TimelineRanges.CONTENT_URI, values);
+	}
+
+	/**
+	 * Selection of statuses shown as gaps, for {@code table}.
+	 */
+	public static String buildGapSelection(final String table) {
+		final String ranges = TABLE_TIMELINE_RANGES;
+		final StringBuilder builder = new StringBuilder();
+		builder.append(table + "." + Statuses.STATUS_ID + " IN (");
+		builder.append("SELECT (SELECT MIN(s." + Statuses.STATUS_ID + ") FROM " + table + " s");
+		builder.append(" WHERE s." + Statuses.ACCOUNT_ID + " = r." + TimelineRanges.ACCOUNT_ID);
+		builder.append(" AND s." + Statuses.STATUS_ID + " BETWEEN r." + TimelineRanges.MIN_ID + " AND r."
+				+ TimelineRanges.MAX_ID + ")");
+		builder.append(" FROM " + ranges + " r");
+		builder.append(" WHERE r." + TimelineRanges.TIMELINE + " = '" + table + "'");
+		builder.append(" AND r." + TimelineRanges.ACCOUNT_ID + " = " + table + "." + Statuses.ACCOUNT_ID);
+		builder.append(" AND r." + TimelineRanges.MIN_ID + " > (SELECT MIN(o." + TimelineRanges.MIN_ID + ") FROM "
+				+ ranges + " o");
+		builder.append(" WHERE o." + TimelineRanges.TIMELINE + " = r." + TimelineRanges.TIMELINE);
+		builder.append(" AND o." + TimelineRanges.ACCOUNT_ID + " = r." + TimelineRanges.ACCOUNT_ID + ")");
+		builder.append(")");
+		return builder.toString();
+	}
+
+	/**
+	 * Deletes ranges of accounts without any rows left in {@code table}, or of
+	 * removed accounts if {@code table} is the accounts table, called after
+	 * rows of the table were deleted.
+	 * 
+	 * @return Number of ranges deleted.
+	 */
+	public static int deleteOrphanedRanges(final SQLiteDatabase db, final String table) {
+		if (db == null) return 0;
+		if (TABLE_ACCOUNTS.equals(table))
+			return db.delete(TABLE_TIMELINE_RANGES, TimelineRanges.ACCOUNT_ID + " NOT IN (SELECT "
+					+ Accounts.ACCOUNT_ID + " FROM " + TABLE_ACCOUNTS + ")", null);
+		if (!hasRanges(table)) return 0;
+		return db.delete(TABLE_TIMELINE_RANGES, TimelineRanges.TIMELINE + " = ? AND " + TimelineRanges.ACCOUNT_ID
+				+ " NOT IN (SELECT DISTINCT " + Statuses.ACCOUNT_ID + " FROM " + table + ")", new String[] { table });
+	}
+
+	/**
+	 * @return Newest id loaded below {@code status_id}, which is where loading
+	 *         the gap at {@code status_id} can stop, or -1 if there's no
+	 *         older range.
+	 */
+	public static long getGapSinceId(final ContentResolver resolver, final String timeline, final long account_id,
+			final long status_id) {
+		final String where = buildWhere(timeline, account_id) + " AND " + TimelineRanges.MAX_ID + " < " + status_id;
+		return queryLong(resolver, "MAX(" + TimelineRanges.MAX_ID + ")", where);
+	}
+
+	public static boolean hasRanges(final String table) {
+		return TABLE_STATUSES.equals(table) || TABLE_MENTIONS.equals(table);
+	}
+
+	/**
+	 * Replaces {@link Statuses#IS_GAP} in the projection with a column
+	 * computed from ranges.
+	 */
+	public static String[] replaceGapColumn(final String table, final String[] projection) {
+		final String[] cols = projection != null ? projection : Statuses.COLUMNS;
+		if (!ArrayUtils.contains(cols, Statuses.IS_GAP)) return projection;
+		final String[] result = new String[cols.length];
+		final int length = cols.length;
+		for (int i = 0; i < length; i++) {
+			result[i] = Statuses.IS_GAP.equals(cols[i]) ? "(" + buildGapSelection(table) + ") AS " + Statuses.IS_GAP
+					: cols[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Builds ranges from rows loaded before ranges existed, splitting them
+	 * after rows flagged with {@link Statuses#IS_GAP}.
+	 */
+	public static void seedRanges(final SQLiteDatabase db, final String table) {
+		final Cursor existing = db.query(TABLE_TIMELINE_RANGES, new String[] { TimelineRanges._ID },
+				TimelineRanges.TIMELINE + " = ?", new String[] { table }, null, null, null, "1");
+		final boolean seeded = existing.getCount() > 0;
+		existing.close();
+		if (seeded) return;
+		final Cursor cur = db.query(table, new String[] { Statuses.ACCOUNT_ID, Statuses.STATUS_ID, Statuses.IS_GAP },
+				null, null, null, null, Statuses.ACCOUNT_ID + ", " + Statuses.STATUS_ID + " DESC");
+		long account_id = -1, min_id = -1, max_id = -1;
+		for (cur.moveToFirst(); !cur.isAfterLast(); cur.moveToNext()) {
+			final long row_account_id = cur.getLong(0), status_id = cur.getLong(1);
+			if (max_id > 0 && row_account_id != account_id) {
+				insertRange(db, table, account_id, min_id, max_id);
+				max_id = -1;
+			}
+			account_id = row_account_id;
+			if (max_id <= 0) {
+				max_id = status_id;
+			}
+			min_id = status_id;
+			if (cur.getInt(2) == 1) {
+				insertRange(db, table, account_id, min_id, max_id);
+				max_id = -1;
+			}
+		}
+		if (max_id > 0) {
+			insertRange(db, table, account_id, min_id, max_id);
+		}
+		cur.close();
+	}
+
+	/**
+	 * Drops spans older than the oldest status left in the table, called
+	 * after old statuses were deleted.
+	 */
+	public static synchronized void trimRanges(final ContentResolver resolver, final Uri uri, final long account_id) {
+		final String table = Utils.getTableNameByUri(uri);
+		if (resolver == null || !hasRanges(table)) return;
+		long oldest = -1;
+		final Cursor cur = resolver.query(uri, new String[] { "MIN(" + Statuses.STATUS_ID + ")" },
+				Statuses.ACCOUNT_ID + " = " + account_id, null, null);
+		if (cur != null) {
+			if (cur.moveToFirst() && !cur.isNull(0)) {
+				oldest = cur.getLong(0);
+			}
+			cur.close();
+		}
+		final String where = buildWhere(table, account_id);
+		if (oldest <= 0) {
+			resolver.delete(TimelineRanges.CONTENT_URI, where, null);
+			return;
+		}
+		resolver.delete(TimelineRanges.CONTENT_URI, where + " AND " + TimelineRanges.MAX_ID + " < " + oldest, null);
+		final ContentValues values = new ContentValues();
+		values.put(TimelineRanges.MIN_ID, oldest);
+		resolver.update(TimelineRanges.CONTENT_URI, values, where + " AND " + TimelineRanges.MIN_ID + " < " + oldest,
+				null);
+	}
+
+	private static String buildWhere(final String timeline, final long account_id) {
+		return TimelineRanges.TIMELINE + " = '" + timeline + "' AND " + TimelineRanges.ACCOUNT_ID + " = " + account_id;
+	}
+
+	private static void insertRange(final SQLiteDatabase db, final String table, final long account_id,
+			final long min_id, final long max_id) {
+		final ContentValues values = new ContentValues();
+		values.put(TimelineRanges.ACCOUNT_ID, account_id);
+		values.put(TimelineRanges.TIMELINE, table);
+		values.put(TimelineRanges.MIN_ID, min_id);
+		values.put(TimelineRanges.MAX_ID, max_id);
+		db.insert(TABLE_TIMELINE_RANGES, null, values);
+	}
+
+	private static long queryLong(final ContentResolver resolver, final String column, final String where) {
+		if (resolver == null) return -1;
+		final Cursor cur = resolver.query(TimelineRanges.CONTENT_URI, new String[] { column }, where, null, null);
+		if (cur == null) return -1;
+		try {
+			if (cur.moveToFirst() && !cur.isNull(0)) return cur.getLong(0);
+			return -1;
+		} finally {
+			cur.close();
+		}
+	}
+}
@@ -19,42 +19,24 @@
 
 package org.mariotaku.twidere.util;
 
-import static org.mariotaku.twidere.util.ServiceUtils.bindToService;
+import java.util.concurrent.TimeoutException;
 
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.ITweetShortener;
 
 import android.app.Application;
-import android.content.ComponentName;
-import android.content.Context;
-import android.content.ContextWrapper;
-import android.content.Intent;
-import android.content.ServiceConnection;
 import android.os.IBinder;
 import android.os.RemoteException;
 
 public final class TweetShortenerInterface implements Constants, ITweetShortener {
 
+	private final ExtensionServiceConnector mConnector;
+	private final String mComponentName;
 	private ITweetShortener mShortener;
 
-	private final ServiceConnection mConntecion = new ServiceConnection() {
-
-		@Override
-		public void onServiceConnected(final ComponentName service, final IBinder obj) {
-			mShortener = ITweetShortener.Stub.asInterface(obj);
-		}
-
-		@Override
-		public void onServiceDisconnected(final ComponentName service) {
-			mShortener = null;
-		}
-	};
-
-	private TweetShortenerInterface(final Context context, final String shortener_name) {
-		final Intent intent = new Intent(INTENT_ACTION_EXTENSION_SHORTEN_TWEET);
-		final ComponentName component = ComponentName.unflattenFromString(shortener_name);
-		intent.setComponent(component);
-		bindToService(context, intent, mConntecion);
+	private TweetShortenerInterface(final ExtensionServiceConnector connector, final String shortener_name) {
+		mConnector = connector;
+		mComponentName = shortener_name;
 	}
 
 	@Override
@@ -74,32 +56,16 @@ public final class TweetShortenerInterface implements Constants, ITweetShortener
 		return null;
 	}
 
-	public void waitForService() {
-		while (mShortener == null) {
-			try {
-				Thread.sleep(100L);
-			} catch (final InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
+	public void waitForService() throws TimeoutException {
+		if (mShortener != null && mShortener.asBinder().isBinderAlive()) return;
+		mShortener = ITweetShortener.Stub.asInterface(ExtensionServiceConnector.getBinder(mConnector.connect(
+				INTENT_ACTION_EXTENSION_SHORTEN_TWEET, mComponentName)));
 	}
 
 	public static TweetShortenerInterface getInstance(final Application application, final String shortener_name) {
 		if (shortener_name == null) return null;
-		final Intent intent = new Intent(INTENT_ACTION_EXTENSION_SHORTEN_TWEET);
-		final ComponentName component = ComponentName.unflattenFromString(shortener_name);
-		intent.setComponent(component);
-		if (application.getPackageManager().queryIntentServices(intent, 0).size() != 1) return null;
-		return new TweetShortenerInterface(application, shortener_name);
-	}
-
-	public static class ServiceToken {
-
-		ContextWrapper wrapped_context;
-
-		ServiceToken(final ContextWrapper context) {
-
-			wrapped_context = context;
-		}
+		final ExtensionServiceConnector connector = ExtensionServiceConnector.getInstance(application);
+		if (connector.connect(INTENT_ACTION_EXTENSION_SHORTEN_TWEET, shortener_name) == null) return null;
+		return new TweetShortenerInterface(connector, shortener_name);
 	}
 }
@@ -23,7 +23,23 @@ import static android.text.TextUtils.isEmpty;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.mariotaku.twidere.Constants;
 import org.xbill.DNS.AAAARecord;
@@ -49,12 +65,21 @@ public class TwidereHostAddressResolver implements Constants, HostAddressResolve
 
 	private static final String DEFAULT_DNS_SERVER_ADDRESS = "8.8.8.8";
 
-	private final SharedPreferences mHostMapping, mPreferences;
-	private final HostCache mHostCache = new HostCache(512);
+	private static final int MAX_CACHE_ENTRIES = 512;
+	private static final long MIN_TTL = 60 * 1000;
+	private static final long MAX_TTL = 24 * 60 * 60 * 1000;
+	private static final int REACHABLE_TIMEOUT = 300;
+	private static final int MAX_PROBE_THREADS = 8;
+
+	private final SharedPreferences mHostMapping, mPreferences, mCachePreferences;
+	private final HostCache mHostCache = new HostCache(MAX_CACHE_ENTRIES);
+	private final ConcurrentHashMap<String, FutureTask<String>> mPendingLookups = new ConcurrentHashMap<String, FutureTask<String>>();
+	private final AtomicBoolean mCacheLoaded = new AtomicBoolean(), mSavePending = new AtomicBoolean();
+	private final ThreadPoolExecutor mProbeExecutor;
 	private final boolean mLocalMappingOnly;
 	private final String mDNSAddress;
 
-	private Resolver mDNS;
+	private volatile Resolver mDNS;
 
 	public TwidereHostAddressResolver(final Context context) {
 		this(context, false);
@@ -63,31 +88,28 @@ public class TwidereHostAddressResolver implements Constants, HostAddressResolve
 	public TwidereHostAddressResolver(final Context context, final boolean local_only) {
 		mHostMapping = context.getSharedPreferences(HOST_MAPPING_PREFERENCES_NAME, Context.MODE_PRIVATE);
 		mPreferences = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+		mCachePreferences = context.getSharedPreferences(DNS_CACHE_PREFERENCES_NAME, Context.MODE_PRIVATE);
 		final String address = mPreferences.getString(PREFERENCE_KEY_DNS_SERVER, DEFAULT_DNS_SERVER_ADDRESS);
 		mDNSAddress = isValidIpAddress(address) ? address : DEFAULT_DNS_SERVER_ADDRESS;
 		mLocalMappingOnly = local_only;
+		// Probes mostly wait for network, run them in parallel but never
+		// queue them behind other work.
+		mProbeExecutor = new ThreadPoolExecutor(0, MAX_PROBE_THREADS, 30, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(), new ThreadPoolExecutor.CallerRunsPolicy());
 	}
 
 	@Override
 	public String resolve(final String host) throws IOException {
 		if (host == null || !mPreferences.getBoolean(PREFERENCE_KEY_IGNORE_SSL_ERROR, false)) return null;
-		// First, I'll try to load address cached.
-		if (mHostCache.containsKey(host)) {
-			if (DEBUG) {
-				Log.d(RESOLVER_LOGTAG, "Got cached address " + mHostCache.get(host) + " for host " + host);
-			}
-			return mHostCache.get(host);
-		}
-		// Then I'll try to load from custom host mapping.
-		// Stupid way to find top domain, but really fast.
+		// Custom host mapping first.
 		if (mHostMapping.contains(host)) {
 			final String host_addr = mHostMapping.getString(host, null);
-			mHostCache.put(host, host_addr);
 			if (DEBUG) {
 				Log.d(RESOLVER_LOGTAG, "Got mapped address " + host_addr + " for host " + host);
 			}
 			return host_addr;
 		}
+		// Stupid way to find top domain, but really fast.
 		final String[] host_segments = host.split("\\.");
 		final int host_segments_length = host_segments.length;
 		if (host_segments_length > 2) {
@@ -95,61 +117,27 @@ public class TwidereHostAddressResolver implements Constants, HostAddressResolve
 					+ host_segments[host_segments_length - 1];
 			if (mHostMapping.contains(top_domain)) {
 				final String host_addr = mHostMapping.getString(top_domain, null);
-				mHostCache.put(top_domain, host_addr);
 				if (DEBUG) {
 					Log.d(RESOLVER_LOGTAG, "Got mapped address (top domain) " + host_addr + " for host " + host);
 				}
 				return host_addr;
 			}
 		}
-		if (!mLocalMappingOnly) {
-			init();
-		}
-		// Use TCP DNS Query if enabled.
-		if (mDNS != null && mPreferences.getBoolean(PREFERENCE_KEY_TCP_DNS_QUERY, false)) {
-			final Name name = new Name(host);
-			final Record query = Record.newRecord(name, Type.A, DClass.IN);
-			if (query == null) return host;
-			final Message response = mDNS.send(Message.newQuery(query));
-			if (response == null) return host;
-			final Record[] records = response.getSectionArray(Section.ANSWER);
-			if (records == null || records.length < 1) throw new IOException("Could not find " + host);
-			String host_addr = null;
-			// Test each IP address resolved.
-			for (final Record record : records) {
-				if (record instanceof ARecord) {
-					final InetAddress ipv4_addr = ((ARecord) record).getAddress();
-					if (ipv4_addr.isReachable(300)) {
-						host_addr = ipv4_addr.getHostAddress();
-					}
-				} else if (record instanceof AAAARecord) {
-					final InetAddress ipv6_addr = ((AAAARecord) record).getAddress();
-					if (ipv6_addr.isReachable(300)) {
-						host_addr = ipv6_addr.getHostAddress();
-					}
-				}
-				if (mHostCache.put(host, host_addr) != null) {
-					if (DEBUG) {
-						Log.d(RESOLVER_LOGTAG, "Resolved address " + host_addr + " for host " + host);
-					}
-					return host_addr;
-				}
+		if (mLocalMappingOnly || !mPreferences.getBoolean(PREFERENCE_KEY_TCP_DNS_QUERY, false)) return host;
+		loadCache();
+		final CacheEntry entry = mHostCache.getEntry(host);
+		final long now = System.currentTimeMillis();
+		if (entry != null && entry.expires > now) {
+			if (entry.shouldRefresh(now)) {
+				refreshAsync(host);
 			}
-			// No address is reachable, but I believe the IP is correct.
-			final Record record = records[0];
-			if (record instanceof ARecord) {
-				final InetAddress ipv4_addr = ((ARecord) record).getAddress();
-				host_addr = ipv4_addr.getHostAddress();
-			} else if (record instanceof AAAARecord) {
-				final InetAddress ipv6_addr = ((AAAARecord) record).getAddress();
-				host_addr = ipv6_addr.getHostAddress();
-			} else if (record instanceof CNAMERecord) return resolve(((CNAMERecord) record).getTarget().toString());
-			mHostCache.put(host, host_addr);
 			if (DEBUG) {
-				Log.d(RESOLVER_LOGTAG, "Resolved address " + host_addr + " for host " + host);
+				Log.d(RESOLVER_LOGTAG, "Got cached address " + entry.address + " for host " + host);
 			}
-			return host_addr;
+			return entry.address;
 		}
+		final String host_addr = lookup(host, true);
+		if (host_addr != null) return host_addr;
 		if (DEBUG) {
 			Log.w(RESOLVER_LOGTAG, "Resolve address " + host + " failed, using original host");
 		}
@@ -158,9 +146,183 @@ public class TwidereHostAddressResolver implements Constants, HostAddressResolve
 
 	void init() throws IOException {
 		if (mDNS != null) return;
-		mDNS = mLocalMappingOnly ? null : new SimpleResolver(mDNSAddress);
-		if (mDNS != null) {
-			mDNS.setTCP(true);
+		synchronized (this) {
+			if (mDNS != null) return;
+			final Resolver dns = new SimpleResolver(mDNSAddress);
+			dns.setTCP(true);
+			mDNS = dns;
+		}
+	}
+
+	private void loadCache() {
+		if (!mCacheLoaded.compareAndSet(false, true)) return;
+		final long now = System.currentTimeMillis();
+		for (final Map.Entry<String, ?> item : mCachePreferences.getAll().entrySet()) {
+			final CacheEntry entry = CacheEntry.parse(item.getValue());
+			if (entry != null && entry.expires > now) {
+				mHostCache.putEntry(item.getKey(), entry);
+			}
+		}
+	}
+
+	/**
+	 * Concurrent lookups of same host share one query.
+	 * 
+	 * @param wait false to return immediately, the lookup will continue in
+	 *            background
+	 */
+	private String lookup(final String host, final boolean wait) throws IOException {
+		FutureTask<String> task = mPendingLookups.get(host);
+		boolean owner = false;
+		if (task == null) {
+			final FutureTask<String> new_task = new FutureTask<String>(new Callable<String>() {
+
+				@Override
+				public String call() throws IOException {
+					try {
+						return query(host);
+					} finally {
+						mPendingLookups.remove(host);
+					}
+				}
+			});
+			task = mPendingLookups.putIfAbsent(host, new_task);
+			if (task == null) {
+				task = new_task;
+				owner = true;
+			}
+		}
+		if (!wait) {
+			if (owner) {
+				try {
+					TaskScheduler.getInstance().execute(TaskScheduler.LANE_NETWORK, TaskScheduler.PRIORITY_LOW, task);
+				} catch (final RejectedExecutionException e) {
+					mPendingLookups.remove(host, task);
+					task.cancel(false);
+				}
+			}
+			return null;
+		}
+		// Run the task here even if someone else created it, it may still be
+		// queued behind the thread we are blocking. Does nothing if the task
+		// has already started.
+		task.run();
+		try {
+			return task.get();
+		} catch (final CancellationException e) {
+			return query(host);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while resolving " + host);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException) cause;
+			throw new IOException(String.valueOf(cause));
+		}
+	}
+
+	/**
+	 * Probes all addresses in parallel, returns the first reachable one.
+	 */
+	private String probe(final List<InetAddress> addresses) {
+		if (addresses.size() == 1) return addresses.get(0).getHostAddress();
+		final CompletionService<InetAddress> service = new ExecutorCompletionService<InetAddress>(mProbeExecutor);
+		final List<Future<InetAddress>> futures = new ArrayList<Future<InetAddress>>();
+		for (final InetAddress address : addresses) {
+			futures.add(service.submit(new Callable<InetAddress>() {
+
+				@Override
+				public InetAddress call() throws IOException {
+					return address.isReachable(REACHABLE_TIMEOUT) ? address : null;
+				}
+			}));
+		}
+		try {
+			final long deadline = System.currentTimeMillis() + REACHABLE_TIMEOUT * 2;
+			for (int i = 0, j = futures.size(); i < j; i++) {
+				final long timeout = deadline - System.currentTimeMillis();
+				final Future<InetAddress> future = service.poll(Math.max(0, timeout), TimeUnit.MILLISECONDS);
+				if (future == null) {
+					break;
+				}
+				try {
+					final InetAddress reachable = future.get();
+					if (reachable != null) return reachable.getHostAddress();
+				} catch (final ExecutionException e) {
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			for (final Future<InetAddress> future : futures) {
+				future.cancel(true);
+			}
+		}
+		// No address is reachable, but I believe the IP is correct.
+		return addresses.get(0).getHostAddress();
+	}
+
+	private String query(final String host) throws IOException {
+		init();
+		final Name name = new Name(host);
+		final Record query = Record.newRecord(name, Type.A, DClass.IN);
+		if (query == null) return host;
+		final Message response = mDNS.send(Message.newQuery(query));
+		if (response == null) return host;
+		final Record[] records = response.getSectionArray(Section.ANSWER);
+		if (records == null || records.length < 1) throw new IOException("Could not find " + host);
+		final List<InetAddress> addresses = new ArrayList<InetAddress>();
+		long ttl = MAX_TTL;
+		for (final Record record : records) {
+			if (record instanceof ARecord) {
+				addresses.add(((ARecord) record).getAddress());
+			} else if (record instanceof AAAARecord) {
+				addresses.add(((AAAARecord) record).getAddress());
+			} else {
+				continue;
+			}
+			ttl = Math.min(ttl, record.getTTL() * 1000);
+		}
+		if (addresses.isEmpty()) {
+			if (records[0] instanceof CNAMERecord) return resolve(((CNAMERecord) records[0]).getTarget().toString());
+			return host;
+		}
+		final String host_addr = probe(addresses);
+		mHostCache.putEntry(host, new CacheEntry(host_addr, Math.max(MIN_TTL, ttl)));
+		saveCacheAsync();
+		if (DEBUG) {
+			Log.d(RESOLVER_LOGTAG, "Resolved address " + host_addr + " for host " + host);
+		}
+		return host_addr;
+	}
+
+	private void refreshAsync(final String host) {
+		try {
+			lookup(host, false);
+		} catch (final IOException e) {
+			// Never thrown without waiting.
+		}
+	}
+
+	private void saveCacheAsync() {
+		if (!mSavePending.compareAndSet(false, true)) return;
+		try {
+			TaskScheduler.getInstance().execute(TaskScheduler.LANE_DISK, TaskScheduler.PRIORITY_LOW, new Runnable() {
+
+				@Override
+				public void run() {
+					mSavePending.set(false);
+					final SharedPreferences.Editor editor = mCachePreferences.edit();
+					editor.clear();
+					for (final Map.Entry<String, CacheEntry> entry : mHostCache.snapshot().entrySet()) {
+						editor.putString(entry.getKey(), entry.getValue().toString());
+					}
+					editor.commit();
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			// Saved with the next change.
+			mSavePending.set(false);
 		}
 	}
 
@@ -168,18 +330,75 @@ public class TwidereHostAddressResolver implements Constants, HostAddressResolve
 		return !isEmpty(address);
 	}
 
-	private static class HostCache extends LinkedHashMap<String, String> {
+	private static final class CacheEntry {
 
-		private static final long serialVersionUID = -9216545511009449147L;
+		final String address;
+		final long ttl, expires;
+
+		CacheEntry(final String address, final long ttl) {
+			this(address, ttl, System.currentTimeMillis() + ttl);
+		}
 
-		HostCache(final int initialCapacity) {
-			super(initialCapacity);
+		private CacheEntry(final String address, final long ttl, final long expires) {
+			this.address = address;
+			this.ttl = ttl;
+			this.expires = expires;
+		}
+
+		/**
+		 * Refresh in background when less than a fifth of TTL is left.
+		 */
+		boolean shouldRefresh(final long now) {
+			return expires - now < ttl / 5;
 		}
 
 		@Override
-		public String put(final String key, final String value) {
-			if (value == null) return value;
-			return super.put(key, value);
+		public String toString() {
+			return address + "," + ttl + "," + expires;
+		}
+
+		static CacheEntry parse(final Object value) {
+			if (!(value instanceof String)) return null;
+			final String[] segments = ((String) value).split(",");
+			if (segments.length != 3) return null;
+			try {
+				return new CacheEntry(segments[0], Long.parseLong(segments[1]), Long.parseLong(segments[2]));
+			} catch (final NumberFormatException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Thread safe LRU cache of resolved addresses.
+	 */
+	private static final class HostCache {
+
+		private final LinkedHashMap<String, CacheEntry> mMap;
+
+		HostCache(final int max_entries) {
+			mMap = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = -9216545511009449147L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String, CacheEntry> eldest) {
+					return size() > max_entries;
+				}
+			};
+		}
+
+		synchronized CacheEntry getEntry(final String host) {
+			return mMap.get(host);
+		}
+
+		synchronized void putEntry(final String host, final CacheEntry entry) {
+			if (entry == null || entry.address == null) return;
+			mMap.put(host, entry);
+		}
+
+		synchronized Map<String, CacheEntry> snapshot() {
+			return new LinkedHashMap<String, CacheEntry>(mMap);
 		}
 	}
 }
@@ -4,6 +4,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 
+import org.mariotaku.twidere.util.metrics.Counter;
+import org.mariotaku.twidere.util.metrics.Metrics;
+
 import twitter4j.TwitterException;
 import twitter4j.http.HttpClientWrapper;
 import twitter4j.http.HttpResponse;
@@ -13,11 +16,15 @@ import com.nostra13.universalimageloader.core.download.ImageDownloader;
 
 public class TwidereImageDownloader extends ImageDownloader {
 
+	private static final Counter DOWNLOAD_COUNTER = Metrics.getInstance().getCounter("image.download");
+
 	private final Context context;
+	private final ImageRevalidator mRevalidator;
 	private HttpClientWrapper client;
 
 	public TwidereImageDownloader(final Context context) {
 		this.context = context;
+		mRevalidator = ImageRevalidator.getInstance(context);
 		initHttpClient();
 	}
 
@@ -29,7 +36,10 @@ public class TwidereImageDownloader extends ImageDownloader {
 	protected InputStream getStreamFromNetwork(final URI uri) throws IOException {
 		final InputStream is;
 		try {
-			final HttpResponse resp = Utils.getRedirectedHttpResponse(client, uri.toString());
+			final String url = uri.toString();
+			final HttpResponse resp = Utils.getRedirectedHttpResponse(client, url);
+			mRevalidator.onDownloaded(url, resp);
+			DOWNLOAD_COUNTER.increment();
 			is = resp.asStream();
 		} catch (final TwitterException e) {
 			throw new IOException(e);
@@ -0,0 +1,203 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.mariotaku.twidere.util;
+
+import static org.mariotaku.twidere.util.Utils.makeCachedUserContentValues;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.model.ParcelableUser;
+import org.mariotaku.twidere.provider.TweetStore.CachedUsers;
+
+import twitter4j.Relationship;
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+import twitter4j.User;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+
+/**
+ * Profiles in cached_users and relationships in memory, each with the time it
+ * was fetched, so a profile can be shown from cache right away and only
+ * looked up again once it is older than
+ * {@link UsersLookupPrefetcher#CACHE_TTL}.
+ */
+public final class UserProfileCache implements Constants {
+
+	private static final int MAX_RELATIONSHIPS = 100;
+
+	private static UserProfileCache sInstance;
+
+	private final ContentResolver mResolver;
+	private final ConcurrentHashMap<String, FutureTask<User>> mPendingLookups = new ConcurrentHashMap<String, FutureTask<User>>();
+	private final Map<String, Entry<Relationship>> mRelationships = new LinkedHashMap<String, Entry<Relationship>>(16,
+			0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Entry<Relationship>> eldest) {
+			return size() > MAX_RELATIONSHIPS;
+		}
+	};
+
+	private UserProfileCache(final Context context) {
+		mResolver = context.getContentResolver();
+	}
+
+	public synchronized Entry<Relationship> getRelationship(final long account_id, final long user_id) {
+		return mRelationships.get(account_id + "-" + user_id);
+	}
+
+	/**
+	 * @return Cached user with given ID, or with given screen name if ID is
+	 *         not valid.
+	 */
+	public Entry<ParcelableUser> getUser(final long account_id, final long user_id, final String screen_name) {
+		final String where;
+		final String[] where_args;
+		if (user_id > 0) {
+			where = CachedUsers.USER_ID + " = " + user_id;
+			where_args = null;
+		} else if (screen_name != null) {
+			where = CachedUsers.SCREEN_NAME + " = ? COLLATE NOCASE";
+			where_args = new String[] { screen_name };
+		} else
+			return null;
+		final Cursor cur = mResolver.query(CachedUsers.CONTENT_URI, CachedUsers.COLUMNS, where, where_args, null);
+		if (cur == null) return null;
+		try {
+			if (!cur.moveToFirst()) return null;
+			final long last_updated = cur.getLong(cur.getColumnIndex(CachedUsers.LAST_UPDATED));
+			return new Entry<ParcelableUser>(new ParcelableUser(cur, account_id), last_updated);
+		} finally {
+			cur.close();
+		}
+	}
+
+	public synchronized void invalidateRelationship(final long account_id, final long user_id) {
+		mRelationships.remove(account_id + "-" + user_id);
+	}
+
+	public synchronized void putRelationship(final long account_id, final long user_id,
+			final Relationship relationship) {
+		if (relationship == null) return;
+		mRelationships.put(account_id + "-" + user_id,
+				new Entry<Relationship>(relationship, System.currentTimeMillis()));
+	}
+
+	public void removeUser(final long user_id) {
+		mResolver.delete(CachedUsers.CONTENT_URI, CachedUsers.USER_ID + " = " + user_id, null);
+	}
+
+	/**
+	 * Looks up a user and stores it in cache. Concurrent lookups of the same
+	 * user share one request.
+	 */
+	public User showUser(final Twitter twitter, final long user_id, final String screen_name,
+			final boolean large_profile_image) throws TwitterException {
+		if (twitter == null) return null;
+		if (user_id <= 0 && screen_name == null) return null;
+		final String key = user_id > 0 ? String.valueOf(user_id) : "@" + screen_name.toLowerCase(Locale.US);
+		FutureTask<User> task = mPendingLookups.get(key);
+		boolean owner = false;
+		if (task == null) {
+			final FutureTask<User> new_task = new FutureTask<User>(new Callable<User>() {
+
+				@Override
+				public User call() throws TwitterException {
+					try {
+						final User user = user_id > 0 ? twitter.showUser(user_id) : twitter.showUser(screen_name);
+						storeUser(makeCachedUserContentValues(user, large_profile_image));
+						return user;
+					} finally {
+						mPendingLookups.remove(key);
+					}
+				}
+			});
+			task = mPendingLookups.putIfAbsent(key, new_task);
+			if (task == null) {
+				task = new_task;
+				owner = true;
+			}
+		}
+		if (owner) {
+			task.run();
+		}
+		try {
+			return task.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TwitterException(e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof TwitterException) throw (TwitterException) cause;
+			throw new TwitterException(String.valueOf(cause), cause);
+		}
+	}
+
+	/**
+	 * Updates the cached row of the user in place, or inserts one if there's
+	 * none.
+	 */
+	public void storeUser(final ContentValues values) {
+		if (values == null || !values.containsKey(CachedUsers.USER_ID)) return;
+		final long user_id = values.getAsLong(CachedUsers.USER_ID);
+		if (mResolver.update(CachedUsers.CONTENT_URI, values, CachedUsers.USER_ID + " = " + user_id, null) > 0)
+			return;
+		// Screen name may belong to another user now.
+		final String screen_name = values.getAsString(CachedUsers.SCREEN_NAME);
+		if (screen_name != null) {
+			mResolver.delete(CachedUsers.CONTENT_URI, CachedUsers.SCREEN_NAME + " = ? COLLATE NOCASE",
+					new String[] { screen_name });
+		}
+		mResolver.insert(CachedUsers.CONTENT_URI, values);
+	}
+
+	public static synchronized UserProfileCache getInstance(final Context context) {
+		if (sInstance == null) {
+			sInstance = new UserProfileCache(context.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	public static final class Entry<T> {
+
+		public final T value;
+		public final long last_updated;
+
+		Entry(final T value, final long last_updated) {
+			this.value = value;
+			this.last_updated = last_updated;
+		}
+
+		public boolean isStale() {
+			return System.currentTimeMillis() - last_updated >= UsersLookupPrefetcher.CACHE_TTL;
+		}
+	}
+}
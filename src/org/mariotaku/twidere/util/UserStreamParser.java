@@ -0,0 +1,115 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.mariotaku.twidere.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import twitter4j.DirectMessage;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.User;
+import twitter4j.conf.Configuration;
+import twitter4j.internal.json.InternalJSONImplFactory;
+
+/**
+ * Parses messages of a user stream, one JSON object per line. Reads from
+ * any input stream, so recorded streams can be replayed through it.
+ */
+public class UserStreamParser {
+
+	private final InternalJSONImplFactory mFactory;
+	private final Callback mCallback;
+
+	public UserStreamParser(final Configuration conf, final Callback callback) {
+		if (callback == null) throw new NullPointerException();
+		mFactory = new InternalJSONImplFactory(conf);
+		mCallback = callback;
+	}
+
+	/**
+	 * Reads until end of stream or the thread is interrupted.
+	 */
+	public void parse(final InputStream stream) throws IOException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+		String line;
+		while (!Thread.currentThread().isInterrupted() && (line = reader.readLine()) != null) {
+			try {
+				parseLine(line);
+			} catch (final JSONException e) {
+				mCallback.onException(e);
+			} catch (final TwitterException e) {
+				mCallback.onException(e);
+			}
+		}
+	}
+
+	public void parseLine(final String line) throws JSONException, TwitterException {
+		final String trimmed = line.trim();
+		// Blank lines are keep-alive, and lines of digits are delimiters.
+		if (trimmed.length() == 0 || !trimmed.startsWith("{")) return;
+		final JSONObject json = new JSONObject(trimmed);
+		if (json.has("text") && json.has("user")) {
+			mCallback.onStatus(mFactory.createStatus(json));
+		} else if (json.has("direct_message")) {
+			mCallback.onDirectMessage(mFactory.createDirectMessage(json.getJSONObject("direct_message")));
+		} else if (json.has("delete")) {
+			final JSONObject delete = json.getJSONObject("delete");
+			if (delete.has("status")) {
+				mCallback.onStatusDeletion(delete.getJSONObject("status").getLong("id"));
+			} else if (delete.has("direct_message")) {
+				mCallback.onDirectMessageDeletion(delete.getJSONObject("direct_message").getLong("id"));
+			}
+		} else if (json.has("event")) {
+			final String event = json.getString("event");
+			if (("favorite".equals(event) || "unfavorite".equals(event)) && json.has("target_object")) {
+				final User source = mFactory.createUser(json.getJSONObject("source"));
+				final Status status = mFactory.createStatus(json.getJSONObject("target_object"));
+				mCallback.onFavoriteChanged(source, status, "favorite".equals(event));
+			}
+		} else if (json.has("disconnect")) {
+			final JSONObject disconnect = json.getJSONObject("disconnect");
+			mCallback.onDisconnect(disconnect.optInt("code"), disconnect.optString("reason"));
+		}
+	}
+
+	public static interface Callback {
+
+		void onDirectMessage(DirectMessage message);
+
+		void onDirectMessageDeletion(long message_id);
+
+		void onDisconnect(int code, String reason);
+
+		void onException(Exception e);
+
+		void onFavoriteChanged(User source, Status status, boolean favorite);
+
+		void onStatus(Status status);
+
+		void onStatusDeletion(long status_id);
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.mariotaku.twidere.util;
+
+import static org.mariotaku.twidere.util.Utils.makeCachedUserContentValues;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.provider.TweetStore.CachedUsers;
+
+import twitter4j.ResponseList;
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+import twitter4j.User;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+/**
+ * Looks up users ahead of the scroll position of an IDs based list, in
+ * parallel batches of {@link #BATCH_SIZE}, and stores them in cached_users.
+ * Number of batches is limited by the users/lookup budget of the account
+ * left to background requests by {@link RateLimitGovernor}.
+ */
+public final class UsersLookupPrefetcher implements Constants {
+
+	public static final int BATCH_SIZE = 100;
+	public static final int MAX_PARALLEL_BATCHES = 3;
+
+	private static final String ENDPOINT_USERS_LOOKUP = "users/lookup";
+
+	/**
+	 * Cached users updated earlier than this will be looked up again.
+	 */
+	public static final long CACHE_TTL = 6 * 60 * 60 * 1000L;
+
+	private static UsersLookupPrefetcher sInstance;
+
+	private final ContentResolver mResolver;
+	private final Set<Long> mPendingIds = new HashSet<Long>();
+
+	private UsersLookupPrefetcher(final Context context) {
+		mResolver = context.getContentResolver();
+	}
+
+	/**
+	 * Returns IDs in the array which have no fresh cached user.
+	 */
+	public long[] getStaleIds(final long[] ids) {
+		if (ids == null || ids.length == 0) return new long[0];
+		final Set<Long> fresh = new HashSet<Long>();
+		final String where = CachedUsers.USER_ID + " IN (" + ArrayUtils.toString(ids, ',', false) + ") AND "
+				+ CachedUsers.LAST_UPDATED + " >= " + (System.currentTimeMillis() - CACHE_TTL);
+		final Cursor cur = mResolver.query(CachedUsers.CONTENT_URI, new String[] { CachedUsers.USER_ID }, where, null,
+				null);
+		if (cur != null) {
+			cur.moveToFirst();
+			while (!cur.isAfterLast()) {
+				fresh.add(cur.getLong(0));
+				cur.moveToNext();
+			}
+			cur.close();
+		}
+		final List<Long> stale = new ArrayList<Long>();
+		for (final long id : ids) {
+			if (!fresh.contains(id)) {
+				stale.add(id);
+			}
+		}
+		return ArrayUtils.fromList(stale);
+	}
+
+	/**
+	 * Starts looking up users in range {@code [start, end)} of the IDs which
+	 * are not fresh in cache and not being looked up already.
+	 */
+	public void prefetch(final Twitter twitter, final long account_id, final LongIndexedArray ids, final int start,
+			final int end, final boolean large_profile_image) {
+		if (twitter == null || ids == null) return;
+		final int range_end = Math.min(end, ids.size());
+		if (start >= range_end) return;
+		final long[] stale = getStaleIds(ids.subArray(start, range_end));
+		final List<Long> ids_to_fetch = new ArrayList<Long>();
+		synchronized (mPendingIds) {
+			for (final long id : stale) {
+				if (mPendingIds.add(id)) {
+					ids_to_fetch.add(id);
+				}
+			}
+		}
+		final int batches = Math.min(getAvailableCalls(account_id), MAX_PARALLEL_BATCHES);
+		final TaskScheduler scheduler = TaskScheduler.getInstance();
+		for (int i = 0, j = ids_to_fetch.size(); i < j; i += BATCH_SIZE) {
+			final long[] batch = ArrayUtils.fromList(ids_to_fetch.subList(i, Math.min(i + BATCH_SIZE, j)));
+			if (i / BATCH_SIZE >= batches) {
+				clearPending(batch);
+				continue;
+			}
+			try {
+				scheduler.execute(TaskScheduler.LANE_PRELOAD, TaskScheduler.PRIORITY_LOW, new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							lookupUsers(twitter, batch, large_profile_image);
+						} catch (final TwitterException e) {
+							Log.w(LOGTAG, e);
+						} finally {
+							clearPending(batch);
+						}
+					}
+				});
+			} catch (final RejectedExecutionException e) {
+				clearPending(batch);
+			}
+		}
+	}
+
+	/**
+	 * Looks up users synchronously and stores them in cache.
+	 */
+	public ResponseList<User> lookupUsers(final Twitter twitter, final long[] ids, final boolean large_profile_image)
+			throws TwitterException {
+		final ResponseList<User> users = twitter.lookupUsers(ids);
+		storeUsers(users, large_profile_image);
+		return users;
+	}
+
+	public void storeUsers(final List<User> users, final boolean large_profile_image) {
+		if (users == null || users.isEmpty()) return;
+		final List<Long> user_ids = new ArrayList<Long>();
+		final List<ContentValues> values_list = new ArrayList<ContentValues>();
+		for (final User user : users) {
+			final ContentValues values = makeCachedUserContentValues(user, large_profile_image);
+			if (values == null) {
+				continue;
+			}
+			user_ids.add(user.getId());
+			values_list.add(values);
+		}
+		mResolver.delete(CachedUsers.CONTENT_URI,
+				CachedUsers.USER_ID + " IN (" + ListUtils.toString(user_ids, ',', false) + ")", null);
+		mResolver.bulkInsert(CachedUsers.CONTENT_URI, values_list.toArray(new ContentValues[values_list.size()]));
+	}
+
+	private void clearPending(final long[] ids) {
+		synchronized (mPendingIds) {
+			for (final long id : ids) {
+				mPendingIds.remove(id);
+			}
+		}
+	}
+
+	private int getAvailableCalls(final long account_id) {
+		final int available = RateLimitGovernor.getInstance().getAvailableCalls(account_id, ENDPOINT_USERS_LOOKUP,
+				TaskScheduler.PRIORITY_LOW);
+		// Nothing known yet, let one batch go to find out.
+		return available < 0 ? 1 : available;
+	}
+
+	public static synchronized UsersLookupPrefetcher getInstance(final Context context) {
+		if (sInstance == null) {
+			sInstance = new UsersLookupPrefetcher(context.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+}
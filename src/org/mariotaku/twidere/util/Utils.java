@@ -120,6 +120,8 @@ import org.mariotaku.twidere.provider.TweetStore.Statuses;
 import org.mariotaku.twidere.provider.TweetStore.Tabs;
 import org.mariotaku.twidere.util.HtmlLinkExtractor.HtmlLink;
 import org.mariotaku.twidere.util.httpclient.HttpClientImpl;
+import org.mariotaku.twidere.util.metrics.Metrics;
+import org.mariotaku.twidere.util.metrics.Timer;
 
 import twitter4j.DirectMessage;
 import twitter4j.EntitySupport;
@@ -136,14 +138,18 @@ import twitter4j.TwitterFactory;
 import twitter4j.URLEntity;
 import twitter4j.User;
 import twitter4j.UserList;
+import twitter4j.UserMentionEntity;
 import twitter4j.auth.AccessToken;
 import twitter4j.auth.BasicAuthorization;
 import twitter4j.auth.TwipOModeAuthorization;
 import twitter4j.conf.Configuration;
 import twitter4j.conf.ConfigurationBuilder;
 import twitter4j.http.HostAddressResolver;
+import twitter4j.http.HttpClient;
 import twitter4j.http.HttpClientWrapper;
+import twitter4j.http.HttpRequest;
 import twitter4j.http.HttpResponse;
+import twitter4j.http.RequestMethod;
 import android.app.Activity;
 import android.content.ContentResolver;
 import android.content.ContentValues;
@@ -205,6 +211,8 @@ public final class Utils implements Constants {
 
 	private static final UriMatcher LINK_HANDLER_URI_MATCHER = new UriMatcher(UriMatcher.NO_MATCH);
 
+	private static final Timer FILTER_TIMER = Metrics.getInstance().getTimer("filter.eval");
+
 	public static final HashMap<String, Class<? extends Fragment>> CUSTOM_TABS_FRAGMENT_MAP = new HashMap<String, Class<? extends Fragment>>();
 
 	public static final HashMap<String, Integer> CUSTOM_TABS_TYPE_NAME_MAP = new HashMap<String, Integer>();
@@ -237,11 +245,16 @@ public final class Utils implements Constants {
 		CONTENT_PROVIDER_URI_MATCHER.addURI(TweetStore.AUTHORITY, TABLE_CACHED_STATUSES, TABLE_ID_CACHED_STATUSES);
 		CONTENT_PROVIDER_URI_MATCHER.addURI(TweetStore.AUTHORITY, TABLE_CACHED_HASHTAGS, TABLE_ID_CACHED_HASHTAGS);
 		CONTENT_PROVIDER_URI_MATCHER.addURI(TweetStore.AUTHORITY, TABLE_CACHED_HASHTAGS, TABLE_ID_CACHED_HASHTAGS);
+		CONTENT_PROVIDER_URI_MATCHER.addURI(TweetStore.AUTHORITY, TABLE_TIMELINE_RANGES, TABLE_ID_TIMELINE_RANGES);
 		CONTENT_PROVIDER_URI_MATCHER.addURI(TweetStore.AUTHORITY, TABLE_NOTIFICATIONS + "/#",
 				VIRTUAL_TABLE_ID_NOTIFICATIONS);
 		CONTENT_PROVIDER_URI_MATCHER.addURI(TweetStore.AUTHORITY, TABLE_CONSUMER_KEY_SECRET,
 				VIRTUAL_TABLE_ID_CONSUMER_KEY_SECRET);
 		CONTENT_PROVIDER_URI_MATCHER.addURI(TweetStore.AUTHORITY, TABLE_PERMISSIONS, VIRTUAL_TABLE_ID_PERMISSIONS);
+		CONTENT_PROVIDER_URI_MATCHER.addURI(TweetStore.AUTHORITY, TABLE_SEARCH_STATUSES,
+				VIRTUAL_TABLE_ID_SEARCH_STATUSES);
+		CONTENT_PROVIDER_URI_MATCHER.addURI(TweetStore.AUTHORITY, TABLE_SEARCH_DIRECT_MESSAGES,
+				VIRTUAL_TABLE_ID_SEARCH_DIRECT_MESSAGES);
 
 		LINK_HANDLER_URI_MATCHER.addURI(AUTHORITY_STATUS, null, LINK_ID_STATUS);
 		LINK_HANDLER_URI_MATCHER.addURI(AUTHORITY_USER, null, LINK_ID_USER);
@@ -417,35 +430,33 @@ public final class Utils implements Constants {
 			builder.append(selection);
 			builder.append(" AND ");
 		}
+		builder.append("(");
 		builder.append(Statuses._ID + " NOT IN ( ");
 		builder.append("SELECT DISTINCT " + table + "." + Statuses._ID + " FROM " + table);
 		builder.append(" WHERE " + table + "." + Statuses.SCREEN_NAME + " IN ( SELECT " + TABLE_FILTERED_USERS + "."
 				+ Filters.Users.TEXT + " FROM " + TABLE_FILTERED_USERS + " )");
-		builder.append(" AND " + table + "." + Statuses.IS_GAP + " IS NULL");
-		builder.append(" OR " + table + "." + Statuses.IS_GAP + " == 0");
 		builder.append(" UNION ");
 		builder.append("SELECT DISTINCT " + table + "." + Statuses._ID + " FROM " + table + ", "
 				+ TABLE_FILTERED_SOURCES);
 		builder.append(" WHERE " + table + "." + Statuses.SOURCE + " LIKE '%>'||" + TABLE_FILTERED_SOURCES + "."
 				+ Filters.Sources.TEXT + "||'</a>%'");
-		builder.append(" AND " + table + "." + Statuses.IS_GAP + " IS NULL");
-		builder.append(" OR " + table + "." + Statuses.IS_GAP + " == 0");
 		builder.append(" UNION ");
 		builder.append("SELECT DISTINCT " + table + "." + Statuses._ID + " FROM " + table + ", "
 				+ TABLE_FILTERED_KEYWORDS);
 		builder.append(" WHERE " + table + "." + Statuses.TEXT_PLAIN + " LIKE '%'||" + TABLE_FILTERED_KEYWORDS + "."
 				+ Filters.Keywords.TEXT + "||'%'");
-		builder.append(" AND " + table + "." + Statuses.IS_GAP + " IS NULL");
-		builder.append(" OR " + table + "." + Statuses.IS_GAP + " == 0");
 		builder.append(" UNION ");
 		builder.append("SELECT DISTINCT " + table + "." + Statuses._ID + " FROM " + table + ", " + TABLE_FILTERED_LINKS);
 		builder.append(" WHERE " + table + "." + Statuses.TEXT_HTML + " LIKE '%<a href=\"%'||" + TABLE_FILTERED_LINKS
 				+ "." + Filters.Links.TEXT + "||'%\">%'");
 		builder.append(" OR " + table + "." + Statuses.TEXT_HTML + " LIKE '%>%'||" + TABLE_FILTERED_LINKS + "."
 				+ Filters.Links.TEXT + "||'%</a>%'");
-		builder.append(" AND " + table + "." + Statuses.IS_GAP + " IS NULL");
-		builder.append(" OR " + table + "." + Statuses.IS_GAP + " == 0");
 		builder.append(" )");
+		if (TimelineRangeUtils.hasRanges(table)) {
+			// Gaps are never filtered, or they couldn't be loaded.
+			builder.append(" OR " + TimelineRangeUtils.buildGapSelection(table));
+		}
+		builder.append(")");
 		return builder.toString();
 	}
 
@@ -499,7 +510,9 @@ public final class Utils implements Constants {
 				where.append(" WHERE " + Statuses.ACCOUNT_ID + " = " + account_id);
 				where.append(" ORDER BY " + Statuses.STATUS_ID + " DESC");
 				where.append(" LIMIT " + item_limit + ")");
-				resolver.delete(uri, where.toString(), null);
+				if (resolver.delete(uri, where.toString(), null) > 0) {
+					TimelineRangeUtils.trimRanges(resolver, uri, account_id);
+				}
 			}
 			for (final Uri uri : DIRECT_MESSAGES_URIS) {
 				final String table = getTableNameByUri(uri);
@@ -649,8 +662,9 @@ public final class Utils implements Constants {
 		final ContentResolver resolver = context.getContentResolver();
 		final boolean large_profile_image = context.getResources().getBoolean(R.bool.hires_profile_image);
 		resolver.delete(CachedStatuses.CONTENT_URI, where, null);
-		resolver.insert(CachedStatuses.CONTENT_URI, makeStatusContentValues(status, account_id, large_profile_image));
-		return new ParcelableStatus(status, account_id, false, large_profile_image, true);
+		resolver.insert(CachedStatuses.CONTENT_URI,
+				makeStatusContentValues(status, account_id, getAccountIds(context), large_profile_image));
+		return new ParcelableStatus(status, account_id, getAccountIds(context), false, large_profile_image, true);
 	}
 
 	public static ParcelableStatus findStatusInDatabases(final Context context, final long account_id,
@@ -1168,6 +1182,12 @@ public final class Utils implements Constants {
 
 	public static HttpClientWrapper getHttpClient(final int timeout_millis, final boolean ignore_ssl_error,
 			final Proxy proxy, final HostAddressResolver resolver, final String user_agent) {
+		return new HttpClientWrapper(getHttpClientConfiguration(timeout_millis, ignore_ssl_error, proxy, resolver,
+				user_agent));
+	}
+
+	public static Configuration getHttpClientConfiguration(final int timeout_millis, final boolean ignore_ssl_error,
+			final Proxy proxy, final HostAddressResolver resolver, final String user_agent) {
 		final ConfigurationBuilder cb = new ConfigurationBuilder();
 		cb.setHttpConnectionTimeout(timeout_millis);
 		cb.setIgnoreSSLError(ignore_ssl_error);
@@ -1183,17 +1203,31 @@ public final class Utils implements Constants {
 			cb.setUserAgent(user_agent);
 		}
 		// cb.setHttpClientImplementation(HttpClientImpl.class);
-		return new HttpClientWrapper(cb.build());
+		return cb.build();
+	}
+
+	/**
+	 * Client for downloading whole image files. Unlike twitter4j's client, it
+	 * accepts <code>206 Partial Content</code> so downloads can be resumed.
+	 */
+	public static HttpClient getImageDownloadHttpClient(final Context context) {
+		if (context == null) return null;
+		return new HttpClientImpl(getImageLoaderHttpClientConfiguration(context));
 	}
 
 	public static HttpClientWrapper getImageLoaderHttpClient(final Context context) {
+		if (context == null) return null;
+		return new HttpClientWrapper(getImageLoaderHttpClientConfiguration(context));
+	}
+
+	public static Configuration getImageLoaderHttpClientConfiguration(final Context context) {
 		if (context == null) return null;
 		final SharedPreferences prefs = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
 		final int timeout_millis = prefs.getInt(PREFERENCE_KEY_CONNECTION_TIMEOUT, 10000) * 1000;
 		final Proxy proxy = getProxy(context);
 		final String user_agent = getBrowserUserAgent(context);
 		final HostAddressResolver resolver = TwidereApplication.getInstance(context).getHostAddressResolver();
-		return getHttpClient(timeout_millis, true, proxy, resolver, user_agent);
+		return getHttpClientConfiguration(timeout_millis, true, proxy, resolver, user_agent);
 	}
 
 	public static String getImageMimeType(final File image) {
@@ -1313,6 +1347,24 @@ public final class Utils implements Constants {
 
 	}
 
+	/**
+	 * @return IDs of given accounts mentioned in status, taken from its user
+	 *         mention entities.
+	 */
+	public static long[] getMentionedAccountIds(final Status status, final long[] account_ids) {
+		if (status == null || account_ids == null) return new long[0];
+		final UserMentionEntity[] mentions = status.getUserMentionEntities();
+		if (mentions == null || mentions.length == 0) return new long[0];
+		final List<Long> mentioned_ids = new ArrayList<Long>();
+		for (final UserMentionEntity mention : mentions) {
+			final long user_id = mention.getId();
+			if (ArrayUtils.contains(account_ids, user_id) && !mentioned_ids.contains(user_id)) {
+				mentioned_ids.add(user_id);
+			}
+		}
+		return ArrayUtils.fromList(mentioned_ids);
+	}
+
 	public static ImageSpec getMobyPictureImage(final String id, final String orig, final boolean large_image_preview) {
 		if (isEmpty(id)) return null;
 		final String full = "https://moby.to/" + id + ":full";
@@ -1329,50 +1381,26 @@ public final class Utils implements Constants {
 
 	public static long[] getNewestMessageIdsFromDatabase(final Context context, final Uri uri) {
 		if (context == null || uri == null) return null;
-		final long[] account_ids = getActivatedAccountIds(context);
-		final String[] cols = new String[] { DirectMessages.MESSAGE_ID };
-		final ContentResolver resolver = context.getContentResolver();
-		final long[] status_ids = new long[account_ids.length];
-		int idx = 0;
-		for (final long account_id : account_ids) {
-			final String where = Statuses.ACCOUNT_ID + " = " + account_id;
-			final Cursor cur = resolver.query(uri, cols, where, null, DirectMessages.DEFAULT_SORT_ORDER);
-			if (cur == null) {
-				continue;
-			}
+		return getNewestMessageIdsFromDatabase(context, uri, getActivatedAccountIds(context));
+	}
 
-			if (cur.getCount() > 0) {
-				cur.moveToFirst();
-				status_ids[idx] = cur.getLong(cur.getColumnIndexOrThrow(DirectMessages.MESSAGE_ID));
-			}
-			cur.close();
-			idx++;
-		}
-		return status_ids;
+	public static long[] getNewestMessageIdsFromDatabase(final Context context, final Uri uri,
+			final long[] account_ids) {
+		if (context == null || uri == null || account_ids == null) return null;
+		final IdWatermarks watermarks = TwidereApplication.getInstance(context).getIdWatermarks();
+		return watermarks.getNewestIds(getTableNameByUri(uri), account_ids);
 	}
 
 	public static long[] getNewestStatusIdsFromDatabase(final Context context, final Uri uri) {
 		if (context == null || uri == null) return null;
-		final long[] account_ids = getActivatedAccountIds(context);
-		final String[] cols = new String[] { Statuses.STATUS_ID };
-		final ContentResolver resolver = context.getContentResolver();
-		final long[] status_ids = new long[account_ids.length];
-		int idx = 0;
-		for (final long account_id : account_ids) {
-			final String where = Statuses.ACCOUNT_ID + " = " + account_id;
-			final Cursor cur = resolver.query(uri, cols, where, null, Statuses.DEFAULT_SORT_ORDER);
-			if (cur == null) {
-				continue;
-			}
+		return getNewestStatusIdsFromDatabase(context, uri, getActivatedAccountIds(context));
+	}
 
-			if (cur.getCount() > 0) {
-				cur.moveToFirst();
-				status_ids[idx] = cur.getLong(cur.getColumnIndexOrThrow(Statuses.STATUS_ID));
-			}
-			cur.close();
-			idx++;
-		}
-		return status_ids;
+	public static long[] getNewestStatusIdsFromDatabase(final Context context, final Uri uri,
+			final long[] account_ids) {
+		if (context == null || uri == null || account_ids == null) return null;
+		final IdWatermarks watermarks = TwidereApplication.getInstance(context).getIdWatermarks();
+		return watermarks.getNewestIds(getTableNameByUri(uri), account_ids);
 	}
 
 	public static String getNormalTwitterProfileImage(final String url) {
@@ -1384,50 +1412,14 @@ public final class Utils implements Constants {
 
 	public static long[] getOldestMessageIdsFromDatabase(final Context context, final Uri uri) {
 		if (context == null || uri == null) return null;
-		final long[] account_ids = getActivatedAccountIds(context);
-		final String[] cols = new String[] { DirectMessages.MESSAGE_ID };
-		final ContentResolver resolver = context.getContentResolver();
-		final long[] status_ids = new long[account_ids.length];
-		int idx = 0;
-		for (final long account_id : account_ids) {
-			final String where = Statuses.ACCOUNT_ID + " = " + account_id;
-			final Cursor cur = resolver.query(uri, cols, where, null, DirectMessages.MESSAGE_ID);
-			if (cur == null) {
-				continue;
-			}
-
-			if (cur.getCount() > 0) {
-				cur.moveToFirst();
-				status_ids[idx] = cur.getLong(cur.getColumnIndexOrThrow(DirectMessages.MESSAGE_ID));
-			}
-			cur.close();
-			idx++;
-		}
-		return status_ids;
+		final IdWatermarks watermarks = TwidereApplication.getInstance(context).getIdWatermarks();
+		return watermarks.getOldestIds(getTableNameByUri(uri), getActivatedAccountIds(context));
 	}
 
 	public static long[] getOldestStatusIdsFromDatabase(final Context context, final Uri uri) {
 		if (context == null || uri == null) return null;
-		final long[] account_ids = getActivatedAccountIds(context);
-		final String[] cols = new String[] { Statuses.STATUS_ID };
-		final ContentResolver resolver = context.getContentResolver();
-		final long[] status_ids = new long[account_ids.length];
-		int idx = 0;
-		for (final long account_id : account_ids) {
-			final String where = Statuses.ACCOUNT_ID + " = " + account_id;
-			final Cursor cur = resolver.query(uri, cols, where, null, Statuses.STATUS_ID);
-			if (cur == null) {
-				continue;
-			}
-
-			if (cur.getCount() > 0) {
-				cur.moveToFirst();
-				status_ids[idx] = cur.getLong(cur.getColumnIndexOrThrow(Statuses.STATUS_ID));
-			}
-			cur.close();
-			idx++;
-		}
-		return status_ids;
+		final IdWatermarks watermarks = TwidereApplication.getInstance(context).getIdWatermarks();
+		return watermarks.getOldestIds(getTableNameByUri(uri), getActivatedAccountIds(context));
 	}
 
 	public static String getOriginalTwitterProfileImage(final String url) {
@@ -1490,33 +1482,17 @@ public final class Utils implements Constants {
 
 	public static HttpResponse getRedirectedHttpResponse(final HttpClientWrapper client, final String url)
 			throws TwitterException {
-		if (url == null) return null;
-		final ArrayList<String> urls = new ArrayList<String>();
-		urls.add(url);
-		HttpResponse resp;
-		try {
-			resp = client.get(url, url);
-		} catch (final TwitterException te) {
-			if (isRedirected(te.getStatusCode())) {
-				resp = te.getHttpResponse();
-			} else
-				throw te;
-		}
-		while (resp != null && isRedirected(resp.getStatusCode())) {
-			final String request_url = resp.getResponseHeader("Location");
-			if (request_url == null) return null;
-			if (urls.contains(request_url)) throw new TwitterException("Too many redirects");
-			urls.add(request_url);
-			try {
-				resp = client.get(request_url, request_url);
-			} catch (final TwitterException te) {
-				if (isRedirected(te.getStatusCode())) {
-					resp = te.getHttpResponse();
-				} else
-					throw te;
-			}
-		}
-		return resp;
+		return getRedirectedHttpResponse(client, null, url, null);
+	}
+
+	/**
+	 * Same as {@link #getRedirectedHttpResponse(HttpClientWrapper, String)},
+	 * but sends extra request headers (e.g. <code>Range</code>) with every
+	 * request in the redirect chain.
+	 */
+	public static HttpResponse getRedirectedHttpResponse(final HttpClient client, final String url,
+			final Map<String, String> headers) throws TwitterException {
+		return getRedirectedHttpResponse(null, client, url, headers);
 	}
 
 	public static String getShareStatus(final Context context, final CharSequence title, final CharSequence text) {
@@ -1648,6 +1624,8 @@ public final class Utils implements Constants {
 				return TABLE_CACHED_STATUSES;
 			case TABLE_ID_CACHED_HASHTAGS:
 				return TABLE_CACHED_HASHTAGS;
+			case TABLE_ID_TIMELINE_RANGES:
+				return TABLE_TIMELINE_RANGES;
 			default:
 				return null;
 		}
@@ -1891,25 +1869,15 @@ public final class Utils implements Constants {
 	public static boolean isFiltered(final SQLiteDatabase database, final String text_plain, final String text_html,
 			final String screen_name, final String source) {
 		if (database == null) return false;
-		final StringBuilder builder = new StringBuilder();
+		final long start = Timer.start();
 		final String[] selection_args = new String[] { text_plain, text_html, screen_name, source };
-		builder.append("SELECT NULL WHERE");
-		builder.append("(SELECT 1 IN (SELECT ? LIKE '%'||" + TABLE_FILTERED_KEYWORDS + "." + Filters.TEXT
-				+ "||'%' FROM " + TABLE_FILTERED_KEYWORDS + "))");
-		builder.append(" OR ");
-		builder.append("(SELECT 1 IN (SELECT ? LIKE '%<a href=\"%'||" + TABLE_FILTERED_LINKS + "." + Filters.TEXT
-				+ "||'%\">%' FROM " + TABLE_FILTERED_LINKS + "))");
-		builder.append(" OR ");
-		builder.append("(SELECT ? IN (SELECT " + Filters.TEXT + " FROM " + TABLE_FILTERED_USERS + "))");
-		builder.append(" OR ");
-		builder.append("(SELECT 1 IN (SELECT ? LIKE '%>'||" + TABLE_FILTERED_SOURCES + "." + Filters.TEXT
-				+ "||'</a>%' FROM " + TABLE_FILTERED_SOURCES + "))");
-		final Cursor cur = database.rawQuery(builder.toString(), selection_args);
+		final Cursor cur = database.rawQuery(Filters.QUERY_IS_FILTERED, selection_args);
 		if (cur == null) return false;
 		try {
 			return cur.getCount() > 0;
 		} finally {
 			cur.close();
+			FILTER_TIMER.stop(start);
 		}
 	}
 
@@ -2097,6 +2065,7 @@ public final class Utils implements Constants {
 		values.put(CachedUsers.URL, url);
 		values.put(CachedUsers.URL_EXPANDED, url != null && urls != null && urls.length > 0 ? parseString(urls[0].getExpandedURL()) : null);
 		values.put(CachedUsers.PROFILE_BANNER_URL, user.getProfileBannerImageUrl());
+		values.put(CachedUsers.LAST_UPDATED, System.currentTimeMillis());
 		return values;
 	}
 
@@ -2129,7 +2098,7 @@ public final class Utils implements Constants {
 	}
 
 	public static ContentValues makeStatusContentValues(Status status, final long account_id,
-			final boolean large_profile_image) {
+			final long[] account_ids, final boolean large_profile_image) {
 		if (status == null || status.getId() <= 0) return null;
 		final ContentValues values = new ContentValues();
 		values.put(Statuses.ACCOUNT_ID, account_id);
@@ -2168,6 +2137,10 @@ public final class Utils implements Constants {
 		values.put(Statuses.IN_REPLY_TO_STATUS_ID, status.getInReplyToStatusId());
 		values.put(Statuses.SOURCE, status.getSource());
 		values.put(Statuses.IS_POSSIBLY_SENSITIVE, status.isPossiblySensitive());
+		final long[] mentioned_account_ids = getMentionedAccountIds(status, account_ids);
+		if (mentioned_account_ids.length > 0) {
+			values.put(Statuses.MENTIONED_ACCOUNT_IDS, ArrayUtils.toString(mentioned_account_ids, ',', false));
+		}
 		final GeoLocation location = status.getGeoLocation();
 		if (location != null) {
 			values.put(Statuses.LOCATION, location.getLatitude() + "," + location.getLongitude());
@@ -3137,6 +3110,65 @@ public final class Utils implements Constants {
 		return orig.replaceAll("\\n+", "\n");
 	}
 
+	private static HttpResponse getHttpResponse(final HttpClientWrapper wrapper, final HttpClient client,
+			final String url, final Map<String, String> headers) throws TwitterException {
+		HttpResponse resp;
+		try {
+			if (wrapper != null) {
+				resp = wrapper.get(url, url);
+			} else {
+				resp = client.request(new HttpRequest(RequestMethod.GET, url, url, null, null, headers));
+			}
+		} catch (final TwitterException te) {
+			if (isRedirected(te.getStatusCode())) {
+				resp = te.getHttpResponse();
+			} else
+				throw te;
+		}
+		return resp;
+	}
+
+	/**
+	 * Follows redirects of url. Chains made only of permanent redirects are
+	 * remembered in {@link RedirectCache}, and the cached target is requested
+	 * directly next time. If that fails in any way, the entry is dropped and
+	 * the original url is followed again.
+	 */
+	private static HttpResponse getRedirectedHttpResponse(final HttpClientWrapper wrapper, final HttpClient client,
+			final String url, final Map<String, String> headers) throws TwitterException {
+		if (url == null) return null;
+		final RedirectCache cache = RedirectCache.getInstance();
+		final RedirectCache.Redirect redirect = cache.get(url);
+		if (redirect != null) {
+			try {
+				final HttpResponse resp = getHttpResponse(wrapper, client, redirect.target, headers);
+				if (resp != null && !isRedirected(resp.getStatusCode())) {
+					BandwidthStats.getInstance().onRedirectCacheHit(redirect.redirects);
+					return resp;
+				}
+			} catch (final TwitterException te) {
+				// Retry the original url below, the chain may have changed.
+			}
+			cache.remove(url);
+		}
+		final ArrayList<String> urls = new ArrayList<String>();
+		urls.add(url);
+		HttpResponse resp = getHttpResponse(wrapper, client, url, headers);
+		boolean permanent = true;
+		while (resp != null && isRedirected(resp.getStatusCode())) {
+			permanent &= resp.getStatusCode() == 301;
+			final String request_url = resp.getResponseHeader("Location");
+			if (request_url == null) return null;
+			if (urls.contains(request_url)) throw new TwitterException("Too many redirects");
+			urls.add(request_url);
+			resp = getHttpResponse(wrapper, client, request_url, headers);
+		}
+		if (permanent && resp != null && urls.size() > 1) {
+			cache.put(url, urls.get(urls.size() - 1), urls.size() - 1);
+		}
+		return resp;
+	}
+
 	private static Bitmap getTabIconFromFile(final File file, final Resources res) {
 		if (file == null || !file.exists()) return null;
 		final String path = file.getPath();
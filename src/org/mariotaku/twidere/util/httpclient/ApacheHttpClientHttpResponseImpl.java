@@ -21,11 +21,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
 
 import org.apache.http.Header;
 import org.apache.http.HeaderElement;
 import org.apache.http.HttpResponse;
+import org.mariotaku.twidere.util.BandwidthStats;
 
 import twitter4j.http.HttpClientConfiguration;
 
@@ -43,7 +43,7 @@ final class ApacheHttpClientHttpResponseImpl extends twitter4j.http.HttpResponse
 		statusCode = res.getStatusLine().getStatusCode();
 		if (is != null && "gzip".equals(getResponseHeader("Content-Encoding"))) {
 			// the response is gzipped
-			is = new GZIPInputStream(is);
+			is = BandwidthStats.getInstance().wrapGZIPStream(is);
 		}
 	}
 
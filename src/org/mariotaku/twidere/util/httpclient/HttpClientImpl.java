@@ -46,6 +46,7 @@ import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.params.HttpClientParams;
 import org.apache.http.conn.params.ConnRoutePNames;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
@@ -61,6 +62,7 @@ import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.CoreProtocolPNames;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.mariotaku.twidere.util.RateLimitGovernor;
 
 import twitter4j.TwitterException;
 import twitter4j.http.HostAddressResolver;
@@ -79,6 +81,7 @@ import twitter4j.internal.util.InternalStringUtil;
  */
 public class HttpClientImpl implements twitter4j.http.HttpClient, HttpResponseCode {
 	private static final Logger logger = Logger.getLogger(HttpClientImpl.class);
+	private static final int PARTIAL_CONTENT = 206;
 	private final HttpClientConfiguration conf;
 	private final HttpClient client;
 
@@ -97,6 +100,8 @@ public class HttpClientImpl implements twitter4j.http.HttpClient, HttpResponseCo
 		final HttpParams client_params = client.getParams();
 		HttpConnectionParams.setConnectionTimeout(client_params, conf.getHttpConnectionTimeout());
 		HttpConnectionParams.setSoTimeout(client_params, conf.getHttpReadTimeout());
+		// Redirects are handled by callers, same as twitter4j's own client.
+		HttpClientParams.setRedirecting(client_params, false);
 
 		if (conf.getHttpProxyHost() != null && !conf.getHttpProxyHost().equals("")) {
 			final HttpHost proxy = new HttpHost(conf.getHttpProxyHost(), conf.getHttpProxyPort());
@@ -125,7 +130,8 @@ public class HttpClientImpl implements twitter4j.http.HttpClient, HttpResponseCo
 			final URL url_orig = new URL(url_string);
 			final String host = url_orig.getHost();
 			final String resolved_host = resolver != null ? resolver.resolve(host) : null;
-			final String resolved_url = isEmpty(resolved_host) ? url_string.replace("://" + host, "://" + resolved_host)
+			final boolean rewrite_host = !isEmpty(resolved_host) && !host.equals(resolved_host);
+			final String resolved_url = rewrite_host ? url_string.replace("://" + host, "://" + resolved_host)
 					: url_string;
 
 			if (req.getMethod() == RequestMethod.GET) {
@@ -175,15 +181,20 @@ public class HttpClientImpl implements twitter4j.http.HttpClient, HttpResponseCo
 			for (final String headerName : headers.keySet()) {
 				commonsRequest.addHeader(headerName, headers.get(headerName));
 			}
+			if (conf.isGZIPEnabled() && !headers.containsKey("Accept-Encoding")) {
+				commonsRequest.addHeader("Accept-Encoding", "gzip");
+			}
 			String authorizationHeader;
 			if (req.getAuthorization() != null
 					&& (authorizationHeader = req.getAuthorization().getAuthorizationHeader(req)) != null) {
 				commonsRequest.addHeader("Authorization", authorizationHeader);
 			}
-			if (isEmpty(resolved_host) && !host.equals(resolved_host)) {
+			if (rewrite_host) {
 				commonsRequest.addHeader("Host", host);
 			}
 
+			final RateLimitGovernor governor = RateLimitGovernor.getInstance();
+			governor.checkRequest(req);
 			final ApacheHttpClientHttpResponseImpl res;
 			try {
 				res = new ApacheHttpClientHttpResponseImpl(client.execute(commonsRequest), conf);
@@ -194,8 +205,10 @@ public class HttpClientImpl implements twitter4j.http.HttpClient, HttpResponseCo
 				// I don't know why this causes OOM, but it should be catched.
 				throw new TwitterException("Unknown error", e);
 			}
+			governor.onResponse(req, res);
 			final int statusCode = res.getStatusCode();
-			if (statusCode < OK || statusCode > ACCEPTED) throw new TwitterException(res.asString(), req, res);
+			if ((statusCode < OK || statusCode > ACCEPTED) && statusCode != PARTIAL_CONTENT)
+				throw new TwitterException(res.asString(), req, res);
 			return res;
 		} catch (final IOException e) {
 			throw new TwitterException(e);
@@ -0,0 +1,53 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class Counter {
+
+	private final String mName;
+	private final AtomicLong mCount = new AtomicLong();
+
+	Counter(final String name) {
+		mName = name;
+	}
+
+	public long get() {
+		return mCount.get();
+	}
+
+	public String getName() {
+		return mName;
+	}
+
+	public void increment() {
+		mCount.incrementAndGet();
+	}
+
+	public void increment(final long delta) {
+		mCount.addAndGet(delta);
+	}
+
+	@Override
+	public String toString() {
+		return mName + ": " + mCount.get();
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer, single-consumer queue. Producers never block, items
+ * offered while the buffer is full are dropped and counted.
+ */
+final class EventRingBuffer<E> {
+
+	private final int mCapacity;
+	private final AtomicReferenceArray<E> mSlots;
+	private final AtomicLong mWriteSequence = new AtomicLong();
+	private final AtomicLong mReadSequence = new AtomicLong();
+	private final AtomicLong mDropped = new AtomicLong();
+
+	EventRingBuffer(final int capacity) {
+		mCapacity = capacity;
+		mSlots = new AtomicReferenceArray<E>(capacity);
+	}
+
+	long getDroppedCount() {
+		return mDropped.get();
+	}
+
+	boolean offer(final E item) {
+		long sequence;
+		do {
+			sequence = mWriteSequence.get();
+			if (sequence - mReadSequence.get() >= mCapacity) {
+				mDropped.incrementAndGet();
+				return false;
+			}
+		} while (!mWriteSequence.compareAndSet(sequence, sequence + 1));
+		mSlots.set((int) (sequence % mCapacity), item);
+		return true;
+	}
+
+	/**
+	 * Must only be called from the consumer thread.
+	 * 
+	 * @return null if there's no published item
+	 */
+	E poll() {
+		final long sequence = mReadSequence.get();
+		final int index = (int) (sequence % mCapacity);
+		final E item = mSlots.get(index);
+		// Slot is claimed but not published yet.
+		if (item == null) return null;
+		mSlots.set(index, null);
+		mReadSequence.set(sequence + 1);
+		return item;
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of non-negative values. Values are counted in log-linear
+ * buckets (four per power of two), so percentiles are accurate to about 25%
+ * at any magnitude.
+ */
+public class Histogram {
+
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final String mName;
+	private final Metrics mMetrics;
+	private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong mCount = new AtomicLong();
+	private final AtomicLong mSum = new AtomicLong();
+	private final AtomicLong mMax = new AtomicLong();
+
+	Histogram(final Metrics metrics, final String name) {
+		mMetrics = metrics;
+		mName = name;
+	}
+
+	public long getCount() {
+		return mCount.get();
+	}
+
+	public long getMax() {
+		return mMax.get();
+	}
+
+	public double getMean() {
+		final long count = mCount.get();
+		return count > 0 ? (double) mSum.get() / count : 0;
+	}
+
+	public String getName() {
+		return mName;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 */
+	public long getPercentile(final double percentile) {
+		final long count = mCount.get();
+		if (count == 0) return 0;
+		final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += mBuckets.get(i);
+			if (seen >= rank) return Math.min(getBucketUpperBound(i), mMax.get());
+		}
+		return mMax.get();
+	}
+
+	public void record(final long value) {
+		final long v = Math.max(0, value);
+		mBuckets.incrementAndGet(getBucketIndex(v));
+		mCount.incrementAndGet();
+		mSum.addAndGet(v);
+		long max;
+		while (v > (max = mMax.get()) && !mMax.compareAndSet(max, v)) {
+		}
+		mMetrics.onRecord(this, v);
+	}
+
+	@Override
+	public String toString() {
+		return mName + ": n=" + getCount() + ", p50=" + format(getPercentile(50)) + ", p90="
+				+ format(getPercentile(90)) + ", p99=" + format(getPercentile(99)) + ", max=" + format(getMax());
+	}
+
+	protected String format(final long value) {
+		return String.valueOf(value);
+	}
+
+	static int getBucketIndex(final long value) {
+		if (value < SUB_BUCKETS) return (int) value;
+		final int exp = 63 - Long.numberOfLeadingZeros(value);
+		final int sub = (int) (value >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exp - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	static long getBucketLowerBound(final int index) {
+		if (index < SUB_BUCKETS) return index;
+		final int exp = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		final long sub = index % SUB_BUCKETS;
+		return (SUB_BUCKETS + sub) << (exp - SUB_BUCKET_BITS);
+	}
+
+	static long getBucketUpperBound(final int index) {
+		if (index + 1 >= BUCKET_COUNT) return Long.MAX_VALUE;
+		return getBucketLowerBound(index + 1) - 1;
+	}
+}
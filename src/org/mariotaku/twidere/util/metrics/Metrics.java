@@ -0,0 +1,260 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * In-process counters, histograms and timers for hot paths.
+ * <p>
+ * Recording only touches atomic variables. When logging is enabled, recorded
+ * values are also queued in a lock free ring buffer, and a single background
+ * thread appends them to {@link #LOG_FILE_NAME} as
+ * <code>name value timestamp</code> lines.
+ */
+public final class Metrics {
+
+	public static final String LOG_FILE_NAME = "metrics.log";
+
+	private static final String LOGTAG = Metrics.class.getSimpleName();
+
+	private static final int BUFFER_CAPACITY = 8192;
+	private static final long FLUSH_INTERVAL = 5000;
+	private static final long MAX_LOG_FILE_SIZE = 1024 * 1024;
+
+	private static final Comparator<Object> NAME_COMPARATOR = new Comparator<Object>() {
+
+		@Override
+		public int compare(final Object object1, final Object object2) {
+			return getName(object1).compareTo(getName(object2));
+		}
+
+		private String getName(final Object object) {
+			if (object instanceof Counter) return ((Counter) object).getName();
+			return ((Histogram) object).getName();
+		}
+	};
+
+	private static Metrics sInstance;
+
+	private final ConcurrentHashMap<String, Counter> mCounters = new ConcurrentHashMap<String, Counter>();
+	private final ConcurrentHashMap<String, Histogram> mHistograms = new ConcurrentHashMap<String, Histogram>();
+	private final EventRingBuffer<Event> mEvents = new EventRingBuffer<Event>(BUFFER_CAPACITY);
+
+	private volatile File mFilesDir;
+	private volatile boolean mLoggingEnabled;
+
+	private Metrics() {
+		final Thread flusher = new Thread(new Flusher(), "MetricsFlusher");
+		flusher.setDaemon(true);
+		flusher.setPriority(Thread.MIN_PRIORITY);
+		flusher.start();
+	}
+
+	public Counter getCounter(final String name) {
+		final Counter counter = mCounters.get(name);
+		if (counter != null) return counter;
+		final Counter new_counter = new Counter(name);
+		final Counter existing = mCounters.putIfAbsent(name, new_counter);
+		return existing != null ? existing : new_counter;
+	}
+
+	public List<Counter> getCounters() {
+		final List<Counter> counters = new ArrayList<Counter>(mCounters.values());
+		Collections.sort(counters, NAME_COMPARATOR);
+		return counters;
+	}
+
+	public long getDroppedEventsCount() {
+		return mEvents.getDroppedCount();
+	}
+
+	public Histogram getHistogram(final String name) {
+		final Histogram histogram = mHistograms.get(name);
+		if (histogram != null) return histogram;
+		final Histogram new_histogram = new Histogram(this, name);
+		final Histogram existing = mHistograms.putIfAbsent(name, new_histogram);
+		return existing != null ? existing : new_histogram;
+	}
+
+	public List<Histogram> getHistograms() {
+		final List<Histogram> histograms = new ArrayList<Histogram>(mHistograms.values());
+		Collections.sort(histograms, NAME_COMPARATOR);
+		return histograms;
+	}
+
+	public Timer getTimer(final String name) {
+		final Histogram histogram = mHistograms.get(name);
+		if (histogram == null) {
+			final Timer new_timer = new Timer(this, name);
+			final Histogram existing = mHistograms.putIfAbsent(name, new_timer);
+			if (existing == null) return new_timer;
+			return checkTimer(existing);
+		}
+		return checkTimer(histogram);
+	}
+
+	public void init(final Context context) {
+		if (mFilesDir != null || context == null) return;
+		mFilesDir = context.getFilesDir();
+	}
+
+	/**
+	 * Appends <code>[timestamp], text</code> to file_name in the application
+	 * files directory, in background.
+	 */
+	public void log(final Context context, final String file_name, final String text) {
+		init(context);
+		mEvents.offer(new Event(file_name, text, 0, System.currentTimeMillis()));
+	}
+
+	public void setLoggingEnabled(final boolean enabled) {
+		mLoggingEnabled = enabled;
+	}
+
+	void onRecord(final Histogram histogram, final long value) {
+		if (!mLoggingEnabled) return;
+		mEvents.offer(new Event(LOG_FILE_NAME, histogram.getName(), value, System.currentTimeMillis()));
+	}
+
+	private void flush(final Map<String, Long> counter_values) {
+		final File dir = mFilesDir;
+		if (dir == null) return;
+		final HashMap<String, StringBuilder> output = new HashMap<String, StringBuilder>();
+		Event event;
+		while ((event = mEvents.poll()) != null) {
+			event.appendTo(getBuilder(output, event.file_name));
+		}
+		if (mLoggingEnabled) {
+			final long now = System.currentTimeMillis();
+			for (final Counter counter : mCounters.values()) {
+				final long value = counter.get();
+				final Long last_value = counter_values.put(counter.getName(), value);
+				if (last_value == null || last_value != value) {
+					new Event(LOG_FILE_NAME, counter.getName(), value, now).appendTo(getBuilder(output,
+							LOG_FILE_NAME));
+				}
+			}
+		}
+		for (final Map.Entry<String, StringBuilder> entry : output.entrySet()) {
+			final File file = new File(dir, entry.getKey());
+			if (LOG_FILE_NAME.equals(entry.getKey()) && file.length() > MAX_LOG_FILE_SIZE) {
+				final File old_file = new File(dir, LOG_FILE_NAME + ".1");
+				old_file.delete();
+				file.renameTo(old_file);
+			}
+			OutputStream os = null;
+			try {
+				os = new FileOutputStream(file, true);
+				os.write(entry.getValue().toString().getBytes("UTF-8"));
+			} catch (final IOException e) {
+				Log.w(LOGTAG, e);
+			} finally {
+				if (os != null) {
+					try {
+						os.close();
+					} catch (final IOException e) {
+						// Ignore.
+					}
+				}
+			}
+		}
+	}
+
+	public static Metrics getInstance() {
+		synchronized (Metrics.class) {
+			if (sInstance == null) {
+				sInstance = new Metrics();
+			}
+			return sInstance;
+		}
+	}
+
+	private static Timer checkTimer(final Histogram histogram) {
+		if (histogram instanceof Timer) return (Timer) histogram;
+		throw new IllegalArgumentException(histogram.getName() + " is not a timer");
+	}
+
+	private static StringBuilder getBuilder(final Map<String, StringBuilder> output, final String file_name) {
+		final StringBuilder builder = output.get(file_name);
+		if (builder != null) return builder;
+		final StringBuilder new_builder = new StringBuilder();
+		output.put(file_name, new_builder);
+		return new_builder;
+	}
+
+	private static final class Event {
+
+		final String file_name;
+		final String text;
+		final long value;
+		final long time;
+
+		Event(final String file_name, final String text, final long value, final long time) {
+			this.file_name = file_name;
+			this.text = text;
+			this.value = value;
+			this.time = time;
+		}
+
+		void appendTo(final StringBuilder builder) {
+			if (LOG_FILE_NAME.equals(file_name)) {
+				builder.append(text).append(' ').append(value).append(' ').append(time).append('\n');
+			} else {
+				builder.append('[').append(time).append("], ").append(text).append('\n');
+			}
+		}
+	}
+
+	private final class Flusher implements Runnable {
+
+		private final Map<String, Long> mCounterValues = new LinkedHashMap<String, Long>();
+
+		@Override
+		public void run() {
+			while (true) {
+				try {
+					Thread.sleep(FLUSH_INTERVAL);
+				} catch (final InterruptedException e) {
+					return;
+				}
+				try {
+					flush(mCounterValues);
+				} catch (final RuntimeException e) {
+					Log.w(LOGTAG, e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ *				Twidere - Twitter client for Android
+ * 
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util.metrics;
+
+import java.util.Locale;
+
+/**
+ * {@link Histogram} of durations in microseconds.
+ */
+public final class Timer extends Histogram {
+
+	Timer(final Metrics metrics, final String name) {
+		super(metrics, name);
+	}
+
+	/**
+	 * Records time elapsed since start, which is a value returned by
+	 * {@link #start()}.
+	 */
+	public void stop(final long start) {
+		record((System.nanoTime() - start) / 1000);
+	}
+
+	@Override
+	protected String format(final long value) {
+		return String.format(Locale.US, "%.1fms", value / 1000.0);
+	}
+
+	public static long start() {
+		return System.nanoTime();
+	}
+}